@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+/**
+ * Check, made before every access by a {@link ByteReader} or {@link ByteWriter} over memory which
+ * may be released independently of the reader or writer (e.g. an {@link OffHeapArena} or a
+ * {@link MappedBytes} mapping), that the memory is still valid; this turns use after release
+ * into an exception, rather than a crash of the JVM.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+@FunctionalInterface
+interface AccessGuard {
+
+    /**
+     * @throws IllegalStateException if the memory has been released
+     */
+    void ensureOpen() throws IllegalStateException;
+}
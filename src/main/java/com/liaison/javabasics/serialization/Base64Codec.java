@@ -0,0 +1,724 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Table-driven Base64 (RFC 4648) codec which reads and writes caller-supplied arrays and buffers,
+ * so that neither encoding nor decoding needs the intermediate arrays and strings of
+ * {@link java.util.Base64}'s <code>byte[]</code>- and <code>String</code>-based methods. Every
+ * operation accepts a region (offset and length) of its input; encoding may append directly to a
+ * {@link StringBuilder}, and decoding reads any {@link CharSequence} in place, without copying it.
+ * Large payloads may be streamed with {@link #wrap(OutputStream)} and {@link #wrap(InputStream)}.
+ * <br><br>
+ * {@link #STANDARD} and {@link #URL_SAFE} produce exactly the output of
+ * {@link Base64#getEncoder()} and {@link Base64#getUrlEncoder()}, respectively. Decoding is
+ * strict, as with {@link Base64#getDecoder()}: characters outside the alphabet (including line
+ * separators and whitespace) are rejected, and padding is optional, but must be correct if
+ * present.
+ * <br><br>
+ * Instances are immutable and thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class Base64Codec {
+
+    /**
+     * RFC 4648 section 4 alphabet, with padding.
+     */
+    public static final Base64Codec STANDARD;
+    /**
+     * RFC 4648 section 5 ("URL and filename safe") alphabet, with padding.
+     */
+    public static final Base64Codec URL_SAFE;
+
+    private static final byte PAD = '=';
+    /**
+     * Number of bytes encoded per step when a buffer must be staged through a scratch array; a
+     * multiple of 3, so that only the final step produces a partial quantum.
+     */
+    private static final int CHUNK_BYTES = 3 * 1024;
+    /**
+     * Number of characters decoded per step when a buffer must be staged through a scratch array;
+     * the encoding of {@link #CHUNK_BYTES} bytes.
+     */
+    private static final int CHUNK_CHARS = 4 * 1024;
+    private static final ThreadLocal<byte[]> SCRATCH =
+        ThreadLocal.withInitial(() -> new byte[CHUNK_BYTES + CHUNK_CHARS]);
+
+    private final boolean urlSafe;
+    private final boolean padding;
+    private final byte[] alphabet;
+    /**
+     * 6-bit value of each byte (or char below 256), or -1 if it is not in the alphabet.
+     */
+    private final byte[] values;
+
+    private static byte[] alphabet(final boolean urlSafe) {
+        final byte[] alphabet;
+        alphabet = new byte[64];
+        for (int value = 0; value < 26; value++) {
+            alphabet[value] = (byte) ('A' + value);
+            alphabet[value + 26] = (byte) ('a' + value);
+        }
+        for (int value = 0; value < 10; value++) {
+            alphabet[value + 52] = (byte) ('0' + value);
+        }
+        alphabet[62] = (byte) (urlSafe?'-':'+');
+        alphabet[63] = (byte) (urlSafe?'_':'/');
+        return alphabet;
+    }
+
+    private static byte[] values(final byte[] alphabet) {
+        final byte[] values;
+        values = new byte[256];
+        Arrays.fill(values, (byte) -1);
+        for (int value = 0; value < alphabet.length; value++) {
+            values[alphabet[value]] = (byte) value;
+        }
+        return values;
+    }
+
+    private static IllegalArgumentException invalidCharacter(final int index, final int character) {
+        return new IllegalArgumentException("Invalid Base64 character 0x"
+                                            + Integer.toHexString(character) + " at index " + index);
+    }
+
+    /**
+     * @return a codec with the same alphabet as this one, which does not write padding; it still
+     * accepts padded input
+     */
+    public Base64Codec withoutPadding() {
+        return padding?new Base64Codec(urlSafe, false):this;
+    }
+
+    /**
+     * @return whether this codec uses the URL and filename safe alphabet
+     */
+    public boolean isUrlSafe() {
+        return urlSafe;
+    }
+
+    /**
+     * @return whether this codec pads its output to a multiple of 4 characters
+     */
+    public boolean isPadding() {
+        return padding;
+    }
+
+    /**
+     * @param length number of bytes to encode
+     * @return the number of characters of the encoding of that many bytes
+     * @throws IllegalArgumentException if the length is negative, or the encoding would exceed
+     * {@link BytesUtil#BYTE_CONCAT_MAX_LENGTH}
+     */
+    public int encodedLength(final int length) throws IllegalArgumentException {
+        final long encodedLength;
+        if (length < 0) {
+            throw new IllegalArgumentException("Length may not be negative: " + length);
+        }
+        if (padding) {
+            encodedLength = ((length + 2L) / 3) * 4;
+        } else {
+            encodedLength = ((length / 3) * 4L) + (((length % 3) == 0)?0:((length % 3) + 1));
+        }
+        if (encodedLength > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Base64 encoding of " + length
+                                               + " bytes exceeds the capacity of an array");
+        }
+        return (int) encodedLength;
+    }
+
+    /**
+     * Encode bytes, without bounds checks.
+     * @param last whether this is the end of the input; if not, the length must be a multiple of 3
+     * @return the index in the destination immediately following the characters written
+     */
+    private int encodeUnchecked(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset, final boolean last) {
+        final int fullEnd;
+        final int remainder;
+        int index;
+        int at;
+        int bits;
+
+        remainder = length % 3;
+        fullEnd = offset + length - remainder;
+        index = offset;
+        at = destOffset;
+        while (index < fullEnd) {
+            bits = ((src[index] & 0xFF) << 16) | ((src[index + 1] & 0xFF) << 8) | (src[index + 2] & 0xFF);
+            dest[at] = alphabet[bits >>> 18];
+            dest[at + 1] = alphabet[(bits >>> 12) & 0x3F];
+            dest[at + 2] = alphabet[(bits >>> 6) & 0x3F];
+            dest[at + 3] = alphabet[bits & 0x3F];
+            index += 3;
+            at += 4;
+        }
+        if (last && (remainder > 0)) {
+            bits = (src[index] & 0xFF) << 8;
+            if (remainder == 2) {
+                bits |= src[index + 1] & 0xFF;
+            }
+            dest[at++] = alphabet[bits >>> 10];
+            dest[at++] = alphabet[(bits >>> 4) & 0x3F];
+            if (remainder == 2) {
+                dest[at++] = alphabet[(bits << 2) & 0x3F];
+            } else if (padding) {
+                dest[at++] = PAD;
+            }
+            if (padding) {
+                dest[at++] = PAD;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Encode a region of an array into an existing array. The encoding is ASCII, so each character
+     * occupies one byte.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the characters written
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds; see
+     * {@link #encodedLength(int)}
+     */
+    public int encode(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, encodedLength(length));
+        return encodeUnchecked(src, offset, length, dest, destOffset, true);
+    }
+
+    /**
+     * Encode a region of an array into a new array of ASCII characters.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the source is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public byte[] encode(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] encoded;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        encoded = new byte[encodedLength(length)];
+        encodeUnchecked(src, offset, length, encoded, 0, true);
+        return encoded;
+    }
+
+    /**
+     * Encode a region of an array into an array acquired from the given pool, rather than a new
+     * one. The encoding occupies the first {@link ByteWriter#position()} bytes of the writer's
+     * {@link ByteWriter#array()}; call {@link ByteWriter#release()} to return the array to the
+     * pool once done.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding
+     * @throws IllegalArgumentException if the source or pool is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public ByteWriter encode(final byte[] src, final int offset, final int length, final BufferPool pool) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final ByteWriter out;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(pool, this, "pool", BufferPool.class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        out = BytesUtil.pooledOutput(pool, encodedLength(length));
+        encodeUnchecked(src, offset, length, out.array(), 0, true);
+        return out;
+    }
+
+    /**
+     * Encode a region of an array directly into a string, with no intermediate copy beyond the one
+     * the string itself requires.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the source is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    @SuppressWarnings("deprecation")
+    public String encodeToString(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] encoded;
+        encoded = encode(src, offset, length);
+        // the encoding is ASCII, so the "hibyte" constructor copies it without decoding
+        return new String(encoded, 0, 0, encoded.length);
+    }
+
+    /**
+     * @param src the bytes to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the source is null
+     */
+    public String encodeToString(final byte[] src) throws IllegalArgumentException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        return encodeToString(src, 0, src.length);
+    }
+
+    /**
+     * Encode a region of an array, appending the characters directly to a builder (e.g. one in
+     * which a JSON document is being assembled).
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dest the builder to which to append
+     * @return the builder
+     * @throws IllegalArgumentException if the source or builder is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public StringBuilder encode(final byte[] src, final int offset, final int length, final StringBuilder dest) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int remainder;
+        final int fullEnd;
+        int index;
+        int bits;
+
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(dest, this, "dest", StringBuilder.class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        dest.ensureCapacity(dest.length() + encodedLength(length));
+        remainder = length % 3;
+        fullEnd = offset + length - remainder;
+        for (index = offset; index < fullEnd; index += 3) {
+            bits = ((src[index] & 0xFF) << 16) | ((src[index + 1] & 0xFF) << 8) | (src[index + 2] & 0xFF);
+            dest.append((char) alphabet[bits >>> 18])
+                .append((char) alphabet[(bits >>> 12) & 0x3F])
+                .append((char) alphabet[(bits >>> 6) & 0x3F])
+                .append((char) alphabet[bits & 0x3F]);
+        }
+        if (remainder > 0) {
+            bits = (src[index] & 0xFF) << 8;
+            if (remainder == 2) {
+                bits |= src[index + 1] & 0xFF;
+            }
+            dest.append((char) alphabet[bits >>> 10]).append((char) alphabet[(bits >>> 4) & 0x3F]);
+            if (remainder == 2) {
+                dest.append((char) alphabet[(bits << 2) & 0x3F]);
+            } else if (padding) {
+                dest.append((char) PAD);
+            }
+            if (padding) {
+                dest.append((char) PAD);
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Encode the remaining content of one buffer into another, advancing the position of the
+     * source to its limit and that of the destination past the characters written. Buffers which
+     * are not backed by accessible arrays are staged through a per-thread scratch array.
+     * @param src the buffer containing the bytes to encode
+     * @param dest the buffer into which to write
+     * @return the number of characters written
+     * @throws IllegalArgumentException if either buffer is null
+     * @throws BufferOverflowException if the encoding does not fit in the destination, in which
+     * case neither buffer is modified
+     * @throws ReadOnlyBufferException if the destination is read-only
+     */
+    public int encode(final ByteBuffer src, final ByteBuffer dest) throws IllegalArgumentException, BufferOverflowException, ReadOnlyBufferException {
+        final int encodedLength;
+        final byte[] scratch;
+        int count;
+
+        Util.ensureNotNull(src, this, "src", ByteBuffer.class);
+        Util.ensureNotNull(dest, this, "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        encodedLength = encodedLength(src.remaining());
+        if (encodedLength > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dest.hasArray()) {
+            encodeUnchecked(src.array(), src.arrayOffset() + src.position(), src.remaining(),
+                            dest.array(), dest.arrayOffset() + dest.position(), true);
+            src.position(src.limit());
+            dest.position(dest.position() + encodedLength);
+            return encodedLength;
+        }
+        scratch = SCRATCH.get();
+        while (src.hasRemaining()) {
+            count = Math.min(CHUNK_BYTES, src.remaining());
+            src.get(scratch, 0, count);
+            count = encodeUnchecked(scratch, 0, count, scratch, CHUNK_BYTES, !src.hasRemaining());
+            dest.put(scratch, CHUNK_BYTES, count - CHUNK_BYTES);
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Wrap a stream so that bytes written to the returned stream are Base64-encoded as they are
+     * written to the given one. The returned stream must be closed, to write the final quantum
+     * and any padding; closing it also closes the given stream.
+     * @param out the stream to which to write the encoding
+     * @return the encoding stream
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public OutputStream wrap(final OutputStream out) throws IllegalArgumentException {
+        final Base64.Encoder encoder;
+        Util.ensureNotNull(out, this, "out", OutputStream.class);
+        encoder = urlSafe?Base64.getUrlEncoder():Base64.getEncoder();
+        return (padding?encoder:encoder.withoutPadding()).wrap(out);
+    }
+
+    /**
+     * Determine the number of data (non-padding) characters in a region, validating the padding.
+     * @param length length of the region
+     * @param padCount number of padding characters at the end of the region (0, 1, or 2)
+     * @return the number of data characters
+     * @throws IllegalArgumentException if the padding or length is invalid
+     */
+    private static int dataLength(final int length, final int padCount) throws IllegalArgumentException {
+        final int dataLength;
+        if ((padCount > 0) && ((length & 3) != 0)) {
+            throw new IllegalArgumentException("Invalid Base64 padding; length " + length
+                                               + " is not a multiple of 4");
+        }
+        dataLength = length - padCount;
+        if ((dataLength & 3) == 1) {
+            throw new IllegalArgumentException("Invalid Base64 length; a final unit of a single "
+                                               + "character is not valid");
+        }
+        return dataLength;
+    }
+
+    private static int decodedLength(final int dataLength) {
+        final int remainder;
+        remainder = dataLength & 3;
+        return ((dataLength >>> 2) * 3) + ((remainder == 0)?0:(remainder - 1));
+    }
+
+    private static int padCount(final byte[] src, final int offset, final int length) {
+        if ((length >= 2) && (src[offset + length - 1] == PAD)) {
+            return (src[offset + length - 2] == PAD)?2:1;
+        }
+        return ((length >= 1) && (src[offset + length - 1] == PAD))?1:0;
+    }
+
+    private static int padCount(final CharSequence src, final int start, final int end) {
+        if ((end - start >= 2) && (src.charAt(end - 1) == PAD)) {
+            return (src.charAt(end - 2) == PAD)?2:1;
+        }
+        return ((end - start >= 1) && (src.charAt(end - 1) == PAD))?1:0;
+    }
+
+    /**
+     * @param src array containing Base64 characters
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return the number of bytes the characters decode to
+     * @throws IllegalArgumentException if the array is null, or the length or padding is invalid
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public int decodedLength(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        return decodedLength(dataLength(length, padCount(src, offset, length)));
+    }
+
+    /**
+     * @param src Base64 characters
+     * @param start index of the first character
+     * @param end index following the last character
+     * @return the number of bytes the characters decode to
+     * @throws IllegalArgumentException if the sequence is null, or the length or padding is invalid
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     */
+    public int decodedLength(final CharSequence src, final int start, final int end) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", CharSequence.class);
+        BytesUtil.checkRegion(src.length(), start, end - start);
+        return decodedLength(dataLength(end - start, padCount(src, start, end)));
+    }
+
+    /**
+     * Decode characters held one per byte, without bounds checks on the destination.
+     * @param last whether this is the end of the input; if not, the length must be a multiple of
+     * 4, and padding is not accepted
+     * @return the index in the destination immediately following the bytes written
+     */
+    private int decodeUnchecked(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset, final boolean last) throws IllegalArgumentException {
+        final int dataLength;
+        final int fullEnd;
+        final int end;
+        int index;
+        int at;
+        int bits;
+
+        dataLength = last?dataLength(length, padCount(src, offset, length)):length;
+        end = offset + dataLength;
+        fullEnd = offset + (dataLength & ~3);
+        index = offset;
+        at = destOffset;
+        while (index < fullEnd) {
+            bits = (values[src[index] & 0xFF] << 18)
+                   | (values[src[index + 1] & 0xFF] << 12)
+                   | (values[src[index + 2] & 0xFF] << 6)
+                   | values[src[index + 3] & 0xFF];
+            if (bits < 0) {
+                throw invalidCharacterIn(src, index, index + 4);
+            }
+            dest[at] = (byte) (bits >>> 16);
+            dest[at + 1] = (byte) (bits >>> 8);
+            dest[at + 2] = (byte) bits;
+            index += 4;
+            at += 3;
+        }
+        if (index < end) {
+            bits = (values[src[index] & 0xFF] << 6) | values[src[index + 1] & 0xFF];
+            if (end - index == 3) {
+                bits = (bits << 6) | values[src[index + 2] & 0xFF];
+            }
+            if (bits < 0) {
+                throw invalidCharacterIn(src, index, end);
+            }
+            if (end - index == 3) {
+                dest[at++] = (byte) (bits >>> 10);
+                dest[at++] = (byte) (bits >>> 2);
+            } else {
+                dest[at++] = (byte) (bits >>> 4);
+            }
+        }
+        return at;
+    }
+
+    private IllegalArgumentException invalidCharacterIn(final byte[] src, final int from, final int to) {
+        for (int index = from; index < to; index++) {
+            if (values[src[index] & 0xFF] < 0) {
+                return invalidCharacter(index, src[index] & 0xFF);
+            }
+        }
+        return new IllegalArgumentException("Invalid Base64 input at index " + from);
+    }
+
+    private int value(final CharSequence src, final int index) throws IllegalArgumentException {
+        final char next;
+        final int value;
+        next = src.charAt(index);
+        value = (next < 256)?values[next]:-1;
+        if (value < 0) {
+            throw invalidCharacter(index, next);
+        }
+        return value;
+    }
+
+    /**
+     * Decode a range of a character sequence (e.g. a {@link String}, or a region of a buffer of
+     * JSON being parsed) into an existing array, without copying the characters.
+     * @param src Base64 characters
+     * @param start index of the first character
+     * @param end index following the last character
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if the sequence or destination is null, or the characters
+     * are not valid Base64
+     * @throws IndexOutOfBoundsException if the range or destination region is out of bounds; see
+     * {@link #decodedLength(CharSequence, int, int)}
+     */
+    public int decode(final CharSequence src, final int start, final int end, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int dataEnd;
+        final int fullEnd;
+        int index;
+        int at;
+        int bits;
+
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, decodedLength(src, start, end));
+        dataEnd = start + dataLength(end - start, padCount(src, start, end));
+        fullEnd = start + ((dataEnd - start) & ~3);
+        at = destOffset;
+        for (index = start; index < fullEnd; index += 4) {
+            bits = (value(src, index) << 18)
+                   | (value(src, index + 1) << 12)
+                   | (value(src, index + 2) << 6)
+                   | value(src, index + 3);
+            dest[at] = (byte) (bits >>> 16);
+            dest[at + 1] = (byte) (bits >>> 8);
+            dest[at + 2] = (byte) bits;
+            at += 3;
+        }
+        if (dataEnd - index == 3) {
+            bits = (value(src, index) << 12) | (value(src, index + 1) << 6) | value(src, index + 2);
+            dest[at++] = (byte) (bits >>> 10);
+            dest[at++] = (byte) (bits >>> 2);
+        } else if (dataEnd - index == 2) {
+            bits = (value(src, index) << 6) | value(src, index + 1);
+            dest[at++] = (byte) (bits >>> 4);
+        }
+        return at;
+    }
+
+    /**
+     * @param src Base64 characters
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if the sequence or destination is null, or the characters
+     * are not valid Base64
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public int decode(final CharSequence src, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", CharSequence.class);
+        return decode(src, 0, src.length(), dest, destOffset);
+    }
+
+    /**
+     * @param src Base64 characters
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the sequence is null, or is not valid Base64
+     */
+    public byte[] decode(final CharSequence src) throws IllegalArgumentException {
+        final byte[] decoded;
+        Util.ensureNotNull(src, this, "src", CharSequence.class);
+        decoded = new byte[decodedLength(src, 0, src.length())];
+        decode(src, 0, src.length(), decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Decode a region of an array of ASCII Base64 characters into an existing array. The regions
+     * may be the same (decoding in place), since the decoding never overtakes the encoding.
+     * @param src the array containing the characters
+     * @param offset index of the first character
+     * @param length number of characters
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if either array is null, or the characters are not valid
+     * Base64
+     * @throws IndexOutOfBoundsException if either region is out of bounds; see
+     * {@link #decodedLength(byte[], int, int)}
+     */
+    public int decode(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, decodedLength(src, offset, length));
+        return decodeUnchecked(src, offset, length, dest, destOffset, true);
+    }
+
+    /**
+     * @param src the array containing the characters
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the array is null, or the characters are not valid
+     * Base64
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public byte[] decode(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] decoded;
+        decoded = new byte[decodedLength(src, offset, length)];
+        decodeUnchecked(src, offset, length, decoded, 0, true);
+        return decoded;
+    }
+
+    /**
+     * Decode the remaining content of one buffer into another, advancing the position of the
+     * source to its limit and that of the destination past the bytes written. Buffers which are
+     * not backed by accessible arrays are staged through a per-thread scratch array.
+     * @param src the buffer containing ASCII Base64 characters
+     * @param dest the buffer into which to write
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if either buffer is null, or the characters are not valid
+     * Base64; if staged, some of the content may already have been written to the destination
+     * @throws BufferOverflowException if the decoding does not fit in the destination, in which
+     * case neither buffer is modified
+     * @throws ReadOnlyBufferException if the destination is read-only
+     */
+    public int decode(final ByteBuffer src, final ByteBuffer dest) throws IllegalArgumentException, BufferOverflowException, ReadOnlyBufferException {
+        final int length;
+        final int padCount;
+        final int decodedLength;
+        final byte[] scratch;
+        int count;
+
+        Util.ensureNotNull(src, this, "src", ByteBuffer.class);
+        Util.ensureNotNull(dest, this, "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        length = src.remaining();
+        if ((length >= 1) && (src.get(src.limit() - 1) == PAD)) {
+            padCount = ((length >= 2) && (src.get(src.limit() - 2) == PAD))?2:1;
+        } else {
+            padCount = 0;
+        }
+        decodedLength = decodedLength(dataLength(length, padCount));
+        if (decodedLength > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dest.hasArray()) {
+            decodeUnchecked(src.array(), src.arrayOffset() + src.position(), length,
+                            dest.array(), dest.arrayOffset() + dest.position(), true);
+            src.position(src.limit());
+            dest.position(dest.position() + decodedLength);
+            return decodedLength;
+        }
+        scratch = SCRATCH.get();
+        while (src.hasRemaining()) {
+            count = Math.min(CHUNK_CHARS, src.remaining());
+            src.get(scratch, CHUNK_BYTES, count);
+            count = decodeUnchecked(scratch, CHUNK_BYTES, count, scratch, 0, !src.hasRemaining());
+            dest.put(scratch, 0, count);
+        }
+        return decodedLength;
+    }
+
+    /**
+     * Wrap a stream of Base64 characters, so that reading from the returned stream yields the
+     * decoded bytes. Closing the returned stream also closes the given one.
+     * @param in the stream from which to read the encoding
+     * @return the decoding stream, which throws {@link java.io.IOException} upon reading invalid
+     * Base64
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public InputStream wrap(final InputStream in) throws IllegalArgumentException {
+        Util.ensureNotNull(in, this, "in", InputStream.class);
+        return (urlSafe?Base64.getUrlDecoder():Base64.getDecoder()).wrap(in);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[urlSafe=" + urlSafe + ", padding=" + padding + ']';
+    }
+
+    private Base64Codec(final boolean urlSafe, final boolean padding) {
+        this.urlSafe = urlSafe;
+        this.padding = padding;
+        this.alphabet = alphabet(urlSafe);
+        this.values = values(this.alphabet);
+    }
+
+    static {
+        STANDARD = new Base64Codec(false, true);
+        URL_SAFE = new Base64Codec(true, true);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+
+/**
+ * Stream (and channel) which reads across a sequence of blocks as though they were one, copying
+ * each byte exactly once, directly from its block into the caller's array or buffer. Backs
+ * {@link BytesUtil#asInputStream(java.util.Collection)} and
+ * {@link BytesUtil#asChannel(java.util.Collection)}. Once closed, every read (through either
+ * interface) throws {@link ClosedChannelException}.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class BlockInputStream extends InputStream implements ReadableByteChannel {
+
+    private final Iterator<ByteBuffer> blocks;
+    private ByteBuffer current;
+    private boolean open;
+
+    /**
+     * @return the block from which to read next, or null if all blocks have been read
+     */
+    private ByteBuffer current() {
+        while (((current == null) || !current.hasRemaining()) && blocks.hasNext()) {
+            current = blocks.next();
+        }
+        return ((current == null) || !current.hasRemaining())?null:current;
+    }
+
+    /**
+     * @throws ClosedChannelException if this stream has been closed
+     */
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    public int read() throws ClosedChannelException {
+        final ByteBuffer block;
+        ensureOpen();
+        block = current();
+        return (block == null)?-1:(block.get() & 0xFF);
+    }
+
+    @Override
+    public int read(final byte[] dest, final int offset, final int length) throws ClosedChannelException {
+        ByteBuffer block;
+        int total;
+        int count;
+
+        ensureOpen();
+        BytesUtil.checkRegion(dest.length, offset, length);
+        if (length == 0) {
+            return 0;
+        }
+        total = 0;
+        block = current();
+        while ((block != null) && (total < length)) {
+            count = Math.min(length - total, block.remaining());
+            block.get(dest, offset + total, count);
+            total += count;
+            block = current();
+        }
+        return (total == 0)?-1:total;
+    }
+
+    @Override
+    public int read(final ByteBuffer dest) throws ClosedChannelException {
+        final int start;
+        int savedLimit;
+        ByteBuffer block;
+
+        ensureOpen();
+        start = dest.position();
+        block = current();
+        if (block == null) {
+            return -1;
+        }
+        while ((block != null) && dest.hasRemaining()) {
+            if (block.remaining() <= dest.remaining()) {
+                dest.put(block);
+            } else {
+                savedLimit = block.limit();
+                block.limit(block.position() + dest.remaining());
+                dest.put(block);
+                block.limit(savedLimit);
+            }
+            block = current();
+        }
+        return dest.position() - start;
+    }
+
+    @Override
+    public long skip(final long count) throws ClosedChannelException {
+        ByteBuffer block;
+        long skipped;
+        int step;
+
+        ensureOpen();
+        skipped = 0;
+        block = current();
+        while ((block != null) && (skipped < count)) {
+            step = (int) Math.min(count - skipped, block.remaining());
+            block.position(block.position() + step);
+            skipped += step;
+            block = current();
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws ClosedChannelException {
+        ensureOpen();
+        return (current == null)?0:current.remaining();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    /**
+     * @param blocks buffers to read in order, each from its position to its limit; the buffers'
+     * positions are advanced as they are read, so they should not be shared with other code
+     */
+    BlockInputStream(final Iterator<ByteBuffer> blocks) {
+        this.blocks = blocks;
+        this.open = true;
+    }
+}
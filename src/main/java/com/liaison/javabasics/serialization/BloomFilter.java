@@ -0,0 +1,492 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Bloom filter over byte array keys (or regions of byte arrays), for ruling out keys which cannot
+ * be present, e.g. before issuing a point lookup against a remote store. {@link #mightContain}
+ * never returns false for a key which was {@link #put}, and returns true for a key which was not
+ * with a probability close to the false positive rate for which the filter was sized.
+ * <br><br>
+ * Each key is hashed once, with {@link XXHash64}, and the positions of its bits are derived from
+ * that hash by double hashing. Two layouts are supported (see {@link Layout}):
+ * <ul>
+ *     <li>{@link Layout#STANDARD}: bits are spread over the whole array; the lowest false positive
+ *         rate for a given size, but each probe of a large filter is likely a cache miss</li>
+ *     <li>{@link Layout#BLOCKED}: all of a key's bits fall within one 512-bit (64-byte, i.e.
+ *         cache-line-sized) block, so a lookup touches a single cache line; somewhat faster,
+ *         especially when most lookups miss, at the cost of a moderately higher false positive
+ *         rate for the same size</li>
+ * </ul>
+ * Filters with the same layout, size, and hash count may be merged (see {@link #merge}), so that
+ * filters built in parallel, or over separate batches, can be combined. A filter is serialized
+ * with {@link #toBytes()} and restored with {@link #fromBytes(byte[])}, so that it can be stored
+ * alongside the data it describes.
+ * <br><br>
+ * Instances are not thread-safe while they are being modified; once built, a filter may be
+ * queried from any number of threads.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class BloomFilter {
+
+    /**
+     * Arrangement of a filter's bits; see {@link BloomFilter}.
+     */
+    public enum Layout {
+        STANDARD,
+        BLOCKED;
+    }
+
+    /**
+     * Largest number of hash functions (bits per key) a filter may use.
+     */
+    public static final int MAX_HASH_COUNT = 32;
+
+    private static final int MAX_WORDS = 1 << 27;
+    private static final int BLOCK_WORDS = 8;
+    private static final int BLOCK_BITS = BLOCK_WORDS * Long.SIZE;
+    private static final double LN2 = Math.log(2);
+
+    private final Layout layout;
+    private final int hashCount;
+    private final long[] words;
+    private final long bitCount;
+
+    /**
+     * Derive the increment between successive probes from the hash of a key; an odd value, so
+     * that probes within a block never repeat.
+     */
+    private static long probeStep(final long hash) {
+        long step;
+        step = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        step = (step ^ (step >>> 27)) * 0x94D049BB133111EBL;
+        return (step ^ (step >>> 31)) | 1L;
+    }
+
+    private static int wordCount(final long expectedInsertions, final double falsePositiveRate, final Layout layout) throws IllegalArgumentException {
+        final double bits;
+        long count;
+
+        bits = Math.max(expectedInsertions, 1L) * -Math.log(falsePositiveRate) / (LN2 * LN2);
+        count = (long) Math.ceil(bits / Long.SIZE);
+        if (layout == Layout.BLOCKED) {
+            count = ((count + BLOCK_WORDS - 1) / BLOCK_WORDS) * BLOCK_WORDS;
+        }
+        if ((count > MAX_WORDS) || Double.isInfinite(bits)) {
+            throw new IllegalArgumentException("A filter of " + expectedInsertions + " keys with a false "
+                                               + "positive rate of " + falsePositiveRate + " would exceed "
+                                               + ((long) MAX_WORDS * Long.SIZE) + " bits");
+        }
+        return (int) Math.max(count, BLOCK_WORDS);
+    }
+
+    private static int hashCount(final long expectedInsertions, final long bitCount) {
+        final long count;
+        count = Math.round(((double) bitCount / Math.max(expectedInsertions, 1L)) * LN2);
+        return (int) Math.max(1L, Math.min(count, MAX_HASH_COUNT));
+    }
+
+    /**
+     * @param hash the hash of the key
+     * @param set whether to set the key's bits, rather than test them
+     * @return for a test, whether all of the key's bits are set; for a set, whether any of them
+     * were not
+     */
+    private boolean probe(final long hash, final boolean set) {
+        final long step;
+        final int blockBase;
+        long combined;
+        long bitIndex;
+        int position;
+        int increment;
+        int wordIndex;
+        long mask;
+        boolean changed;
+
+        step = probeStep(hash);
+        changed = false;
+        if (layout == Layout.BLOCKED) {
+            // the high half of the hash selects the block, without division; the step selects bits
+            blockBase = (int) (((hash >>> 32) * (words.length / BLOCK_WORDS)) >>> 32) * BLOCK_WORDS;
+            position = (int) step;
+            increment = (int) (step >>> 32) | 1;
+            for (int count = 0; count < hashCount; count++) {
+                wordIndex = blockBase + ((position & (BLOCK_BITS - 1)) >>> 6);
+                mask = 1L << position;
+                if ((words[wordIndex] & mask) == 0) {
+                    if (!set) {
+                        return false;
+                    }
+                    words[wordIndex] |= mask;
+                    changed = true;
+                }
+                position += increment;
+            }
+        } else {
+            combined = hash;
+            for (int count = 0; count < hashCount; count++) {
+                bitIndex = (combined & Long.MAX_VALUE) % bitCount;
+                wordIndex = (int) (bitIndex >>> 6);
+                mask = 1L << bitIndex;
+                if ((words[wordIndex] & mask) == 0) {
+                    if (!set) {
+                        return false;
+                    }
+                    words[wordIndex] |= mask;
+                    changed = true;
+                }
+                combined += step;
+            }
+        }
+        return (set)?changed:true;
+    }
+
+    /**
+     * Add a key, given as a region of an array, to the filter.
+     * @param bytes the array containing the key
+     * @param offset index of the first byte of the key
+     * @param length length of the key
+     * @return true if the filter changed, i.e. the key was certainly not present before; false if
+     * it might already have been
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public boolean put(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return probe(XXHash64.hash(bytes, offset, length, XXHash64.DEFAULT_SEED), true);
+    }
+
+    /**
+     * @param bytes the key to add
+     * @return true if the filter changed, i.e. the key was certainly not present before; false if
+     * it might already have been
+     * @throws IllegalArgumentException if the key is null
+     */
+    public boolean put(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return put(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Test whether a key, given as a region of an array, might have been added to the filter.
+     * @param bytes the array containing the key
+     * @param offset index of the first byte of the key
+     * @param length length of the key
+     * @return false if the key was certainly never added; true if it might have been
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public boolean mightContain(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return probe(XXHash64.hash(bytes, offset, length, XXHash64.DEFAULT_SEED), false);
+    }
+
+    /**
+     * @param bytes the key to test
+     * @return false if the key was certainly never added; true if it might have been
+     * @throws IllegalArgumentException if the key is null
+     */
+    public boolean mightContain(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return mightContain(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param other another filter
+     * @return true if the other filter has the same layout, size, and hash count as this one, and
+     * may therefore be merged into it
+     */
+    public boolean isCompatible(final BloomFilter other) {
+        return (other != null)
+               && (other.layout == layout)
+               && (other.hashCount == hashCount)
+               && (other.words.length == words.length);
+    }
+
+    /**
+     * Add every key of another filter to this one, so that this filter might contain any key which
+     * either filter might have contained.
+     * @param other the filter to merge into this one; not modified
+     * @return this filter
+     * @throws IllegalArgumentException if the other filter is null, or not
+     * {@link #isCompatible(BloomFilter) compatible} with this one
+     */
+    public BloomFilter merge(final BloomFilter other) throws IllegalArgumentException {
+        Util.ensureNotNull(other, this, "other", BloomFilter.class);
+        if (!isCompatible(other)) {
+            throw new IllegalArgumentException("Cannot merge " + other + " into incompatible " + this);
+        }
+        for (int index = 0; index < words.length; index++) {
+            words[index] |= other.words[index];
+        }
+        return this;
+    }
+
+    /**
+     * Remove every key from the filter.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * @return a new filter with the same layout, size, hash count, and content as this one
+     */
+    public BloomFilter copy() {
+        return new BloomFilter(layout, hashCount, words.clone());
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return the number of bits per key
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return the size of the filter, in bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return the number of bits currently set
+     */
+    public long getSetBitCount() {
+        long count;
+        count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return an estimate of the number of distinct keys added to the filter, based on the number
+     * of bits set
+     */
+    public long getApproximateKeyCount() {
+        final double fractionClear;
+        fractionClear = 1.0 - ((double) getSetBitCount() / bitCount);
+        if (fractionClear <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(-Math.log(fractionClear) * bitCount / hashCount);
+    }
+
+    /**
+     * @return an estimate of the current probability that {@link #mightContain} returns true for a
+     * key which was never added, based on the number of bits set (for the {@link Layout#BLOCKED}
+     * layout, which fills some blocks more than others, this is somewhat optimistic)
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow((double) getSetBitCount() / bitCount, hashCount);
+    }
+
+    /**
+     * @return the length, in bytes, of the serialized form of the filter
+     */
+    public int getSerializedLength() {
+        return 2
+               + BytesUtil.varIntLength(hashCount)
+               + BytesUtil.varIntLength(words.length)
+               + (words.length * Long.BYTES);
+    }
+
+    /**
+     * Write the serialized form of the filter directly into an existing array: the marker byte
+     * {@link Constants#BLOOM_FILTER_MARKER}, the layout, the hash count and the number of 64-bit
+     * words (as variable-length ints), and the words themselves (big-endian, as by
+     * {@link BytesUtil#putLongs(byte[], int, long[])}).
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if fewer than {@link #getSerializedLength()} bytes are
+     * available at the offset
+     */
+    public int writeTo(final byte[] dest, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int index;
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, offset, getSerializedLength());
+        index = offset;
+        dest[index++] = Constants.BLOOM_FILTER_MARKER;
+        dest[index++] = (byte) layout.ordinal();
+        index = BytesUtil.putVarInt(dest, index, hashCount);
+        index = BytesUtil.putVarInt(dest, index, words.length);
+        return BytesUtil.putLongs(dest, index, words, 0, words.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @return a new array containing the serialized form of the filter; see
+     * {@link #writeTo(byte[], int)}
+     */
+    public byte[] toBytes() {
+        final byte[] bytes;
+        bytes = new byte[getSerializedLength()];
+        writeTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Restore a filter from its serialized form.
+     * @param src the array containing the serialized form
+     * @param offset index of the first byte of the serialized form
+     * @param length length of the serialized form
+     * @return the restored filter
+     * @throws IllegalArgumentException if the array is null, or the region does not contain
+     * exactly one serialized filter
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static BloomFilter fromBytes(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final ByteReader reader;
+        final int layoutOrdinal;
+        final Layout layout;
+        final int hashCount;
+        final int wordCount;
+
+        Util.ensureNotNull(src, "BloomFilter#fromBytes", "src", byte[].class);
+        reader = new ByteReader(src, offset, length);
+        try {
+            if (reader.readByte() != Constants.BLOOM_FILTER_MARKER) {
+                throw new IllegalArgumentException("Not a serialized bloom filter: missing marker byte");
+            }
+            layoutOrdinal = reader.readByte();
+            if ((layoutOrdinal < 0) || (layoutOrdinal >= Layout.values().length)) {
+                throw new IllegalArgumentException("Unknown bloom filter layout: " + layoutOrdinal);
+            }
+            layout = Layout.values()[layoutOrdinal];
+            hashCount = reader.readVarInt();
+            wordCount = reader.readVarInt();
+        } catch (IndexOutOfBoundsException exc) {
+            throw new IllegalArgumentException("Truncated bloom filter header", exc);
+        }
+        if ((hashCount < 1) || (hashCount > MAX_HASH_COUNT)) {
+            throw new IllegalArgumentException("Invalid bloom filter hash count: " + hashCount);
+        }
+        if ((wordCount < BLOCK_WORDS) || (wordCount > MAX_WORDS)
+            || ((layout == Layout.BLOCKED) && ((wordCount % BLOCK_WORDS) != 0))) {
+            throw new IllegalArgumentException("Invalid bloom filter word count for layout "
+                                               + layout + ": " + wordCount);
+        }
+        if (reader.remaining() != (wordCount * Long.BYTES)) {
+            throw new IllegalArgumentException("Bloom filter of " + wordCount + " words requires "
+                                               + (wordCount * Long.BYTES) + " bytes of content; "
+                                               + reader.remaining() + " bytes remain");
+        }
+        return new BloomFilter(layout, hashCount,
+                               BytesUtil.toLongs(src, offset + reader.position(), wordCount, ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * @param src the serialized form of a filter
+     * @return the restored filter
+     * @throws IllegalArgumentException if the array is null, or does not contain exactly one
+     * serialized filter
+     */
+    public static BloomFilter fromBytes(final byte[] src) throws IllegalArgumentException {
+        Util.ensureNotNull(src, "BloomFilter#fromBytes", "src", byte[].class);
+        return fromBytes(src, 0, src.length);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        final BloomFilter other;
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BloomFilter)) {
+            return false;
+        }
+        other = (BloomFilter) obj;
+        return isCompatible(other) && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * ((31 * layout.hashCode()) + hashCount)) + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder strBuild;
+        strBuild = new StringBuilder();
+        strBuild.append(getClass().getSimpleName());
+        strBuild.append("[layout=");
+        strBuild.append(layout);
+        strBuild.append(", bits=");
+        strBuild.append(bitCount);
+        strBuild.append(", hashes=");
+        strBuild.append(hashCount);
+        strBuild.append(", setBits=");
+        strBuild.append(getSetBitCount());
+        strBuild.append(']');
+        return strBuild.toString();
+    }
+
+    private BloomFilter(final Layout layout, final int hashCount, final long[] words) {
+        this.layout = layout;
+        this.hashCount = hashCount;
+        this.words = words;
+        this.bitCount = (long) words.length * Long.SIZE;
+    }
+
+    /**
+     * Create an empty filter sized to hold the given number of keys with the given false positive
+     * rate.
+     * @param expectedInsertions number of distinct keys expected to be added
+     * @param falsePositiveRate desired probability, once that many keys have been added, that
+     * {@link #mightContain} returns true for a key which was never added; between 0 and 1,
+     * exclusive
+     * @param layout the arrangement of the filter's bits
+     * @throws IllegalArgumentException if the layout is null, the expected insertions are
+     * negative, the rate is out of range, or the filter would be too large
+     */
+    public BloomFilter(final long expectedInsertions, final double falsePositiveRate, final Layout layout) throws IllegalArgumentException {
+        Util.ensureNotNull(layout, this, "layout", Layout.class);
+        if (expectedInsertions < 0) {
+            throw new IllegalArgumentException("Expected insertions may not be negative: " + expectedInsertions);
+        }
+        if (!((falsePositiveRate > 0.0) && (falsePositiveRate < 1.0))) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1, "
+                                               + "exclusive: " + falsePositiveRate);
+        }
+        this.layout = layout;
+        this.words = new long[wordCount(expectedInsertions, falsePositiveRate, layout)];
+        this.bitCount = (long) words.length * Long.SIZE;
+        this.hashCount = hashCount(expectedInsertions, bitCount);
+    }
+
+    /**
+     * Create an empty filter with the {@link Layout#STANDARD} layout; see
+     * {@link #BloomFilter(long, double, Layout)}.
+     * @param expectedInsertions number of distinct keys expected to be added
+     * @param falsePositiveRate desired false positive rate, between 0 and 1, exclusive
+     * @throws IllegalArgumentException if the expected insertions are negative, the rate is out
+     * of range, or the filter would be too large
+     */
+    public BloomFilter(final long expectedInsertions, final double falsePositiveRate) throws IllegalArgumentException {
+        this(expectedInsertions, falsePositiveRate, Layout.STANDARD);
+    }
+}
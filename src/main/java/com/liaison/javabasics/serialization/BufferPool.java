@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of reusable byte arrays, for callers whose throughput is limited by allocation rate rather
+ * than CPU. Arrays are pooled in power-of-two size classes, from {@link #MIN_BUFFER_SIZE} up to a
+ * configurable maximum; {@link #acquire(int)} returns an array of the smallest class which can
+ * hold the requested number of bytes, so the returned array is usually longer than requested,
+ * and callers must track how much of it they use.
+ * <br><br>
+ * Each thread keeps a small magazine of arrays per size class, which serves most acquire/release
+ * pairs without any synchronization. Magazines overflow into (and refill from) a shared depot per
+ * size class, whose slots are claimed and filled by compare-and-set, so no locks are taken on any
+ * path. When the depot is full, released arrays are simply left to the garbage collector.
+ * Requests larger than the maximum size class are served by plain allocation, and the arrays are
+ * dropped upon release.
+ * <br><br>
+ * Pooled arrays are not cleared, and may contain data from their previous use. An array must not
+ * be used after it has been released, nor released twice; the pool does not (and cheaply cannot)
+ * detect either. {@link #getOutstandingCount()} reports arrays acquired but not yet released,
+ * which, once a workload is quiescent, is the number of leaked arrays.
+ * <br><br>
+ * Instances are thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class BufferPool {
+
+    /**
+     * Size of the smallest size class; smaller requests are served from this class.
+     */
+    public static final int MIN_BUFFER_SIZE = 64;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_MAGAZINE_SIZE = 8;
+    public static final int DEFAULT_DEPOT_SIZE = 64;
+
+    private static final int MIN_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    private static final int MAX_BUFFER_SIZE_LIMIT = 1 << 30;
+
+    /**
+     * Per-thread cache of arrays, indexed by size class; <code>counts[c]</code> arrays are held in
+     * <code>buffers[c][0]</code> through <code>buffers[c][counts[c] - 1]</code>.
+     */
+    private static final class Magazine {
+        private final byte[][][] buffers;
+        private final int[] counts;
+        private final int depotHint;
+
+        private Magazine(final int sizeClassCount, final int magazineSize, final int depotSize) {
+            this.buffers = new byte[sizeClassCount][magazineSize][];
+            this.counts = new int[sizeClassCount];
+            // spread threads across the depot, so that they do not all contend for its first slots
+            this.depotHint = (int) (Thread.currentThread().getId() % depotSize);
+        }
+    }
+
+    private final int maxBufferSize;
+    private final int sizeClassCount;
+    private final int magazineSize;
+    private final int depotSize;
+    private final AtomicReferenceArray<byte[]> depot;
+    private final ThreadLocal<Magazine> magazines;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder releases;
+    private final LongAdder discards;
+    private final LongAdder outstanding;
+
+    /**
+     * @param length number of bytes required
+     * @return index of the smallest size class holding at least <code>length</code> bytes
+     */
+    private static int sizeClassFor(final int length) {
+        if (length <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(length - 1)) - MIN_SIZE_SHIFT;
+    }
+
+    /**
+     * Take an array of the given size class from the depot.
+     * @param sizeClass size class index
+     * @param hint slot at which to begin searching
+     * @return the array, or null if the depot holds none of the size class
+     */
+    private byte[] takeFromDepot(final int sizeClass, final int hint) {
+        final int base;
+        int slot;
+        byte[] buf;
+
+        base = sizeClass * depotSize;
+        for (int counter = 0; counter < depotSize; counter++) {
+            slot = base + ((hint + counter) % depotSize);
+            buf = depot.get(slot);
+            if ((buf != null) && depot.compareAndSet(slot, buf, null)) {
+                return buf;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Place an array into the depot.
+     * @param sizeClass size class index of the array
+     * @param hint slot at which to begin searching
+     * @param buf the array
+     * @return true if the array was placed; false if the depot is full for the size class
+     */
+    private boolean giveToDepot(final int sizeClass, final int hint, final byte[] buf) {
+        final int base;
+        int slot;
+
+        base = sizeClass * depotSize;
+        for (int counter = 0; counter < depotSize; counter++) {
+            slot = base + ((hint + counter) % depotSize);
+            if ((depot.get(slot) == null) && depot.compareAndSet(slot, null, buf)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Acquire an array of at least the given length. The array must be returned via
+     * {@link #release(byte[])} once it is no longer in use.
+     * @param minLength minimum number of bytes required
+     * @return an array of at least <code>minLength</code> bytes (a power of two, unless
+     * <code>minLength</code> exceeds the maximum size class), with unspecified content
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public byte[] acquire(final int minLength) throws IllegalArgumentException {
+        final int sizeClass;
+        final Magazine magazine;
+        byte[] buf;
+
+        if (minLength < 0) {
+            throw new IllegalArgumentException("Buffer length may not be negative: " + minLength);
+        }
+        outstanding.increment();
+        if (minLength > maxBufferSize) {
+            misses.increment();
+            return new byte[minLength];
+        }
+        sizeClass = sizeClassFor(minLength);
+        magazine = magazines.get();
+        if (magazine.counts[sizeClass] > 0) {
+            buf = magazine.buffers[sizeClass][--magazine.counts[sizeClass]];
+            magazine.buffers[sizeClass][magazine.counts[sizeClass]] = null;
+            hits.increment();
+            return buf;
+        }
+        buf = takeFromDepot(sizeClass, magazine.depotHint);
+        if (buf != null) {
+            hits.increment();
+            return buf;
+        }
+        misses.increment();
+        return new byte[MIN_BUFFER_SIZE << sizeClass];
+    }
+
+    /**
+     * Return an array obtained from {@link #acquire(int)} to the pool. The caller must not use
+     * the array afterwards.
+     * @param buf the array to release
+     * @throws IllegalArgumentException if the array is null, or could not have been acquired from
+     * this pool (i.e. its length is neither one of the pool's size classes, nor larger than all of
+     * them)
+     */
+    public void release(final byte[] buf) throws IllegalArgumentException {
+        final int sizeClass;
+        final Magazine magazine;
+
+        Util.ensureNotNull(buf, this, "buf", byte[].class);
+        if (buf.length > maxBufferSize) {
+            releases.increment();
+            outstanding.decrement();
+            return;
+        }
+        if ((buf.length < MIN_BUFFER_SIZE) || (Integer.bitCount(buf.length) != 1)) {
+            throw new IllegalArgumentException("Array of length " + buf.length
+                                               + " was not acquired from this pool");
+        }
+        releases.increment();
+        outstanding.decrement();
+        sizeClass = sizeClassFor(buf.length);
+        magazine = magazines.get();
+        if (magazine.counts[sizeClass] < magazineSize) {
+            magazine.buffers[sizeClass][magazine.counts[sizeClass]++] = buf;
+        } else if (!giveToDepot(sizeClass, magazine.depotHint, buf)) {
+            discards.increment();
+        }
+    }
+
+    /**
+     * @return size of the largest pooled size class
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * @return number of acquisitions served by a previously-released array
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of acquisitions which required a new allocation
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of arrays released
+     */
+    public long getReleaseCount() {
+        return releases.sum();
+    }
+
+    /**
+     * @return number of released arrays dropped because the depot for their size class was full
+     */
+    public long getDiscardCount() {
+        return discards.sum();
+    }
+
+    /**
+     * @return number of arrays acquired and not yet released; when no work is in progress, this
+     * is the number of leaked arrays
+     */
+    public long getOutstandingCount() {
+        return outstanding.sum();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder strGen;
+        strGen = new StringBuilder();
+        strGen.append(getClass().getSimpleName())
+              .append("[maxBufferSize=").append(maxBufferSize)
+              .append(", hits=").append(getHitCount())
+              .append(", misses=").append(getMissCount())
+              .append(", releases=").append(getReleaseCount())
+              .append(", discards=").append(getDiscardCount())
+              .append(", outstanding=").append(getOutstandingCount())
+              .append(']');
+        return strGen.toString();
+    }
+
+    /**
+     * Create a pool.
+     * @param maxBufferSize size of the largest pooled size class; a power of two between
+     * {@link #MIN_BUFFER_SIZE} and 2^30
+     * @param magazineSize number of arrays per size class cached by each thread
+     * @param depotSize number of arrays per size class held in the shared depot
+     * @throws IllegalArgumentException if any of the parameters is out of range
+     */
+    public BufferPool(final int maxBufferSize, final int magazineSize, final int depotSize) throws IllegalArgumentException {
+        if ((maxBufferSize < MIN_BUFFER_SIZE)
+            || (maxBufferSize > MAX_BUFFER_SIZE_LIMIT)
+            || (Integer.bitCount(maxBufferSize) != 1)) {
+            throw new IllegalArgumentException("Maximum buffer size must be a power of two between "
+                                               + MIN_BUFFER_SIZE + " and " + MAX_BUFFER_SIZE_LIMIT
+                                               + ": " + maxBufferSize);
+        }
+        if (magazineSize < 0) {
+            throw new IllegalArgumentException("Magazine size may not be negative: " + magazineSize);
+        }
+        if (depotSize <= 0) {
+            throw new IllegalArgumentException("Depot size must be positive: " + depotSize);
+        }
+        this.maxBufferSize = maxBufferSize;
+        this.sizeClassCount = sizeClassFor(maxBufferSize) + 1;
+        this.magazineSize = magazineSize;
+        this.depotSize = depotSize;
+        this.depot = new AtomicReferenceArray<>(sizeClassCount * depotSize);
+        this.magazines =
+            ThreadLocal.withInitial(() -> new Magazine(this.sizeClassCount, this.magazineSize, this.depotSize));
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.releases = new LongAdder();
+        this.discards = new LongAdder();
+        this.outstanding = new LongAdder();
+    }
+
+    /**
+     * Create a pool with the default maximum buffer size, magazine size, and depot size.
+     */
+    public BufferPool() {
+        this(DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAGAZINE_SIZE, DEFAULT_DEPOT_SIZE);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Uninstantiable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Package-internal primitive access to byte arrays at arbitrary offsets, in big-endian (network)
+ * order, plus the little-endian reads on which the standard hash functions are defined. When running on Java 9 or later, reads and writes go through byte-array view VarHandles
+ * (looked up reflectively, so that this library remains compilable and runnable on Java 8), which
+ * the JIT compiles to single unaligned loads and stores; on Java 8, the equivalent shift-based
+ * code is used instead.
+ * <br><br>
+ * Likewise, {@link #mismatch(byte[], int, byte[], int, int)} uses the vectorized
+ * <code>Arrays.mismatch</code> intrinsic where available, and compares eight bytes at a time
+ * otherwise.
+ * <br><br>
+ * None of these methods perform bounds checking beyond that performed by the JVM itself; callers
+ * are expected to validate offsets first.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class ByteArrayAccess extends Uninstantiable {
+
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle SET_LONG;
+    private static final MethodHandle GET_INT;
+    private static final MethodHandle SET_INT;
+    private static final MethodHandle GET_LONG_LE;
+    private static final MethodHandle GET_INT_LE;
+    private static final MethodHandle MISMATCH;
+
+    /**
+     * Obtain a {@link MethodHandle} for the given access mode of a byte-array view VarHandle, if
+     * the running JVM supports it.
+     * @param viewType array type of the view (e.g. <code>long[].class</code>)
+     * @param order byte order of the view
+     * @param accessModeName name of the <code>VarHandle.AccessMode</code> constant
+     * @return the method handle, or null if unavailable (i.e. on Java 8)
+     */
+    private static MethodHandle viewHandle(final Class<?> viewType, final ByteOrder order, final String accessModeName) {
+        final Method viewFactory;
+        final Class<?> varHandleType;
+        final Class<?> accessModeType;
+        final Object varHandle;
+
+        try {
+            viewFactory =
+                MethodHandles.class.getMethod("byteArrayViewVarHandle", Class.class, ByteOrder.class);
+            varHandleType = Class.forName("java.lang.invoke.VarHandle");
+            accessModeType = Class.forName("java.lang.invoke.VarHandle$AccessMode");
+            varHandle = viewFactory.invoke(null, viewType, order);
+            return
+                (MethodHandle) varHandleType
+                    .getMethod("toMethodHandle", accessModeType)
+                    .invoke(varHandle, accessModeType.getField(accessModeName).get(null));
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            return null;
+        }
+    }
+
+    /**
+     * Obtain a {@link MethodHandle} for <code>Arrays.mismatch(byte[], int, int, byte[], int,
+     * int)</code>, if the running JVM supports it.
+     * @return the method handle, or null if unavailable (i.e. on Java 8)
+     */
+    private static MethodHandle mismatchHandle() {
+        try {
+            return MethodHandles.publicLookup().findStatic(
+                Arrays.class,
+                "mismatch",
+                MethodType.methodType(int.class,
+                                      byte[].class, int.class, int.class,
+                                      byte[].class, int.class, int.class));
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            return null;
+        }
+    }
+
+    /**
+     * Wrap a {@link Throwable} thrown by {@link MethodHandle#invokeExact(Object...)}; the view
+     * handles only throw unchecked exceptions (e.g. for out-of-bounds access), which are rethrown
+     * as-is.
+     * @param thrown the throwable caught from the method handle invocation
+     * @return never returns normally; declared so that callers may write <code>throw</code>
+     */
+    private static RuntimeException rethrow(final Throwable thrown) {
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        }
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+        throw new IllegalStateException("Unexpected exception from byte array view", thrown);
+    }
+
+    static long getLong(final byte[] bytes, final int offset) {
+        if (GET_LONG != null) {
+            try {
+                return (long) GET_LONG.invokeExact(bytes, offset);
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        return ((bytes[offset] & 0xFFL) << 56)
+               | ((bytes[offset + 1] & 0xFFL) << 48)
+               | ((bytes[offset + 2] & 0xFFL) << 40)
+               | ((bytes[offset + 3] & 0xFFL) << 32)
+               | ((bytes[offset + 4] & 0xFFL) << 24)
+               | ((bytes[offset + 5] & 0xFFL) << 16)
+               | ((bytes[offset + 6] & 0xFFL) << 8)
+               | (bytes[offset + 7] & 0xFFL);
+    }
+
+    static void putLong(final byte[] bytes, final int offset, final long value) {
+        if (SET_LONG != null) {
+            try {
+                SET_LONG.invokeExact(bytes, offset, value);
+                return;
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        bytes[offset] = (byte) (value >>> 56);
+        bytes[offset + 1] = (byte) (value >>> 48);
+        bytes[offset + 2] = (byte) (value >>> 40);
+        bytes[offset + 3] = (byte) (value >>> 32);
+        bytes[offset + 4] = (byte) (value >>> 24);
+        bytes[offset + 5] = (byte) (value >>> 16);
+        bytes[offset + 6] = (byte) (value >>> 8);
+        bytes[offset + 7] = (byte) value;
+    }
+
+    static int getInt(final byte[] bytes, final int offset) {
+        if (GET_INT != null) {
+            try {
+                return (int) GET_INT.invokeExact(bytes, offset);
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        return ((bytes[offset] & 0xFF) << 24)
+               | ((bytes[offset + 1] & 0xFF) << 16)
+               | ((bytes[offset + 2] & 0xFF) << 8)
+               | (bytes[offset + 3] & 0xFF);
+    }
+
+    static void putInt(final byte[] bytes, final int offset, final int value) {
+        if (SET_INT != null) {
+            try {
+                SET_INT.invokeExact(bytes, offset, value);
+                return;
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    static long getLongLE(final byte[] bytes, final int offset) {
+        if (GET_LONG_LE != null) {
+            try {
+                return (long) GET_LONG_LE.invokeExact(bytes, offset);
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        return (bytes[offset] & 0xFFL)
+               | ((bytes[offset + 1] & 0xFFL) << 8)
+               | ((bytes[offset + 2] & 0xFFL) << 16)
+               | ((bytes[offset + 3] & 0xFFL) << 24)
+               | ((bytes[offset + 4] & 0xFFL) << 32)
+               | ((bytes[offset + 5] & 0xFFL) << 40)
+               | ((bytes[offset + 6] & 0xFFL) << 48)
+               | ((bytes[offset + 7] & 0xFFL) << 56);
+    }
+
+    static int getIntLE(final byte[] bytes, final int offset) {
+        if (GET_INT_LE != null) {
+            try {
+                return (int) GET_INT_LE.invokeExact(bytes, offset);
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        return (bytes[offset] & 0xFF)
+               | ((bytes[offset + 1] & 0xFF) << 8)
+               | ((bytes[offset + 2] & 0xFF) << 16)
+               | ((bytes[offset + 3] & 0xFF) << 24);
+    }
+
+    static short getShort(final byte[] bytes, final int offset) {
+        return (short) (((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF));
+    }
+
+    static void putShort(final byte[] bytes, final int offset, final short value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    /**
+     * Find the first index at which two equal-length regions differ.
+     * @param left first array
+     * @param leftOffset start of the region in the first array
+     * @param right second array
+     * @param rightOffset start of the region in the second array
+     * @param length length of both regions
+     * @return index of the first differing byte, relative to the start of the regions, or -1 if
+     * the regions are identical
+     */
+    static int mismatch(final byte[] left, final int leftOffset, final byte[] right, final int rightOffset, final int length) {
+        int index;
+
+        if (MISMATCH != null) {
+            try {
+                return (int) MISMATCH.invokeExact(left, leftOffset, leftOffset + length,
+                                                  right, rightOffset, rightOffset + length);
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        index = 0;
+        while ((index + Long.BYTES <= length)
+               && (getLong(left, leftOffset + index) == getLong(right, rightOffset + index))) {
+            index += Long.BYTES;
+        }
+        while (index < length) {
+            if (left[leftOffset + index] != right[rightOffset + index]) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    static {
+        MISMATCH = mismatchHandle();
+        GET_LONG = viewHandle(long[].class, ByteOrder.BIG_ENDIAN, "GET");
+        SET_LONG = viewHandle(long[].class, ByteOrder.BIG_ENDIAN, "SET");
+        GET_INT = viewHandle(int[].class, ByteOrder.BIG_ENDIAN, "GET");
+        SET_INT = viewHandle(int[].class, ByteOrder.BIG_ENDIAN, "SET");
+        GET_LONG_LE = viewHandle(long[].class, ByteOrder.LITTLE_ENDIAN, "GET");
+        GET_INT_LE = viewHandle(int[].class, ByteOrder.LITTLE_ENDIAN, "GET");
+    }
+
+    private ByteArrayAccess() { }
+}
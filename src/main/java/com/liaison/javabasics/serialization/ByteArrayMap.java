@@ -0,0 +1,268 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Hash map keyed by the content of byte arrays, rather than their identity, so that byte array
+ * keys need not be wrapped in holder objects or converted to strings. Keys may be given as whole
+ * arrays or as regions of arrays; lookups hash and compare the region in place, without copying
+ * it.
+ * <br><br>
+ * Entries are held in an open-addressing table with linear probing (see {@link ByteArrayTable}),
+ * so an entry costs no objects beyond its key storage and value. Keys are stored in one of two
+ * ways, chosen at construction:
+ * <ul>
+ *     <li>one array per key (see {@link #ByteArrayMap(int)}): a key is copied when it is first
+ *         put, unless it is put as a whole array under a strategy which does not copy on set,
+ *         such as {@link DefensiveCopyStrategy#NEVER} (see
+ *         {@link #put(byte[], Object, DefensiveCopyStrategy)}), in which case it is stored by
+ *         reference</li>
+ *     <li>packed into a single key slab (see {@link #ByteArrayMap(int, int)}): every key is
+ *         copied into one growable array, so the map holds no per-key objects at all</li>
+ * </ul>
+ * Null keys are not permitted; null values are, so use {@link #containsKey(byte[])} to
+ * distinguish a key mapped to null from an absent key.
+ * <br><br>
+ * Instances are not thread-safe.
+ * @param <V> the type of the values
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class ByteArrayMap<V> {
+
+    private final ByteArrayTable table;
+
+    /**
+     * Look up the value mapped to a key given as a region of an array.
+     * @param key the array containing the key
+     * @param offset index of the first byte of the key
+     * @param length length of the key
+     * @return the value mapped to the key, or null if it is absent
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final byte[] key, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int slot;
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        slot = table.find(key, offset, length);
+        return (slot < 0)?null:(V) table.valueAt(slot);
+    }
+
+    /**
+     * @param key the key
+     * @return the value mapped to the key, or null if it is absent
+     * @throws IllegalArgumentException if the key is null
+     */
+    public V get(final byte[] key) throws IllegalArgumentException {
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        return get(key, 0, key.length);
+    }
+
+    /**
+     * @param key the array containing the key
+     * @param offset index of the first byte of the key
+     * @param length length of the key
+     * @return true if the key is present
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public boolean containsKey(final byte[] key, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        return table.find(key, offset, length) >= 0;
+    }
+
+    /**
+     * @param key the key
+     * @return true if the key is present
+     * @throws IllegalArgumentException if the key is null
+     */
+    public boolean containsKey(final byte[] key) throws IllegalArgumentException {
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        return containsKey(key, 0, key.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(final byte[] key, final int offset, final int length, final V value, final boolean adopt) throws IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        final int slot;
+        slot = table.insert(key, offset, length, adopt);
+        return (V) table.setValueAt((slot < 0)?~slot:slot, value);
+    }
+
+    /**
+     * Map a key, given as a region of an array, to a value. If the key is absent, the region is
+     * copied.
+     * @param key the array containing the key
+     * @param offset index of the first byte of the key
+     * @param length length of the key
+     * @param value the value
+     * @return the value previously mapped to the key, or null if it was absent
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     * @throws IllegalStateException if the map is full
+     */
+    public V put(final byte[] key, final int offset, final int length, final V value) throws IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        return put(key, offset, length, value, false);
+    }
+
+    /**
+     * Map a key to a value. If the key is absent, it is copied, unless keys are stored one array
+     * per key and the selected strategy does not copy on set (i.e. is not one of
+     * {@link DefensiveCopyStrategy#COPY_ON_SET}), in which case the given array is stored by
+     * reference, and must not be modified afterwards.
+     * @param key the key
+     * @param value the value
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether the map
+     * may store the given array by reference; {@link DefensiveCopyStrategy#DEFAULT} if null
+     * @return the value previously mapped to the key, or null if it was absent
+     * @throws IllegalArgumentException if the key is null
+     * @throws IllegalStateException if the map is full
+     */
+    public V put(final byte[] key, final V value, final DefensiveCopyStrategy selectedCopyStrategy) throws IllegalArgumentException, IllegalStateException {
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        return put(key, 0, key.length, value,
+                   !DefensiveCopyStrategy.COPY_ON_SET.contains((selectedCopyStrategy == null)?
+                                                                   DefensiveCopyStrategy.DEFAULT:
+                                                                   selectedCopyStrategy));
+    }
+
+    /**
+     * Map a key to a value. If the key is absent, it is copied; see
+     * {@link #put(byte[], Object, DefensiveCopyStrategy)}.
+     * @param key the key
+     * @param value the value
+     * @return the value previously mapped to the key, or null if it was absent
+     * @throws IllegalArgumentException if the key is null
+     * @throws IllegalStateException if the map is full
+     */
+    public V put(final byte[] key, final V value) throws IllegalArgumentException, IllegalStateException {
+        return put(key, value, DefensiveCopyStrategy.DEFAULT);
+    }
+
+    /**
+     * Remove the mapping for a key given as a region of an array.
+     * @param key the array containing the key
+     * @param offset index of the first byte of the key
+     * @param length length of the key
+     * @return the value previously mapped to the key, or null if it was absent
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final byte[] key, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int slot;
+        final V previous;
+
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        slot = table.find(key, offset, length);
+        if (slot < 0) {
+            return null;
+        }
+        previous = (V) table.valueAt(slot);
+        table.removeAt(slot);
+        return previous;
+    }
+
+    /**
+     * @param key the key
+     * @return the value previously mapped to the key, or null if it was absent
+     * @throws IllegalArgumentException if the key is null
+     */
+    public V remove(final byte[] key) throws IllegalArgumentException {
+        Util.ensureNotNull(key, this, "key", byte[].class);
+        return remove(key, 0, key.length);
+    }
+
+    /**
+     * Pass each key and its value to the given action, in no particular order. Each key is a
+     * read-only view of the map's own storage, valid only until the map is next modified; use
+     * {@link ByteSlice#toByteArray()} to retain it.
+     * @param action the action to perform on each entry; must not modify the map
+     * @throws IllegalArgumentException if the action is null
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final BiConsumer<? super ByteSlice, ? super V> action) throws IllegalArgumentException {
+        Util.ensureNotNull(action, this, "action", BiConsumer.class);
+        table.forEach((key, value) -> action.accept(key, (V) value));
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    /**
+     * Remove every entry. The map retains its capacity (and key slab, if any) for reuse.
+     */
+    public void clear() {
+        table.clear();
+    }
+
+    /**
+     * @return true if keys are packed into a single slab, rather than held one array per key
+     */
+    public boolean isKeySlab() {
+        return table.isSlab();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder strBuild;
+        strBuild = new StringBuilder();
+        strBuild.append(getClass().getSimpleName());
+        strBuild.append("[size=");
+        strBuild.append(table.size());
+        strBuild.append(", capacity=");
+        strBuild.append(table.capacity());
+        strBuild.append(", keySlab=");
+        strBuild.append(table.isSlab());
+        strBuild.append(", keyBytes=");
+        strBuild.append(table.keyBytes());
+        strBuild.append(']');
+        return strBuild.toString();
+    }
+
+    /**
+     * Create a map which packs its keys into a single slab.
+     * @param expectedSize number of entries the map can hold before it must resize
+     * @param initialSlabLength initial length, in bytes, of the key slab; grows as needed
+     * @throws IllegalArgumentException if either argument is negative, or the expected size is too
+     * large
+     */
+    public ByteArrayMap(final int expectedSize, final int initialSlabLength) throws IllegalArgumentException {
+        table = new ByteArrayTable(expectedSize, true, initialSlabLength, true);
+    }
+
+    /**
+     * Create a map which stores one array per key.
+     * @param expectedSize number of entries the map can hold before it must resize
+     * @throws IllegalArgumentException if the expected size is negative or too large
+     */
+    public ByteArrayMap(final int expectedSize) throws IllegalArgumentException {
+        table = new ByteArrayTable(expectedSize, false, 0, true);
+    }
+
+    public ByteArrayMap() {
+        this(ByteArrayTable.DEFAULT_EXPECTED_SIZE);
+    }
+}
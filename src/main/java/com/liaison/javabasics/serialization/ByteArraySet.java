@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.function.Consumer;
+
+/**
+ * Hash set of byte arrays, compared by content rather than identity; the set counterpart of
+ * {@link ByteArrayMap}, with the same storage options, and no per-entry value. Members may be
+ * given as whole arrays or as regions of arrays, and are tested in place, without copying; a
+ * member is copied when it is first added, unless it is added as a whole array under a strategy
+ * which does not copy on set, such as {@link DefensiveCopyStrategy#NEVER} (see
+ * {@link #add(byte[], DefensiveCopyStrategy)}).
+ * <br><br>
+ * Instances are not thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class ByteArraySet {
+
+    private final ByteArrayTable table;
+
+    /**
+     * Add a member, given as a region of an array. If it is absent, the region is copied.
+     * @param bytes the array containing the member
+     * @param offset index of the first byte of the member
+     * @param length length of the member
+     * @return true if the member was absent, and has been added
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     * @throws IllegalStateException if the set is full
+     */
+    public boolean add(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return table.insert(bytes, offset, length, false) < 0;
+    }
+
+    /**
+     * Add a member. If it is absent, it is copied, unless members are stored one array per member
+     * and the selected strategy does not copy on set (i.e. is not one of
+     * {@link DefensiveCopyStrategy#COPY_ON_SET}), in which case the given array is stored by
+     * reference, and must not be modified afterwards.
+     * @param bytes the member
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether the set
+     * may store the given array by reference; {@link DefensiveCopyStrategy#DEFAULT} if null
+     * @return true if the member was absent, and has been added
+     * @throws IllegalArgumentException if the member is null
+     * @throws IllegalStateException if the set is full
+     */
+    public boolean add(final byte[] bytes, final DefensiveCopyStrategy selectedCopyStrategy) throws IllegalArgumentException, IllegalStateException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return table.insert(bytes, 0, bytes.length,
+                            !DefensiveCopyStrategy.COPY_ON_SET.contains((selectedCopyStrategy == null)?
+                                                                            DefensiveCopyStrategy.DEFAULT:
+                                                                            selectedCopyStrategy)) < 0;
+    }
+
+    /**
+     * Add a member. If it is absent, it is copied; see
+     * {@link #add(byte[], DefensiveCopyStrategy)}.
+     * @param bytes the member
+     * @return true if the member was absent, and has been added
+     * @throws IllegalArgumentException if the member is null
+     * @throws IllegalStateException if the set is full
+     */
+    public boolean add(final byte[] bytes) throws IllegalArgumentException, IllegalStateException {
+        return add(bytes, DefensiveCopyStrategy.DEFAULT);
+    }
+
+    /**
+     * @param bytes the array containing the member
+     * @param offset index of the first byte of the member
+     * @param length length of the member
+     * @return true if the member is present
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public boolean contains(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return table.find(bytes, offset, length) >= 0;
+    }
+
+    /**
+     * @param bytes the member
+     * @return true if the member is present
+     * @throws IllegalArgumentException if the member is null
+     */
+    public boolean contains(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return contains(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes the array containing the member
+     * @param offset index of the first byte of the member
+     * @param length length of the member
+     * @return true if the member was present, and has been removed
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public boolean remove(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int slot;
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        slot = table.find(bytes, offset, length);
+        if (slot < 0) {
+            return false;
+        }
+        table.removeAt(slot);
+        return true;
+    }
+
+    /**
+     * @param bytes the member
+     * @return true if the member was present, and has been removed
+     * @throws IllegalArgumentException if the member is null
+     */
+    public boolean remove(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return remove(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Pass each member to the given action, in no particular order. Each member is a read-only
+     * view of the set's own storage, valid only until the set is next modified; use
+     * {@link ByteSlice#toByteArray()} to retain it.
+     * @param action the action to perform on each member; must not modify the set
+     * @throws IllegalArgumentException if the action is null
+     */
+    public void forEach(final Consumer<? super ByteSlice> action) throws IllegalArgumentException {
+        Util.ensureNotNull(action, this, "action", Consumer.class);
+        table.forEach((member, ignored) -> action.accept(member));
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    /**
+     * Remove every member. The set retains its capacity (and slab, if any) for reuse.
+     */
+    public void clear() {
+        table.clear();
+    }
+
+    /**
+     * @return true if members are packed into a single slab, rather than held one array per member
+     */
+    public boolean isKeySlab() {
+        return table.isSlab();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder strBuild;
+        strBuild = new StringBuilder();
+        strBuild.append(getClass().getSimpleName());
+        strBuild.append("[size=");
+        strBuild.append(table.size());
+        strBuild.append(", capacity=");
+        strBuild.append(table.capacity());
+        strBuild.append(", keySlab=");
+        strBuild.append(table.isSlab());
+        strBuild.append(", keyBytes=");
+        strBuild.append(table.keyBytes());
+        strBuild.append(']');
+        return strBuild.toString();
+    }
+
+    /**
+     * Create a set which packs its members into a single slab.
+     * @param expectedSize number of members the set can hold before it must resize
+     * @param initialSlabLength initial length, in bytes, of the slab; grows as needed
+     * @throws IllegalArgumentException if either argument is negative, or the expected size is too
+     * large
+     */
+    public ByteArraySet(final int expectedSize, final int initialSlabLength) throws IllegalArgumentException {
+        table = new ByteArrayTable(expectedSize, true, initialSlabLength, false);
+    }
+
+    /**
+     * Create a set which stores one array per member.
+     * @param expectedSize number of members the set can hold before it must resize
+     * @throws IllegalArgumentException if the expected size is negative or too large
+     */
+    public ByteArraySet(final int expectedSize) throws IllegalArgumentException {
+        table = new ByteArrayTable(expectedSize, false, 0, false);
+    }
+
+    public ByteArraySet() {
+        this(ByteArrayTable.DEFAULT_EXPECTED_SIZE);
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Package-internal open-addressing hash table keyed by byte array content, behind
+ * {@link ByteArrayMap} and {@link ByteArraySet}. Slots are held in parallel arrays (the hash of
+ * each key, its storage, and optionally its value), so an entry costs no objects of its own.
+ * Collisions are resolved by linear probing, and removal shifts later entries of the same probe
+ * run back into the vacated slot (backward-shift deletion), so that no tombstones accumulate.
+ * <br><br>
+ * Keys are stored either as one array per key, or packed back to back in a single growable slab,
+ * addressed by offset and length; the slab is compacted once removed keys account for more than
+ * half of it.
+ * <br><br>
+ * No argument checking is performed beyond that of {@link XXHash64#hash}; callers are expected to
+ * have validated their arguments.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class ByteArrayTable {
+
+    static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private static final int MIN_CAPACITY = 4;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int MAX_SLAB_LENGTH = Integer.MAX_VALUE - 8;
+    /**
+     * Smallest amount of garbage, in bytes, which triggers compaction of the slab.
+     */
+    private static final int MIN_SLAB_GARBAGE = 1024;
+    /**
+     * Stored hash of an empty slot; the hashes of keys are never zero.
+     */
+    private static final int EMPTY = 0;
+
+    private final boolean slab;
+    private final boolean withValues;
+    private int[] hashes;
+    private byte[][] keys;
+    private int[] keyOffsets;
+    private int[] keyLengths;
+    private byte[] slabBytes;
+    private int slabUsed;
+    private int slabGarbage;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int threshold;
+
+    static int hash(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final long hash;
+        final int folded;
+        hash = XXHash64.hash(bytes, offset, length, XXHash64.DEFAULT_SEED);
+        folded = (int) (hash ^ (hash >>> 32));
+        return (folded == EMPTY)?1:folded;
+    }
+
+    private static int capacityFor(final int expectedSize) throws IllegalArgumentException {
+        final long minimum;
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size may not be negative: " + expectedSize);
+        }
+        // keep the load factor at or below 3/4
+        minimum = ((long) expectedSize * 4 + 2) / 3;
+        if (minimum > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size exceeds the maximum: " + expectedSize);
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) Math.max(minimum - 1, 1)) << 1);
+    }
+
+    private void allocate(final int capacity) {
+        hashes = new int[capacity];
+        if (slab) {
+            keyOffsets = new int[capacity];
+            keyLengths = new int[capacity];
+        } else {
+            keys = new byte[capacity][];
+        }
+        if (withValues) {
+            values = new Object[capacity];
+        }
+        mask = capacity - 1;
+        threshold = (int) (((long) capacity * 3) / 4);
+    }
+
+    private boolean keyEquals(final int slot, final byte[] bytes, final int offset, final int length) {
+        final byte[] key;
+        if (slab) {
+            return (keyLengths[slot] == length)
+                   && (ByteArrayAccess.mismatch(slabBytes, keyOffsets[slot], bytes, offset, length) < 0);
+        }
+        key = keys[slot];
+        return (key.length == length) && (ByteArrayAccess.mismatch(key, 0, bytes, offset, length) < 0);
+    }
+
+    private int find(final int hash, final byte[] bytes, final int offset, final int length) {
+        int slot;
+        int stored;
+
+        slot = hash & mask;
+        while ((stored = hashes[slot]) != EMPTY) {
+            if ((stored == hash) && keyEquals(slot, bytes, offset, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the slot holding the given key, or -1 if it is absent
+     */
+    int find(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return find(hash(bytes, offset, length), bytes, offset, length);
+    }
+
+    private void ensureSlab(final int length) throws IllegalStateException {
+        final long required;
+        byte[] grown;
+
+        required = (long) slabUsed + length;
+        if (required <= slabBytes.length) {
+            return;
+        }
+        if ((required > MAX_SLAB_LENGTH) && (slabGarbage > 0)) {
+            compactSlab();
+            ensureSlab(length);
+            return;
+        }
+        if (required > MAX_SLAB_LENGTH) {
+            throw new IllegalStateException("Key slab cannot exceed " + MAX_SLAB_LENGTH + " bytes");
+        }
+        grown = new byte[(int) Math.min(Math.max(required, (long) slabBytes.length << 1), MAX_SLAB_LENGTH)];
+        System.arraycopy(slabBytes, 0, grown, 0, slabUsed);
+        slabBytes = grown;
+    }
+
+    private void compactSlab() {
+        final byte[] compacted;
+        int used;
+
+        compacted = new byte[Math.max(slabUsed - slabGarbage, MIN_SLAB_GARBAGE)];
+        used = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (hashes[slot] != EMPTY) {
+                System.arraycopy(slabBytes, keyOffsets[slot], compacted, used, keyLengths[slot]);
+                keyOffsets[slot] = used;
+                used += keyLengths[slot];
+            }
+        }
+        slabBytes = compacted;
+        slabUsed = used;
+        slabGarbage = 0;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] oldHashes;
+        final byte[][] oldKeys;
+        final int[] oldOffsets;
+        final int[] oldLengths;
+        final Object[] oldValues;
+        int hash;
+        int slot;
+
+        oldHashes = hashes;
+        oldKeys = keys;
+        oldOffsets = keyOffsets;
+        oldLengths = keyLengths;
+        oldValues = values;
+        allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldHashes.length; oldSlot++) {
+            hash = oldHashes[oldSlot];
+            if (hash != EMPTY) {
+                slot = hash & mask;
+                while (hashes[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                hashes[slot] = hash;
+                if (slab) {
+                    keyOffsets[slot] = oldOffsets[oldSlot];
+                    keyLengths[slot] = oldLengths[oldSlot];
+                } else {
+                    keys[slot] = oldKeys[oldSlot];
+                }
+                if (withValues) {
+                    values[slot] = oldValues[oldSlot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the slot holding the given key, inserting the key if it is absent.
+     * @param adopt whether an absent key which spans the entire array may be stored by reference,
+     * rather than copied (ignored for slab storage, which always copies)
+     * @return the slot holding the key, if it was present; otherwise, the bitwise complement of
+     * the slot into which it was inserted
+     */
+    int insert(final byte[] bytes, final int offset, final int length, final boolean adopt) throws IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        final int hash;
+        int slot;
+        int stored;
+
+        hash = hash(bytes, offset, length);
+        slot = hash & mask;
+        while ((stored = hashes[slot]) != EMPTY) {
+            if ((stored == hash) && keyEquals(slot, bytes, offset, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= threshold) {
+            if (hashes.length >= MAX_CAPACITY) {
+                throw new IllegalStateException("Table cannot exceed " + MAX_CAPACITY + " slots");
+            }
+            rehash(hashes.length << 1);
+            slot = hash & mask;
+            while (hashes[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        if (slab) {
+            ensureSlab(length);
+            System.arraycopy(bytes, offset, slabBytes, slabUsed, length);
+            keyOffsets[slot] = slabUsed;
+            keyLengths[slot] = length;
+            slabUsed += length;
+        } else {
+            keys[slot] = (adopt && (offset == 0) && (length == bytes.length))
+                         ?bytes
+                         :Arrays.copyOfRange(bytes, offset, offset + length);
+        }
+        hashes[slot] = hash;
+        size++;
+        return ~slot;
+    }
+
+    private void moveSlot(final int from, final int to) {
+        hashes[to] = hashes[from];
+        if (slab) {
+            keyOffsets[to] = keyOffsets[from];
+            keyLengths[to] = keyLengths[from];
+        } else {
+            keys[to] = keys[from];
+        }
+        if (withValues) {
+            values[to] = values[from];
+        }
+    }
+
+    /**
+     * Remove the entry in the given (occupied) slot, shifting back any later entries of the same
+     * probe run which would otherwise become unreachable.
+     */
+    void removeAt(final int slot) {
+        int hole;
+        int next;
+        int stored;
+
+        if (slab) {
+            slabGarbage += keyLengths[slot];
+        }
+        hole = slot;
+        next = slot;
+        while ((stored = hashes[next = (next + 1) & mask]) != EMPTY) {
+            // an entry may fill the hole if the hole lies between its home slot and its slot
+            if (((next - (stored & mask)) & mask) >= ((next - hole) & mask)) {
+                moveSlot(next, hole);
+                hole = next;
+            }
+        }
+        hashes[hole] = EMPTY;
+        if (slab) {
+            keyOffsets[hole] = 0;
+            keyLengths[hole] = 0;
+        } else {
+            keys[hole] = null;
+        }
+        if (withValues) {
+            values[hole] = null;
+        }
+        size--;
+        if (slab && (slabGarbage >= MIN_SLAB_GARBAGE) && (slabGarbage > (slabUsed >>> 1))) {
+            compactSlab();
+        }
+    }
+
+    Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    Object setValueAt(final int slot, final Object value) {
+        final Object previous;
+        previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots
+     */
+    int capacity() {
+        return hashes.length;
+    }
+
+    /**
+     * @return the number of bytes of key storage in use (including, for slab storage, the space
+     * left by removed keys which has yet to be reclaimed)
+     */
+    long keyBytes() {
+        long total;
+        if (slab) {
+            return slabUsed;
+        }
+        total = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (hashes[slot] != EMPTY) {
+                total += keys[slot].length;
+            }
+        }
+        return total;
+    }
+
+    boolean isSlab() {
+        return slab;
+    }
+
+    void clear() {
+        Arrays.fill(hashes, EMPTY);
+        if (slab) {
+            slabUsed = 0;
+            slabGarbage = 0;
+        } else {
+            Arrays.fill(keys, null);
+        }
+        if (withValues) {
+            Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Pass each key, as a view of the table's storage, and its value (null if the table has no
+     * values) to the given action.
+     */
+    void forEach(final BiConsumer<ByteSlice, Object> action) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (hashes[slot] != EMPTY) {
+                action.accept(slab
+                              ?ByteSlice.wrap(slabBytes, keyOffsets[slot], keyLengths[slot])
+                              :ByteSlice.wrap(keys[slot]),
+                              withValues?values[slot]:null);
+            }
+        }
+    }
+
+    /**
+     * @param expectedSize number of entries to accommodate without resizing
+     * @param slab whether to pack keys into a single slab, rather than one array per key
+     * @param initialSlabLength initial length of the slab, if any
+     * @param withValues whether to store a value with each key
+     */
+    ByteArrayTable(final int expectedSize, final boolean slab, final int initialSlabLength, final boolean withValues) throws IllegalArgumentException {
+        if (initialSlabLength < 0) {
+            throw new IllegalArgumentException("Initial slab length may not be negative: " + initialSlabLength);
+        }
+        this.slab = slab;
+        this.withValues = withValues;
+        if (slab) {
+            slabBytes = new byte[initialSlabLength];
+        }
+        allocate(capacityFor(expectedSize));
+    }
+}
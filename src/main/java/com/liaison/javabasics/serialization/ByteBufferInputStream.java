@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InputStream} which reads the remaining content of a {@link ByteBuffer} without copying
+ * it, advancing the buffer's position as bytes are consumed.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining()?(buffer.get() & 0xFF):-1;
+    }
+
+    @Override
+    public int read(final byte[] dest, final int offset, final int length) {
+        final int count;
+        BytesUtil.checkRegion(dest.length, offset, length);
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        count = Math.min(length, buffer.remaining());
+        buffer.get(dest, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(final long count) {
+        final int skipped;
+        if (count <= 0) {
+            return 0;
+        }
+        skipped = (int) Math.min(count, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    ByteBufferInputStream(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+}
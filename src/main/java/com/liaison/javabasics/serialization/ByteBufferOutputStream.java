@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link OutputStream} which writes directly into the remaining space of a {@link ByteBuffer},
+ * advancing the buffer's position; writing past the buffer's limit throws
+ * {@link BufferOverflowException}.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer buffer;
+
+    @Override
+    public void write(final int value) throws BufferOverflowException {
+        buffer.put((byte) value);
+    }
+
+    @Override
+    public void write(final byte[] src, final int offset, final int length) throws BufferOverflowException {
+        buffer.put(src, offset, length);
+    }
+
+    ByteBufferOutputStream(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+/**
+ * Reusable, cursor-based reader of primitives, {@link Instant}s, and length-prefixed strings from
+ * a region of a <code>byte[]</code>, heap {@link ByteBuffer}, or direct {@link ByteBuffer}. All
+ * multi-byte values are read in big-endian order, matching the encodings produced by
+ * {@link BytesUtil#toBytes(long)} and friends, and by {@link ByteWriter}.
+ * <br><br>
+ * Unlike {@link BytesUtil#toLong(byte[], int)} and its siblings, reads return primitives rather
+ * than boxed values, and the cursor tracks the offset, so decoding a sequence of fields performs no
+ * allocation (apart from the objects inherently produced by {@link #readInstant()},
+ * {@link #readString()}, and {@link #readBytes(int)}). A single instance may be re-pointed at new
+ * input via the <code>reset</code> methods, so that one reader may serve an entire decode loop.
+ * <br><br>
+ * Reading from a {@link ByteBuffer} uses absolute access, and does not modify the position of the
+ * buffer itself. Instances are not thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class ByteReader {
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int start;
+    private int index;
+    private int limit;
+    private AccessGuard guard;
+
+    /**
+     * Re-point this reader at the given region of a byte array, with the cursor at the start of
+     * the region.
+     * @param bytes the array to read
+     * @param offset index of the first byte of the region
+     * @param length number of bytes in the region
+     * @return this reader
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public ByteReader reset(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        this.array = bytes;
+        this.buffer = null;
+        this.guard = null;
+        this.start = offset;
+        this.index = offset;
+        this.limit = offset + length;
+        return this;
+    }
+
+    /**
+     * Re-point this reader at the entirety of the given byte array.
+     * @param bytes the array to read
+     * @return this reader
+     * @throws IllegalArgumentException if the array is null
+     */
+    public ByteReader reset(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return reset(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Re-point this reader at the remaining content (position through limit) of the given buffer.
+     * Writable heap buffers are read directly from their backing array; direct and read-only
+     * buffers are read using the buffer's absolute accessors. The buffer's position is not
+     * modified.
+     * @param buf the buffer to read
+     * @return this reader
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public ByteReader reset(final ByteBuffer buf) throws IllegalArgumentException {
+        Util.ensureNotNull(buf, this, "buf", ByteBuffer.class);
+        if (buf.hasArray()) {
+            return reset(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        }
+        this.array = null;
+        this.guard = null;
+        this.buffer = (buf.order() == ByteOrder.BIG_ENDIAN)?buf:buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.start = buf.position();
+        this.index = this.start;
+        this.limit = buf.limit();
+        return this;
+    }
+
+    /**
+     * Ensure that at least the given number of bytes remain, without moving the cursor.
+     * @param count number of bytes required
+     * @throws IndexOutOfBoundsException if fewer than <code>count</code> bytes remain
+     * @throws IllegalStateException if the memory being read has since been released
+     */
+    private void require(final int count) throws IndexOutOfBoundsException, IllegalStateException {
+        if (guard != null) {
+            guard.ensureOpen();
+        }
+        if ((count < 0) || (count > limit - index)) {
+            throw new IndexOutOfBoundsException("Cannot read " + count + " bytes at position "
+                                                + position() + "; only " + remaining()
+                                                + " remain");
+        }
+    }
+
+    /**
+     * Advance the cursor past the given number of bytes, returning the index at which they begin.
+     * @param count number of bytes being consumed
+     * @return absolute index of the first consumed byte
+     * @throws IndexOutOfBoundsException if fewer than <code>count</code> bytes remain
+     */
+    private int claim(final int count) throws IndexOutOfBoundsException {
+        final int claimed;
+        require(count);
+        claimed = index;
+        index += count;
+        return claimed;
+    }
+
+    /**
+     * @return number of bytes consumed since the start of the region being read
+     */
+    public int position() {
+        return index - start;
+    }
+
+    /**
+     * Move the cursor to the given position, relative to the start of the region being read.
+     * @param newPosition new position
+     * @return this reader
+     * @throws IndexOutOfBoundsException if the position lies outside the region
+     */
+    public ByteReader position(final int newPosition) throws IndexOutOfBoundsException {
+        if ((newPosition < 0) || (newPosition > limit - start)) {
+            throw new IndexOutOfBoundsException("Position " + newPosition + " outside of region of "
+                                                + (limit - start) + " bytes");
+        }
+        index = start + newPosition;
+        return this;
+    }
+
+    /**
+     * @return number of bytes between the cursor and the end of the region
+     */
+    public int remaining() {
+        return limit - index;
+    }
+
+    /**
+     * @return true if at least one byte remains to be read
+     */
+    public boolean hasRemaining() {
+        return index < limit;
+    }
+
+    /**
+     * Advance the cursor without reading.
+     * @param count number of bytes to skip
+     * @return this reader
+     * @throws IndexOutOfBoundsException if fewer than <code>count</code> bytes remain
+     */
+    public ByteReader skip(final int count) throws IndexOutOfBoundsException {
+        claim(count);
+        return this;
+    }
+
+    public byte readByte() throws IndexOutOfBoundsException {
+        final int at = claim(Byte.BYTES);
+        return (array != null)?array[at]:buffer.get(at);
+    }
+
+    public boolean readBoolean() throws IndexOutOfBoundsException {
+        return readByte() != 0;
+    }
+
+    public short readShort() throws IndexOutOfBoundsException {
+        final int at = claim(Short.BYTES);
+        return (array != null)?ByteArrayAccess.getShort(array, at):buffer.getShort(at);
+    }
+
+    public int readInt() throws IndexOutOfBoundsException {
+        final int at = claim(Integer.BYTES);
+        return (array != null)?ByteArrayAccess.getInt(array, at):buffer.getInt(at);
+    }
+
+    public long readLong() throws IndexOutOfBoundsException {
+        final int at = claim(Long.BYTES);
+        return (array != null)?ByteArrayAccess.getLong(array, at):buffer.getLong(at);
+    }
+
+    public float readFloat() throws IndexOutOfBoundsException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    public double readDouble() throws IndexOutOfBoundsException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Read a variable-length int written by {@link ByteWriter#writeVarInt(int)} (or
+     * {@link BytesUtil#putVarInt(byte[], int, int)}).
+     * @return the decoded value
+     * @throws IndexOutOfBoundsException if the input is truncated
+     * @throws IllegalArgumentException if the encoding is longer than
+     * {@link Constants#VARINT_MAX_BYTES}, or its value does not fit in an int
+     */
+    public int readVarInt() throws IndexOutOfBoundsException, IllegalArgumentException {
+        int value;
+        int current;
+
+        value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            current = readByte();
+            if ((shift == BytesUtil.VARINT_LAST_SHIFT) && ((current & ~BytesUtil.VARINT_LAST_MASK) != 0)) {
+                throw new IllegalArgumentException("Malformed variable-length int ending at position "
+                                                   + position() + ": value exceeds 32 bits");
+            }
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length int ending at position "
+                                           + position());
+    }
+
+    /**
+     * Read a variable-length long written by {@link ByteWriter#writeVarLong(long)} (or
+     * {@link BytesUtil#putVarLong(byte[], int, long)}).
+     * @return the decoded value
+     * @throws IndexOutOfBoundsException if the input is truncated
+     * @throws IllegalArgumentException if the encoding is longer than
+     * {@link Constants#VARLONG_MAX_BYTES}, or its value does not fit in a long
+     */
+    public long readVarLong() throws IndexOutOfBoundsException, IllegalArgumentException {
+        long value;
+        int current;
+
+        value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            current = readByte();
+            if ((shift == BytesUtil.VARLONG_LAST_SHIFT) && ((current & ~BytesUtil.VARLONG_LAST_MASK) != 0)) {
+                throw new IllegalArgumentException("Malformed variable-length long ending at position "
+                                                   + position() + ": value exceeds 64 bits");
+            }
+            value |= ((long) (current & 0x7F)) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length long ending at position "
+                                           + position());
+    }
+
+    /**
+     * Read a signed int written by {@link ByteWriter#writeZigZagInt(int)}.
+     * @return the decoded value
+     * @throws IndexOutOfBoundsException if the input is truncated
+     * @throws IllegalArgumentException if the encoding is malformed
+     */
+    public int readZigZagInt() throws IndexOutOfBoundsException, IllegalArgumentException {
+        return BytesUtil.zigZagDecode(readVarInt());
+    }
+
+    /**
+     * Read a signed long written by {@link ByteWriter#writeZigZagLong(long)}.
+     * @return the decoded value
+     * @throws IndexOutOfBoundsException if the input is truncated
+     * @throws IllegalArgumentException if the encoding is malformed
+     */
+    public long readZigZagLong() throws IndexOutOfBoundsException, IllegalArgumentException {
+        return BytesUtil.zigZagDecode(readVarLong());
+    }
+
+    /**
+     * Read an {@link Instant} in the format written by {@link BytesUtil#toBytes(Instant)}: an
+     * 8-byte epoch second followed by a 4-byte nanosecond adjustment.
+     * @return the instant
+     * @throws IndexOutOfBoundsException if fewer than {@link Constants#INSTANT_BYTES} bytes remain
+     */
+    public Instant readInstant() throws IndexOutOfBoundsException {
+        final long epochSecond;
+        final int nano;
+        require(Constants.INSTANT_BYTES);
+        epochSecond = readLong();
+        nano = readInt();
+        return Instant.ofEpochSecond(epochSecond, nano);
+    }
+
+    /**
+     * Copy the next <code>length</code> bytes into the given array.
+     * @param dest destination array
+     * @param destOffset index in the destination at which to begin copying
+     * @param length number of bytes to copy
+     * @return this reader
+     * @throws IndexOutOfBoundsException if fewer than <code>length</code> bytes remain, or if the
+     * destination region is invalid
+     */
+    public ByteReader readBytes(final byte[] dest, final int destOffset, final int length) throws IndexOutOfBoundsException {
+        final int at;
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, length);
+        at = claim(length);
+        if (array != null) {
+            System.arraycopy(array, at, dest, destOffset, length);
+        } else {
+            for (int counter = 0; counter < length; counter++) {
+                dest[destOffset + counter] = buffer.get(at + counter);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Read the next <code>length</code> bytes into a new array.
+     * @param length number of bytes to read
+     * @return new array containing the bytes read
+     * @throws IndexOutOfBoundsException if fewer than <code>length</code> bytes remain
+     */
+    public byte[] readBytes(final int length) throws IndexOutOfBoundsException {
+        final byte[] dest;
+        require(length);
+        dest = new byte[length];
+        readBytes(dest, 0, length);
+        return dest;
+    }
+
+    /**
+     * Consume the next <code>length</code> bytes, returning a new reader limited to exactly those
+     * bytes; the bytes are not copied. This allows a nested record to be handed to code which
+     * should not be able to read beyond it.
+     * @param length number of bytes to include in the new reader
+     * @return a new reader over the consumed bytes, with its cursor at their start
+     * @throws IndexOutOfBoundsException if fewer than <code>length</code> bytes remain
+     */
+    public ByteReader readSlice(final int length) throws IndexOutOfBoundsException {
+        final ByteReader slice;
+        final int at;
+
+        at = claim(length);
+        slice = new ByteReader();
+        slice.array = array;
+        slice.buffer = buffer;
+        slice.start = at;
+        slice.index = at;
+        slice.limit = at + length;
+        slice.guard = guard;
+        return slice;
+    }
+
+    /**
+     * Read a string written by {@link ByteWriter#writeString(String)}: a 4-byte length prefix
+     * (or {@link Constants#STRING_LENGTH_NULL} for null) followed by that many bytes of UTF-8.
+     * @return the decoded string, or null
+     * @throws IndexOutOfBoundsException if the input is truncated
+     * @throws IllegalArgumentException if the length prefix is invalid
+     */
+    public String readString() throws IndexOutOfBoundsException, IllegalArgumentException {
+        final int length;
+        final int at;
+
+        length = readInt();
+        if (length == Constants.STRING_LENGTH_NULL) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid string length prefix: " + length);
+        }
+        if (array != null) {
+            at = claim(length);
+            return Utf8.decode(array, at, length);
+        }
+        return BytesUtil.toString(readBytes(length));
+    }
+
+    /**
+     * Read a string written by {@link ByteWriter#writeString(String)}, returning the canonical
+     * instance held by the given cache when the same content has been read before.
+     * @param cache cache of previously-decoded strings
+     * @return the string, or null if a null string was written
+     * @throws IllegalArgumentException if the cache is null, or the length prefix is invalid
+     * @throws IndexOutOfBoundsException if the string extends past the end of the input
+     */
+    public String readString(final StringDecodeCache cache) throws IndexOutOfBoundsException, IllegalArgumentException {
+        final int length;
+
+        Util.ensureNotNull(cache, this, "cache", StringDecodeCache.class);
+        length = readInt();
+        if (length == Constants.STRING_LENGTH_NULL) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid string length prefix: " + length);
+        }
+        if (array != null) {
+            return cache.decode(array, claim(length), length);
+        }
+        return cache.decode(readBytes(length));
+    }
+
+    /**
+     * Create a reader which must be pointed at input via one of the <code>reset</code> methods
+     * before use.
+     */
+    public ByteReader() {
+        this.array = BytesUtil.HBASE_EMPTY;
+    }
+
+    public ByteReader(final byte[] bytes) throws IllegalArgumentException {
+        reset(bytes);
+    }
+
+    public ByteReader(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        reset(bytes, offset, length);
+    }
+
+    public ByteReader(final ByteBuffer buf) throws IllegalArgumentException {
+        reset(buf);
+    }
+
+    /**
+     * Create a reader over a direct buffer whose memory may be released independently of the
+     * reader; every read first consults the guard, and throws {@link IllegalStateException} once
+     * the memory has been released. Re-pointing the reader via <code>reset</code> discards the
+     * guard.
+     * @param buf the buffer to read
+     * @param guard check that the buffer's memory is still valid
+     * @throws IllegalArgumentException if the buffer is null
+     * @throws IllegalStateException if the memory has already been released
+     */
+    ByteReader(final ByteBuffer buf, final AccessGuard guard) throws IllegalArgumentException, IllegalStateException {
+        guard.ensureOpen();
+        reset(buf);
+        this.guard = guard;
+    }
+}
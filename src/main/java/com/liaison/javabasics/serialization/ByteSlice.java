@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Immutable, read-only view of a region (array, offset, length) of a byte array. A slice exposes
+ * no way of modifying its content, so it may be handed out from a framework object without a
+ * defensive copy (see {@link DefensiveCopyStrategy#SLICE}); taking a sub-slice is O(1), and the
+ * content is only copied when a caller explicitly asks for a mutable array via
+ * {@link #toByteArray()} or {@link #copyTo(byte[], int)}.
+ * <br><br>
+ * Equality, hash code, and ordering are determined by content alone (ordering being unsigned
+ * lexicographical, per {@link BytesUtil#compare(byte[], int, int, byte[], int, int)}), so slices
+ * may be used as map keys and sorted directly. A slice is only as immutable as the array it
+ * views: {@link #wrap(byte[])} shares the given array, and its content must not be modified for
+ * as long as the slice is in use; {@link #copyOf(byte[])} makes a private copy first.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class ByteSlice implements Comparable<ByteSlice> {
+
+    public static final ByteSlice EMPTY = new ByteSlice(BytesUtil.HBASE_EMPTY, 0, 0);
+
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+    private int hash;
+
+    /**
+     * Create a slice sharing the given region of an array, without copying it. The caller must not
+     * modify the region afterwards.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length number of bytes in the region
+     * @return the slice
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static ByteSlice wrap(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, ByteSlice.class, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        return new ByteSlice(bytes, offset, length);
+    }
+
+    /**
+     * Create a slice sharing the entirety of the given array, without copying it. The caller must
+     * not modify the array afterwards.
+     * @param bytes the array
+     * @return the slice, or null if the array is null
+     */
+    public static ByteSlice wrap(final byte[] bytes) {
+        return (bytes == null)?null:new ByteSlice(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Create a slice holding a private copy of the given region of an array.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length number of bytes in the region
+     * @return the slice
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static ByteSlice copyOf(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, ByteSlice.class, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        return new ByteSlice(Arrays.copyOfRange(bytes, offset, offset + length), 0, length);
+    }
+
+    /**
+     * Create a slice holding a private copy of the given array.
+     * @param bytes the array
+     * @return the slice, or null if the array is null
+     */
+    public static ByteSlice copyOf(final byte[] bytes) {
+        return (bytes == null)?null:new ByteSlice(BytesUtil.copy(bytes), 0, bytes.length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @param index index within this slice
+     * @return the byte at the index
+     * @throws IndexOutOfBoundsException if the index lies outside this slice
+     */
+    public byte get(final int index) throws IndexOutOfBoundsException {
+        if ((index < 0) || (index >= length)) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside of slice of " + length
+                                                + " bytes");
+        }
+        return array[offset + index];
+    }
+
+    /**
+     * Return a slice of a region of this slice, sharing the same array.
+     * @param subOffset index within this slice of the first byte of the region
+     * @param subLength number of bytes in the region
+     * @return the sub-slice
+     * @throws IndexOutOfBoundsException if the region does not lie within this slice
+     */
+    public ByteSlice slice(final int subOffset, final int subLength) throws IndexOutOfBoundsException {
+        BytesUtil.checkRegion(length, subOffset, subLength);
+        if ((subOffset == 0) && (subLength == length)) {
+            return this;
+        }
+        return new ByteSlice(array, offset + subOffset, subLength);
+    }
+
+    /**
+     * @param subOffset index within this slice of the first byte of the region
+     * @return a slice from the given index through the end of this slice
+     * @throws IndexOutOfBoundsException if the index lies outside this slice
+     */
+    public ByteSlice slice(final int subOffset) throws IndexOutOfBoundsException {
+        return slice(subOffset, length - subOffset);
+    }
+
+    /**
+     * @return a new array containing a copy of the content of this slice, which the caller may
+     * modify freely
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * Copy the content of this slice into the given array.
+     * @param dest the destination array
+     * @param destOffset index in the destination at which to begin copying
+     * @return the index in the destination immediately following the copied bytes
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public int copyTo(final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, length);
+        System.arraycopy(array, offset, dest, destOffset, length);
+        return destOffset + length;
+    }
+
+    /**
+     * @return a read-only buffer over the content of this slice (without copying), with position
+     * zero and limit {@link #length()}
+     */
+    public ByteBuffer asReadOnlyBuffer() {
+        return ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a new reader over the content of this slice
+     */
+    public ByteReader reader() {
+        return new ByteReader(array, offset, length);
+    }
+
+    /**
+     * @param prefix the prefix
+     * @return true if this slice begins with the content of the given slice
+     * @throws IllegalArgumentException if the prefix is null
+     */
+    public boolean startsWith(final ByteSlice prefix) throws IllegalArgumentException {
+        Util.ensureNotNull(prefix, this, "prefix", ByteSlice.class);
+        return (prefix.length <= length)
+               && BytesUtil.equals(array, offset, prefix.length,
+                                   prefix.array, prefix.offset, prefix.length);
+    }
+
+    /**
+     * @param charset the character set with which to decode the content
+     * @return the content of this slice, decoded as a string
+     */
+    public String toString(final Charset charset) {
+        return new String(array, offset, length, charset);
+    }
+
+    @Override
+    public int compareTo(final ByteSlice other) {
+        return BytesUtil.compare(array, offset, length, other.array, other.offset, other.length);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        final ByteSlice other;
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ByteSlice)) {
+            return false;
+        }
+        other = (ByteSlice) obj;
+        return BytesUtil.equals(array, offset, length, other.array, other.offset, other.length);
+    }
+
+    /**
+     * Return a hash of the content of this slice, equal to
+     * <code>Arrays.hashCode(toByteArray())</code>; computed once, and cached.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        int result;
+        result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int index = offset; index < offset + length; index++) {
+                result = (31 * result) + array[index];
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[length=" + length + "]";
+    }
+
+    private ByteSlice(final byte[] array, final int offset, final int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+}
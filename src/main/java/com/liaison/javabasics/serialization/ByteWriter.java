@@ -0,0 +1,544 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Reusable, cursor-based writer of primitives, {@link Instant}s, and length-prefixed strings,
+ * the counterpart of {@link ByteReader}. All multi-byte values are written in big-endian order,
+ * matching the encodings produced by {@link BytesUtil#toBytes(long)} and friends.
+ * <br><br>
+ * A writer either targets a fixed region supplied by the caller (a <code>byte[]</code> region, or
+ * the remaining space in a heap or direct {@link ByteBuffer}), in which case writing past the end
+ * of the region throws {@link IndexOutOfBoundsException}; or it owns a heap array which grows as
+ * needed (see {@link #ByteWriter(int)}), optionally drawing its arrays from a {@link BufferPool}
+ * (see {@link #ByteWriter(BufferPool, int)}). Writing to a {@link ByteBuffer} uses absolute
+ * access, and does not modify the position of the buffer itself; use {@link #position()} to find
+ * out how many bytes were written. Instances are not thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class ByteWriter {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private final boolean growable;
+    private final BufferPool pool;
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int start;
+    private int index;
+    private int limit;
+    private byte[] varScratch;
+    private AccessGuard guard;
+
+    /**
+     * Ensure that the given number of bytes may be written at the cursor, growing the backing
+     * array if this writer owns it, without moving the cursor.
+     * @param count number of bytes about to be written
+     * @throws IndexOutOfBoundsException if this writer targets a fixed region with fewer than
+     * <code>count</code> bytes remaining
+     * @throws IllegalStateException if the memory being written has since been released
+     */
+    private void ensure(final int count) throws IndexOutOfBoundsException, IllegalStateException {
+        if (guard != null) {
+            guard.ensureOpen();
+        }
+        if (count > limit - index) {
+            if (!growable) {
+                throw new IndexOutOfBoundsException("Cannot write " + count + " bytes at position "
+                                                    + position() + "; only " + remaining()
+                                                    + " remain");
+            }
+            grow(count);
+        }
+    }
+
+    /**
+     * Ensure that the given number of bytes may be written at the cursor, and advance the cursor
+     * past them.
+     * @param count number of bytes about to be written
+     * @return absolute index at which the bytes are to be written
+     * @throws IndexOutOfBoundsException if this writer targets a fixed region with fewer than
+     * <code>count</code> bytes remaining
+     */
+    private int claim(final int count) throws IndexOutOfBoundsException {
+        final int claimed;
+        ensure(count);
+        claimed = index;
+        index += count;
+        return claimed;
+    }
+
+    /**
+     * Copy a region of an array into the target buffer, at the given absolute index, without
+     * modifying the position of the buffer.
+     */
+    private void putToBuffer(final int at, final byte[] src, final int srcOffset, final int length) {
+        for (int counter = 0; counter < length; counter++) {
+            buffer.put(at + counter, src[srcOffset + counter]);
+        }
+    }
+
+    /**
+     * @return scratch space for encoding a variable-length value destined for the target buffer,
+     * so that {@link BytesUtil#putVarLong(byte[], int, long)} remains the only encoder
+     */
+    private byte[] varScratch() {
+        if (varScratch == null) {
+            varScratch = new byte[Constants.VARLONG_MAX_BYTES];
+        }
+        return varScratch;
+    }
+
+    private void grow(final int count) throws IndexOutOfBoundsException {
+        final long required;
+        final long newCapacity;
+        final byte[] grown;
+
+        required = (long) index + count;
+        if (required > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IndexOutOfBoundsException("byte[] cannot contain more than "
+                                                + BytesUtil.BYTE_CONCAT_MAX_LENGTH + " bytes");
+        }
+        newCapacity = Math.min(Math.max(required, ((long) array.length) << 1),
+                               BytesUtil.BYTE_CONCAT_MAX_LENGTH);
+        if (pool == null) {
+            array = Arrays.copyOf(array, (int) newCapacity);
+        } else {
+            grown = pool.acquire((int) newCapacity);
+            System.arraycopy(array, 0, grown, 0, index);
+            if (array.length > 0) {
+                pool.release(array);
+            }
+            array = grown;
+        }
+        limit = array.length;
+    }
+
+    /**
+     * @return number of bytes written since the start of the target region
+     */
+    public int position() {
+        return index - start;
+    }
+
+    /**
+     * Move the cursor to the given position, relative to the start of the target region; e.g. to
+     * go back and fill in a length field once the content which follows it has been written.
+     * @param newPosition new position
+     * @return this writer
+     * @throws IndexOutOfBoundsException if the position lies outside the current capacity
+     */
+    public ByteWriter position(final int newPosition) throws IndexOutOfBoundsException {
+        if ((newPosition < 0) || (newPosition > limit - start)) {
+            throw new IndexOutOfBoundsException("Position " + newPosition + " outside of region of "
+                                                + (limit - start) + " bytes");
+        }
+        index = start + newPosition;
+        return this;
+    }
+
+    /**
+     * @return number of bytes which may be written before the end of the target region is reached
+     * (for a growable writer, before the backing array must grow)
+     */
+    public int remaining() {
+        return limit - index;
+    }
+
+    /**
+     * Return the cursor to the start of the target region, so that the writer (and, for a growable
+     * writer, its backing array) may be reused.
+     * @return this writer
+     */
+    public ByteWriter reset() {
+        index = start;
+        return this;
+    }
+
+    /**
+     * For a writer created with {@link #ByteWriter(BufferPool, int)}, return the backing array to
+     * the pool, and reset the writer to an empty state (a subsequent write acquires a new array
+     * from the pool). Any reference previously obtained via {@link #array()} must not be used
+     * afterwards. For any other writer, this has no effect.
+     * @return this writer
+     */
+    public ByteWriter release() {
+        if ((pool != null) && (array.length > 0)) {
+            pool.release(array);
+            array = BytesUtil.HBASE_EMPTY;
+            index = 0;
+            limit = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Return an {@link OutputStream} view of this writer, whose writes are applied at the cursor;
+     * e.g. to write the output of stream-based code into a pooled or fixed region. Writing past
+     * the end of a fixed region throws {@link IndexOutOfBoundsException}.
+     * @return an output stream writing to this writer
+     */
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(final int value) throws IndexOutOfBoundsException {
+                writeByte((byte) value);
+            }
+
+            @Override
+            public void write(final byte[] src, final int offset, final int length) throws IndexOutOfBoundsException {
+                writeBytes(src, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Return the array to which this writer is writing; the bytes written so far occupy indices
+     * <code>offset()</code> through <code>offset() + position() - 1</code>. For a growable writer,
+     * the returned reference changes whenever the array grows.
+     * @return the backing array, or null if this writer targets a buffer with no accessible array
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    /**
+     * @return index within {@link #array()} (or within the target buffer) at which the target
+     * region starts
+     */
+    public int offset() {
+        return start;
+    }
+
+    /**
+     * @return a new array containing exactly the bytes written so far
+     * @throws IllegalStateException if the memory being written has since been released
+     */
+    public byte[] toByteArray() throws IllegalStateException {
+        final byte[] written;
+        if (array != null) {
+            return Arrays.copyOfRange(array, start, index);
+        }
+        if (guard != null) {
+            guard.ensureOpen();
+        }
+        written = new byte[position()];
+        for (int counter = 0; counter < written.length; counter++) {
+            written[counter] = buffer.get(start + counter);
+        }
+        return written;
+    }
+
+    public ByteWriter writeByte(final byte value) throws IndexOutOfBoundsException {
+        final int at = claim(Byte.BYTES);
+        if (array != null) {
+            array[at] = value;
+        } else {
+            buffer.put(at, value);
+        }
+        return this;
+    }
+
+    public ByteWriter writeBoolean(final boolean value) throws IndexOutOfBoundsException {
+        return writeByte(value?(byte) 1:(byte) 0);
+    }
+
+    public ByteWriter writeShort(final short value) throws IndexOutOfBoundsException {
+        final int at = claim(Short.BYTES);
+        if (array != null) {
+            ByteArrayAccess.putShort(array, at, value);
+        } else {
+            buffer.putShort(at, value);
+        }
+        return this;
+    }
+
+    public ByteWriter writeInt(final int value) throws IndexOutOfBoundsException {
+        final int at = claim(Integer.BYTES);
+        if (array != null) {
+            ByteArrayAccess.putInt(array, at, value);
+        } else {
+            buffer.putInt(at, value);
+        }
+        return this;
+    }
+
+    public ByteWriter writeLong(final long value) throws IndexOutOfBoundsException {
+        final int at = claim(Long.BYTES);
+        if (array != null) {
+            ByteArrayAccess.putLong(array, at, value);
+        } else {
+            buffer.putLong(at, value);
+        }
+        return this;
+    }
+
+    public ByteWriter writeFloat(final float value) throws IndexOutOfBoundsException {
+        return writeInt(Float.floatToIntBits(value));
+    }
+
+    public ByteWriter writeDouble(final double value) throws IndexOutOfBoundsException {
+        return writeLong(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Write the variable-length encoding of the given value, as described by
+     * {@link BytesUtil#putVarInt(byte[], int, int)}.
+     * @param value the value to write, treated as unsigned
+     * @return this writer
+     * @throws IndexOutOfBoundsException if the target region is too small
+     */
+    public ByteWriter writeVarInt(final int value) throws IndexOutOfBoundsException {
+        final int at = claim(BytesUtil.varIntLength(value));
+        final byte[] scratch;
+        if (array != null) {
+            BytesUtil.putVarInt(array, at, value);
+        } else {
+            scratch = varScratch();
+            putToBuffer(at, scratch, 0, BytesUtil.putVarInt(scratch, 0, value));
+        }
+        return this;
+    }
+
+    /**
+     * Write the variable-length encoding of the given value, as described by
+     * {@link BytesUtil#putVarLong(byte[], int, long)}.
+     * @param value the value to write, treated as unsigned
+     * @return this writer
+     * @throws IndexOutOfBoundsException if the target region is too small
+     */
+    public ByteWriter writeVarLong(final long value) throws IndexOutOfBoundsException {
+        final int at = claim(BytesUtil.varLongLength(value));
+        final byte[] scratch;
+        if (array != null) {
+            BytesUtil.putVarLong(array, at, value);
+        } else {
+            scratch = varScratch();
+            putToBuffer(at, scratch, 0, BytesUtil.putVarLong(scratch, 0, value));
+        }
+        return this;
+    }
+
+    /**
+     * Write a signed value in zigzag, variable-length form (see {@link BytesUtil#zigZagEncode(int)}),
+     * so that values of small magnitude occupy few bytes regardless of sign.
+     * @param value the value to write
+     * @return this writer
+     * @throws IndexOutOfBoundsException if the target region is too small
+     */
+    public ByteWriter writeZigZagInt(final int value) throws IndexOutOfBoundsException {
+        return writeVarInt(BytesUtil.zigZagEncode(value));
+    }
+
+    /**
+     * Write a signed value in zigzag, variable-length form (see
+     * {@link BytesUtil#zigZagEncode(long)}), so that values of small magnitude occupy few bytes
+     * regardless of sign.
+     * @param value the value to write
+     * @return this writer
+     * @throws IndexOutOfBoundsException if the target region is too small
+     */
+    public ByteWriter writeZigZagLong(final long value) throws IndexOutOfBoundsException {
+        return writeVarLong(BytesUtil.zigZagEncode(value));
+    }
+
+    /**
+     * Write an {@link Instant} in the format produced by {@link BytesUtil#toBytes(Instant)}: an
+     * 8-byte epoch second followed by a 4-byte nanosecond adjustment.
+     * @param time the instant to write
+     * @return this writer
+     * @throws IllegalArgumentException if the instant is null
+     * @throws IndexOutOfBoundsException if the target region is too small
+     */
+    public ByteWriter writeInstant(final Instant time) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(time, this, "time", Instant.class);
+        ensure(Constants.INSTANT_BYTES);
+        writeLong(time.getEpochSecond());
+        return writeInt(time.getNano());
+    }
+
+    /**
+     * Write the given region of a byte array.
+     * @param src source array
+     * @param srcOffset index of the first byte to write
+     * @param length number of bytes to write
+     * @return this writer
+     * @throws IllegalArgumentException if the source array is null
+     * @throws IndexOutOfBoundsException if the source region is invalid, or the target region is
+     * too small
+     */
+    public ByteWriter writeBytes(final byte[] src, final int srcOffset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int at;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, srcOffset, length);
+        at = claim(length);
+        if (array != null) {
+            System.arraycopy(src, srcOffset, array, at, length);
+        } else {
+            putToBuffer(at, src, srcOffset, length);
+        }
+        return this;
+    }
+
+    public ByteWriter writeBytes(final byte[] src) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        return writeBytes(src, 0, src.length);
+    }
+
+    /**
+     * Write a string as a 4-byte length prefix followed by its UTF-8 encoding; a null string is
+     * written as the prefix {@link Constants#STRING_LENGTH_NULL} alone. Read back with
+     * {@link ByteReader#readString()}.
+     * @param str the string to write (nullable)
+     * @return this writer
+     * @throws IndexOutOfBoundsException if the target region is too small
+     */
+    public ByteWriter writeString(final String str) throws IndexOutOfBoundsException {
+        final int length;
+        final int at;
+
+        if (str == null) {
+            return writeInt(Constants.STRING_LENGTH_NULL);
+        }
+        length = Utf8.length(str);
+        ensure(Integer.BYTES + length);
+        writeInt(length);
+        // encoded in place, rather than via an intermediate array
+        at = claim(length);
+        if (array != null) {
+            Utf8.encode(str, array, at);
+        } else {
+            Utf8.encode(str, buffer, at);
+        }
+        return this;
+    }
+
+    /**
+     * Create a writer which owns a heap array of the given initial capacity, doubling it whenever
+     * more space is required.
+     * @param initialCapacity initial size of the backing array
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    public ByteWriter(final int initialCapacity) throws IllegalArgumentException {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity may not be negative: "
+                                               + initialCapacity);
+        }
+        this.growable = true;
+        this.pool = null;
+        this.array = new byte[initialCapacity];
+        this.start = 0;
+        this.index = 0;
+        this.limit = initialCapacity;
+    }
+
+    /**
+     * Create a growable writer whose backing arrays are acquired from (and, as it grows, returned
+     * to) the given pool. Call {@link #release()} once the written bytes are no longer needed, to
+     * return the final array to the pool.
+     * @param pool the pool from which to acquire backing arrays
+     * @param initialCapacity minimum initial size of the backing array
+     * @throws IllegalArgumentException if the pool is null, or the capacity is negative
+     */
+    public ByteWriter(final BufferPool pool, final int initialCapacity) throws IllegalArgumentException {
+        Util.ensureNotNull(pool, ByteWriter.class, "pool", BufferPool.class);
+        this.growable = true;
+        this.pool = pool;
+        this.array = pool.acquire(initialCapacity);
+        this.start = 0;
+        this.index = 0;
+        this.limit = array.length;
+    }
+
+    /**
+     * Create a growable writer with a small default initial capacity.
+     */
+    public ByteWriter() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a writer targeting a fixed region of the given array.
+     * @param dest the array to write into
+     * @param offset index of the first byte of the region
+     * @param length number of bytes in the region
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public ByteWriter(final byte[] dest, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(dest, ByteWriter.class, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, offset, length);
+        this.growable = false;
+        this.pool = null;
+        this.array = dest;
+        this.start = offset;
+        this.index = offset;
+        this.limit = offset + length;
+    }
+
+    public ByteWriter(final byte[] dest) throws IllegalArgumentException {
+        this(dest, 0, (dest == null)?0:dest.length);
+    }
+
+    /**
+     * Create a writer targeting the remaining space (position through limit) of the given buffer.
+     * @param dest the buffer to write into
+     * @throws IllegalArgumentException if the buffer is null or read-only
+     */
+    public ByteWriter(final ByteBuffer dest) throws IllegalArgumentException {
+        Util.ensureNotNull(dest, ByteWriter.class, "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new IllegalArgumentException(ByteWriter.class.getSimpleName()
+                                               + " requires a writable buffer");
+        }
+        this.growable = false;
+        this.pool = null;
+        if (dest.hasArray()) {
+            this.array = dest.array();
+            this.start = dest.arrayOffset() + dest.position();
+            this.limit = dest.arrayOffset() + dest.limit();
+        } else {
+            this.buffer =
+                (dest.order() == ByteOrder.BIG_ENDIAN)?dest:dest.duplicate().order(ByteOrder.BIG_ENDIAN);
+            this.start = dest.position();
+            this.limit = dest.limit();
+        }
+        this.index = this.start;
+    }
+
+    /**
+     * Create a writer targeting a direct buffer whose memory may be released independently of the
+     * writer; every write first consults the guard, and throws {@link IllegalStateException} once
+     * the memory has been released.
+     * @param dest the buffer to write into
+     * @param guard check that the buffer's memory is still valid
+     * @throws IllegalArgumentException if the buffer is null or read-only
+     * @throws IllegalStateException if the memory has already been released
+     */
+    ByteWriter(final ByteBuffer dest, final AccessGuard guard) throws IllegalArgumentException, IllegalStateException {
+        this(dest);
+        guard.ensureOpen();
+        this.guard = guard;
+    }
+}
@@ -23,16 +23,38 @@ import com.liaison.javabasics.commons.Util;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Objects;
 
 /**
  * TODO
@@ -68,6 +90,74 @@ public final class BytesUtil extends Uninstantiable {
      * @see <a href="http://hg.openjdk.java.net/jdk8/jdk8/jdk/file/tip/src/share/classes/java/util/ArrayList.java#l229">http://hg.openjdk.java.net/jdk8/jdk8/jdk/file/tip/src/share/classes/java/util/ArrayList.java#l229</a>
      */
     public static final long BYTE_CONCAT_MAX_LENGTH = Integer.MAX_VALUE - 8;
+    /**
+     * Minimum number of byte pairs for which {@link #zipBytes(byte[], byte[])} and
+     * {@link #unzipBytes(byte[], int)} (and their region variants) split the work across the common
+     * {@link java.util.concurrent.ForkJoinPool}; below this, the fork/join overhead outweighs the
+     * gain.
+     */
+    public static final int ZIP_PARALLEL_THRESHOLD = 1 << 20;
+
+    /**
+     * Comparator which orders byte arrays lexicographically, treating each byte as unsigned (i.e.
+     * the order in which HBase sorts row keys); see {@link #compare(byte[], byte[])}.
+     */
+    public static final Comparator<byte[]> LEXICOGRAPHICAL_COMPARATOR = BytesUtil::compare;
+
+    /**
+     * Default number of bytes buffered by {@link #compressingStream(OutputStream, Compressor)}
+     * before compressing them as one frame, and the default greatest block length accepted by
+     * {@link #decompressingStream(InputStream, CompressorRegistry)}.
+     */
+    public static final int COMPRESSION_BLOCK_SIZE_DEFAULT = 1 << 16;
+
+    /**
+     * Maximum number of buffers passed to a single gathering write; matches the usual
+     * <code>IOV_MAX</code> of the operating system, beyond which the JVM splits the write anyway.
+     */
+    private static final int GATHER_BATCH_SIZE = 1024;
+
+    /**
+     * Shift of the last (fifth) byte of a variable-length int, which may carry only the top four
+     * bits of the value, as {@link #VARINT_LAST_MASK}; any other bit set in it means the encoding
+     * is malformed, rather than merely long.
+     */
+    static final int VARINT_LAST_SHIFT = 28;
+    static final int VARINT_LAST_MASK = 0x0F;
+    /**
+     * Shift of the last (tenth) byte of a variable-length long, which may carry only the top bit
+     * of the value, as {@link #VARLONG_LAST_MASK}.
+     */
+    static final int VARLONG_LAST_SHIFT = 63;
+    static final int VARLONG_LAST_MASK = 0x01;
+
+    /**
+     * Verify that the region of the given length starting at the given offset lies within an
+     * array (or buffer) of the given capacity.
+     * @param capacity size of the array or buffer
+     * @param offset index of the first byte of the region
+     * @param length number of bytes in the region
+     * @throws IndexOutOfBoundsException if the region is not entirely within bounds
+     */
+    static void checkRegion(final int capacity, final int offset, final int length) throws IndexOutOfBoundsException {
+        if ((offset < 0) || (length < 0) || (offset > capacity - length)) {
+            throw new IndexOutOfBoundsException("Region [offset=" + offset + ", length=" + length
+                                                + "] does not lie within " + capacity + " bytes");
+        }
+    }
+
+    /**
+     * Common validation for the in-place <code>put</code> methods.
+     * @param dest destination array
+     * @param offset index at which writing begins
+     * @param length number of bytes to be written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    private static void checkPut(final byte[] dest, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(dest, "BytesUtil#put", "dest", byte[].class);
+        checkRegion(dest.length, offset, length);
+    }
     
     /**
      * TODO
@@ -78,6 +168,176 @@ public final class BytesUtil extends Uninstantiable {
     public static boolean refEquals(final byte[] ref1, final byte[] ref2) {
         return Util.refEquals(ref1, ref2);
     }
+
+    /**
+     * Compare two regions of byte arrays lexicographically, treating each byte as unsigned. If one
+     * region is a prefix of the other, the shorter region sorts first. Comparison proceeds several
+     * bytes at a time (via <code>Arrays.mismatch</code> on Java 9 and later), rather than one byte
+     * at a time.
+     * @param left first array
+     * @param leftOffset start of the region in the first array
+     * @param leftLength length of the region in the first array
+     * @param right second array
+     * @param rightOffset start of the region in the second array
+     * @param rightLength length of the region in the second array
+     * @return a negative value, zero, or a positive value as the first region is less than, equal
+     * to, or greater than the second
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int compare(final byte[] left, final int leftOffset, final int leftLength, final byte[] right, final int rightOffset, final int rightLength) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int mismatch;
+        Util.ensureNotNull(left, "BytesUtil#compare", "left", byte[].class);
+        Util.ensureNotNull(right, "BytesUtil#compare", "right", byte[].class);
+        checkRegion(left.length, leftOffset, leftLength);
+        checkRegion(right.length, rightOffset, rightLength);
+        mismatch =
+            ByteArrayAccess.mismatch(left, leftOffset, right, rightOffset,
+                                     Math.min(leftLength, rightLength));
+        if (mismatch >= 0) {
+            return (left[leftOffset + mismatch] & 0xFF) - (right[rightOffset + mismatch] & 0xFF);
+        }
+        return Integer.compare(leftLength, rightLength);
+    }
+
+    /**
+     * Compare two byte arrays lexicographically, treating each byte as unsigned; see
+     * {@link #compare(byte[], int, int, byte[], int, int)}. A null array sorts before any non-null
+     * array.
+     * @param left first array (nullable)
+     * @param right second array (nullable)
+     * @return a negative value, zero, or a positive value as the first array is less than, equal
+     * to, or greater than the second
+     */
+    public static int compare(final byte[] left, final byte[] right) {
+        if (left == right) {
+            return 0;
+        }
+        if (left == null) {
+            return -1;
+        }
+        if (right == null) {
+            return 1;
+        }
+        return compare(left, 0, left.length, right, 0, right.length);
+    }
+
+    /**
+     * Determine whether two regions of byte arrays have identical content.
+     * @param left first array
+     * @param leftOffset start of the region in the first array
+     * @param leftLength length of the region in the first array
+     * @param right second array
+     * @param rightOffset start of the region in the second array
+     * @param rightLength length of the region in the second array
+     * @return true if the regions are of equal length and content
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static boolean equals(final byte[] left, final int leftOffset, final int leftLength, final byte[] right, final int rightOffset, final int rightLength) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(left, "BytesUtil#equals", "left", byte[].class);
+        Util.ensureNotNull(right, "BytesUtil#equals", "right", byte[].class);
+        checkRegion(left.length, leftOffset, leftLength);
+        checkRegion(right.length, rightOffset, rightLength);
+        return (leftLength == rightLength)
+               && (ByteArrayAccess.mismatch(left, leftOffset, right, rightOffset, leftLength) < 0);
+    }
+
+    /**
+     * Compute the length of the longest common prefix of two regions of byte arrays.
+     * @param left first array
+     * @param leftOffset start of the region in the first array
+     * @param leftLength length of the region in the first array
+     * @param right second array
+     * @param rightOffset start of the region in the second array
+     * @param rightLength length of the region in the second array
+     * @return number of leading bytes which the regions have in common
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int commonPrefixLength(final byte[] left, final int leftOffset, final int leftLength, final byte[] right, final int rightOffset, final int rightLength) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int shorterLength;
+        final int mismatch;
+        Util.ensureNotNull(left, "BytesUtil#commonPrefixLength", "left", byte[].class);
+        Util.ensureNotNull(right, "BytesUtil#commonPrefixLength", "right", byte[].class);
+        checkRegion(left.length, leftOffset, leftLength);
+        checkRegion(right.length, rightOffset, rightLength);
+        shorterLength = Math.min(leftLength, rightLength);
+        mismatch = ByteArrayAccess.mismatch(left, leftOffset, right, rightOffset, shorterLength);
+        return (mismatch < 0)?shorterLength:mismatch;
+    }
+
+    /**
+     * @param left first array
+     * @param right second array
+     * @return number of leading bytes which the arrays have in common
+     * @throws IllegalArgumentException if either array is null
+     * @see #commonPrefixLength(byte[], int, int, byte[], int, int)
+     */
+    public static int commonPrefixLength(final byte[] left, final byte[] right) throws IllegalArgumentException {
+        Util.ensureNotNull(left, "BytesUtil#commonPrefixLength", "left", byte[].class);
+        Util.ensureNotNull(right, "BytesUtil#commonPrefixLength", "right", byte[].class);
+        return commonPrefixLength(left, 0, left.length, right, 0, right.length);
+    }
+
+    /**
+     * Determine whether the given region of a byte array begins with the given prefix.
+     * @param bytes the array to check
+     * @param offset start of the region
+     * @param length length of the region
+     * @param prefix the prefix
+     * @return true if the first <code>prefix.length</code> bytes of the region equal the prefix
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static boolean startsWith(final byte[] bytes, final int offset, final int length, final byte[] prefix) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, "BytesUtil#startsWith", "bytes", byte[].class);
+        Util.ensureNotNull(prefix, "BytesUtil#startsWith", "prefix", byte[].class);
+        checkRegion(bytes.length, offset, length);
+        return (length >= prefix.length)
+               && (ByteArrayAccess.mismatch(bytes, offset, prefix, 0, prefix.length) < 0);
+    }
+
+    /**
+     * @param bytes the array to check
+     * @param prefix the prefix
+     * @return true if the array begins with the prefix
+     * @throws IllegalArgumentException if either array is null
+     * @see #startsWith(byte[], int, int, byte[])
+     */
+    public static boolean startsWith(final byte[] bytes, final byte[] prefix) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, "BytesUtil#startsWith", "bytes", byte[].class);
+        return startsWith(bytes, 0, bytes.length, prefix);
+    }
+
+    /**
+     * Compute the smallest key which sorts (per {@link #LEXICOGRAPHICAL_COMPARATOR}) after every
+     * key beginning with the given prefix; i.e. the exclusive upper bound of a prefix range, as
+     * used for the stop row of a prefix scan. This is obtained by dropping any trailing
+     * <code>0xFF</code> bytes from the prefix and incrementing the last remaining byte.
+     * @param prefix the prefix
+     * @return a new array containing the upper bound, or null if no such key exists (i.e. the
+     * prefix is empty or consists entirely of <code>0xFF</code> bytes, so that the range is
+     * unbounded above; pass the result through {@link #forHBase(byte[])} to obtain HBase's
+     * "unbounded" stop row)
+     * @throws IllegalArgumentException if the prefix is null
+     */
+    public static byte[] nextPrefix(final byte[] prefix) throws IllegalArgumentException {
+        final byte[] upperBound;
+        int lastIndex;
+
+        Util.ensureNotNull(prefix, "BytesUtil#nextPrefix", "prefix", byte[].class);
+        lastIndex = prefix.length - 1;
+        while ((lastIndex >= 0) && (prefix[lastIndex] == (byte) 0xFF)) {
+            lastIndex--;
+        }
+        if (lastIndex < 0) {
+            return null;
+        }
+        upperBound = Arrays.copyOf(prefix, lastIndex + 1);
+        upperBound[lastIndex]++;
+        return upperBound;
+    }
     
     /**
      * TODO
@@ -146,6 +406,9 @@ public final class BytesUtil extends Uninstantiable {
         if (charset == null) {
             throw new IllegalArgumentException("Charset reference expected for conversion");
         }
+        if (Constants.CHARSET_DEFAULT.equals(charset)) {
+            return Utf8.decode(bytes, 0, bytes.length);
+        }
         return new String(bytes, charset);
     }
     
@@ -169,239 +432,1497 @@ public final class BytesUtil extends Uninstantiable {
      */
     public static String toString(final byte[] bytes, final int offset) {
         if (bytes != null && offset >= 0 && offset <= bytes.length) {
-            return new String(bytes, offset, bytes.length - offset, Constants.CHARSET_DEFAULT);
+            return Utf8.decode(bytes, offset, bytes.length - offset);
         }
         return null;
     }
 
     /**
-     * TODO
-     * @param value TODO
-     * @return TODO
+     * Convert a region of an array to String using the supplied Charset, without first copying the
+     * region. Content which is entirely ASCII is decoded without invoking a charset decoder when the
+     * charset is {@link Constants#CHARSET_DEFAULT} ({@value Constants#CHARSET_DEFAULT_STR}). If the
+     * bytes are null, returns null.
+     * @param bytes array containing the encoded String value
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @param charset the charset to use to convert the bytes to String
+     * @return the String value represented by the region
+     * @throws IllegalArgumentException if the provided Charset is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
      */
-    public static byte[] toBytes(final long value) {
-        return Longs.toByteArray(value);
+    public static String toString(final byte[] bytes, final int offset, final int length, final Charset charset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        if (bytes == null) {
+            return null;
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("Charset reference expected for conversion");
+        }
+        checkRegion(bytes.length, offset, length);
+        if (Constants.CHARSET_DEFAULT.equals(charset)) {
+            return Utf8.decode(bytes, offset, length);
+        }
+        return new String(bytes, offset, length, charset);
     }
 
     /**
-     * TODO
-     * @param value TODO
-     * @return TODO
+     * Convert a region of an array to String using the default Charset specified by
+     * {@link Constants#CHARSET_DEFAULT} ({@value Constants#CHARSET_DEFAULT_STR}), without first
+     * copying the region. If the bytes are null, returns null.
+     * @param bytes array containing the encoded String value
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return the String value represented by the region
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
      */
-    public static byte[] toBytes(final int value) {
-        return Ints.toByteArray(value);
+    public static String toString(final byte[] bytes, final int offset, final int length) throws IndexOutOfBoundsException {
+        return toString(bytes, offset, length, Constants.CHARSET_DEFAULT);
     }
 
     /**
-     * TODO
-     * @param value TODO
-     * @return TODO
+     * Convert a region of an array to String using the default Charset specified by
+     * {@link Constants#CHARSET_DEFAULT} ({@value Constants#CHARSET_DEFAULT_STR}), returning the
+     * canonical instance held by the given cache when the same content has been decoded before.
+     * If the bytes are null, returns null.
+     * @param bytes array containing the encoded String value
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @param cache cache of previously-decoded strings
+     * @return the String value represented by the region
+     * @throws IllegalArgumentException if the cache is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
      */
-    public static byte[] toBytes(final short value) {
-        return Shorts.toByteArray(value);
+    public static String toString(final byte[] bytes, final int offset, final int length, final StringDecodeCache cache) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(cache, "BytesUtil#toString", "cache", StringDecodeCache.class);
+        if (bytes == null) {
+            return null;
+        }
+        return cache.decode(bytes, offset, length);
     }
 
     /**
-     * TODO
-     * @param bytes TODO
-     * @return TODO
+     * Convert the bytes to String using the default Charset specified by
+     * {@link Constants#CHARSET_DEFAULT} ({@value Constants#CHARSET_DEFAULT_STR}), returning the
+     * canonical instance held by the given cache when the same content has been decoded before.
+     * If the bytes are null, returns null.
+     * @param bytes byte[] representation of the String value
+     * @param cache cache of previously-decoded strings
+     * @return the String value represented by the byte[]
+     * @throws IllegalArgumentException if the cache is null
      */
-    public static Long toLong(final byte[] bytes) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && bytes.length >= 8) {
-            return Long.valueOf(Longs.fromByteArray(bytes));
-        }
-        return null;
+    public static String toString(final byte[] bytes, final StringDecodeCache cache) throws IllegalArgumentException {
+        return toString(bytes, 0, (bytes == null)?0:bytes.length, cache);
     }
 
     /**
-     * TODO
-     * @param bytes TODO
-     * @param offset TODO
-     * @return TODO
+     * Compute the length of the UTF-8 ({@link Constants#CHARSET_DEFAULT}) encoding of the given
+     * characters, without encoding them. Unpaired surrogates are counted as the single byte
+     * (<code>'?'</code>) with which {@link #toBytes(String)} replaces them.
+     * @param value the characters to measure
+     * @return the number of bytes {@link #encodeUtf8(CharSequence, byte[], int)} will write
+     * @throws IllegalArgumentException if the value is null, or its encoding would exceed
+     * {@link #BYTE_CONCAT_MAX_LENGTH}
      */
-    public static Long toLong(final byte[] bytes, final int offset) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && offset >= 0 && bytes.length >= offset + 8) {
-            return Long.valueOf(Longs.fromBytes(
-                bytes[offset + 0],
-                bytes[offset + 1],
-                bytes[offset + 2],
-                bytes[offset + 3],
-                bytes[offset + 4],
-                bytes[offset + 5],
-                bytes[offset + 6],
-                bytes[offset + 7]));
-        }
-        return null;
+    public static int utf8Length(final CharSequence value) throws IllegalArgumentException {
+        Util.ensureNotNull(value, "BytesUtil#utf8Length", "value", CharSequence.class);
+        return Utf8.length(value);
     }
 
     /**
-     * TODO
-     * @param b1 TODO
-     * @param b2 TODO
-     * @param b3 TODO
-     * @param b4 TODO
-     * @param b5 TODO
-     * @param b6 TODO
-     * @param b7 TODO
-     * @param b8 TODO
-     * @return TODO
+     * Encode characters as UTF-8 ({@link Constants#CHARSET_DEFAULT}) directly into an existing
+     * array, producing the same bytes as {@link #toBytes(String)} without allocating. Use
+     * {@link #utf8Length(CharSequence)} to size the destination.
+     * @param value the characters to encode
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the value or destination is null
+     * @throws IndexOutOfBoundsException if the encoding does not fit in the array at the offset
      */
-    public static long toLong(byte b1, byte b2, byte b3, byte b4, byte b5, byte b6, byte b7, byte b8) {
-        return Longs.fromBytes(b1, b2, b3, b4, b5, b6, b7, b8);
+    public static int encodeUtf8(final CharSequence value, final byte[] dest, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int count;
+
+        Util.ensureNotNull(value, "BytesUtil#encodeUtf8", "value", CharSequence.class);
+        Util.ensureNotNull(dest, "BytesUtil#encodeUtf8", "dest", byte[].class);
+        count = value.length();
+        checkRegion(dest.length, offset, 0);
+        // each char encodes to at most 3 bytes, so the exact length need only be computed when the
+        // destination is tight
+        if ((dest.length - offset) / 3 < count) {
+            checkRegion(dest.length, offset, Utf8.length(value));
+        }
+        return Utf8.encode(value, dest, offset);
     }
 
     /**
-     * TODO
-     * @param bytes TODO
-     * @return TODO
+     * Encode characters as UTF-8 ({@link Constants#CHARSET_DEFAULT}) into a buffer at its
+     * position, advancing the position past the bytes written.
+     * @param value the characters to encode
+     * @param dest the buffer into which to write
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if the value or buffer is null
+     * @throws BufferOverflowException if the encoding does not fit in the buffer's remaining space,
+     * in which case nothing is written
+     * @throws ReadOnlyBufferException if the buffer is read-only
      */
-    public static Integer toInteger(final byte[] bytes) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && bytes.length >= 4) {
-            return Integer.valueOf(Ints.fromByteArray(bytes));
+    public static int encodeUtf8(final CharSequence value, final ByteBuffer dest) throws IllegalArgumentException, BufferOverflowException, ReadOnlyBufferException {
+        final int length;
+
+        Util.ensureNotNull(value, "BytesUtil#encodeUtf8", "value", CharSequence.class);
+        Util.ensureNotNull(dest, "BytesUtil#encodeUtf8", "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
         }
-        return null;
+        length = Utf8.length(value);
+        if (length > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+        Utf8.encode(value, dest, dest.position());
+        dest.position(dest.position() + length);
+        return length;
     }
-    
+
     /**
-     * TODO
-     * @param bytes TODO
-     * @param offset TODO
-     * @return TODO
+     * Encode characters into a buffer at its position using the supplied Charset, advancing the
+     * position past the bytes written. UTF-8 is encoded directly; other charsets are encoded with
+     * a {@link java.nio.charset.CharsetEncoder} cached per thread, so nothing is allocated per
+     * call. As with {@link #toBytes(String, Charset)}, malformed input and unmappable characters
+     * are replaced with the charset's replacement bytes.
+     * @param value the characters to encode
+     * @param charset the charset to use to convert the characters to bytes
+     * @param dest the buffer into which to write
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if any argument is null
+     * @throws BufferOverflowException if the encoding does not fit in the buffer's remaining space;
+     * for charsets other than UTF-8, a prefix of the encoding may already have been written
+     * @throws ReadOnlyBufferException if the buffer is read-only
      */
-    public static Integer toInteger(final byte[] bytes, final int offset) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && offset >= 0 && bytes.length >= offset + 4) {
-            return Integer.valueOf(Ints.fromBytes(
-                bytes[offset + 0],
-                bytes[offset + 1],
-                bytes[offset + 2],
-                bytes[offset + 3]));
+    public static int encode(final CharSequence value, final Charset charset, final ByteBuffer dest) throws IllegalArgumentException, BufferOverflowException, ReadOnlyBufferException {
+        final CharsetEncoder encoder;
+        final int start;
+        CoderResult result;
+
+        if (charset == null) {
+            throw new IllegalArgumentException("Charset reference expected for conversion");
         }
-        return null;
+        if (Constants.CHARSET_DEFAULT.equals(charset)) {
+            return encodeUtf8(value, dest);
+        }
+        Util.ensureNotNull(value, "BytesUtil#encode", "value", CharSequence.class);
+        Util.ensureNotNull(dest, "BytesUtil#encode", "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        encoder = Utf8.encoder(charset);
+        start = dest.position();
+        result = encoder.encode(CharBuffer.wrap(value), dest, true);
+        if (result.isUnderflow()) {
+            result = encoder.flush(dest);
+        }
+        if (result.isOverflow()) {
+            throw new BufferOverflowException();
+        }
+        return dest.position() - start;
     }
 
     /**
      * TODO
-     * @param b1 TODO
-     * @param b2 TODO
-     * @param b3 TODO
-     * @param b4 TODO
+     * @param value TODO
      * @return TODO
      */
-    public static int toInteger(byte b1, byte b2, byte b3, byte b4) {
-        return Ints.fromBytes(b1, b2, b3, b4);
+    public static byte[] toBytes(final long value) {
+        return Longs.toByteArray(value);
     }
 
     /**
      * TODO
-     * @param bytes TODO
+     * @param value TODO
      * @return TODO
      */
-    public static Short toShort(final byte[] bytes) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && bytes.length >= 2) {
-            return Short.valueOf(Shorts.fromByteArray(bytes));
-        }
-        return null;
+    public static byte[] toBytes(final int value) {
+        return Ints.toByteArray(value);
     }
-    
+
     /**
      * TODO
-     * @param bytes TODO
-     * @param offset TODO
+     * @param value TODO
      * @return TODO
      */
-    public static Short toShort(final byte[] bytes, final int offset) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && offset >= 0 && bytes.length >= offset + 2) {
-            return Short.valueOf(Shorts.fromBytes(
-                bytes[offset + 0],
-                bytes[offset + 1]));
-        }
-        return null;
+    public static byte[] toBytes(final short value) {
+        return Shorts.toByteArray(value);
     }
 
     /**
-     * TODO
-     * @param b1 TODO
-     * @param b2 TODO
-     * @return TODO
+     * Write the 8-byte big-endian representation of the given value (the same representation
+     * produced by {@link #toBytes(long)}) directly into an existing array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the value to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if fewer than 8 bytes are available at the offset
      */
-    public static short toShort(byte b1, byte b2) {
-        return Shorts.fromBytes(b1, b2);
+    public static int putLong(final byte[] dest, final int offset, final long value) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkPut(dest, offset, Long.BYTES);
+        ByteArrayAccess.putLong(dest, offset, value);
+        return offset + Long.BYTES;
     }
 
     /**
-     * TODO
-     * @param time TODO
-     * @return TODO
+     * Write the 4-byte big-endian representation of the given value (the same representation
+     * produced by {@link #toBytes(int)}) directly into an existing array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the value to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if fewer than 4 bytes are available at the offset
      */
-    public static byte[] toBytes(final Instant time) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (time != null) {
-            byte[] bytes = new byte[8 + 4];
-            System.arraycopy(toBytes(time.getEpochSecond()), 0, bytes, 0, 8);
-            System.arraycopy(toBytes(time.getNano()), 0, bytes, 8, 4);
-            return bytes;
-        }
-        return null;
+    public static int putInt(final byte[] dest, final int offset, final int value) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkPut(dest, offset, Integer.BYTES);
+        ByteArrayAccess.putInt(dest, offset, value);
+        return offset + Integer.BYTES;
     }
-    
+
     /**
-     * TODO
-     * @param bytes TODO
-     * @return TODO
+     * Write the 2-byte big-endian representation of the given value (the same representation
+     * produced by {@link #toBytes(short)}) directly into an existing array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the value to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if fewer than 2 bytes are available at the offset
      */
-    public static Instant toInstant(final byte[] bytes) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && bytes.length >= 8 + 4) {
-            long millisecs = Longs.fromByteArray(bytes);
-            int nano = Ints.fromBytes(bytes[8], bytes[9], bytes[10], bytes[11]);
-            return Instant.ofEpochSecond(millisecs, nano);
-        }
-        return null;
+    public static int putShort(final byte[] dest, final int offset, final short value) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkPut(dest, offset, Short.BYTES);
+        ByteArrayAccess.putShort(dest, offset, value);
+        return offset + Short.BYTES;
     }
 
     /**
-     * TODO
-     * @param bytes TODO
-     * @param offset TODO
-     * @return TODO
+     * Write the representation of the given instant produced by {@link #toBytes(Instant)} (an
+     * 8-byte epoch second followed by a 4-byte nanosecond adjustment) directly into an existing
+     * array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param time the instant to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or the instant is null
+     * @throws IndexOutOfBoundsException if fewer than {@link Constants#INSTANT_BYTES} bytes are
+     * available at the offset
      */
-    public static Instant toInstant(final byte[] bytes, final int offset) {
-        // TODO: determine constant values programmatically, or make them constant
-        if (bytes != null && offset >= 0 && bytes.length >= offset + 8 + 4) {
-            return Instant.ofEpochSecond(toLong(bytes, offset).longValue(),
-                                         toInteger(bytes, offset + 8).longValue());
-        }
-        return null;
+    public static int putInstant(final byte[] dest, final int offset, final Instant time) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(time, "BytesUtil#putInstant", "time", Instant.class);
+        checkPut(dest, offset, Constants.INSTANT_BYTES);
+        ByteArrayAccess.putLong(dest, offset, time.getEpochSecond());
+        ByteArrayAccess.putInt(dest, offset + Long.BYTES, time.getNano());
+        return offset + Constants.INSTANT_BYTES;
     }
-    
+
     /**
-     * TODO
-     * @param bytes TODO
-     * @return TODO
+     * Write the given instant in the given encoding directly into an existing array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param time the instant to write
+     * @param encoding the encoding to use
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if any argument is null, or the instant is outside the
+     * range of the encoding
+     * @throws IndexOutOfBoundsException if fewer than {@link InstantEncoding#length()} bytes are
+     * available at the offset
      */
-    public static String encode(final byte[] bytes) {
-        return new String(BASE64_ENC.encode(bytes), Constants.CHARSET_DEFAULT);
+    public static int putInstant(final byte[] dest, final int offset, final Instant time, final InstantEncoding encoding) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(encoding, "BytesUtil#putInstant", "encoding", InstantEncoding.class);
+        return encoding.put(dest, offset, time);
     }
-    
+
     /**
-     * TODO
-     * @param text TODO
-     * @return TODO
+     * Write the 8-byte big-endian representations of a run of values, back to back, directly into
+     * an existing array, via a {@link java.nio.LongBuffer} view of the destination.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @param valuesOffset index of the first value to write
+     * @param count number of values to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or values array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
      */
-    public static byte[] decode(final String text) {
-        return BASE64_DEC.decode(text);
+    public static int putLongs(final byte[] dest, final int offset, final long[] values, final int valuesOffset, final int count) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return putLongs(dest, offset, values, valuesOffset, count, ByteOrder.BIG_ENDIAN);
     }
-    
+
     /**
-     * TODO
-     * @param inBytes TODO
-     * @return TODO
+     * Write the 8-byte representations of a run of values, in the given byte order, back to back,
+     * directly into an existing array, via a {@link java.nio.LongBuffer} view of the destination.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @param valuesOffset index of the first value to write
+     * @param count number of values to write
+     * @param order byte order of each value
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination, values array, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int putLongs(final byte[] dest, final int offset, final long[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        Util.ensureNotNull(values, "BytesUtil#putLongs", "values", long[].class);
+        Util.ensureNotNull(order, "BytesUtil#putLongs", "order", ByteOrder.class);
+        checkRegion(values.length, valuesOffset, count);
+        length = Math.multiplyExact(count, Long.BYTES);
+        checkPut(dest, offset, length);
+        ByteBuffer.wrap(dest, offset, length).order(order).asLongBuffer().put(values, valuesOffset, count);
+        return offset + length;
+    }
+
+    /**
+     * Equivalent to {@link #putLongs(byte[], int, long[], int, int)} for the entire values array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or values array is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putLongs(final byte[] dest, final int offset, final long[] values) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(values, "BytesUtil#putLongs", "values", long[].class);
+        return putLongs(dest, offset, values, 0, values.length);
+    }
+
+    /**
+     * Write the 4-byte big-endian representations of a run of values, back to back, directly into
+     * an existing array, via an {@link java.nio.IntBuffer} view of the destination.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @param valuesOffset index of the first value to write
+     * @param count number of values to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or values array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int putInts(final byte[] dest, final int offset, final int[] values, final int valuesOffset, final int count) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return putInts(dest, offset, values, valuesOffset, count, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Write the 4-byte representations of a run of values, in the given byte order, back to back,
+     * directly into an existing array, via an {@link java.nio.IntBuffer} view of the destination.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @param valuesOffset index of the first value to write
+     * @param count number of values to write
+     * @param order byte order of each value
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination, values array, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int putInts(final byte[] dest, final int offset, final int[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        Util.ensureNotNull(values, "BytesUtil#putInts", "values", int[].class);
+        Util.ensureNotNull(order, "BytesUtil#putInts", "order", ByteOrder.class);
+        checkRegion(values.length, valuesOffset, count);
+        length = Math.multiplyExact(count, Integer.BYTES);
+        checkPut(dest, offset, length);
+        ByteBuffer.wrap(dest, offset, length).order(order).asIntBuffer().put(values, valuesOffset, count);
+        return offset + length;
+    }
+
+    /**
+     * Equivalent to {@link #putInts(byte[], int, int[], int, int)} for the entire values array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or values array is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putInts(final byte[] dest, final int offset, final int[] values) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(values, "BytesUtil#putInts", "values", int[].class);
+        return putInts(dest, offset, values, 0, values.length);
+    }
+
+    /**
+     * Write the 2-byte representations of a run of values, in the given byte order, back to back,
+     * directly into an existing array, via a {@link java.nio.ShortBuffer} view of the destination.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @param valuesOffset index of the first value to write
+     * @param count number of values to write
+     * @param order byte order of each value
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination, values array, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int putShorts(final byte[] dest, final int offset, final short[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        Util.ensureNotNull(values, "BytesUtil#putShorts", "values", short[].class);
+        Util.ensureNotNull(order, "BytesUtil#putShorts", "order", ByteOrder.class);
+        checkRegion(values.length, valuesOffset, count);
+        length = Math.multiplyExact(count, Short.BYTES);
+        checkPut(dest, offset, length);
+        ByteBuffer.wrap(dest, offset, length).order(order).asShortBuffer().put(values, valuesOffset, count);
+        return offset + length;
+    }
+
+    /**
+     * Equivalent to {@link #putShorts(byte[], int, short[], int, int, ByteOrder)} for the entire
+     * values array, in big-endian order.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the values to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or values array is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putShorts(final byte[] dest, final int offset, final short[] values) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(values, "BytesUtil#putShorts", "values", short[].class);
+        return putShorts(dest, offset, values, 0, values.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Write the {@link Constants#INSTANT_BYTES}-byte representations (an 8-byte epoch second
+     * followed by a 4-byte nanosecond adjustment, each in the given byte order) of a run of
+     * instants, back to back, directly into an existing array. In big-endian order, each instant is
+     * written as by {@link #putInstant(byte[], int, Instant)}.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the instants to write
+     * @param valuesOffset index of the first instant to write
+     * @param count number of instants to write
+     * @param order byte order of each field
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination, values array, or byte order is null, or
+     * any of the instants to write is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int putInstants(final byte[] dest, final int offset, final Instant[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        final ByteBuffer view;
+        Instant time;
+        int index;
+
+        Util.ensureNotNull(values, "BytesUtil#putInstants", "values", Instant[].class);
+        Util.ensureNotNull(order, "BytesUtil#putInstants", "order", ByteOrder.class);
+        checkRegion(values.length, valuesOffset, count);
+        length = Math.multiplyExact(count, Constants.INSTANT_BYTES);
+        checkPut(dest, offset, length);
+        view = ByteBuffer.wrap(dest).order(order);
+        index = offset;
+        for (int valueIndex = valuesOffset; valueIndex < valuesOffset + count; valueIndex++) {
+            time = values[valueIndex];
+            Util.ensureNotNull(time, "BytesUtil#putInstants", "values[" + valueIndex + "]", Instant.class);
+            view.putLong(index, time.getEpochSecond());
+            view.putInt(index + Long.BYTES, time.getNano());
+            index += Constants.INSTANT_BYTES;
+        }
+        return index;
+    }
+
+    /**
+     * Equivalent to {@link #putInstants(byte[], int, Instant[], int, int, ByteOrder)} for the
+     * entire values array, in big-endian order.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param values the instants to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or values array, or any instant, is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putInstants(final byte[] dest, final int offset, final Instant[] values) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(values, "BytesUtil#putInstants", "values", Instant[].class);
+        return putInstants(dest, offset, values, 0, values.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Encode a run of values into a single new array, as by
+     * {@link #putLongs(byte[], int, long[], int, int, ByteOrder)}.
+     * @param values the values to encode
+     * @param valuesOffset index of the first value to encode
+     * @param count number of values to encode
+     * @param order byte order of each value
+     * @return an array of <code>8 * count</code> bytes
+     * @throws IllegalArgumentException if the values array or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static byte[] toBytes(final long[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] bytes;
+        Util.ensureNotNull(values, "BytesUtil#toBytes", "values", long[].class);
+        checkRegion(values.length, valuesOffset, count);
+        bytes = new byte[Math.multiplyExact(count, Long.BYTES)];
+        putLongs(bytes, 0, values, valuesOffset, count, order);
+        return bytes;
+    }
+
+    /**
+     * Encode an array of values, big-endian, into a single new array. If the values are null,
+     * returns null.
+     * @param values the values to encode
+     * @return the concatenation of the {@link #toBytes(long)} representations of the values
+     */
+    public static byte[] toBytes(final long[] values) {
+        return (values == null)?null:toBytes(values, 0, values.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Equivalent to {@link #toBytes(long[])}, but writes the encoding into an array acquired from
+     * the given pool, rather than allocating one. The encoding occupies the first
+     * {@link ByteWriter#position()} bytes of the writer's {@link ByteWriter#array()}; call
+     * {@link ByteWriter#release()} to return the array to the pool once done.
+     * @param values the values to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding, or null if the values are null
+     * @throws IllegalArgumentException if the pool is null
+     */
+    public static ByteWriter toBytes(final long[] values, final BufferPool pool) throws IllegalArgumentException {
+        final ByteWriter out;
+        Util.ensureNotNull(pool, "BytesUtil#toBytes", "pool", BufferPool.class);
+        if (values == null) {
+            return null;
+        }
+        out = pooledOutput(pool, Math.multiplyExact(values.length, Long.BYTES));
+        putLongs(out.array(), 0, values, 0, values.length, ByteOrder.BIG_ENDIAN);
+        return out;
+    }
+
+    /**
+     * Encode a run of values into a single new array, as by
+     * {@link #putInts(byte[], int, int[], int, int, ByteOrder)}.
+     * @param values the values to encode
+     * @param valuesOffset index of the first value to encode
+     * @param count number of values to encode
+     * @param order byte order of each value
+     * @return an array of <code>4 * count</code> bytes
+     * @throws IllegalArgumentException if the values array or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static byte[] toBytes(final int[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] bytes;
+        Util.ensureNotNull(values, "BytesUtil#toBytes", "values", int[].class);
+        checkRegion(values.length, valuesOffset, count);
+        bytes = new byte[Math.multiplyExact(count, Integer.BYTES)];
+        putInts(bytes, 0, values, valuesOffset, count, order);
+        return bytes;
+    }
+
+    /**
+     * Encode an array of values, big-endian, into a single new array. If the values are null,
+     * returns null.
+     * @param values the values to encode
+     * @return the concatenation of the {@link #toBytes(int)} representations of the values
+     */
+    public static byte[] toBytes(final int[] values) {
+        return (values == null)?null:toBytes(values, 0, values.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Equivalent to {@link #toBytes(int[])}, but writes the encoding into an array acquired from
+     * the given pool, rather than allocating one. The encoding occupies the first
+     * {@link ByteWriter#position()} bytes of the writer's {@link ByteWriter#array()}; call
+     * {@link ByteWriter#release()} to return the array to the pool once done.
+     * @param values the values to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding, or null if the values are null
+     * @throws IllegalArgumentException if the pool is null
+     */
+    public static ByteWriter toBytes(final int[] values, final BufferPool pool) throws IllegalArgumentException {
+        final ByteWriter out;
+        Util.ensureNotNull(pool, "BytesUtil#toBytes", "pool", BufferPool.class);
+        if (values == null) {
+            return null;
+        }
+        out = pooledOutput(pool, Math.multiplyExact(values.length, Integer.BYTES));
+        putInts(out.array(), 0, values, 0, values.length, ByteOrder.BIG_ENDIAN);
+        return out;
+    }
+
+    /**
+     * Encode a run of values into a single new array, as by
+     * {@link #putShorts(byte[], int, short[], int, int, ByteOrder)}.
+     * @param values the values to encode
+     * @param valuesOffset index of the first value to encode
+     * @param count number of values to encode
+     * @param order byte order of each value
+     * @return an array of <code>2 * count</code> bytes
+     * @throws IllegalArgumentException if the values array or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static byte[] toBytes(final short[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] bytes;
+        Util.ensureNotNull(values, "BytesUtil#toBytes", "values", short[].class);
+        checkRegion(values.length, valuesOffset, count);
+        bytes = new byte[Math.multiplyExact(count, Short.BYTES)];
+        putShorts(bytes, 0, values, valuesOffset, count, order);
+        return bytes;
+    }
+
+    /**
+     * Encode an array of values, big-endian, into a single new array. If the values are null,
+     * returns null.
+     * @param values the values to encode
+     * @return the concatenation of the {@link #toBytes(short)} representations of the values
+     */
+    public static byte[] toBytes(final short[] values) {
+        return (values == null)?null:toBytes(values, 0, values.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Equivalent to {@link #toBytes(short[])}, but writes the encoding into an array acquired from
+     * the given pool, rather than allocating one. The encoding occupies the first
+     * {@link ByteWriter#position()} bytes of the writer's {@link ByteWriter#array()}; call
+     * {@link ByteWriter#release()} to return the array to the pool once done.
+     * @param values the values to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding, or null if the values are null
+     * @throws IllegalArgumentException if the pool is null
+     */
+    public static ByteWriter toBytes(final short[] values, final BufferPool pool) throws IllegalArgumentException {
+        final ByteWriter out;
+        Util.ensureNotNull(pool, "BytesUtil#toBytes", "pool", BufferPool.class);
+        if (values == null) {
+            return null;
+        }
+        out = pooledOutput(pool, Math.multiplyExact(values.length, Short.BYTES));
+        putShorts(out.array(), 0, values, 0, values.length, ByteOrder.BIG_ENDIAN);
+        return out;
+    }
+
+    /**
+     * Encode a run of instants into a single new array, as by
+     * {@link #putInstants(byte[], int, Instant[], int, int, ByteOrder)}.
+     * @param values the instants to encode
+     * @param valuesOffset index of the first instant to encode
+     * @param count number of instants to encode
+     * @param order byte order of each field
+     * @return an array of <code>{@link Constants#INSTANT_BYTES} * count</code> bytes
+     * @throws IllegalArgumentException if the values array or byte order is null, or any of the
+     * instants to encode is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static byte[] toBytes(final Instant[] values, final int valuesOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] bytes;
+        Util.ensureNotNull(values, "BytesUtil#toBytes", "values", Instant[].class);
+        checkRegion(values.length, valuesOffset, count);
+        bytes = new byte[Math.multiplyExact(count, Constants.INSTANT_BYTES)];
+        putInstants(bytes, 0, values, valuesOffset, count, order);
+        return bytes;
+    }
+
+    /**
+     * Encode an array of instants, big-endian, into a single new array. If the values are null,
+     * returns null.
+     * @param values the instants to encode
+     * @return the concatenation of the {@link #toBytes(Instant)} representations of the instants
+     * @throws IllegalArgumentException if any of the instants is null
+     */
+    public static byte[] toBytes(final Instant[] values) throws IllegalArgumentException {
+        return (values == null)?null:toBytes(values, 0, values.length, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Equivalent to {@link #toBytes(Instant[])}, but writes the encoding into an array acquired from
+     * the given pool, rather than allocating one. The encoding occupies the first
+     * {@link ByteWriter#position()} bytes of the writer's {@link ByteWriter#array()}; call
+     * {@link ByteWriter#release()} to return the array to the pool once done.
+     * @param values the instants to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding, or null if the instants are null
+     * @throws IllegalArgumentException if the pool, or any of the instants, is null
+     */
+    public static ByteWriter toBytes(final Instant[] values, final BufferPool pool) throws IllegalArgumentException {
+        final ByteWriter out;
+        Util.ensureNotNull(pool, "BytesUtil#toBytes", "pool", BufferPool.class);
+        if (values == null) {
+            return null;
+        }
+        out = pooledOutput(pool, Math.multiplyExact(values.length, Constants.INSTANT_BYTES));
+        try {
+            putInstants(out.array(), 0, values, 0, values.length, ByteOrder.BIG_ENDIAN);
+        } catch (IllegalArgumentException exc) {
+            // a null instant; don't leak the pooled array
+            out.release();
+            throw exc;
+        }
+        return out;
+    }
+
+    /**
+     * Validate a bulk decode of <code>count</code> fixed-width values from the given region.
+     * @return the length of the region, in bytes
+     */
+    private static int checkBulkGet(final String methodName, final byte[] src, final int offset, final int count, final int width, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        Util.ensureNotNull(src, methodName, "src", byte[].class);
+        Util.ensureNotNull(order, methodName, "order", ByteOrder.class);
+        if (count < 0) {
+            throw new IndexOutOfBoundsException("Count may not be negative: " + count);
+        }
+        length = Math.multiplyExact(count, width);
+        checkRegion(src.length, offset, length);
+        return length;
+    }
+
+    /**
+     * @return the number of fixed-width values of which the array consists
+     * @throws IllegalArgumentException if the array length is not a multiple of the width
+     */
+    private static int bulkCount(final byte[] src, final int width) throws IllegalArgumentException {
+        if (src.length % width != 0) {
+            throw new IllegalArgumentException("Length " + src.length
+                                               + " is not a multiple of the value width " + width);
+        }
+        return src.length / width;
+    }
+
+    /**
+     * Decode a run of 8-byte values written by
+     * {@link #putLongs(byte[], int, long[], int, int, ByteOrder)} into an existing array, via a
+     * {@link java.nio.LongBuffer} view of the source.
+     * @param src the array containing the encoded values
+     * @param offset index of the first encoded byte
+     * @param dest the array into which to decode
+     * @param destOffset index in the destination of the first decoded value
+     * @param count number of values to decode
+     * @param order byte order of each value
+     * @return the offset in the source immediately following the bytes read
+     * @throws IllegalArgumentException if the source, destination, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int getLongs(final byte[] src, final int offset, final long[] dest, final int destOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        length = checkBulkGet("BytesUtil#getLongs", src, offset, count, Long.BYTES, order);
+        Util.ensureNotNull(dest, "BytesUtil#getLongs", "dest", long[].class);
+        checkRegion(dest.length, destOffset, count);
+        ByteBuffer.wrap(src, offset, length).order(order).asLongBuffer().get(dest, destOffset, count);
+        return offset + length;
+    }
+
+    /**
+     * Decode a run of 8-byte values into a new array, as by
+     * {@link #getLongs(byte[], int, long[], int, int, ByteOrder)}.
+     * @param src the array containing the encoded values
+     * @param offset index of the first encoded byte
+     * @param count number of values to decode
+     * @param order byte order of each value
+     * @return the decoded values
+     * @throws IllegalArgumentException if the source or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static long[] toLongs(final byte[] src, final int offset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final long[] values;
+        checkBulkGet("BytesUtil#toLongs", src, offset, count, Long.BYTES, order);
+        values = new long[count];
+        getLongs(src, offset, values, 0, count, order);
+        return values;
+    }
+
+    /**
+     * Decode an entire array of big-endian 8-byte values, as produced by {@link #toBytes(long[])}.
+     * If the bytes are null, returns null.
+     * @param src the encoded values
+     * @return the decoded values
+     * @throws IllegalArgumentException if the length of the array is not a multiple of 8
+     */
+    public static long[] toLongs(final byte[] src) throws IllegalArgumentException {
+        return (src == null)?null:toLongs(src, 0, bulkCount(src, Long.BYTES), ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Decode a run of 4-byte values written by
+     * {@link #putInts(byte[], int, int[], int, int, ByteOrder)} into an existing array, via an
+     * {@link java.nio.IntBuffer} view of the source.
+     * @param src the array containing the encoded values
+     * @param offset index of the first encoded byte
+     * @param dest the array into which to decode
+     * @param destOffset index in the destination of the first decoded value
+     * @param count number of values to decode
+     * @param order byte order of each value
+     * @return the offset in the source immediately following the bytes read
+     * @throws IllegalArgumentException if the source, destination, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int getInts(final byte[] src, final int offset, final int[] dest, final int destOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        length = checkBulkGet("BytesUtil#getInts", src, offset, count, Integer.BYTES, order);
+        Util.ensureNotNull(dest, "BytesUtil#getInts", "dest", int[].class);
+        checkRegion(dest.length, destOffset, count);
+        ByteBuffer.wrap(src, offset, length).order(order).asIntBuffer().get(dest, destOffset, count);
+        return offset + length;
+    }
+
+    /**
+     * Decode a run of 4-byte values into a new array, as by
+     * {@link #getInts(byte[], int, int[], int, int, ByteOrder)}.
+     * @param src the array containing the encoded values
+     * @param offset index of the first encoded byte
+     * @param count number of values to decode
+     * @param order byte order of each value
+     * @return the decoded values
+     * @throws IllegalArgumentException if the source or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static int[] toInts(final byte[] src, final int offset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int[] values;
+        checkBulkGet("BytesUtil#toInts", src, offset, count, Integer.BYTES, order);
+        values = new int[count];
+        getInts(src, offset, values, 0, count, order);
+        return values;
+    }
+
+    /**
+     * Decode an entire array of big-endian 4-byte values, as produced by {@link #toBytes(int[])}.
+     * If the bytes are null, returns null.
+     * @param src the encoded values
+     * @return the decoded values
+     * @throws IllegalArgumentException if the length of the array is not a multiple of 4
+     */
+    public static int[] toInts(final byte[] src) throws IllegalArgumentException {
+        return (src == null)?null:toInts(src, 0, bulkCount(src, Integer.BYTES), ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Decode a run of 2-byte values written by
+     * {@link #putShorts(byte[], int, short[], int, int, ByteOrder)} into an existing array, via a
+     * {@link java.nio.ShortBuffer} view of the source.
+     * @param src the array containing the encoded values
+     * @param offset index of the first encoded byte
+     * @param dest the array into which to decode
+     * @param destOffset index in the destination of the first decoded value
+     * @param count number of values to decode
+     * @param order byte order of each value
+     * @return the offset in the source immediately following the bytes read
+     * @throws IllegalArgumentException if the source, destination, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int getShorts(final byte[] src, final int offset, final short[] dest, final int destOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        length = checkBulkGet("BytesUtil#getShorts", src, offset, count, Short.BYTES, order);
+        Util.ensureNotNull(dest, "BytesUtil#getShorts", "dest", short[].class);
+        checkRegion(dest.length, destOffset, count);
+        ByteBuffer.wrap(src, offset, length).order(order).asShortBuffer().get(dest, destOffset, count);
+        return offset + length;
+    }
+
+    /**
+     * Decode a run of 2-byte values into a new array, as by
+     * {@link #getShorts(byte[], int, short[], int, int, ByteOrder)}.
+     * @param src the array containing the encoded values
+     * @param offset index of the first encoded byte
+     * @param count number of values to decode
+     * @param order byte order of each value
+     * @return the decoded values
+     * @throws IllegalArgumentException if the source or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static short[] toShorts(final byte[] src, final int offset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final short[] values;
+        checkBulkGet("BytesUtil#toShorts", src, offset, count, Short.BYTES, order);
+        values = new short[count];
+        getShorts(src, offset, values, 0, count, order);
+        return values;
+    }
+
+    /**
+     * Decode an entire array of big-endian 2-byte values, as produced by {@link #toBytes(short[])}.
+     * If the bytes are null, returns null.
+     * @param src the encoded values
+     * @return the decoded values
+     * @throws IllegalArgumentException if the length of the array is odd
+     */
+    public static short[] toShorts(final byte[] src) throws IllegalArgumentException {
+        return (src == null)?null:toShorts(src, 0, bulkCount(src, Short.BYTES), ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Decode a run of instants written by
+     * {@link #putInstants(byte[], int, Instant[], int, int, ByteOrder)} into an existing array.
+     * @param src the array containing the encoded instants
+     * @param offset index of the first encoded byte
+     * @param dest the array into which to decode
+     * @param destOffset index in the destination of the first decoded instant
+     * @param count number of instants to decode
+     * @param order byte order of each field
+     * @return the offset in the source immediately following the bytes read
+     * @throws IllegalArgumentException if the source, destination, or byte order is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     * @throws java.time.DateTimeException if an encoded instant is outside the supported range
+     */
+    public static int getInstants(final byte[] src, final int offset, final Instant[] dest, final int destOffset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int length;
+        final ByteBuffer view;
+        int index;
+
+        length = checkBulkGet("BytesUtil#getInstants", src, offset, count, Constants.INSTANT_BYTES, order);
+        Util.ensureNotNull(dest, "BytesUtil#getInstants", "dest", Instant[].class);
+        checkRegion(dest.length, destOffset, count);
+        view = ByteBuffer.wrap(src).order(order);
+        index = offset;
+        for (int destIndex = destOffset; destIndex < destOffset + count; destIndex++) {
+            dest[destIndex] = Instant.ofEpochSecond(view.getLong(index), view.getInt(index + Long.BYTES));
+            index += Constants.INSTANT_BYTES;
+        }
+        return offset + length;
+    }
+
+    /**
+     * Decode a run of instants into a new array, as by
+     * {@link #getInstants(byte[], int, Instant[], int, int, ByteOrder)}.
+     * @param src the array containing the encoded instants
+     * @param offset index of the first encoded byte
+     * @param count number of instants to decode
+     * @param order byte order of each field
+     * @return the decoded instants
+     * @throws IllegalArgumentException if the source or byte order is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     * @throws java.time.DateTimeException if an encoded instant is outside the supported range
+     */
+    public static Instant[] toInstants(final byte[] src, final int offset, final int count, final ByteOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final Instant[] values;
+        checkBulkGet("BytesUtil#toInstants", src, offset, count, Constants.INSTANT_BYTES, order);
+        values = new Instant[count];
+        getInstants(src, offset, values, 0, count, order);
+        return values;
+    }
+
+    /**
+     * Decode an entire array of big-endian instants, as produced by {@link #toBytes(Instant[])}.
+     * If the bytes are null, returns null.
+     * @param src the encoded instants
+     * @return the decoded instants
+     * @throws IllegalArgumentException if the length of the array is not a multiple of
+     * {@link Constants#INSTANT_BYTES}
+     * @throws java.time.DateTimeException if an encoded instant is outside the supported range
+     */
+    public static Instant[] toInstants(final byte[] src) throws IllegalArgumentException {
+        return (src == null)?null:toInstants(src, 0, bulkCount(src, Constants.INSTANT_BYTES), ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * TODO
+     * @param bytes TODO
+     * @return TODO
+     */
+    public static Long toLong(final byte[] bytes) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && bytes.length >= 8) {
+            return Long.valueOf(Longs.fromByteArray(bytes));
+        }
+        return null;
+    }
+
+    /**
+     * TODO
+     * @param bytes TODO
+     * @param offset TODO
+     * @return TODO
+     */
+    public static Long toLong(final byte[] bytes, final int offset) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && offset >= 0 && bytes.length >= offset + 8) {
+            return Long.valueOf(Longs.fromBytes(
+                bytes[offset + 0],
+                bytes[offset + 1],
+                bytes[offset + 2],
+                bytes[offset + 3],
+                bytes[offset + 4],
+                bytes[offset + 5],
+                bytes[offset + 6],
+                bytes[offset + 7]));
+        }
+        return null;
+    }
+
+    /**
+     * TODO
+     * @param b1 TODO
+     * @param b2 TODO
+     * @param b3 TODO
+     * @param b4 TODO
+     * @param b5 TODO
+     * @param b6 TODO
+     * @param b7 TODO
+     * @param b8 TODO
+     * @return TODO
+     */
+    public static long toLong(byte b1, byte b2, byte b3, byte b4, byte b5, byte b6, byte b7, byte b8) {
+        return Longs.fromBytes(b1, b2, b3, b4, b5, b6, b7, b8);
+    }
+
+    /**
+     * TODO
+     * @param bytes TODO
+     * @return TODO
+     */
+    public static Integer toInteger(final byte[] bytes) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && bytes.length >= 4) {
+            return Integer.valueOf(Ints.fromByteArray(bytes));
+        }
+        return null;
+    }
+    
+    /**
+     * TODO
+     * @param bytes TODO
+     * @param offset TODO
+     * @return TODO
+     */
+    public static Integer toInteger(final byte[] bytes, final int offset) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && offset >= 0 && bytes.length >= offset + 4) {
+            return Integer.valueOf(Ints.fromBytes(
+                bytes[offset + 0],
+                bytes[offset + 1],
+                bytes[offset + 2],
+                bytes[offset + 3]));
+        }
+        return null;
+    }
+
+    /**
+     * TODO
+     * @param b1 TODO
+     * @param b2 TODO
+     * @param b3 TODO
+     * @param b4 TODO
+     * @return TODO
+     */
+    public static int toInteger(byte b1, byte b2, byte b3, byte b4) {
+        return Ints.fromBytes(b1, b2, b3, b4);
+    }
+
+    /**
+     * TODO
+     * @param bytes TODO
+     * @return TODO
+     */
+    public static Short toShort(final byte[] bytes) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && bytes.length >= 2) {
+            return Short.valueOf(Shorts.fromByteArray(bytes));
+        }
+        return null;
+    }
+    
+    /**
+     * TODO
+     * @param bytes TODO
+     * @param offset TODO
+     * @return TODO
+     */
+    public static Short toShort(final byte[] bytes, final int offset) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && offset >= 0 && bytes.length >= offset + 2) {
+            return Short.valueOf(Shorts.fromBytes(
+                bytes[offset + 0],
+                bytes[offset + 1]));
+        }
+        return null;
+    }
+
+    /**
+     * TODO
+     * @param b1 TODO
+     * @param b2 TODO
+     * @return TODO
+     */
+    public static short toShort(byte b1, byte b2) {
+        return Shorts.fromBytes(b1, b2);
+    }
+
+    /**
+     * TODO
+     * @param time TODO
+     * @return TODO
+     */
+    public static byte[] toBytes(final Instant time) {
+        final byte[] bytes;
+        if (time != null) {
+            bytes = new byte[Constants.INSTANT_BYTES];
+            putInstant(bytes, 0, time);
+            return bytes;
+        }
+        return null;
+    }
+    
+    /**
+     * @param time the instant to encode
+     * @param encoding the encoding to use
+     * @return a new array containing the encoding of the instant, or null if the instant is null
+     * @throws IllegalArgumentException if the encoding is null, or the instant is outside its range
+     */
+    public static byte[] toBytes(final Instant time, final InstantEncoding encoding) throws IllegalArgumentException {
+        Util.ensureNotNull(encoding, "BytesUtil#toBytes", "encoding", InstantEncoding.class);
+        return encoding.toBytes(time);
+    }
+
+    /**
+     * @param bytes the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @param encoding the encoding in which the instant was written
+     * @return the decoded instant, or null if the array is null
+     * @throws IllegalArgumentException if the encoding is null
+     * @throws IndexOutOfBoundsException if fewer than {@link InstantEncoding#length()} bytes are
+     * available at the offset
+     */
+    public static Instant toInstant(final byte[] bytes, final int offset, final InstantEncoding encoding) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(encoding, "BytesUtil#toInstant", "encoding", InstantEncoding.class);
+        return (bytes == null)?null:encoding.get(bytes, offset);
+    }
+
+    /**
+     * TODO
+     * @param bytes TODO
+     * @return TODO
+     */
+    public static Instant toInstant(final byte[] bytes) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && bytes.length >= 8 + 4) {
+            long millisecs = Longs.fromByteArray(bytes);
+            int nano = Ints.fromBytes(bytes[8], bytes[9], bytes[10], bytes[11]);
+            return Instant.ofEpochSecond(millisecs, nano);
+        }
+        return null;
+    }
+
+    /**
+     * TODO
+     * @param bytes TODO
+     * @param offset TODO
+     * @return TODO
+     */
+    public static Instant toInstant(final byte[] bytes, final int offset) {
+        // TODO: determine constant values programmatically, or make them constant
+        if (bytes != null && offset >= 0 && bytes.length >= offset + 8 + 4) {
+            return Instant.ofEpochSecond(toLong(bytes, offset).longValue(),
+                                         toInteger(bytes, offset + 8).longValue());
+        }
+        return null;
+    }
+
+    /**
+     * @param buffer buffer to read, e.g. a view of a {@link MappedBytes} file
+     * @param index absolute index of the first byte to read
+     * @return the big-endian long at the index, regardless of the buffer's byte order; null if the
+     * buffer is null or the value does not lie within its limit
+     */
+    public static Long toLong(final ByteBuffer buffer, final int index) {
+        final long value;
+        if (buffer != null && index >= 0 && buffer.limit() - index >= Long.BYTES) {
+            value = buffer.getLong(index);
+            return Long.valueOf((buffer.order() == ByteOrder.BIG_ENDIAN)?value:Long.reverseBytes(value));
+        }
+        return null;
+    }
+
+    /**
+     * @param buffer buffer to read
+     * @param index absolute index of the first byte to read
+     * @return the big-endian int at the index, regardless of the buffer's byte order; null if the
+     * buffer is null or the value does not lie within its limit
+     */
+    public static Integer toInteger(final ByteBuffer buffer, final int index) {
+        final int value;
+        if (buffer != null && index >= 0 && buffer.limit() - index >= Integer.BYTES) {
+            value = buffer.getInt(index);
+            return Integer.valueOf((buffer.order() == ByteOrder.BIG_ENDIAN)?value:Integer.reverseBytes(value));
+        }
+        return null;
+    }
+
+    /**
+     * @param buffer buffer to read
+     * @param index absolute index of the first byte to read
+     * @return the big-endian short at the index, regardless of the buffer's byte order; null if the
+     * buffer is null or the value does not lie within its limit
+     */
+    public static Short toShort(final ByteBuffer buffer, final int index) {
+        final short value;
+        if (buffer != null && index >= 0 && buffer.limit() - index >= Short.BYTES) {
+            value = buffer.getShort(index);
+            return Short.valueOf((buffer.order() == ByteOrder.BIG_ENDIAN)?value:Short.reverseBytes(value));
+        }
+        return null;
+    }
+
+    /**
+     * @param buffer buffer to read
+     * @param index absolute index of the first byte to read
+     * @return the {@link Instant} encoded (as by {@link #toBytes(Instant)}) at the index; null if
+     * the buffer is null or the value does not lie within its limit
+     */
+    public static Instant toInstant(final ByteBuffer buffer, final int index) {
+        if (buffer != null && index >= 0 && buffer.limit() - index >= Constants.INSTANT_BYTES) {
+            return Instant.ofEpochSecond(toLong(buffer, index).longValue(),
+                                         toInteger(buffer, index + Long.BYTES).longValue());
+        }
+        return null;
+    }
+
+    /**
+     * Map a signed int onto an unsigned one, such that values of small magnitude (whether positive
+     * or negative) map to small values: 0 to 0, -1 to 1, 1 to 2, -2 to 3, and so on. Apply this
+     * before {@link #putVarInt(byte[], int, int)} for values which may be negative, since the
+     * variable-length encoding of any negative int occupies the maximum 5 bytes.
+     * @param value signed value
+     * @return zigzag-encoded value
+     */
+    public static int zigZagEncode(final int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Inverse of {@link #zigZagEncode(int)}.
+     * @param value zigzag-encoded value
+     * @return signed value
+     */
+    public static int zigZagDecode(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Long equivalent of {@link #zigZagEncode(int)}.
+     * @param value signed value
+     * @return zigzag-encoded value
+     */
+    public static long zigZagEncode(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Inverse of {@link #zigZagEncode(long)}.
+     * @param value zigzag-encoded value
+     * @return signed value
+     */
+    public static long zigZagDecode(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Compute the size of the variable-length encoding of the given value (treated as unsigned),
+     * as written by {@link #putVarInt(byte[], int, int)}; e.g. to pre-size a buffer.
+     * @param value the value
+     * @return encoded size, between 1 and {@link Constants#VARINT_MAX_BYTES}
+     */
+    public static int varIntLength(final int value) {
+        return ((31 - Integer.numberOfLeadingZeros(value | 1)) / 7) + 1;
+    }
+
+    /**
+     * Compute the size of the variable-length encoding of the given value (treated as unsigned),
+     * as written by {@link #putVarLong(byte[], int, long)}; e.g. to pre-size a buffer.
+     * @param value the value
+     * @return encoded size, between 1 and {@link Constants#VARLONG_MAX_BYTES}
+     */
+    public static int varLongLength(final long value) {
+        return ((63 - Long.numberOfLeadingZeros(value | 1)) / 7) + 1;
+    }
+
+    /**
+     * Write the variable-length (unsigned LEB128) encoding of the given value: seven bits per
+     * byte, least significant group first, with the high bit of each byte set if more bytes
+     * follow. Values below 128 occupy one byte, and values below 16384 occupy two.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the value to write, treated as unsigned
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putVarInt(final byte[] dest, final int offset, final int value) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int index;
+        int remainder;
+
+        checkPut(dest, offset, varIntLength(value));
+        index = offset;
+        remainder = value;
+        while ((remainder & ~0x7F) != 0) {
+            dest[index++] = (byte) ((remainder & 0x7F) | 0x80);
+            remainder >>>= 7;
+        }
+        dest[index++] = (byte) remainder;
+        return index;
+    }
+
+    /**
+     * Long equivalent of {@link #putVarInt(byte[], int, int)}.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the value to write, treated as unsigned
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putVarLong(final byte[] dest, final int offset, final long value) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int index;
+        long remainder;
+
+        checkPut(dest, offset, varLongLength(value));
+        index = offset;
+        remainder = value;
+        while ((remainder & ~0x7FL) != 0) {
+            dest[index++] = (byte) ((remainder & 0x7F) | 0x80);
+            remainder >>>= 7;
+        }
+        dest[index++] = (byte) remainder;
+        return index;
+    }
+
+    /**
+     * @param value the value to encode, treated as unsigned
+     * @return new array containing the variable-length encoding of the value
+     * @see #putVarInt(byte[], int, int)
+     */
+    public static byte[] toVarIntBytes(final int value) {
+        final byte[] bytes = new byte[varIntLength(value)];
+        putVarInt(bytes, 0, value);
+        return bytes;
+    }
+
+    /**
+     * @param value the value to encode, treated as unsigned
+     * @return new array containing the variable-length encoding of the value
+     * @see #putVarLong(byte[], int, long)
+     */
+    public static byte[] toVarLongBytes(final long value) {
+        final byte[] bytes = new byte[varLongLength(value)];
+        putVarLong(bytes, 0, value);
+        return bytes;
+    }
+
+    /**
+     * Decode the variable-length int written at the given offset by
+     * {@link #putVarInt(byte[], int, int)}. Since the encoding is always of minimal length, the
+     * number of bytes consumed is <code>varIntLength(result)</code>; use
+     * {@link ByteReader#readVarInt()} to decode a sequence of values without tracking offsets.
+     * @param bytes the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @return the decoded value
+     * @throws IllegalArgumentException if the array is null, or the encoding is longer than
+     * {@link Constants#VARINT_MAX_BYTES}, or its value does not fit in an int
+     * @throws IndexOutOfBoundsException if the offset is out of bounds, or the encoding is
+     * truncated
+     */
+    public static int toVarInt(final byte[] bytes, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int value;
+        int current;
+
+        Util.ensureNotNull(bytes, "BytesUtil#toVarInt", "bytes", byte[].class);
+        checkRegion(bytes.length, offset, 0);
+        value = 0;
+        for (int shift = 0, index = offset; shift < Integer.SIZE; shift += 7, index++) {
+            if (index >= bytes.length) {
+                throw new IndexOutOfBoundsException("Truncated variable-length int at offset " + offset);
+            }
+            current = bytes[index];
+            if ((shift == VARINT_LAST_SHIFT) && ((current & ~VARINT_LAST_MASK) != 0)) {
+                throw new IllegalArgumentException("Malformed variable-length int at offset " + offset
+                                                   + ": value exceeds 32 bits");
+            }
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length int at offset " + offset);
+    }
+
+    /**
+     * Long equivalent of {@link #toVarInt(byte[], int)}.
+     * @param bytes the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @return the decoded value
+     * @throws IllegalArgumentException if the array is null, or the encoding is longer than
+     * {@link Constants#VARLONG_MAX_BYTES}, or its value does not fit in a long
+     * @throws IndexOutOfBoundsException if the offset is out of bounds, or the encoding is
+     * truncated
+     */
+    public static long toVarLong(final byte[] bytes, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        long value;
+        int current;
+
+        Util.ensureNotNull(bytes, "BytesUtil#toVarLong", "bytes", byte[].class);
+        checkRegion(bytes.length, offset, 0);
+        value = 0;
+        for (int shift = 0, index = offset; shift < Long.SIZE; shift += 7, index++) {
+            if (index >= bytes.length) {
+                throw new IndexOutOfBoundsException("Truncated variable-length long at offset " + offset);
+            }
+            current = bytes[index];
+            if ((shift == VARLONG_LAST_SHIFT) && ((current & ~VARLONG_LAST_MASK) != 0)) {
+                throw new IllegalArgumentException("Malformed variable-length long at offset " + offset
+                                                   + ": value exceeds 64 bits");
+            }
+            value |= ((long) (current & 0x7F)) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length long at offset " + offset);
+    }
+    
+    /**
+     * Encode the bytes as (standard, padded) Base64; see {@link Base64Codec#STANDARD}, which also
+     * encodes regions of arrays, into existing arrays and buffers, and as a stream.
+     * @param bytes the bytes to encode
+     * @return the Base64 encoding
+     * @throws IllegalArgumentException if the bytes are null
+     */
+    public static String encode(final byte[] bytes) throws IllegalArgumentException {
+        return Base64Codec.STANDARD.encodeToString(bytes);
+    }
+
+    /**
+     * Encode the bytes as (standard, padded) Base64 ASCII characters into an array acquired from
+     * the given pool, rather than a new string; see
+     * {@link Base64Codec#encode(byte[], int, int, BufferPool)}.
+     * @param bytes the bytes to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding; call {@link ByteWriter#release()} once done
+     * @throws IllegalArgumentException if the bytes or pool are null
+     */
+    public static ByteWriter encode(final byte[] bytes, final BufferPool pool) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, "BytesUtil#encode", "bytes", byte[].class);
+        return Base64Codec.STANDARD.encode(bytes, 0, bytes.length, pool);
+    }
+    
+    /**
+     * Decode (standard) Base64; see {@link Base64Codec#STANDARD}, which also decodes any
+     * {@link CharSequence} in place, into existing arrays and buffers, and as a stream.
+     * @param text the Base64 encoding
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the text is null, or is not valid Base64
+     */
+    public static byte[] decode(final String text) throws IllegalArgumentException {
+        return Base64Codec.STANDARD.decode(text);
+    }
+
+    /**
+     * Encode the bytes as lower-case hexadecimal; see {@link HexCodec}.
+     * @param bytes the bytes to encode
+     * @return the hex encoding, or null if the bytes are null
+     */
+    public static String toHex(final byte[] bytes) {
+        return (bytes == null)?null:HexCodec.LOWER.encodeToString(bytes);
+    }
+
+    /**
+     * Decode hexadecimal digits of either case; see {@link HexCodec}.
+     * @param text the hex encoding
+     * @return the decoded bytes, or null if the text is null
+     * @throws IllegalArgumentException if the text is not an even number of hex digits
+     */
+    public static byte[] fromHex(final CharSequence text) throws IllegalArgumentException {
+        return (text == null)?null:HexCodec.LOWER.decode(text);
+    }
+    
+    /**
+     * TODO
+     * @param inBytes TODO
+     * @return TODO
      */
     public static byte[] copy(final byte[] inBytes) {
         if (inBytes == null) {
@@ -410,116 +1931,1437 @@ public final class BytesUtil extends Uninstantiable {
             return Arrays.copyOf(inBytes, inBytes.length);
         }
     }
+
+    /**
+     * Copy the given array into an array acquired from the given pool. The copy occupies the first
+     * {@link ByteWriter#position()} bytes of the writer's {@link ByteWriter#array()}, which may be
+     * longer; call {@link ByteWriter#release()} to return the array to the pool once done.
+     * @param inBytes the array to copy
+     * @param pool the pool from which to acquire the copy
+     * @return a pooled writer holding the copy, or null if the input is null
+     * @throws IllegalArgumentException if the pool is null
+     */
+    public static ByteWriter copy(final byte[] inBytes, final BufferPool pool) throws IllegalArgumentException {
+        final ByteWriter copied;
+        Util.ensureNotNull(pool, "BytesUtil#copy", "pool", BufferPool.class);
+        if (inBytes == null) {
+            return null;
+        }
+        copied = pooledOutput(pool, inBytes.length);
+        System.arraycopy(inBytes, 0, copied.array(), 0, inBytes.length);
+        return copied;
+    }
+
+    /**
+     * Create a writer over an array of at least the given length acquired from the given pool,
+     * with its cursor already advanced past the first <code>length</code> bytes, which the caller
+     * then fills in directly via {@link ByteWriter#array()}.
+     * @param pool the pool from which to acquire the array
+     * @param length number of bytes the caller is about to write
+     * @return the writer, whose {@link ByteWriter#position()} is the length
+     */
+    static ByteWriter pooledOutput(final BufferPool pool, final int length) {
+        return new ByteWriter(pool, length).position(length);
+    }
+
+    /**
+     * Equivalent to {@link #concat(byte[]...)}, but writes the concatenation into an array
+     * acquired from the given pool, rather than allocating one. (Named distinctly, rather than
+     * overloading <code>concat</code>, so that calls such as <code>concat(null, bytes)</code>
+     * remain unambiguous.) The concatenation occupies the
+     * first {@link ByteWriter#position()} bytes of the writer's {@link ByteWriter#array()}; call
+     * {@link ByteWriter#release()} to return the array to the pool once done.
+     * @param pool the pool from which to acquire the output array
+     * @param bytes the blocks to concatenate; null blocks are skipped
+     * @return a pooled writer holding the concatenation, or null if the input is null
+     * @throws IllegalArgumentException if the pool is null, or the concatenation would exceed
+     * {@link #BYTE_CONCAT_MAX_LENGTH} bytes
+     */
+    public static ByteWriter concatPooled(final BufferPool pool, final byte[]... bytes) throws IllegalArgumentException {
+        final ByteWriter out;
+        long length;
+        int start;
+
+        Util.ensureNotNull(pool, "BytesUtil#concatPooled", "pool", BufferPool.class);
+        if (bytes == null) {
+            return null;
+        }
+        length = 0;
+        for (byte[] block : bytes) {
+            if (block != null) {
+                length += block.length;
+            }
+        }
+        if (length > BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("byte[] cannot contain more than " + BYTE_CONCAT_MAX_LENGTH + " bytes");
+        }
+        out = pooledOutput(pool, (int) length);
+        start = 0;
+        for (byte[] block : bytes) {
+            if (block != null) {
+                System.arraycopy(block, 0, out.array(), start, block.length);
+                start += block.length;
+            }
+        }
+        return out;
+    }
+    
+    /**
+     * TODO
+     * @param bytes TODO
+     * @return TODO
+     */
+    public static byte[] concat(final byte[]... bytes) {
+        String logMsg;
+        long length;
+        if (bytes != null) {
+            // get the total byte count
+            length = 0;
+            for (byte[] block : bytes) {
+                if (block != null) {
+                    length += block.length;
+                }
+            }
+            if (length > BYTE_CONCAT_MAX_LENGTH) {
+                logMsg = "byte[] cannot contain more than " + BYTE_CONCAT_MAX_LENGTH + " bytes";
+                throw new IllegalArgumentException(logMsg);
+            }
+            final byte[] concatenated = new byte[(int) length];
+            int start = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != null) {
+                    System.arraycopy(bytes[i], 0, concatenated, start, bytes[i].length);
+                    start += bytes[i].length;
+                }
+            }
+            return concatenated;
+        }
+        return null;
+    }
+
+    /**
+     * Equivalent to {@link #concat(byte[]...)}, but returns a {@link CompositeBytes} which presents
+     * the blocks as one sequence without copying them, so that neither the cost of copying nor the
+     * {@link #BYTE_CONCAT_MAX_LENGTH} limit applies. The blocks must not be modified afterwards.
+     * @param bytes the blocks to concatenate; null blocks are skipped
+     * @return the concatenation, or null if the input is null
+     */
+    public static CompositeBytes concatToComposite(final byte[]... bytes) {
+        return (bytes == null)?null:CompositeBytes.of(bytes);
+    }
+
+    /**
+     * Concatenate the given blocks, in iteration order, into a {@link CompositeBytes} without
+     * copying them; see {@link #concatToComposite(byte[]...)}. The length of the result is equal
+     * to {@link #count(Collection)}.
+     * @param blocks the blocks to concatenate; null blocks are skipped
+     * @return the concatenation, or null if the input is null
+     */
+    public static CompositeBytes concatToComposite(final Collection<byte[]> blocks) {
+        return (blocks == null)?null:CompositeBytes.of(blocks);
+    }
+
+    /**
+     * Write a value in the framed form used for types with a registered {@link Serializer}: the
+     * marker byte {@link Constants#SERIALIZED_CODEC_MARKER}, the serializer's type identifier as a
+     * variable-length int, the 4-byte length of the payload, and the payload itself.
+     * @param value the value to write
+     * @param serializer the serializer for the value's type
+     * @param out the writer to which to write
+     * @param <T> type of the value
+     */
+    private static <T> void writeFramed(final T value, final Serializer<T> serializer, final ByteWriter out) {
+        final int lengthPosition;
+        final int payloadStart;
+        final int payloadEnd;
+
+        out.writeByte(Constants.SERIALIZED_CODEC_MARKER);
+        out.writeVarInt(serializer.getTypeId());
+        lengthPosition = out.position();
+        out.writeInt(0);
+        payloadStart = out.position();
+        serializer.serialize(value, out);
+        payloadEnd = out.position();
+        out.position(lengthPosition).writeInt(payloadEnd - payloadStart).position(payloadEnd);
+    }
+
+    /**
+     * Read a value written by {@link #writeFramed(Object, Serializer, ByteWriter)}, leaving the
+     * reader positioned immediately after it.
+     * @param in the reader positioned at the start of the framed value
+     * @param registry registry in which to look up the serializer
+     * @return the value read
+     * @throws IllegalArgumentException if the frame is malformed or truncated, or no serializer is
+     * registered for its type identifier
+     */
+    private static Object readFramed(final ByteReader in, final SerializerRegistry registry) throws IllegalArgumentException {
+        final int typeId;
+        final int payloadLength;
+        final Serializer<?> serializer;
+
+        try {
+            if (in.readByte() != Constants.SERIALIZED_CODEC_MARKER) {
+                throw new IllegalArgumentException("Value was not written by a registered "
+                                                   + Serializer.class.getSimpleName());
+            }
+            typeId = in.readVarInt();
+            payloadLength = in.readInt();
+            serializer = serializerForTypeId(registry, typeId);
+            return serializer.deserialize(in.readSlice(payloadLength));
+        } catch (IndexOutOfBoundsException exc) {
+            throw new IllegalArgumentException("Truncated serialized value", exc);
+        }
+    }
+
+    /**
+     * Read a value written by {@link #writeFramed(Object, Serializer, ByteWriter)} from a stream,
+     * the leading marker byte having already been consumed. Exactly the bytes of the frame are
+     * read from the stream; only the payload itself is buffered.
+     * @param in the stream positioned immediately after the marker byte
+     * @param registry registry in which to look up the serializer
+     * @return the value read
+     * @throws IllegalArgumentException if the frame is malformed, or no serializer is registered
+     * for its type identifier
+     * @throws IOException if reading from the stream fails, or the stream ends within the frame
+     */
+    private static Object readFramed(final InputStream in, final SerializerRegistry registry) throws IllegalArgumentException, IOException {
+        final DataInputStream input;
+        final Serializer<?> serializer;
+        final int payloadLength;
+        final byte[] payload;
+
+        input = new DataInputStream(in);
+        serializer = serializerForTypeId(registry, readVarInt(input, "type id in serialized value"));
+        payloadLength = input.readInt();
+        if (payloadLength < 0) {
+            throw new IllegalArgumentException("Invalid payload length in serialized value: "
+                                               + payloadLength);
+        }
+        payload = new byte[payloadLength];
+        input.readFully(payload);
+        return serializer.deserialize(new ByteReader(payload));
+    }
+
+    /**
+     * Read a variable-length int (as written by {@link #putVarInt(byte[], int, int)}) from a
+     * stream, one byte at a time, so that no byte beyond it is consumed.
+     * @param input the stream from which to read
+     * @param description description of the value, for error messages
+     * @return the value read
+     * @throws IllegalArgumentException if the encoding is longer than that of any int, or its
+     * value does not fit in an int
+     * @throws IOException if reading from the stream fails, or the stream ends within the value
+     */
+    static int readVarInt(final DataInput input, final String description) throws IllegalArgumentException, IOException {
+        int value;
+        int shift;
+        int next;
+
+        value = 0;
+        shift = 0;
+        do {
+            if (shift >= Integer.SIZE) {
+                throw new IllegalArgumentException("Malformed " + description);
+            }
+            next = input.readUnsignedByte();
+            if ((shift == VARINT_LAST_SHIFT) && ((next & ~VARINT_LAST_MASK) != 0)) {
+                throw new IllegalArgumentException("Malformed " + description + ": value exceeds 32 bits");
+            }
+            value |= (next & 0x7F) << shift;
+            shift += 7;
+        } while ((next & 0x80) != 0);
+        return value;
+    }
+
+    private static Serializer<?> serializerForTypeId(final SerializerRegistry registry, final int typeId) throws IllegalArgumentException {
+        final Serializer<?> serializer;
+        serializer = registry.forTypeId(typeId);
+        if (serializer == null) {
+            throw new IllegalArgumentException("No " + Serializer.class.getSimpleName()
+                                               + " registered for type id " + typeId);
+        }
+        return serializer;
+    }
+
+    /**
+     * Serialize the given value, using the {@link Serializer} registered in the given registry for
+     * the value's exact class if there is one, and Java serialization otherwise.
+     * {@link #deserialize(byte[], Class, SerializerRegistry)} distinguishes the two forms
+     * automatically, so types may be registered (or unregistered) without affecting the
+     * readability of payloads previously written using Java serialization.
+     * @param value the value to serialize
+     * @param registry registry in which to look up the serializer
+     * @param <S> type of the value
+     * @return the serialized form of the value, or null if the value is null
+     * @throws IllegalArgumentException if the registry is null
+     * @throws IllegalStateException if Java serialization fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <S extends Serializable> byte[] serialize(final S value, final SerializerRegistry registry) throws IllegalArgumentException, IllegalStateException {
+        final Serializer<S> serializer;
+        final ByteWriter framed;
+
+        if (value == null) {
+            return null;
+        }
+        Util.ensureNotNull(registry, "BytesUtil#serialize", "registry", SerializerRegistry.class);
+        serializer = registry.forType((Class<S>) value.getClass());
+        if (serializer != null) {
+            framed = new ByteWriter();
+            writeFramed(value, serializer, framed);
+            return framed.toByteArray();
+        }
+        try (
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+        ) {
+            out.writeObject(value);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ioExc) {
+            throw new IllegalStateException("Failed to serialize "
+                                            + value.getClass().getName(), ioExc);
+        }
+    }
+
+    /**
+     * Serialize the given value, using the {@link Serializer} registered in
+     * {@link SerializerRegistry#DEFAULT} for the value's exact class if there is one, and Java
+     * serialization otherwise; see {@link #serialize(Serializable, SerializerRegistry)}.
+     * @param value the value to serialize
+     * @param <S> type of the value
+     * @return the serialized form of the value, or null if the value is null
+     * @throws IllegalStateException if Java serialization fails
+     */
+    public static <S extends Serializable> byte[] serialize(S value) throws IllegalStateException {
+        return serialize(value, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Deserialize a value written by {@link #serialize(Serializable, SerializerRegistry)}, using
+     * either the registered {@link Serializer} identified in the payload, or Java serialization,
+     * as appropriate.
+     * @param bytes the serialized form of the value
+     * @param asClass expected type of the value
+     * @param registry registry in which to look up the serializer
+     * @param <S> expected type of the value
+     * @return the value, or null if the given bytes are null
+     * @throws IllegalArgumentException if the registry is null, the payload is malformed, or it
+     * names a type identifier for which no serializer is registered
+     * @throws IllegalStateException if Java deserialization fails
+     * @throws ClassCastException if the value is not of the expected type
+     */
+    public static <S extends Serializable> S deserialize(final byte[] bytes, final Class<S> asClass, final SerializerRegistry registry) throws IllegalArgumentException, IllegalStateException, ClassCastException {
+        if (bytes == null) {
+            return null;
+        }
+        Util.ensureNotNull(registry, "BytesUtil#deserialize", "registry", SerializerRegistry.class);
+        if ((bytes.length > 0) && (bytes[0] == Constants.SERIALIZED_CODEC_MARKER)) {
+            return asClass.cast(readFramed(new ByteReader(bytes), registry));
+        }
+        try (
+            final ObjectInputStream input =
+                new ObjectInputStream(new ByteArrayInputStream(bytes))
+        ) {
+            return asClass.cast(input.readObject());
+        } catch (IOException | ClassNotFoundException exc) {
+            throw new IllegalStateException("Failed to deserialize " + asClass.getName(), exc);
+        }
+    }
+
+    /**
+     * Deserialize a value written by {@link #serialize(Serializable)}, using
+     * {@link SerializerRegistry#DEFAULT}; see
+     * {@link #deserialize(byte[], Class, SerializerRegistry)}.
+     * @param bytes the serialized form of the value
+     * @param asClass expected type of the value
+     * @param <S> expected type of the value
+     * @return the value, or null if the given bytes are null
+     * @throws IllegalArgumentException if the payload is malformed, or it names a type identifier
+     * for which no serializer is registered
+     * @throws IllegalStateException if Java deserialization fails
+     */
+    public static <S extends Serializable> S deserialize(byte[] bytes, final Class<S> asClass) throws IllegalArgumentException, IllegalStateException {
+        return deserialize(bytes, asClass, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Serialize the given value directly to the given stream, in the same form as
+     * {@link #serialize(Serializable, SerializerRegistry)}, without first collecting it into an
+     * intermediate array (values written by a registered {@link Serializer} are still assembled in
+     * a single buffer, as their length precedes them). The stream is flushed, but not closed.
+     * @param value the value to serialize
+     * @param out the stream to which to write
+     * @param registry registry in which to look up the serializer
+     * @param <S> type of the value
+     * @throws IllegalArgumentException if the value, stream, or registry is null
+     * @throws IOException if writing to the stream fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <S extends Serializable> void serialize(final S value, final OutputStream out, final SerializerRegistry registry) throws IllegalArgumentException, IOException {
+        final String logMsgPrefix = "BytesUtil#serialize(OutputStream)";
+        final Serializer<S> serializer;
+        final ByteWriter framed;
+        final ObjectOutputStream objOut;
+
+        Util.ensureNotNull(value, logMsgPrefix, "value", Serializable.class);
+        Util.ensureNotNull(out, logMsgPrefix, "out", OutputStream.class);
+        Util.ensureNotNull(registry, logMsgPrefix, "registry", SerializerRegistry.class);
+        serializer = registry.forType((Class<S>) value.getClass());
+        if (serializer != null) {
+            framed = new ByteWriter();
+            writeFramed(value, serializer, framed);
+            out.write(framed.array(), framed.offset(), framed.position());
+            out.flush();
+            return;
+        }
+        // not closed, as that would close the caller's stream
+        objOut = new ObjectOutputStream(out);
+        objOut.writeObject(value);
+        objOut.flush();
+    }
+
+    /**
+     * Serialize the given value directly to the given stream, using
+     * {@link SerializerRegistry#DEFAULT}; see
+     * {@link #serialize(Serializable, OutputStream, SerializerRegistry)}.
+     * @param value the value to serialize
+     * @param out the stream to which to write
+     * @param <S> type of the value
+     * @throws IllegalArgumentException if the value or stream is null
+     * @throws IOException if writing to the stream fails
+     */
+    public static <S extends Serializable> void serialize(final S value, final OutputStream out) throws IllegalArgumentException, IOException {
+        serialize(value, out, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Serialize the given value directly to the given channel; see
+     * {@link #serialize(Serializable, OutputStream, SerializerRegistry)}. The channel is not
+     * closed.
+     * @param value the value to serialize
+     * @param channel the (blocking) channel to which to write
+     * @param registry registry in which to look up the serializer
+     * @param <S> type of the value
+     * @throws IllegalArgumentException if the value, channel, or registry is null
+     * @throws IOException if writing to the channel fails
+     */
+    public static <S extends Serializable> void serialize(final S value, final WritableByteChannel channel, final SerializerRegistry registry) throws IllegalArgumentException, IOException {
+        Util.ensureNotNull(channel, "BytesUtil#serialize(WritableByteChannel)", "channel", WritableByteChannel.class);
+        serialize(value, Channels.newOutputStream(channel), registry);
+    }
+
+    /**
+     * Serialize the given value directly to the given channel, using
+     * {@link SerializerRegistry#DEFAULT}; see
+     * {@link #serialize(Serializable, WritableByteChannel, SerializerRegistry)}.
+     * @param value the value to serialize
+     * @param channel the (blocking) channel to which to write
+     * @param <S> type of the value
+     * @throws IllegalArgumentException if the value or channel is null
+     * @throws IOException if writing to the channel fails
+     */
+    public static <S extends Serializable> void serialize(final S value, final WritableByteChannel channel) throws IllegalArgumentException, IOException {
+        serialize(value, channel, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Serialize the given value at the cursor of the given writer, in the same form as
+     * {@link #serialize(Serializable, SerializerRegistry)}. With a writer drawing its arrays from a
+     * {@link BufferPool} (see {@link ByteWriter#ByteWriter(BufferPool, int)}), this serializes
+     * without allocating any output array.
+     * @param value the value to serialize
+     * @param out the writer to which to write
+     * @param registry registry in which to look up the serializer
+     * @param <S> type of the value
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the value, writer, or registry is null
+     * @throws IndexOutOfBoundsException if the writer targets a fixed region which is too small
+     * @throws IllegalStateException if Java serialization fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <S extends Serializable> int serialize(final S value, final ByteWriter out, final SerializerRegistry registry) throws IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        final String logMsgPrefix = "BytesUtil#serialize(ByteWriter)";
+        final Serializer<S> serializer;
+        final int start;
+        final ObjectOutputStream objOut;
+
+        Util.ensureNotNull(value, logMsgPrefix, "value", Serializable.class);
+        Util.ensureNotNull(out, logMsgPrefix, "out", ByteWriter.class);
+        Util.ensureNotNull(registry, logMsgPrefix, "registry", SerializerRegistry.class);
+        start = out.position();
+        serializer = registry.forType((Class<S>) value.getClass());
+        if (serializer != null) {
+            writeFramed(value, serializer, out);
+            return out.position() - start;
+        }
+        try {
+            objOut = new ObjectOutputStream(out.asOutputStream());
+            objOut.writeObject(value);
+            objOut.flush();
+        } catch (IOException ioExc) {
+            throw new IllegalStateException("Failed to serialize "
+                                            + value.getClass().getName(), ioExc);
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * Serialize the given value at the cursor of the given writer, using
+     * {@link SerializerRegistry#DEFAULT}; see
+     * {@link #serialize(Serializable, ByteWriter, SerializerRegistry)}.
+     * @param value the value to serialize
+     * @param out the writer to which to write
+     * @param <S> type of the value
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the value or writer is null
+     * @throws IndexOutOfBoundsException if the writer targets a fixed region which is too small
+     * @throws IllegalStateException if Java serialization fails
+     */
+    public static <S extends Serializable> int serialize(final S value, final ByteWriter out) throws IllegalArgumentException, IndexOutOfBoundsException, IllegalStateException {
+        return serialize(value, out, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Serialize the given value directly into the remaining space of the given buffer, in the same
+     * form as {@link #serialize(Serializable, SerializerRegistry)}, beginning at the buffer's
+     * position. On success, the buffer's position is advanced past the serialized value; if the
+     * value does not fit, the position is left unchanged (though the content between the position
+     * and the limit is unspecified).
+     * @param value the value to serialize
+     * @param dest the buffer into which to write
+     * @param registry registry in which to look up the serializer
+     * @param <S> type of the value
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the value, buffer, or registry is null
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     * @throws BufferOverflowException if the serialized value does not fit in the buffer
+     * @throws IllegalStateException if Java serialization fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <S extends Serializable> int serialize(final S value, final ByteBuffer dest, final SerializerRegistry registry) throws IllegalArgumentException, ReadOnlyBufferException, BufferOverflowException, IllegalStateException {
+        final String logMsgPrefix = "BytesUtil#serialize(ByteBuffer)";
+        final Serializer<S> serializer;
+        final int start;
+        final ByteWriter framed;
+        final ObjectOutputStream objOut;
+
+        Util.ensureNotNull(value, logMsgPrefix, "value", Serializable.class);
+        Util.ensureNotNull(dest, logMsgPrefix, "dest", ByteBuffer.class);
+        Util.ensureNotNull(registry, logMsgPrefix, "registry", SerializerRegistry.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        start = dest.position();
+        serializer = registry.forType((Class<S>) value.getClass());
+        try {
+            if (serializer != null) {
+                framed = new ByteWriter(dest);
+                writeFramed(value, serializer, framed);
+                dest.position(start + framed.position());
+            } else {
+                objOut = new ObjectOutputStream(new ByteBufferOutputStream(dest));
+                objOut.writeObject(value);
+                objOut.flush();
+            }
+        } catch (IndexOutOfBoundsException | BufferOverflowException exc) {
+            dest.position(start);
+            throw new BufferOverflowException();
+        } catch (IOException ioExc) {
+            dest.position(start);
+            throw new IllegalStateException("Failed to serialize "
+                                            + value.getClass().getName(), ioExc);
+        }
+        return dest.position() - start;
+    }
+
+    /**
+     * Serialize the given value directly into the given buffer, using
+     * {@link SerializerRegistry#DEFAULT}; see
+     * {@link #serialize(Serializable, ByteBuffer, SerializerRegistry)}.
+     * @param value the value to serialize
+     * @param dest the buffer into which to write
+     * @param <S> type of the value
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the value or buffer is null
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     * @throws BufferOverflowException if the serialized value does not fit in the buffer
+     * @throws IllegalStateException if Java serialization fails
+     */
+    public static <S extends Serializable> int serialize(final S value, final ByteBuffer dest) throws IllegalArgumentException, ReadOnlyBufferException, BufferOverflowException, IllegalStateException {
+        return serialize(value, dest, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Deserialize a single value from the given stream, as written by
+     * {@link #serialize(Serializable, OutputStream, SerializerRegistry)} (or by any of the other
+     * serialize methods). Only the bytes of the value are consumed, so further values (or other
+     * content) may follow it in the stream. The stream is not closed.
+     * @param in the stream from which to read
+     * @param asClass expected type of the value
+     * @param registry registry in which to look up the serializer
+     * @param <S> expected type of the value
+     * @return the value
+     * @throws IllegalArgumentException if the stream or registry is null, the payload is
+     * malformed, or it names a type identifier for which no serializer is registered
+     * @throws IllegalStateException if the class of a Java-serialized value cannot be found
+     * @throws ClassCastException if the value is not of the expected type
+     * @throws EOFException if the stream is already at its end, or ends within the value
+     * @throws IOException if reading from the stream fails
+     */
+    public static <S extends Serializable> S deserialize(final InputStream in, final Class<S> asClass, final SerializerRegistry registry) throws IllegalArgumentException, IllegalStateException, ClassCastException, IOException {
+        final String logMsgPrefix = "BytesUtil#deserialize(InputStream)";
+        final int first;
+        final PushbackInputStream pushback;
+
+        Util.ensureNotNull(in, logMsgPrefix, "in", InputStream.class);
+        Util.ensureNotNull(registry, logMsgPrefix, "registry", SerializerRegistry.class);
+        first = in.read();
+        if (first < 0) {
+            throw new EOFException("No serialized value remains in stream");
+        }
+        if ((byte) first == Constants.SERIALIZED_CODEC_MARKER) {
+            return asClass.cast(readFramed(in, registry));
+        }
+        pushback = new PushbackInputStream(in, 1);
+        pushback.unread(first);
+        try {
+            // not closed, as that would close the caller's stream
+            return asClass.cast(new ObjectInputStream(pushback).readObject());
+        } catch (ClassNotFoundException cnfExc) {
+            throw new IllegalStateException("Failed to deserialize " + asClass.getName(), cnfExc);
+        }
+    }
+
+    /**
+     * Deserialize a single value from the given stream, using {@link SerializerRegistry#DEFAULT};
+     * see {@link #deserialize(InputStream, Class, SerializerRegistry)}.
+     * @param in the stream from which to read
+     * @param asClass expected type of the value
+     * @param <S> expected type of the value
+     * @return the value
+     * @throws IllegalArgumentException if the stream is null, the payload is malformed, or it
+     * names a type identifier for which no serializer is registered
+     * @throws IllegalStateException if the class of a Java-serialized value cannot be found
+     * @throws IOException if reading from the stream fails
+     */
+    public static <S extends Serializable> S deserialize(final InputStream in, final Class<S> asClass) throws IllegalArgumentException, IllegalStateException, IOException {
+        return deserialize(in, asClass, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Deserialize a single value from the given channel; see
+     * {@link #deserialize(InputStream, Class, SerializerRegistry)}. The channel is not closed.
+     * @param channel the (blocking) channel from which to read
+     * @param asClass expected type of the value
+     * @param registry registry in which to look up the serializer
+     * @param <S> expected type of the value
+     * @return the value
+     * @throws IllegalArgumentException if the channel or registry is null, the payload is
+     * malformed, or it names a type identifier for which no serializer is registered
+     * @throws IllegalStateException if the class of a Java-serialized value cannot be found
+     * @throws IOException if reading from the channel fails
+     */
+    public static <S extends Serializable> S deserialize(final ReadableByteChannel channel, final Class<S> asClass, final SerializerRegistry registry) throws IllegalArgumentException, IllegalStateException, IOException {
+        Util.ensureNotNull(channel, "BytesUtil#deserialize(ReadableByteChannel)", "channel", ReadableByteChannel.class);
+        return deserialize(Channels.newInputStream(channel), asClass, registry);
+    }
+
+    /**
+     * Deserialize a single value from the given channel, using {@link SerializerRegistry#DEFAULT};
+     * see {@link #deserialize(ReadableByteChannel, Class, SerializerRegistry)}.
+     * @param channel the (blocking) channel from which to read
+     * @param asClass expected type of the value
+     * @param <S> expected type of the value
+     * @return the value
+     * @throws IllegalArgumentException if the channel is null, the payload is malformed, or it
+     * names a type identifier for which no serializer is registered
+     * @throws IllegalStateException if the class of a Java-serialized value cannot be found
+     * @throws IOException if reading from the channel fails
+     */
+    public static <S extends Serializable> S deserialize(final ReadableByteChannel channel, final Class<S> asClass) throws IllegalArgumentException, IllegalStateException, IOException {
+        return deserialize(channel, asClass, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * Deserialize a single value from the remaining content of the given buffer, beginning at its
+     * position, without copying the content out of the buffer. On success, the buffer's position
+     * is advanced past the value, so that a sequence of values written by
+     * {@link #serialize(Serializable, ByteBuffer, SerializerRegistry)} may be read back in turn.
+     * @param src the buffer from which to read
+     * @param asClass expected type of the value
+     * @param registry registry in which to look up the serializer
+     * @param <S> expected type of the value
+     * @return the value
+     * @throws IllegalArgumentException if the buffer or registry is null, no bytes remain in the
+     * buffer, the payload is malformed, or it names a type identifier for which no serializer is
+     * registered
+     * @throws IllegalStateException if Java deserialization fails
+     * @throws ClassCastException if the value is not of the expected type
+     */
+    public static <S extends Serializable> S deserialize(final ByteBuffer src, final Class<S> asClass, final SerializerRegistry registry) throws IllegalArgumentException, IllegalStateException, ClassCastException {
+        final String logMsgPrefix = "BytesUtil#deserialize(ByteBuffer)";
+        final int start;
+        final ByteReader framed;
+        final Object value;
+
+        Util.ensureNotNull(src, logMsgPrefix, "src", ByteBuffer.class);
+        Util.ensureNotNull(registry, logMsgPrefix, "registry", SerializerRegistry.class);
+        if (!src.hasRemaining()) {
+            throw new IllegalArgumentException("No serialized value remains in buffer");
+        }
+        start = src.position();
+        if (src.get(start) == Constants.SERIALIZED_CODEC_MARKER) {
+            framed = new ByteReader(src);
+            value = readFramed(framed, registry);
+            src.position(start + framed.position());
+            return asClass.cast(value);
+        }
+        try {
+            return asClass.cast(new ObjectInputStream(new ByteBufferInputStream(src)).readObject());
+        } catch (IOException | ClassNotFoundException exc) {
+            src.position(start);
+            throw new IllegalStateException("Failed to deserialize " + asClass.getName(), exc);
+        }
+    }
+
+    /**
+     * Deserialize a single value from the given buffer, using {@link SerializerRegistry#DEFAULT};
+     * see {@link #deserialize(ByteBuffer, Class, SerializerRegistry)}.
+     * @param src the buffer from which to read
+     * @param asClass expected type of the value
+     * @param <S> expected type of the value
+     * @return the value
+     * @throws IllegalArgumentException if the buffer is null or empty, the payload is malformed,
+     * or it names a type identifier for which no serializer is registered
+     * @throws IllegalStateException if Java deserialization fails
+     */
+    public static <S extends Serializable> S deserialize(final ByteBuffer src, final Class<S> asClass) throws IllegalArgumentException, IllegalStateException {
+        return deserialize(src, asClass, SerializerRegistry.DEFAULT);
+    }
+
+    /**
+     * @param blocks the blocks to count; null blocks are skipped, as they are by
+     * {@link #write(Collection, GatheringByteChannel)} and the stream and channel views
+     * @return total number of bytes in the blocks, or zero if the collection is null
+     */
+    public static long count(final Collection<byte[]> blocks) {
+        if (blocks == null || blocks.isEmpty()) {
+            return 0L;
+        }
+        return blocks.stream().filter(Objects::nonNull).mapToLong(block -> block.length).sum();
+    }
     
     /**
-     * TODO
-     * @param bytes TODO
-     * @return TODO
+     * Write buffers to a channel using gathering writes, in batches of at most
+     * {@link #GATHER_BATCH_SIZE} buffers per call.
+     * @param buffers the buffers to write, each from its position to its limit
+     * @param channel the (blocking) channel to which to write
+     * @return number of bytes written
+     * @throws IOException if writing fails
      */
-    public static byte[] concat(final byte[]... bytes) {
-        String logMsg;
-        final long length;
-        if (bytes != null) {
-            // get the total byte count         
-            length = Arrays.stream(bytes).mapToLong(b -> (b != null ? b.length : 0)).sum();
-            if (length > BYTE_CONCAT_MAX_LENGTH) {
-                logMsg = "byte[] cannot contain more than " + BYTE_CONCAT_MAX_LENGTH + " bytes";
-                throw new IllegalArgumentException(logMsg);
+    private static long gather(final Iterator<ByteBuffer> buffers, final GatheringByteChannel channel) throws IOException {
+        final ByteBuffer[] batch;
+        long total;
+        int count;
+        int start;
+
+        batch = new ByteBuffer[GATHER_BATCH_SIZE];
+        total = 0;
+        while (buffers.hasNext()) {
+            count = 0;
+            while ((count < batch.length) && buffers.hasNext()) {
+                batch[count++] = buffers.next();
             }
-            final byte[] concatenated = new byte[(int) length];
-            int start = 0;
-            for (int i = 0; i < bytes.length; i++) {
-                if (bytes[i] != null) {
-                    System.arraycopy(bytes[i], 0, concatenated, start, bytes[i].length);
-                    start += bytes[i].length;
+            start = 0;
+            while (start < count) {
+                total += channel.write(batch, start, count - start);
+                while ((start < count) && !batch[start].hasRemaining()) {
+                    start++;
                 }
             }
-            return concatenated;
         }
-        return null;
+        return total;
     }
 
     /**
-     * TODO
-     * @param value TODO
-     * @param <S> TODO
-     * @return TODO
+     * @param blocks the blocks to wrap
+     * @return an iterator over heap buffers wrapping each of the non-null blocks, in order
+     */
+    private static Iterator<ByteBuffer> wrapBlocks(final Collection<byte[]> blocks) {
+        return blocks.stream().filter(Objects::nonNull).map(ByteBuffer::wrap).iterator();
+    }
+
+    /**
+     * Write the given blocks, in iteration order, directly to the given channel (e.g. a
+     * {@link java.nio.channels.FileChannel} or {@link java.nio.channels.SocketChannel}) using
+     * gathering writes, rather than first concatenating them into a single array. The channel is
+     * not closed.
+     * @param blocks the blocks to write; null blocks are skipped
+     * @param channel the (blocking) channel to which to write
+     * @return number of bytes written; equal to {@link #count(Collection)}
+     * @throws IllegalArgumentException if the channel is null
+     * @throws IOException if writing to the channel fails
+     */
+    public static long write(final Collection<byte[]> blocks, final GatheringByteChannel channel) throws IllegalArgumentException, IOException {
+        Util.ensureNotNull(channel, "BytesUtil#write", "channel", GatheringByteChannel.class);
+        if ((blocks == null) || blocks.isEmpty()) {
+            return 0L;
+        }
+        return gather(wrapBlocks(blocks), channel);
+    }
+
+    /**
+     * Write the chunks of the given composite directly to the given channel using gathering
+     * writes; see {@link #write(Collection, GatheringByteChannel)}.
+     * @param bytes the composite to write
+     * @param channel the (blocking) channel to which to write
+     * @return number of bytes written; equal to <code>bytes.length()</code>
+     * @throws IllegalArgumentException if the composite or channel is null
+     * @throws IOException if writing to the channel fails
+     */
+    public static long write(final CompositeBytes bytes, final GatheringByteChannel channel) throws IllegalArgumentException, IOException {
+        Util.ensureNotNull(bytes, "BytesUtil#write", "bytes", CompositeBytes.class);
+        Util.ensureNotNull(channel, "BytesUtil#write", "channel", GatheringByteChannel.class);
+        return gather(bytes.iterator(), channel);
+    }
+
+    /**
+     * Return a stream which reads the given blocks, in iteration order, as one continuous
+     * sequence, without concatenating (or otherwise copying) them up front. The blocks must not
+     * be modified while the stream is in use.
+     * @param blocks the blocks to read; null blocks are skipped
+     * @return the stream
+     */
+    public static InputStream asInputStream(final Collection<byte[]> blocks) {
+        return new BlockInputStream((blocks == null)?
+                                        Collections.emptyIterator():
+                                        wrapBlocks(blocks));
+    }
+
+    /**
+     * Return a stream which reads the chunks of the given composite as one continuous sequence;
+     * see {@link #asInputStream(Collection)}.
+     * @param bytes the composite to read
+     * @return the stream
+     * @throws IllegalArgumentException if the composite is null
+     */
+    public static InputStream asInputStream(final CompositeBytes bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, "BytesUtil#asInputStream", "bytes", CompositeBytes.class);
+        return new BlockInputStream(bytes.iterator());
+    }
+
+    /**
+     * Return a channel which reads the given blocks, in iteration order, as one continuous
+     * sequence, copying each byte directly from its block into the destination buffer; see
+     * {@link #asInputStream(Collection)}.
+     * @param blocks the blocks to read; null blocks are skipped
+     * @return the channel
+     */
+    public static ReadableByteChannel asChannel(final Collection<byte[]> blocks) {
+        return new BlockInputStream((blocks == null)?
+                                        Collections.emptyIterator():
+                                        wrapBlocks(blocks));
+    }
+
+    /**
+     * Return a channel which reads the chunks of the given composite as one continuous sequence;
+     * see {@link #asChannel(Collection)}.
+     * @param bytes the composite to read
+     * @return the channel
+     * @throws IllegalArgumentException if the composite is null
+     */
+    public static ReadableByteChannel asChannel(final CompositeBytes bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, "BytesUtil#asChannel", "bytes", CompositeBytes.class);
+        return new BlockInputStream(bytes.iterator());
+    }
+
+    /**
+     * Hash a region of a byte array with {@link XXHash64}, e.g. to route a key to a partition.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return the 64-bit hash
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static long hash64(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return XXHash64.hash(bytes, offset, length, XXHash64.DEFAULT_SEED);
+    }
+
+    /**
+     * Hash the content of a byte array with {@link XXHash64}. Unlike {@link Util#hashCode(Object)},
+     * which is based on the identity of an array, equal content yields equal hashes.
+     * @param bytes the array
+     * @return the 64-bit hash, or zero if the array is null
+     */
+    public static long hash64(final byte[] bytes) {
+        return (bytes == null)?0L:XXHash64.hash(bytes);
+    }
+
+    /**
+     * @param filter the filter to serialize
+     * @return the serialized form of the filter (see {@link BloomFilter#writeTo(byte[], int)}), or
+     * null if the filter is null
+     */
+    public static byte[] toBytes(final BloomFilter filter) {
+        return (filter == null)?null:filter.toBytes();
+    }
+
+    /**
+     * @param bytes the serialized form of a filter, as produced by {@link #toBytes(BloomFilter)}
+     * @return the restored filter, or null if the array is null
+     * @throws IllegalArgumentException if the array does not contain exactly one serialized filter
+     */
+    public static BloomFilter toBloomFilter(final byte[] bytes) throws IllegalArgumentException {
+        return (bytes == null)?null:BloomFilter.fromBytes(bytes);
+    }
+
+    /**
+     * Write the {@link Crc32c} checksum of a region of a byte array into the four bytes
+     * immediately following it, so that its integrity may later be verified with
+     * {@link #isCrc32cValid(byte[], int, int)}.
+     * @param bytes the array, with room for the checksum after the region
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return the index immediately following the checksum
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region and its checksum do not fit within the array
+     */
+    public static int putCrc32c(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, "BytesUtil#putCrc32c", "bytes", byte[].class);
+        checkRegion(bytes.length, offset, length);
+        checkRegion(bytes.length, offset + length, Integer.BYTES);
+        ByteArrayAccess.putInt(bytes, offset + length, Crc32c.compute(bytes, offset, length));
+        return offset + length + Integer.BYTES;
+    }
+
+    /**
+     * @param bytes the array
+     * @param offset index of the first byte of a region
+     * @param length length of the region, excluding the four-byte checksum which follows it
+     * @return true if the checksum written by {@link #putCrc32c(byte[], int, int)} after the
+     * region matches its content
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region and its checksum do not lie within the array
+     */
+    public static boolean isCrc32cValid(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, "BytesUtil#isCrc32cValid", "bytes", byte[].class);
+        checkRegion(bytes.length, offset, length);
+        checkRegion(bytes.length, offset + length, Integer.BYTES);
+        return ByteArrayAccess.getInt(bytes, offset + length) == Crc32c.compute(bytes, offset, length);
+    }
+
+    /**
+     * @param bytes payload to protect
+     * @return a copy of the payload, followed by its four-byte {@link Crc32c} checksum; null if the
+     * payload is null
+     * @throws IllegalArgumentException if the payload is too long to be followed by a checksum
+     */
+    public static byte[] appendCrc32c(final byte[] bytes) throws IllegalArgumentException {
+        final byte[] framed;
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length > BYTE_CONCAT_MAX_LENGTH - Integer.BYTES) {
+            throw new IllegalArgumentException("Payload of " + bytes.length
+                                               + " bytes too long to checksum");
+        }
+        framed = Arrays.copyOf(bytes, bytes.length + Integer.BYTES);
+        putCrc32c(framed, 0, bytes.length);
+        return framed;
+    }
+
+    /**
+     * Verify and remove the checksum appended by {@link #appendCrc32c(byte[])}.
+     * @param framed payload followed by its checksum
+     * @return a copy of the payload; null if the input is null
+     * @throws IllegalArgumentException if the input is too short to hold a checksum, or the
+     * checksum does not match (i.e. the payload is corrupt)
+     */
+    public static byte[] stripCrc32c(final byte[] framed) throws IllegalArgumentException {
+        if (framed == null) {
+            return null;
+        }
+        if (framed.length < Integer.BYTES) {
+            throw new IllegalArgumentException("Value of " + framed.length
+                                               + " bytes too short to hold a checksum");
+        }
+        if (!isCrc32cValid(framed, 0, framed.length - Integer.BYTES)) {
+            throw new IllegalArgumentException("CRC32C mismatch: value is corrupt");
+        }
+        return Arrays.copyOf(framed, framed.length - Integer.BYTES);
+    }
+
+    /**
+     * Map the entirety of an existing file read-only, for reading in place; see
+     * {@link MappedBytes}.
+     * @param path the file to map
+     * @return the mapping, which the caller must close
+     * @throws IllegalArgumentException if the path is null
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedBytes mapReadOnly(final Path path) throws IllegalArgumentException, IOException {
+        return MappedBytes.open(path, false);
+    }
+
+    /**
+     * Map the first <code>length</code> bytes of a file read-write, creating the file if it does
+     * not exist, and extending it if it is shorter; see {@link MappedBytes}.
+     * @param path the file to map
+     * @param length number of bytes to map
+     * @return the mapping, which the caller must close
+     * @throws IllegalArgumentException if the path is null, or the length is negative
+     * @throws IOException if the file cannot be created, opened, or mapped
+     */
+    public static MappedBytes mapReadWrite(final Path path, final long length) throws IllegalArgumentException, IOException {
+        return MappedBytes.create(path, length);
+    }
+
+    /**
+     * @param compressor codec with which a block is to be compressed
+     * @param length length of the block
+     * @return the greatest length of the frame holding the block once compressed
+     * @throws IllegalArgumentException if the length is negative, or so large that the bound
+     * exceeds the capacity of an array
+     */
+    static int maxCompressedFrameLength(final Compressor compressor, final int length) throws IllegalArgumentException {
+        final long bound;
+        bound = 1L + (2 * Constants.VARINT_MAX_BYTES) + Integer.BYTES
+                + Math.max(length, compressor.maxCompressedLength(length));
+        if (bound > BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot compress " + length + " bytes in one frame");
+        }
+        return (int) bound;
+    }
+
+    /**
+     * Compress a block as one frame: the marker byte {@link Constants#COMPRESSED_FRAME_MARKER},
+     * the codec identifier and the original length of the block as variable-length ints, the
+     * 4-byte length of the compressed block, and the compressed block itself. If compression would
+     * not make the block any smaller, it is stored as-is, under
+     * {@link Constants#COMPRESSOR_ID_STORED}.
+     * @param src array containing the block
+     * @param srcOffset index of the first byte of the block
+     * @param length length of the block
+     * @param compressor codec with which to compress the block
+     * @param dest destination array, with at least
+     * {@link #maxCompressedFrameLength(Compressor, int)} bytes available at <code>destOffset</code>
+     * @param destOffset index in the destination at which to begin writing
+     * @return the index in the destination immediately following the frame
      */
-    public static <S extends Serializable> byte[] serialize(S value) {
-        if (value != null) {
-            try (
-                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-                ObjectOutputStream out = new ObjectOutputStream(bytes);
-            ) {
-                out.writeObject(value);
-                out.close();
-                return bytes.toByteArray();
-            } catch (IOException e) {
-                e.printStackTrace();
+    static int writeCompressedFrame(final byte[] src, final int srcOffset, final int length, final Compressor compressor, final byte[] dest, final int destOffset) {
+        int at;
+        int lengthIndex;
+        int compressedLength;
+
+        dest[destOffset] = Constants.COMPRESSED_FRAME_MARKER;
+        at = putVarInt(dest, destOffset + 1, compressor.getId());
+        at = putVarInt(dest, at, length);
+        lengthIndex = at;
+        at += Integer.BYTES;
+        compressedLength = compressor.compress(src, srcOffset, length, dest, at);
+        if (compressedLength >= length) {
+            at = putVarInt(dest, destOffset + 1, Constants.COMPRESSOR_ID_STORED);
+            at = putVarInt(dest, at, length);
+            lengthIndex = at;
+            at += Integer.BYTES;
+            System.arraycopy(src, srcOffset, dest, at, length);
+            compressedLength = length;
+        }
+        ByteArrayAccess.putInt(dest, lengthIndex, compressedLength);
+        return at + compressedLength;
+    }
+
+    /**
+     * Check the header of one frame before any space is allocated for its content: the lengths
+     * must be non-negative and no greater than the given limit, a stored block must be recorded
+     * at its own length, and the codec must be registered and able to expand the compressed block
+     * to the recorded original length.
+     * @param registry registry in which to look up the codec
+     * @param id codec identifier recorded in the frame
+     * @param originalLength original length of the block recorded in the frame
+     * @param compressedLength length of the compressed block recorded in the frame
+     * @param maxLength greatest original or compressed length to accept
+     * @throws IllegalArgumentException if the header is invalid, or its codec is not registered
+     */
+    static void checkFrameHeader(final CompressorRegistry registry, final int id, final int originalLength, final int compressedLength, final int maxLength) throws IllegalArgumentException {
+        final Compressor compressor;
+        if ((originalLength < 0) || (compressedLength < 0)) {
+            throw new IllegalArgumentException("Invalid lengths in compressed frame");
+        }
+        if ((originalLength > maxLength) || (compressedLength > maxLength)) {
+            throw new IllegalArgumentException("Compressed frame of " + compressedLength
+                                               + " bytes, recorded as " + originalLength
+                                               + ", exceeds the limit of " + maxLength + " bytes");
+        }
+        if (id == Constants.COMPRESSOR_ID_STORED) {
+            if (compressedLength != originalLength) {
+                throw new IllegalArgumentException("Stored block of " + compressedLength
+                                                   + " bytes recorded as " + originalLength);
             }
+            return;
+        }
+        compressor = registry.forId(id);
+        if (compressor == null) {
+            throw new IllegalArgumentException("No " + Compressor.class.getSimpleName()
+                                               + " registered for id " + id);
+        }
+        if (originalLength > compressor.maxDecompressedLength(compressedLength)) {
+            throw new IllegalArgumentException("Compressed block of " + compressedLength
+                                               + " bytes cannot decompress to " + originalLength);
         }
-        return null;
     }
 
     /**
-     * TODO
-     * @param bytes TODO
-     * @param asClass TODO
-     * @param <S> TODO
-     * @return TODO
+     * Decompress the block of one frame, using the codec identified by the frame.
+     * @param registry registry in which to look up the codec
+     * @param id codec identifier recorded in the frame
+     * @param src array containing the compressed block
+     * @param srcOffset index of the first byte of the compressed block
+     * @param length length of the compressed block
+     * @param dest destination array
+     * @param destOffset index in the destination at which to begin writing
+     * @param originalLength original length of the block recorded in the frame
+     * @throws IllegalArgumentException if no codec is registered with the identifier, or the block
+     * is corrupt
      */
-    public static <S extends Serializable> S deserialize(byte[] bytes, final Class<S> asClass) {
-        if (bytes != null) {
-            try (
-                final ObjectInputStream input =
-                    new ObjectInputStream(new ByteArrayInputStream(bytes))
-            ) {
-                return asClass.cast(input.readObject());
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
+    static void decompressBlock(final CompressorRegistry registry, final int id, final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset, final int originalLength) throws IllegalArgumentException {
+        final Compressor compressor;
+        if (id == Constants.COMPRESSOR_ID_STORED) {
+            if (length != originalLength) {
+                throw new IllegalArgumentException("Stored block of " + length
+                                                   + " bytes recorded as " + originalLength);
             }
+            System.arraycopy(src, srcOffset, dest, destOffset, length);
+            return;
         }
-        return null;
+        compressor = registry.forId(id);
+        if (compressor == null) {
+            throw new IllegalArgumentException("No " + Compressor.class.getSimpleName()
+                                               + " registered for id " + id);
+        }
+        compressor.decompress(src, srcOffset, length, dest, destOffset, originalLength);
     }
 
     /**
-     * TODO
-     * @param blocks TODO
-     * @return TODO
+     * Compress a region of a byte array as a single self-describing frame, which records the codec
+     * used, so that {@link #decompress(byte[])} requires no knowledge of how it was compressed.
+     * @param bytes the array containing the region
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @param compressor codec with which to compress the region
+     * @return the compressed frame
+     * @throws IllegalArgumentException if the array or codec is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
      */
-    public static long count(final Collection<byte[]> blocks) {
-        if (blocks == null || blocks.isEmpty()) {
-            return 0L;
+    public static byte[] compress(final byte[] bytes, final int offset, final int length, final Compressor compressor) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final String logMsgPrefix = "BytesUtil#compress";
+        final byte[] frame;
+        final int frameLength;
+
+        Util.ensureNotNull(bytes, logMsgPrefix, "bytes", byte[].class);
+        Util.ensureNotNull(compressor, logMsgPrefix, "compressor", Compressor.class);
+        checkRegion(bytes.length, offset, length);
+        frame = new byte[maxCompressedFrameLength(compressor, length)];
+        frameLength = writeCompressedFrame(bytes, offset, length, compressor, frame, 0);
+        return Arrays.copyOf(frame, frameLength);
+    }
+
+    /**
+     * Compress a byte array as a single self-describing frame; see
+     * {@link #compress(byte[], int, int, Compressor)}.
+     * @param bytes the array to compress
+     * @param compressor codec with which to compress the array, e.g.
+     * {@link LZ4Compressor#INSTANCE} for speed, or {@link DeflateCompressor#DEFAULT} for ratio
+     * @return the compressed frame, or null if the array is null
+     * @throws IllegalArgumentException if the codec is null
+     */
+    public static byte[] compress(final byte[] bytes, final Compressor compressor) throws IllegalArgumentException {
+        return (bytes == null)?null:compress(bytes, 0, bytes.length, compressor);
+    }
+
+    /**
+     * @param bytes a byte array
+     * @return true if the array begins with a compressed frame
+     */
+    public static boolean isCompressed(final byte[] bytes) {
+        return (bytes != null) && (bytes.length > 0) && (bytes[0] == Constants.COMPRESSED_FRAME_MARKER);
+    }
+
+    /**
+     * Decompress one or more consecutive frames, as written by
+     * {@link #compress(byte[], Compressor)} or {@link #compressingStream(OutputStream, Compressor)},
+     * into a single array.
+     * @param bytes the frames
+     * @param registry registry in which to look up the codec of each frame
+     * @return the decompressed content, or null if the input is null
+     * @throws IllegalArgumentException if the registry is null, a frame is malformed, truncated, or
+     * corrupt, its codec is not registered, or it records an original length which its codec could
+     * not produce from its compressed block; every frame header is checked before the output is
+     * allocated
+     * @throws IllegalStateException if the decompressed content would exceed
+     * {@link #BYTE_CONCAT_MAX_LENGTH}
+     */
+    public static byte[] decompress(final byte[] bytes, final CompressorRegistry registry) throws IllegalArgumentException, IllegalStateException {
+        final ByteReader in;
+        final byte[] decompressed;
+        long total;
+        int at;
+        int id;
+        int originalLength;
+        int compressedLength;
+
+        if (bytes == null) {
+            return null;
+        }
+        Util.ensureNotNull(registry, "BytesUtil#decompress", "registry", CompressorRegistry.class);
+        in = new ByteReader(bytes);
+        try {
+            // first pass: total the original lengths, so that the output is allocated only once
+            total = 0;
+            while (in.hasRemaining()) {
+                if (in.readByte() != Constants.COMPRESSED_FRAME_MARKER) {
+                    throw new IllegalArgumentException("Value does not consist of compressed frames");
+                }
+                id = in.readVarInt();
+                originalLength = in.readVarInt();
+                compressedLength = in.readInt();
+                checkFrameHeader(registry, id, originalLength, compressedLength, (int) BYTE_CONCAT_MAX_LENGTH);
+                if (compressedLength > in.remaining()) {
+                    throw new IllegalArgumentException("Truncated compressed frame");
+                }
+                in.skip(compressedLength);
+                total += originalLength;
+            }
+            if (total > BYTE_CONCAT_MAX_LENGTH) {
+                throw new IllegalStateException("byte[] cannot contain more than "
+                                                + BYTE_CONCAT_MAX_LENGTH + " bytes");
+            }
+            decompressed = new byte[(int) total];
+            in.position(0);
+            at = 0;
+            while (in.hasRemaining()) {
+                in.readByte();
+                id = in.readVarInt();
+                originalLength = in.readVarInt();
+                compressedLength = in.readInt();
+                decompressBlock(registry, id, bytes, in.position(), compressedLength, decompressed, at, originalLength);
+                in.skip(compressedLength);
+                at += originalLength;
+            }
+            return decompressed;
+        } catch (IndexOutOfBoundsException exc) {
+            throw new IllegalArgumentException("Truncated compressed frame", exc);
         }
-        return blocks.stream().mapToLong(block -> block.length).sum();
     }
-    
+
     /**
-     * TODO
-     * @param first TODO
-     * @param second TODO
-     * @return TODO
+     * Decompress one or more consecutive frames, looking up codecs in
+     * {@link CompressorRegistry#DEFAULT}; see {@link #decompress(byte[], CompressorRegistry)}.
+     * @param bytes the frames
+     * @return the decompressed content, or null if the input is null
+     * @throws IllegalArgumentException if a frame is malformed, truncated, or corrupt, or its codec
+     * is not registered
+     * @throws IllegalStateException if the decompressed content would exceed
+     * {@link #BYTE_CONCAT_MAX_LENGTH}
+     */
+    public static byte[] decompress(final byte[] bytes) throws IllegalArgumentException, IllegalStateException {
+        return decompress(bytes, CompressorRegistry.DEFAULT);
+    }
+
+    /**
+     * Return a stream which compresses what is written to it, in blocks of the given size, each
+     * written to the given stream as one frame. Closing the returned stream writes the final
+     * (partial) block, and closes the given stream.
+     * @param out the stream to which to write the compressed frames
+     * @param compressor codec with which to compress each block
+     * @param blockSize number of bytes per block; larger blocks compress better, at the cost of
+     * buffering more
+     * @return the compressing stream
+     * @throws IllegalArgumentException if the stream or codec is null, or the block size is not
+     * positive
+     */
+    public static OutputStream compressingStream(final OutputStream out, final Compressor compressor, final int blockSize) throws IllegalArgumentException {
+        final String logMsgPrefix = "BytesUtil#compressingStream";
+        Util.ensureNotNull(out, logMsgPrefix, "out", OutputStream.class);
+        Util.ensureNotNull(compressor, logMsgPrefix, "compressor", Compressor.class);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        return new CompressedOutputStream(out, compressor, blockSize);
+    }
+
+    /**
+     * Return a stream which compresses what is written to it, in blocks of
+     * {@link #COMPRESSION_BLOCK_SIZE_DEFAULT} bytes; see
+     * {@link #compressingStream(OutputStream, Compressor, int)}.
+     * @param out the stream to which to write the compressed frames
+     * @param compressor codec with which to compress each block
+     * @return the compressing stream
+     * @throws IllegalArgumentException if the stream or codec is null
+     */
+    public static OutputStream compressingStream(final OutputStream out, final Compressor compressor) throws IllegalArgumentException {
+        return compressingStream(out, compressor, COMPRESSION_BLOCK_SIZE_DEFAULT);
+    }
+
+    /**
+     * Return a stream which reads compressed frames from the given stream, and returns their
+     * decompressed content. Malformed or corrupt frames, and frames whose block (before or after
+     * compression) exceeds the given maximum, cause reads to throw {@link IOException}, so that a
+     * corrupt or hostile header cannot make the stream allocate more than the maximum. Closing the
+     * returned stream closes the given stream.
+     * @param in the stream from which to read the compressed frames
+     * @param registry registry in which to look up the codec of each frame
+     * @param maxBlockLength greatest block length to accept; at least the block size with which
+     * the frames were written (see {@link #compressingStream(OutputStream, Compressor, int)})
+     * @return the decompressing stream
+     * @throws IllegalArgumentException if the stream or registry is null, or the maximum block
+     * length is not positive
+     */
+    public static InputStream decompressingStream(final InputStream in, final CompressorRegistry registry, final int maxBlockLength) throws IllegalArgumentException {
+        final String logMsgPrefix = "BytesUtil#decompressingStream";
+        Util.ensureNotNull(in, logMsgPrefix, "in", InputStream.class);
+        Util.ensureNotNull(registry, logMsgPrefix, "registry", CompressorRegistry.class);
+        if (maxBlockLength <= 0) {
+            throw new IllegalArgumentException("Maximum block length must be positive: " + maxBlockLength);
+        }
+        return new CompressedInputStream(in, registry, maxBlockLength);
+    }
+
+    /**
+     * Return a stream which reads compressed frames from the given stream, written with blocks of
+     * at most {@link #COMPRESSION_BLOCK_SIZE_DEFAULT} bytes; see
+     * {@link #decompressingStream(InputStream, CompressorRegistry, int)}.
+     * @param in the stream from which to read the compressed frames
+     * @param registry registry in which to look up the codec of each frame
+     * @return the decompressing stream
+     * @throws IllegalArgumentException if the stream or registry is null
+     */
+    public static InputStream decompressingStream(final InputStream in, final CompressorRegistry registry) throws IllegalArgumentException {
+        return decompressingStream(in, registry, COMPRESSION_BLOCK_SIZE_DEFAULT);
+    }
+
+    /**
+     * Return a stream which reads compressed frames from the given stream, looking up codecs in
+     * {@link CompressorRegistry#DEFAULT}; see
+     * {@link #decompressingStream(InputStream, CompressorRegistry)}.
+     * @param in the stream from which to read the compressed frames
+     * @return the decompressing stream
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public static InputStream decompressingStream(final InputStream in) throws IllegalArgumentException {
+        return decompressingStream(in, CompressorRegistry.DEFAULT);
+    }
+
+    /**
+     * Interleave the bytes of two arrays: alternate their bytes, beginning with the first array,
+     * for as long as both have bytes remaining, then append the remainder of the longer array.
+     * E.g. zipping <code>{1, 2, 3}</code> with <code>{7, 8}</code> yields
+     * <code>{1, 7, 2, 8, 3}</code>. If either array is null or empty, the other is returned as-is
+     * (not copied). See {@link #zipBytes(byte[], int, int, byte[], int, int, byte[], int)} for how
+     * the interleaving is performed, and {@link #unzipBytes(byte[], int)} for its inverse.
+     * @param first the array whose bytes come first in each pair
+     * @param second the array whose bytes come second in each pair
+     * @return the interleaved bytes
      */
     public static byte[] zipBytes(final byte[] first, final byte[] second) {
+        final byte[] zipped;
         if (second == null || second.length == 0) {
             return first;
         }
         if (first == null || first.length == 0) {
             return second;
         }
-        final int firstLength = first.length;
-        final int secondLength = second.length;
-        final int length = firstLength + secondLength;
-        final byte[] zipped = new byte[length];
-        for (int z = 0, i = 0, j = 0; z < length; z++) {
-            if (i < firstLength && (i <= j || j >= secondLength)) {
-                zipped[z] = first[i++];
-            } else {
-                zipped[z] = second[j++];
-            }
-        }
+        zipped = new byte[Math.addExact(first.length, second.length)];
+        Interleaver.zip(first, 0, first.length, second, 0, second.length, zipped, 0);
         return zipped;
     }
+
+    /**
+     * Interleave the bytes of two regions into an existing array, as by
+     * {@link #zipBytes(byte[], byte[])}. Pairs are interleaved eight output bytes at a time, by
+     * spreading four bytes of each input into alternate bytes of one word, so the loop has no
+     * per-byte branches; runs of at least {@link #ZIP_PARALLEL_THRESHOLD} pairs are split across
+     * the common {@link java.util.concurrent.ForkJoinPool}.
+     * @param first the array whose bytes come first in each pair
+     * @param firstOffset index of the first byte of the first region
+     * @param firstLength length of the first region
+     * @param second the array whose bytes come second in each pair
+     * @param secondOffset index of the first byte of the second region
+     * @param secondLength length of the second region
+     * @param dest the array into which to write; the destination region must not overlap either
+     * source region
+     * @param destOffset index in the destination at which to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if any of the arrays is null
+     * @throws IndexOutOfBoundsException if any of the regions is out of bounds
+     */
+    public static int zipBytes(final byte[] first, final int firstOffset, final int firstLength, final byte[] second, final int secondOffset, final int secondLength, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final String logMsgPrefix = "BytesUtil#zipBytes";
+        Util.ensureNotNull(first, logMsgPrefix, "first", byte[].class);
+        Util.ensureNotNull(second, logMsgPrefix, "second", byte[].class);
+        Util.ensureNotNull(dest, logMsgPrefix, "dest", byte[].class);
+        checkRegion(first.length, firstOffset, firstLength);
+        checkRegion(second.length, secondOffset, secondLength);
+        checkRegion(dest.length, destOffset, Math.addExact(firstLength, secondLength));
+        return Interleaver.zip(first, firstOffset, firstLength, second, secondOffset, secondLength, dest, destOffset);
+    }
+
+    /**
+     * Split interleaved bytes back into the two regions from which they were zipped by
+     * {@link #zipBytes(byte[], int, int, byte[], int, int, byte[], int)}, using the same
+     * word-at-a-time (and, for large runs, parallel) approach.
+     * @param src the array containing the interleaved bytes
+     * @param offset index of the first interleaved byte
+     * @param first the array into which to write the bytes which came first in each pair
+     * @param firstOffset index in the first destination at which to write
+     * @param firstLength number of bytes which were zipped from the first region
+     * @param second the array into which to write the bytes which came second in each pair
+     * @param secondOffset index in the second destination at which to write
+     * @param secondLength number of bytes which were zipped from the second region
+     * @return the offset in the source immediately following the bytes read
+     * @throws IllegalArgumentException if any of the arrays is null
+     * @throws IndexOutOfBoundsException if any of the regions is out of bounds
+     */
+    public static int unzipBytes(final byte[] src, final int offset, final byte[] first, final int firstOffset, final int firstLength, final byte[] second, final int secondOffset, final int secondLength) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final String logMsgPrefix = "BytesUtil#unzipBytes";
+        final int length;
+        Util.ensureNotNull(src, logMsgPrefix, "src", byte[].class);
+        Util.ensureNotNull(first, logMsgPrefix, "first", byte[].class);
+        Util.ensureNotNull(second, logMsgPrefix, "second", byte[].class);
+        checkRegion(first.length, firstOffset, firstLength);
+        checkRegion(second.length, secondOffset, secondLength);
+        length = Math.addExact(firstLength, secondLength);
+        checkRegion(src.length, offset, length);
+        Interleaver.unzip(src, offset, first, firstOffset, firstLength, second, secondOffset, secondLength);
+        return offset + length;
+    }
+
+    /**
+     * Inverse of {@link #zipBytes(byte[], byte[])}: split interleaved bytes into the two arrays from
+     * which they were zipped.
+     * @param zipped the interleaved bytes
+     * @param firstLength length of the first of the two zipped arrays; the second consists of the
+     * remaining bytes
+     * @return the two arrays, first then second
+     * @throws IllegalArgumentException if the zipped array is null, or the length is negative or
+     * exceeds that of the zipped array
+     */
+    public static byte[][] unzipBytes(final byte[] zipped, final int firstLength) throws IllegalArgumentException {
+        final byte[] first;
+        final byte[] second;
+
+        Util.ensureNotNull(zipped, "BytesUtil#unzipBytes", "zipped", byte[].class);
+        if ((firstLength < 0) || (firstLength > zipped.length)) {
+            throw new IllegalArgumentException("First length " + firstLength
+                                               + " does not lie within " + zipped.length + " bytes");
+        }
+        first = new byte[firstLength];
+        second = new byte[zipped.length - firstLength];
+        Interleaver.unzip(zipped, 0, first, 0, first.length, second, 0, second.length);
+        return new byte[][] {first, second};
+    }
     
     /**
      * TODO
@@ -551,7 +3393,9 @@ public final class BytesUtil extends Uninstantiable {
      * setting the framework object to use the exact reference provided. Specifically, if the
      * defensive copy strategy specified by the context is one of the strategies specified in
      * {@link DefensiveCopyStrategy#COPY_ON_SET}, then make the copy; otherwise, set using the
-     * original reference. 
+     * original reference. Under {@link DefensiveCopyStrategy#COPY_ON_WRITE}, the reference is
+     * shared, and frozen: the framework object must obtain an array it may modify through
+     * {@link #writableInternalByteArray(byte[], DefensiveCopyStrategy)}.
      * @param clientBytes original byte[] reference to which a framework object's internal byte
      * array reference is being set; a defensive copy may be made, depending on the context
      * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether a
@@ -574,7 +3418,9 @@ public final class BytesUtil extends Uninstantiable {
      * defensive copy rather than returning the internal byte array maintained within the framework
      * object. Specifically, if the defensive copy strategy specified by the context is one of the
      * strategies specified in {@link DefensiveCopyStrategy#COPY_ON_GET}, then make the copy;
-     * otherwise, return the original reference. 
+     * otherwise, return the original reference. Under
+     * {@link DefensiveCopyStrategy#COPY_ON_WRITE}, the reference is shared, and frozen: the client
+     * must copy it before modifying it.
      * @param storedBytes a framework object's internal byte array; a defensive copy may be made,
      * depending on the context
      * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether a
@@ -592,6 +3438,197 @@ public final class BytesUtil extends Uninstantiable {
                                      DefensiveCopyStrategy.COPY_ON_GET);
     }
 
+    /**
+     * Prepares a framework object's <b>existing/internal</b> byte array to be <b>MODIFIED</b> in
+     * place. Under {@link DefensiveCopyStrategy#COPY_ON_WRITE}, the internal array may be shared
+     * with clients, so this is where the copy is made; the framework object must store, and
+     * modify, the returned copy. Under every other strategy, the internal array is returned as-is.
+     * @param storedBytes a framework object's internal byte array
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} under which the internal array was
+     * set and returned
+     * @return the array which the framework object may modify, or null if the internal array is
+     * null
+     */
+    public static byte[] writableInternalByteArray(final byte[] storedBytes, final DefensiveCopyStrategy selectedCopyStrategy) {
+        if (selectedCopyStrategy == DefensiveCopyStrategy.COPY_ON_WRITE) {
+            return copy(storedBytes);
+        }
+        return storedBytes;
+    }
+
+    /**
+     * Prepares the given <b>existing/internal</b> byte array to be <b>RETURNED</b> from a
+     * framework object as a read-only {@link ByteSlice}. Since the caller cannot modify a slice,
+     * no copy is made for {@link DefensiveCopyStrategy#SLICE} (under which the internal array is
+     * private to the framework object, having been copied on set), for
+     * {@link DefensiveCopyStrategy#COPY_ON_WRITE} (under which the internal array is frozen), nor
+     * for strategies which do not copy on get. Strategies in
+     * {@link DefensiveCopyStrategy#COPY_ON_SLICE_GET} still copy, as the internal array may be
+     * shared with the client which set it, and the returned slice must not change if the client
+     * modifies that array.
+     * @param storedBytes a framework object's internal byte array
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether a
+     * defensive copy of the internal byte array will be made prior to the get return
+     * @return a slice over the internal byte array or a copy of it, or null if the array is null
+     */
+    public static ByteSlice getInternalByteSlice(final byte[] storedBytes, final DefensiveCopyStrategy selectedCopyStrategy) {
+        if (DefensiveCopyStrategy.COPY_ON_SLICE_GET.contains((selectedCopyStrategy == null)?
+                                                                 DefensiveCopyStrategy.ALWAYS:
+                                                                 selectedCopyStrategy)) {
+            return ByteSlice.copyOf(storedBytes);
+        }
+        return ByteSlice.wrap(storedBytes);
+    }
+
+    /**
+     * Prepares the given <b>input</b> handle to be <b>SET</b> in a framework object. Under
+     * {@link DefensiveCopyStrategy#COPY_ON_WRITE}, the framework object shares the client's array
+     * via a new handle (see {@link SharedBytes#share()}), and neither side copies until one of
+     * them modifies it. Under other strategies, a handle on a private copy is made if the strategy
+     * is one of {@link DefensiveCopyStrategy#COPY_ON_SET}, and the given handle is used as-is
+     * otherwise.
+     * @param clientBytes the client's handle (which the client remains responsible for releasing)
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether, and how,
+     * the framework object shares the client's array
+     * @return the handle to be stored by the framework object, or null if the input is null
+     * @throws IllegalStateException if the handle has been released
+     */
+    public static SharedBytes setInternalSharedBytes(final SharedBytes clientBytes, final DefensiveCopyStrategy selectedCopyStrategy) throws IllegalStateException {
+        return sharedBytesActionWithContext(clientBytes,
+                                            ((selectedCopyStrategy == null)?
+                                                DefensiveCopyStrategy.ALWAYS:
+                                                selectedCopyStrategy),
+                                            DefensiveCopyStrategy.COPY_ON_SET);
+    }
+
+    /**
+     * Prepares the given <b>existing/internal</b> handle to be <b>RETURNED</b> from a framework
+     * object. Under {@link DefensiveCopyStrategy#COPY_ON_WRITE}, the client receives a new handle
+     * sharing the internal array (which the client must release), and neither side copies until
+     * one of them modifies it. Under other strategies, a handle on a copy is returned if the
+     * strategy is one of {@link DefensiveCopyStrategy#COPY_ON_GET}, and the internal handle itself
+     * otherwise.
+     * @param storedBytes a framework object's internal handle
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether, and how,
+     * the client shares the internal array
+     * @return the handle which the get operation should return to the client, or null if the
+     * internal handle is null
+     * @throws IllegalStateException if the handle has been released
+     */
+    public static SharedBytes getInternalSharedBytes(final SharedBytes storedBytes, final DefensiveCopyStrategy selectedCopyStrategy) throws IllegalStateException {
+        return sharedBytesActionWithContext(storedBytes,
+                                            ((selectedCopyStrategy == null)?
+                                                DefensiveCopyStrategy.ALWAYS:
+                                                selectedCopyStrategy),
+                                            DefensiveCopyStrategy.COPY_ON_GET);
+    }
+
+    private static SharedBytes sharedBytesActionWithContext(final SharedBytes bytes, final DefensiveCopyStrategy selectedCopyStrategy, final EnumSet<DefensiveCopyStrategy> copyIfTheseStrategies) throws IllegalStateException {
+        if (bytes == null) {
+            return null;
+        }
+        if (selectedCopyStrategy == DefensiveCopyStrategy.COPY_ON_WRITE) {
+            return bytes.share();
+        }
+        if (copyIfTheseStrategies.contains(selectedCopyStrategy)) {
+            return SharedBytes.of(bytes.toByteArray());
+        }
+        return bytes;
+    }
+
+    /**
+     * Prepares the given <b>input</b> byte array to be <b>SET</b> in a framework object which
+     * keeps its content off-heap. Moving the content off-heap necessarily copies it, so the
+     * framework object never shares the client's array, whatever its {@link DefensiveCopyStrategy}.
+     * @param clientBytes original byte[] reference to which a framework object's internal content
+     * is being set
+     * @param arena the arena in which to store the content
+     * @return the off-heap copy, or null if the input is null
+     * @throws IllegalArgumentException if the arena is null
+     * @throws IllegalStateException if the arena has been closed
+     */
+    public static OffHeapBytes setInternalOffHeapBytes(final byte[] clientBytes, final OffHeapArena arena) throws IllegalArgumentException, IllegalStateException {
+        Util.ensureNotNull(arena, "BytesUtil#setInternalOffHeapBytes", "arena", OffHeapArena.class);
+        return (clientBytes == null)?null:arena.copyOf(clientBytes);
+    }
+
+    /**
+     * Prepares the given <b>input</b> off-heap region to be <b>SET</b> in a framework object. If
+     * the selected strategy is one of {@link DefensiveCopyStrategy#COPY_ON_SET}, the region is
+     * copied (off-heap to off-heap) into the given arena. Under
+     * {@link DefensiveCopyStrategy#COPY_ON_WRITE}, the region is shared without copying, as a
+     * read-only view, so that the framework object must copy it before modifying it; otherwise,
+     * the given region is used as-is.
+     * @param clientBytes the client's region
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether a
+     * defensive copy of the input region will be made prior to setting
+     * @param arena the arena in which to store a copy, if one is made
+     * @return the region to be stored by the framework object, or null if the input is null
+     * @throws IllegalArgumentException if the arena is null
+     * @throws IllegalStateException if either region's arena has been closed
+     */
+    public static OffHeapBytes setInternalOffHeapBytes(final OffHeapBytes clientBytes, final DefensiveCopyStrategy selectedCopyStrategy, final OffHeapArena arena) throws IllegalArgumentException, IllegalStateException {
+        Util.ensureNotNull(arena, "BytesUtil#setInternalOffHeapBytes", "arena", OffHeapArena.class);
+        if (clientBytes == null) {
+            return null;
+        }
+        if (selectedCopyStrategy == DefensiveCopyStrategy.COPY_ON_WRITE) {
+            return clientBytes.asReadOnly();
+        }
+        if (DefensiveCopyStrategy.COPY_ON_SET.contains((selectedCopyStrategy == null)?
+                                                           DefensiveCopyStrategy.ALWAYS:
+                                                           selectedCopyStrategy)) {
+            return clientBytes.copyInto(arena);
+        }
+        return clientBytes;
+    }
+
+    /**
+     * Prepares the given <b>existing/internal</b> off-heap region to be <b>RETURNED</b> from a
+     * framework object. If the selected strategy is one of
+     * {@link DefensiveCopyStrategy#COPY_ON_SLICE_GET}, the region is copied (off-heap to off-heap)
+     * into the given arena, so that the client receives a snapshot which later changes to the
+     * internal region do not affect. Under {@link DefensiveCopyStrategy#SLICE}, whose internal
+     * region is private to the framework object, and {@link DefensiveCopyStrategy#COPY_ON_WRITE},
+     * under which it is shared, a read-only view of the region is returned without copying it;
+     * otherwise, the internal region itself is returned.
+     * <br><br>
+     * An arena frees its memory only when it is closed, so every copying get consumes space in the
+     * given arena until then; it should be a scratch arena owned (and closed) by the client, and
+     * may not be the arena holding the internal region, which would grow with every get. To copy
+     * the region onto the heap instead, use {@link OffHeapBytes#toByteArray()}.
+     * @param storedBytes a framework object's internal region
+     * @param selectedCopyStrategy {@link DefensiveCopyStrategy} which specifies whether, and how,
+     * the client shares the internal region
+     * @param arena the client's arena, in which to store a copy, if one is made
+     * @return the region which the get operation should return to the client, or null if the
+     * internal region is null
+     * @throws IllegalArgumentException if the arena is null, or a copy is to be made and the arena
+     * is the one holding the internal region
+     * @throws IllegalStateException if either arena has been closed
+     */
+    public static OffHeapBytes getInternalOffHeapBytes(final OffHeapBytes storedBytes, final DefensiveCopyStrategy selectedCopyStrategy, final OffHeapArena arena) throws IllegalArgumentException, IllegalStateException {
+        final DefensiveCopyStrategy strategy;
+
+        Util.ensureNotNull(arena, "BytesUtil#getInternalOffHeapBytes", "arena", OffHeapArena.class);
+        if (storedBytes == null) {
+            return null;
+        }
+        strategy = (selectedCopyStrategy == null)?DefensiveCopyStrategy.ALWAYS:selectedCopyStrategy;
+        if (DefensiveCopyStrategy.COPY_ON_SLICE_GET.contains(strategy)) {
+            if (arena == storedBytes.arena()) {
+                throw new IllegalArgumentException("Copies returned by BytesUtil#getInternalOffHeapBytes"
+                                                   + " may not be allocated from the arena holding"
+                                                   + " the internal region");
+            }
+            return storedBytes.copyInto(arena);
+        }
+        if ((strategy == DefensiveCopyStrategy.SLICE) || (strategy == DefensiveCopyStrategy.COPY_ON_WRITE)) {
+            return storedBytes.asReadOnly();
+        }
+        return storedBytes;
+    }
+
     static {
         BASE64_ENC = Base64.getEncoder();
         BASE64_DEC = Base64.getDecoder();
@@ -0,0 +1,278 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sequence of bytes held as a list of chunks (a "rope"), which behaves as the
+ * concatenation of the chunks without copying them into one contiguous array. Its length is a
+ * <code>long</code>, so it is not subject to {@link BytesUtil#BYTE_CONCAT_MAX_LENGTH}; it supports
+ * random access by <code>long</code> index, slicing (also without copying), iteration over its
+ * chunks as read-only {@link ByteBuffer}s (e.g. for gathering writes to a channel), and, when a
+ * contiguous array is truly required, flattening.
+ * <br><br>
+ * The chunks are shared with the caller which supplied them, and must not be modified for as long
+ * as the composite is in use. Instances are thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class CompositeBytes implements Iterable<ByteBuffer> {
+
+    public static final CompositeBytes EMPTY = new CompositeBytes(new byte[0][], new int[0], new int[0]);
+
+    private final byte[][] chunks;
+    private final int[] offsets;
+    private final int[] lengths;
+    /**
+     * <code>starts[i]</code> is the index within the composite of the first byte of chunk
+     * <code>i</code>; <code>starts[chunks.length]</code> is the total length.
+     */
+    private final long[] starts;
+
+    /**
+     * Create a composite of the given chunks, without copying them; null and empty chunks are
+     * skipped.
+     * @param blocks the chunks
+     * @return the composite, or {@link #EMPTY} if there are no chunks
+     */
+    public static CompositeBytes of(final byte[]... blocks) {
+        return (blocks == null)?EMPTY:of(Arrays.asList(blocks));
+    }
+
+    /**
+     * Create a composite of the given chunks, in iteration order, without copying them; null and
+     * empty chunks are skipped.
+     * @param blocks the chunks
+     * @return the composite, or {@link #EMPTY} if there are no chunks
+     */
+    public static CompositeBytes of(final Collection<byte[]> blocks) {
+        final byte[][] kept;
+        final int[] keptOffsets;
+        final int[] keptLengths;
+        int count;
+
+        if ((blocks == null) || blocks.isEmpty()) {
+            return EMPTY;
+        }
+        kept = new byte[blocks.size()][];
+        count = 0;
+        for (byte[] block : blocks) {
+            if ((block != null) && (block.length > 0)) {
+                kept[count++] = block;
+            }
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        keptOffsets = new int[count];
+        keptLengths = new int[count];
+        for (int index = 0; index < count; index++) {
+            keptLengths[index] = kept[index].length;
+        }
+        return new CompositeBytes(Arrays.copyOf(kept, count), keptOffsets, keptLengths);
+    }
+
+    /**
+     * @param index index within the composite
+     * @return index of the chunk containing the byte at the given index
+     */
+    private int chunkFor(final long index) {
+        final int found;
+        found = Arrays.binarySearch(starts, 0, chunks.length, index);
+        // an exact match is the start of that chunk; otherwise, it lies in the preceding chunk
+        return (found >= 0)?found:(-found - 2);
+    }
+
+    /**
+     * @return total number of bytes in the composite
+     */
+    public long length() {
+        return starts[chunks.length];
+    }
+
+    public boolean isEmpty() {
+        return chunks.length == 0;
+    }
+
+    /**
+     * @return number of (non-empty) chunks in the composite
+     */
+    public int chunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * @param index index within the composite
+     * @return the byte at the index
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public byte get(final long index) throws IndexOutOfBoundsException {
+        final int chunk;
+        if ((index < 0) || (index >= length())) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside of " + length()
+                                                + " bytes");
+        }
+        chunk = chunkFor(index);
+        return chunks[chunk][offsets[chunk] + (int) (index - starts[chunk])];
+    }
+
+    /**
+     * Return a composite of a region of this one, sharing the same chunks.
+     * @param offset index of the first byte of the region
+     * @param length number of bytes in the region
+     * @return the region
+     * @throws IndexOutOfBoundsException if the region does not lie within this composite
+     */
+    public CompositeBytes slice(final long offset, final long length) throws IndexOutOfBoundsException {
+        final int first;
+        final int last;
+        final int count;
+        final byte[][] sliceChunks;
+        final int[] sliceOffsets;
+        final int[] sliceLengths;
+        final long end;
+
+        if ((offset < 0) || (length < 0) || (offset > length() - length)) {
+            throw new IndexOutOfBoundsException("Region [offset=" + offset + ", length=" + length
+                                                + "] does not lie within " + length() + " bytes");
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (length == length()) {
+            return this;
+        }
+        end = offset + length;
+        first = chunkFor(offset);
+        last = chunkFor(end - 1);
+        count = last - first + 1;
+        sliceChunks = Arrays.copyOfRange(chunks, first, last + 1);
+        sliceOffsets = Arrays.copyOfRange(offsets, first, last + 1);
+        sliceLengths = Arrays.copyOfRange(lengths, first, last + 1);
+        // trim the end of the last chunk first, so that trimming the first chunk (which may be
+        // the same chunk) adjusts the already-trimmed length
+        sliceLengths[count - 1] = (int) (end - starts[last]);
+        sliceOffsets[0] += (int) (offset - starts[first]);
+        sliceLengths[0] -= (int) (offset - starts[first]);
+        return new CompositeBytes(sliceChunks, sliceOffsets, sliceLengths);
+    }
+
+    /**
+     * Copy a region of this composite into the given array.
+     * @param srcOffset index within the composite of the first byte to copy
+     * @param dest destination array
+     * @param destOffset index in the destination at which to begin copying
+     * @param length number of bytes to copy
+     * @return the index in the destination immediately following the copied bytes
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public int copyTo(final long srcOffset, final byte[] dest, final int destOffset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final CompositeBytes region;
+        int at;
+
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, length);
+        region = slice(srcOffset, length);
+        at = destOffset;
+        for (int chunk = 0; chunk < region.chunks.length; chunk++) {
+            System.arraycopy(region.chunks[chunk], region.offsets[chunk], dest, at, region.lengths[chunk]);
+            at += region.lengths[chunk];
+        }
+        return at;
+    }
+
+    /**
+     * Copy the content of this composite into a single new array.
+     * @return the flattened content
+     * @throws IllegalStateException if the composite is longer than
+     * {@link BytesUtil#BYTE_CONCAT_MAX_LENGTH}
+     */
+    public byte[] flatten() throws IllegalStateException {
+        final byte[] flattened;
+        if (length() > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalStateException("byte[] cannot contain more than "
+                                            + BytesUtil.BYTE_CONCAT_MAX_LENGTH + " bytes");
+        }
+        flattened = new byte[(int) length()];
+        copyTo(0, flattened, 0, flattened.length);
+        return flattened;
+    }
+
+    /**
+     * @param index index of a chunk
+     * @return a read-only buffer over the chunk, with position zero
+     */
+    private ByteBuffer chunkBuffer(final int index) {
+        return ByteBuffer.wrap(chunks[index], offsets[index], lengths[index]).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a new array of read-only buffers, one over each chunk, in order
+     */
+    public ByteBuffer[] toBufferArray() {
+        final ByteBuffer[] buffers;
+        buffers = new ByteBuffer[chunks.length];
+        for (int index = 0; index < buffers.length; index++) {
+            buffers[index] = chunkBuffer(index);
+        }
+        return buffers;
+    }
+
+    /**
+     * @return an iterator over read-only buffers, one over each chunk, in order
+     */
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        return new Iterator<ByteBuffer>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < chunks.length;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (next >= chunks.length) {
+                    throw new NoSuchElementException();
+                }
+                return chunkBuffer(next++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[length=" + length() + ", chunks=" + chunks.length + "]";
+    }
+
+    private CompositeBytes(final byte[][] chunks, final int[] offsets, final int[] lengths) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.starts = new long[chunks.length + 1];
+        for (int index = 0; index < chunks.length; index++) {
+            starts[index + 1] = starts[index] + lengths[index];
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Builds a multi-part (composite) key by appending typed fields directly into a scratch buffer,
+ * replacing chains such as <code>BytesUtil.concat(BytesUtil.toBytes(a), BytesUtil.toBytes(b),
+ * ...)</code>, in which every part is allocated and then copied.
+ * <br><br>
+ * Fields may be appended in the plain encodings of {@link BytesUtil} (e.g.
+ * {@link #appendLong(long)}), or in the order-preserving encodings of {@link OrderedBytes} (e.g.
+ * {@link #appendOrderedLong(long, SortOrder)}). {@link #toBytes()} emits the finished key as a
+ * single array.
+ * <br><br>
+ * There are two ways to use a builder without intermediate allocation:
+ * <ul>
+ *     <li>Construct it with the exact length of the key (see
+ *         {@link #CompositeKeyBuilder(int)}). When the key fills the scratch buffer exactly,
+ *         {@link #toBytes()} hands the buffer itself to the caller, rather than copying it, so
+ *         that building the key performs exactly one allocation.</li>
+ *     <li>Keep one builder per thread, and {@link #reset()} it between keys, so that the scratch
+ *         buffer (which grows as needed) is reused, and the only allocation per key is the final
+ *         copy made by {@link #toBytes()}.</li>
+ * </ul>
+ * Alternatively, the scratch buffer may be drawn from a {@link BufferPool} (see
+ * {@link #CompositeKeyBuilder(BufferPool, int)}), for short-lived builders.
+ * Instances are not thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class CompositeKeyBuilder {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private final int initialCapacity;
+    private final BufferPool pool;
+    private byte[] scratch;
+    private int length;
+
+    /**
+     * Ensure that the given number of bytes may be appended, growing the scratch buffer if needed.
+     * @param count number of bytes about to be appended
+     * @throws IllegalArgumentException if the key would exceed
+     * {@link BytesUtil#BYTE_CONCAT_MAX_LENGTH}
+     */
+    private void ensure(final int count) throws IllegalArgumentException {
+        final long required;
+        final int newCapacity;
+        final byte[] grown;
+
+        required = (long) length + count;
+        if (required > scratch.length) {
+            if (required > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+                throw new IllegalArgumentException("byte[] cannot contain more than "
+                                                   + BytesUtil.BYTE_CONCAT_MAX_LENGTH + " bytes");
+            }
+            // after toBytes() has handed off an exactly-sized buffer, start over at the original size
+            newCapacity = (int) Math.min(Math.max(Math.max(required, initialCapacity),
+                                                  ((long) scratch.length) << 1),
+                                         BytesUtil.BYTE_CONCAT_MAX_LENGTH);
+            if (pool == null) {
+                scratch = Arrays.copyOf(scratch, newCapacity);
+            } else {
+                grown = pool.acquire(newCapacity);
+                System.arraycopy(scratch, 0, grown, 0, length);
+                if (scratch.length > 0) {
+                    pool.release(scratch);
+                }
+                scratch = grown;
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes appended so far
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Discard the fields appended so far, retaining the scratch buffer for the next key.
+     * @return this builder
+     */
+    public CompositeKeyBuilder reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * For a builder created with {@link #CompositeKeyBuilder(BufferPool, int)}, return the scratch
+     * buffer to the pool, and reset the builder (a subsequent append acquires a new buffer from
+     * the pool). For any other builder, this has no effect.
+     * @return this builder
+     */
+    public CompositeKeyBuilder release() {
+        if ((pool != null) && (scratch.length > 0)) {
+            pool.release(scratch);
+            scratch = BytesUtil.HBASE_EMPTY;
+            length = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Return the finished key. If the key exactly fills the scratch buffer (and the buffer was not
+     * acquired from a {@link BufferPool}), the buffer itself is returned and the builder releases
+     * its reference to it (allocating a new one if further fields are appended); otherwise, a copy
+     * of the appended bytes is returned. Either way, the builder is reset.
+     * @return the key
+     */
+    public byte[] toBytes() {
+        final byte[] key;
+        if ((pool == null) && (length == scratch.length)) {
+            key = scratch;
+            scratch = BytesUtil.HBASE_EMPTY;
+        } else {
+            key = Arrays.copyOf(scratch, length);
+        }
+        length = 0;
+        return key;
+    }
+
+    /**
+     * Return the finished key as a read-only slice. Unless the scratch buffer was acquired from a
+     * {@link BufferPool}, the slice views the scratch buffer itself, so no copy is made even when
+     * the key does not fill the buffer, and the builder releases its reference to the buffer
+     * (allocating a new one if further fields are appended). Either way, the builder is reset.
+     * @return the key
+     */
+    public ByteSlice toSlice() {
+        final ByteSlice key;
+        if (pool == null) {
+            key = ByteSlice.wrap(scratch, 0, length);
+            scratch = BytesUtil.HBASE_EMPTY;
+        } else {
+            key = ByteSlice.copyOf(scratch, 0, length);
+        }
+        length = 0;
+        return key;
+    }
+
+    public CompositeKeyBuilder appendByte(final byte value) {
+        ensure(Byte.BYTES);
+        scratch[length++] = value;
+        return this;
+    }
+
+    public CompositeKeyBuilder appendShort(final short value) {
+        ensure(Short.BYTES);
+        length = BytesUtil.putShort(scratch, length, value);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendInt(final int value) {
+        ensure(Integer.BYTES);
+        length = BytesUtil.putInt(scratch, length, value);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendLong(final long value) {
+        ensure(Long.BYTES);
+        length = BytesUtil.putLong(scratch, length, value);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendInstant(final Instant time) throws IllegalArgumentException {
+        ensure(Constants.INSTANT_BYTES);
+        length = BytesUtil.putInstant(scratch, length, time);
+        return this;
+    }
+
+    /**
+     * Append the given region of a byte array, as-is. Since the result is not self-delimiting, this
+     * is only suitable for the last field of a key, or for fixed-length content.
+     * @param value the array containing the content
+     * @param offset index of the first byte of content
+     * @param count number of bytes of content
+     * @return this builder
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public CompositeKeyBuilder appendBytes(final byte[] value, final int offset, final int count) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(value, this, "value", byte[].class);
+        BytesUtil.checkRegion(value.length, offset, count);
+        ensure(count);
+        System.arraycopy(value, offset, scratch, length, count);
+        length += count;
+        return this;
+    }
+
+    public CompositeKeyBuilder appendBytes(final byte[] value) throws IllegalArgumentException {
+        Util.ensureNotNull(value, this, "value", byte[].class);
+        return appendBytes(value, 0, value.length);
+    }
+
+    /**
+     * Append the UTF-8 encoding of the given string, as-is (see {@link BytesUtil#toBytes(String)}).
+     * Since the result is not self-delimiting, this is only suitable for the last field of a key;
+     * use {@link #appendOrderedString(String, SortOrder)} for other positions.
+     * @param value the string to append
+     * @return this builder
+     * @throws IllegalArgumentException if the string is null
+     */
+    public CompositeKeyBuilder appendString(final String value) throws IllegalArgumentException {
+        Util.ensureNotNull(value, this, "value", String.class);
+        ensure(Utf8.length(value));
+        length = Utf8.encode(value, scratch, length);
+        return this;
+    }
+
+    /**
+     * Append the marker which precedes a nullable field in order-preserving form; see
+     * {@link OrderedBytes#putNullMarker(byte[], int, boolean, SortOrder)}.
+     * @param isNull whether the field is null
+     * @param order sort order of the field
+     * @return this builder
+     */
+    public CompositeKeyBuilder appendNullMarker(final boolean isNull, final SortOrder order) {
+        ensure(Byte.BYTES);
+        length = OrderedBytes.putNullMarker(scratch, length, isNull, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedShort(final short value, final SortOrder order) {
+        ensure(Short.BYTES);
+        length = OrderedBytes.putShort(scratch, length, value, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedInt(final int value, final SortOrder order) {
+        ensure(Integer.BYTES);
+        length = OrderedBytes.putInt(scratch, length, value, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedLong(final long value, final SortOrder order) {
+        ensure(Long.BYTES);
+        length = OrderedBytes.putLong(scratch, length, value, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedFloat(final float value, final SortOrder order) {
+        ensure(Integer.BYTES);
+        length = OrderedBytes.putFloat(scratch, length, value, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedDouble(final double value, final SortOrder order) {
+        ensure(Long.BYTES);
+        length = OrderedBytes.putDouble(scratch, length, value, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedInstant(final Instant time, final SortOrder order) throws IllegalArgumentException {
+        ensure(Constants.INSTANT_BYTES);
+        length = OrderedBytes.putInstant(scratch, length, time, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedBytes(final byte[] value, final int offset, final int count, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        ensure(OrderedBytes.encodedLength(value, offset, count));
+        length = OrderedBytes.putBytes(scratch, length, value, offset, count, order);
+        return this;
+    }
+
+    public CompositeKeyBuilder appendOrderedBytes(final byte[] value, final SortOrder order) throws IllegalArgumentException {
+        Util.ensureNotNull(value, this, "value", byte[].class);
+        return appendOrderedBytes(value, 0, value.length, order);
+    }
+
+    public CompositeKeyBuilder appendOrderedString(final String value, final SortOrder order) throws IllegalArgumentException {
+        Util.ensureNotNull(value, this, "value", String.class);
+        ensure(OrderedBytes.encodedLength(value));
+        length = OrderedBytes.putString(scratch, length, value, order);
+        return this;
+    }
+
+    /**
+     * Create a builder whose scratch buffer initially holds the given number of bytes. If this is
+     * the exact length of the key to be built, {@link #toBytes()} will return the scratch buffer
+     * itself, without copying.
+     * @param expectedLength initial scratch buffer size; ideally the exact length of the key
+     * @throws IllegalArgumentException if the length is negative
+     */
+    public CompositeKeyBuilder(final int expectedLength) throws IllegalArgumentException {
+        if (expectedLength < 0) {
+            throw new IllegalArgumentException("Expected length may not be negative: "
+                                               + expectedLength);
+        }
+        this.initialCapacity = expectedLength;
+        this.pool = null;
+        this.scratch = new byte[expectedLength];
+        this.length = 0;
+    }
+
+    /**
+     * Create a builder whose scratch buffer is acquired from (and, as it grows, returned to) the
+     * given pool; {@link #toBytes()} always copies the key out of the pooled buffer. Call
+     * {@link #release()} once the builder is no longer needed, to return the buffer to the pool.
+     * @param pool the pool from which to acquire scratch buffers
+     * @param expectedLength minimum initial scratch buffer size
+     * @throws IllegalArgumentException if the pool is null, or the length is negative
+     */
+    public CompositeKeyBuilder(final BufferPool pool, final int expectedLength) throws IllegalArgumentException {
+        Util.ensureNotNull(pool, CompositeKeyBuilder.class, "pool", BufferPool.class);
+        if (expectedLength < 0) {
+            throw new IllegalArgumentException("Expected length may not be negative: "
+                                               + expectedLength);
+        }
+        this.initialCapacity = expectedLength;
+        this.pool = pool;
+        this.scratch = pool.acquire(expectedLength);
+        this.length = 0;
+    }
+
+    /**
+     * Create a builder with a small default scratch buffer, which grows as needed; intended for
+     * reuse across keys via {@link #reset()}.
+     */
+    public CompositeKeyBuilder() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream which reads a concatenation of compressed frames from the underlying stream, and
+ * returns their decompressed content; backs
+ * {@link BytesUtil#decompressingStream(InputStream, CompressorRegistry)}. One frame is read and
+ * decompressed at a time, into buffers which are reused from frame to frame, and which never exceed
+ * the maximum block length, whatever a frame's header claims. Malformed or corrupt frames cause
+ * reads to throw {@link IOException}.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class CompressedInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final CompressorRegistry registry;
+    private final int maxBlockLength;
+    private byte[] payload;
+    private byte[] block;
+    private int position;
+    private int limit;
+    private boolean closed;
+
+    /**
+     * Ensure that decompressed bytes are available, reading the next frame if necessary.
+     * @return false if the underlying stream has ended
+     * @throws IOException if the stream has been closed, reading from the underlying stream fails,
+     * the underlying stream ends within a frame, or a frame is malformed, corrupt, larger than
+     * the maximum block length, or its codec is not registered
+     */
+    private boolean fill() throws IOException {
+        int marker;
+        int id;
+        int originalLength;
+        int compressedLength;
+
+        if (closed) {
+            throw new IOException(getClass().getSimpleName() + " already closed");
+        }
+        try {
+            while (position == limit) {
+                marker = in.read();
+                if (marker < 0) {
+                    return false;
+                }
+                if ((byte) marker != Constants.COMPRESSED_FRAME_MARKER) {
+                    throw new IOException("Stream does not contain compressed frames");
+                }
+                id = BytesUtil.readVarInt(in, "codec id in compressed frame");
+                originalLength = BytesUtil.readVarInt(in, "length in compressed frame");
+                compressedLength = in.readInt();
+                BytesUtil.checkFrameHeader(registry, id, originalLength, compressedLength, maxBlockLength);
+                if (payload.length < compressedLength) {
+                    payload = new byte[compressedLength];
+                }
+                if (block.length < originalLength) {
+                    block = new byte[originalLength];
+                }
+                in.readFully(payload, 0, compressedLength);
+                BytesUtil.decompressBlock(registry, id, payload, 0, compressedLength, block, 0, originalLength);
+                position = 0;
+                limit = originalLength;
+            }
+        } catch (IllegalArgumentException exc) {
+            throw new IOException(exc.getMessage(), exc);
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill()?(block[position++] & 0xFF):-1;
+    }
+
+    @Override
+    public int read(final byte[] dest, final int offset, final int length) throws IOException {
+        final int count;
+
+        BytesUtil.checkRegion(dest.length, offset, length);
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        count = Math.min(length, limit - position);
+        System.arraycopy(block, position, dest, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            in.close();
+        }
+    }
+
+    /**
+     * @param in the stream from which to read frames
+     * @param registry registry in which to look up the codec of each frame
+     * @param maxBlockLength greatest length of a block, before or after compression, to accept;
+     * bounds the buffers allocated for a frame, whatever its header claims
+     */
+    CompressedInputStream(final InputStream in, final CompressorRegistry registry, final int maxBlockLength) {
+        this.in = new DataInputStream(in);
+        this.registry = registry;
+        this.maxBlockLength = maxBlockLength;
+        this.payload = BytesUtil.HBASE_EMPTY;
+        this.block = BytesUtil.HBASE_EMPTY;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream which buffers what is written to it into blocks of a fixed size, and writes each block to
+ * the underlying stream as one compressed frame; backs
+ * {@link BytesUtil#compressingStream(OutputStream, Compressor, int)}. Flushing writes the partial
+ * block accumulated so far as a (shorter) frame of its own. The output is a plain concatenation of
+ * frames, readable by {@link CompressedInputStream} or {@link BytesUtil#decompress(byte[])}.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class CompressedOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final Compressor compressor;
+    private final byte[] block;
+    private final byte[] frame;
+    private int count;
+    private boolean closed;
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(getClass().getSimpleName() + " already closed");
+        }
+    }
+
+    /**
+     * Write the buffered bytes, if any, to the underlying stream as one frame.
+     * @throws IOException if writing to the underlying stream fails
+     */
+    private void writeBlock() throws IOException {
+        final int frameLength;
+        if (count > 0) {
+            frameLength = BytesUtil.writeCompressedFrame(block, 0, count, compressor, frame, 0);
+            out.write(frame, 0, frameLength);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void write(final int value) throws IOException {
+        ensureOpen();
+        if (count == block.length) {
+            writeBlock();
+        }
+        block[count++] = (byte) value;
+    }
+
+    @Override
+    public void write(final byte[] src, final int offset, final int length) throws IOException {
+        int written;
+        int step;
+
+        ensureOpen();
+        BytesUtil.checkRegion(src.length, offset, length);
+        written = 0;
+        while (written < length) {
+            if (count == block.length) {
+                writeBlock();
+            }
+            step = Math.min(length - written, block.length - count);
+            System.arraycopy(src, offset + written, block, count, step);
+            count += step;
+            written += step;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            try {
+                writeBlock();
+                out.flush();
+            } finally {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @param out the stream to which to write frames
+     * @param compressor the codec with which to compress each block
+     * @param blockSize number of bytes to buffer before compressing them as a frame
+     */
+    CompressedOutputStream(final OutputStream out, final Compressor compressor, final int blockSize) {
+        this.out = out;
+        this.compressor = compressor;
+        this.block = new byte[blockSize];
+        this.frame = new byte[BytesUtil.maxCompressedFrameLength(compressor, blockSize)];
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+/**
+ * Block compression codec, registered with a {@link CompressorRegistry} so that compressed
+ * payloads may identify the codec which produced them (by {@link #getId()}), and be decompressed
+ * without the reader knowing in advance how they were compressed; see
+ * {@link BytesUtil#compress(byte[], Compressor)} and {@link BytesUtil#decompress(byte[])}.
+ * <br><br>
+ * Implementations compress and decompress only the raw block; the framing which identifies the
+ * codec and records the lengths of the block is handled by {@link BytesUtil}. Implementations
+ * must be thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public interface Compressor {
+
+    /**
+     * Return the identifier written into every frame compressed by this codec, and used to select
+     * it again upon decompression. The identifier must be positive (zero denotes a block stored
+     * uncompressed), unique within a registry, and must remain stable for as long as payloads
+     * compressed with it are to be read.
+     * @return the codec identifier
+     */
+    int getId();
+
+    /**
+     * @param length length of a block to be compressed
+     * @return the greatest number of bytes to which a block of the given length may compress
+     * @throws IllegalArgumentException if the length is negative, or so large that the bound
+     * exceeds the capacity of an array
+     */
+    int maxCompressedLength(int length) throws IllegalArgumentException;
+
+    /**
+     * Bound the length to which a block of the given compressed length may decompress, so that a
+     * frame's recorded original length can be checked before any space is allocated for it.
+     * @param compressedLength length of a compressed block
+     * @return the greatest number of bytes to which a block of the given length may decompress
+     */
+    long maxDecompressedLength(int compressedLength);
+
+    /**
+     * Compress a block.
+     * @param src array containing the block
+     * @param srcOffset index of the first byte of the block
+     * @param length length of the block
+     * @param dest destination array, with at least {@link #maxCompressedLength(int)} bytes
+     * available at <code>destOffset</code>
+     * @param destOffset index in the destination at which to begin writing
+     * @return number of bytes written to the destination
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IndexOutOfBoundsException;
+
+    /**
+     * Decompress a block compressed by {@link #compress(byte[], int, int, byte[], int)}.
+     * @param src array containing the compressed block
+     * @param srcOffset index of the first byte of the compressed block
+     * @param length length of the compressed block
+     * @param dest destination array
+     * @param destOffset index in the destination at which to begin writing
+     * @param originalLength length of the block before compression; exactly this many bytes are
+     * written to the destination
+     * @throws IllegalArgumentException if the compressed block is corrupt, or does not decompress
+     * to exactly <code>originalLength</code> bytes
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int originalLength) throws IllegalArgumentException, IndexOutOfBoundsException;
+}
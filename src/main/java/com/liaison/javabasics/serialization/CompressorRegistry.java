@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe registry of {@link Compressor}s, keyed by their identifiers, consulted when
+ * decompressing a frame to find the codec which compressed it. {@link #DEFAULT} is the registry
+ * consulted by the BytesUtil decompression methods which do not take a registry parameter; it
+ * comes with {@link DeflateCompressor#DEFAULT} and {@link LZ4Compressor#INSTANCE} registered.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class CompressorRegistry {
+
+    /**
+     * Process-wide registry used by {@link BytesUtil#decompress(byte[])}.
+     */
+    public static final CompressorRegistry DEFAULT =
+        new CompressorRegistry().register(DeflateCompressor.DEFAULT).register(LZ4Compressor.INSTANCE);
+
+    private final ConcurrentMap<Integer, Compressor> byId;
+
+    /**
+     * Register a codec under its identifier.
+     * @param compressor the codec to register
+     * @return this registry
+     * @throws IllegalArgumentException if the codec is null, or reports an identifier which is
+     * not positive
+     * @throws IllegalStateException if a codec is already registered with the same identifier
+     */
+    public synchronized CompressorRegistry register(final Compressor compressor) throws IllegalArgumentException, IllegalStateException {
+        final int id;
+
+        Util.ensureNotNull(compressor, this, "compressor", Compressor.class);
+        id = compressor.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException("Compressor id must be positive: " + id);
+        }
+        Util.validateExactlyOnce("id " + id, Compressor.class, byId.get(Integer.valueOf(id)));
+        byId.put(Integer.valueOf(id), compressor);
+        return this;
+    }
+
+    /**
+     * Remove the codec registered with the given identifier, if any. Frames already compressed
+     * with it will no longer be readable through this registry.
+     * @param id identifier of the codec to be removed
+     * @return the removed codec, or null if none was registered
+     */
+    public synchronized Compressor unregister(final int id) {
+        return byId.remove(Integer.valueOf(id));
+    }
+
+    /**
+     * @param id codec identifier read from a compressed frame
+     * @return the codec registered with the identifier, or null if none is registered
+     */
+    public Compressor forId(final int id) {
+        return byId.get(Integer.valueOf(id));
+    }
+
+    public CompressorRegistry() {
+        this.byId = new ConcurrentHashMap<>();
+    }
+}
@@ -27,6 +27,52 @@ public final class Constants extends Uninstantiable {
     
     public static final String CHARSET_DEFAULT_STR = "UTF-8";
     public static final Charset CHARSET_DEFAULT = Charset.forName(CHARSET_DEFAULT_STR);
-    
+
+    /**
+     * Size of the serialized form of an {@link java.time.Instant}: an 8-byte epoch second
+     * followed by a 4-byte nanosecond adjustment.
+     */
+    public static final int INSTANT_BYTES = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Length prefix written ahead of a length-prefixed string to indicate a null reference.
+     */
+    public static final int STRING_LENGTH_NULL = -1;
+
+    /**
+     * Maximum size of the variable-length (LEB128) encoding of an int.
+     */
+    public static final int VARINT_MAX_BYTES = 5;
+
+    /**
+     * Maximum size of the variable-length (LEB128) encoding of a long.
+     */
+    public static final int VARLONG_MAX_BYTES = 10;
+
+    /**
+     * Leading byte of a value serialized by a registered {@link Serializer} (see
+     * {@link BytesUtil#serialize(java.io.Serializable)}); chosen to differ from the leading byte
+     * (<code>0xAC</code>) of every Java serialization stream, so that the two formats may be told
+     * apart.
+     */
+    public static final byte SERIALIZED_CODEC_MARKER = (byte) 0xC0;
+
+    /**
+     * Leading byte of each frame written by {@link BytesUtil#compress(byte[], Compressor)} (and by
+     * the stream returned from {@link BytesUtil#compressingStream(java.io.OutputStream, Compressor)}).
+     */
+    public static final byte COMPRESSED_FRAME_MARKER = (byte) 0xC1;
+
+    /**
+     * Codec identifier recorded in a compressed frame whose block is stored uncompressed, because
+     * compressing it would not have made it any smaller.
+     */
+    public static final int COMPRESSOR_ID_STORED = 0;
+
+    /**
+     * Leading byte of the serialized form of a {@link BloomFilter} (see {@link BloomFilter#toBytes()}).
+     */
+    public static final byte BLOOM_FILTER_MARKER = (byte) 0xC2;
+
     private Constants() {}
 }
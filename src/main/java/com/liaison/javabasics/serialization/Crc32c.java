@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum, as used by iSCSI, ext4, Kafka, and many storage formats to detect
+ * corruption. On Java 9 and later, this delegates to <code>java.util.zip.CRC32C</code> (looked up
+ * reflectively, so that this library remains compilable and runnable on Java 8), which the JIT
+ * compiles to the processor's CRC32 instructions; on Java 8, a table-driven implementation
+ * processing eight bytes per step is used instead. Both produce identical values.
+ * <br><br>
+ * {@link #compute(byte[], int, int)} checksums a region in one call, reusing a per-thread
+ * instance, so allocates nothing. Instances are not thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class Crc32c implements Checksum {
+
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int SLICES = 8;
+
+    /**
+     * Creates a <code>java.util.zip.CRC32C</code>, as a {@link Checksum}; null on Java 8.
+     */
+    private static final MethodHandle NEW_INTRINSIC;
+    /**
+     * <code>Checksum.update(ByteBuffer)</code>; null on Java 8.
+     */
+    private static final MethodHandle UPDATE_BUFFER;
+    /**
+     * Slicing-by-8 lookup tables, used only when the intrinsic is unavailable: entry
+     * <code>(k * 256) + n</code> is the CRC of byte <code>n</code> followed by <code>k</code> zero
+     * bytes.
+     */
+    private static final int[] TABLE;
+    private static final ThreadLocal<Crc32c> PER_THREAD = ThreadLocal.withInitial(Crc32c::new);
+
+    private final Checksum intrinsic;
+    /**
+     * Inverted running CRC, when computed by table.
+     */
+    private int crc;
+
+    private static MethodHandle intrinsicConstructor() {
+        try {
+            return MethodHandles.publicLookup()
+                                .findConstructor(Class.forName("java.util.zip.CRC32C"),
+                                                 MethodType.methodType(void.class))
+                                .asType(MethodType.methodType(Checksum.class));
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            return null;
+        }
+    }
+
+    private static MethodHandle updateBufferHandle() {
+        try {
+            return MethodHandles.publicLookup()
+                                .findVirtual(Checksum.class,
+                                             "update",
+                                             MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            return null;
+        }
+    }
+
+    private static int[] buildTable() {
+        final int[] table;
+        int value;
+
+        table = new int[SLICES * 256];
+        for (int n = 0; n < 256; n++) {
+            value = n;
+            for (int bit = 0; bit < Byte.SIZE; bit++) {
+                value = ((value & 1) != 0)?((value >>> 1) ^ POLYNOMIAL):(value >>> 1);
+            }
+            table[n] = value;
+        }
+        for (int n = 0; n < 256; n++) {
+            value = table[n];
+            for (int slice = 1; slice < SLICES; slice++) {
+                value = table[value & 0xFF] ^ (value >>> 8);
+                table[(slice * 256) + n] = value;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @param thrown the throwable caught from the method handle invocation; the handles only throw
+     * unchecked exceptions, which are rethrown as-is
+     * @return never returns normally; declared so that callers may write <code>throw</code>
+     */
+    private static RuntimeException rethrow(final Throwable thrown) {
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        }
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+        throw new IllegalStateException("Unexpected exception from CRC32C", thrown);
+    }
+
+    /**
+     * Checksum a region of a byte array.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return the CRC-32C of the region
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static int compute(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final Crc32c checksum;
+        checksum = PER_THREAD.get();
+        checksum.reset();
+        checksum.update(bytes, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Checksum the remaining content (position through limit) of a buffer, without modifying its
+     * position.
+     * @param buffer the buffer
+     * @return the CRC-32C of the buffer's remaining content
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public static int compute(final ByteBuffer buffer) throws IllegalArgumentException {
+        final Crc32c checksum;
+        Util.ensureNotNull(buffer, Crc32c.class, "buffer", ByteBuffer.class);
+        checksum = PER_THREAD.get();
+        checksum.reset();
+        checksum.update(buffer.duplicate());
+        return (int) checksum.getValue();
+    }
+
+    @Override
+    public void update(final int value) {
+        if (intrinsic != null) {
+            intrinsic.update(value);
+        } else {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ value) & 0xFF];
+        }
+    }
+
+    @Override
+    public void update(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int end;
+        int value;
+        int high;
+        int index;
+
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        if (intrinsic != null) {
+            intrinsic.update(bytes, offset, length);
+            return;
+        }
+        value = crc;
+        index = offset;
+        end = offset + length;
+        while (index + SLICES <= end) {
+            value ^= ByteArrayAccess.getIntLE(bytes, index);
+            high = ByteArrayAccess.getIntLE(bytes, index + Integer.BYTES);
+            value = TABLE[(7 * 256) + (value & 0xFF)]
+                    ^ TABLE[(6 * 256) + ((value >>> 8) & 0xFF)]
+                    ^ TABLE[(5 * 256) + ((value >>> 16) & 0xFF)]
+                    ^ TABLE[(4 * 256) + (value >>> 24)]
+                    ^ TABLE[(3 * 256) + (high & 0xFF)]
+                    ^ TABLE[(2 * 256) + ((high >>> 8) & 0xFF)]
+                    ^ TABLE[256 + ((high >>> 16) & 0xFF)]
+                    ^ TABLE[high >>> 24];
+            index += SLICES;
+        }
+        while (index < end) {
+            value = (value >>> 8) ^ TABLE[(value ^ bytes[index]) & 0xFF];
+            index++;
+        }
+        crc = value;
+    }
+
+    /**
+     * @param bytes array to checksum
+     * @throws IllegalArgumentException if the array is null
+     */
+    public void update(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Update the checksum with the remaining content of a buffer, advancing the buffer's position
+     * to its limit.
+     * @param buffer the buffer
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public void update(final ByteBuffer buffer) throws IllegalArgumentException {
+        int value;
+
+        Util.ensureNotNull(buffer, this, "buffer", ByteBuffer.class);
+        if ((intrinsic != null) && (UPDATE_BUFFER != null)) {
+            try {
+                UPDATE_BUFFER.invokeExact(intrinsic, buffer);
+                return;
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (intrinsic != null) {
+            while (buffer.hasRemaining()) {
+                intrinsic.update(buffer.get());
+            }
+            return;
+        }
+        value = crc;
+        while (buffer.hasRemaining()) {
+            value = (value >>> 8) ^ TABLE[(value ^ buffer.get()) & 0xFF];
+        }
+        crc = value;
+    }
+
+    /**
+     * @return the checksum of the bytes supplied so far, in the low 32 bits
+     */
+    @Override
+    public long getValue() {
+        return (intrinsic != null)?intrinsic.getValue():(~crc & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void reset() {
+        if (intrinsic != null) {
+            intrinsic.reset();
+        } else {
+            crc = ~0;
+        }
+    }
+
+    public Crc32c() {
+        Checksum created;
+        created = null;
+        if (NEW_INTRINSIC != null) {
+            try {
+                created = (Checksum) NEW_INTRINSIC.invokeExact();
+            } catch (Throwable thrown) {
+                throw rethrow(thrown);
+            }
+        }
+        this.intrinsic = created;
+        this.crc = ~0;
+    }
+
+    static {
+        NEW_INTRINSIC = intrinsicConstructor();
+        UPDATE_BUFFER = (NEW_INTRINSIC == null)?null:updateBufferHandle();
+        TABLE = (NEW_INTRINSIC == null)?buildTable():null;
+    }
+}
@@ -19,13 +19,33 @@ import java.util.EnumSet;
 
 /**
  * Defines the points in program flow when a defensive copy must be made on a mutable field.
+ * <br><br>
+ * {@link #SLICE} copies on set, like {@link #ALWAYS}, so that the framework object holds a private
+ * array; but rather than copying again on every get, the framework object exposes that array as a
+ * read-only {@link ByteSlice} (see {@link BytesUtil#getInternalByteSlice(byte[],
+ * DefensiveCopyStrategy)}), which is only copied if the caller asks for a mutable array. Gets
+ * which must return a <code>byte[]</code> still copy.
+ * <br><br>
+ * {@link #COPY_ON_WRITE} shares a single array between the client and the framework object on
+ * both set and get, never copying eagerly; a copy is only made when either side modifies the
+ * content. With reference-counted {@link SharedBytes} handles (see
+ * {@link BytesUtil#setInternalSharedBytes(SharedBytes, DefensiveCopyStrategy)} and
+ * {@link BytesUtil#getInternalSharedBytes(SharedBytes, DefensiveCopyStrategy)}), the handles
+ * enforce this, copying only when the array is modified while shared. Bare arrays passed through
+ * {@link BytesUtil#setInternalByteArray(byte[], DefensiveCopyStrategy)} and
+ * {@link BytesUtil#getInternalByteArray(byte[], DefensiveCopyStrategy)} are shared by reference
+ * and are frozen: neither side may modify the shared array in place; the framework object
+ * obtains an array it may modify via
+ * {@link BytesUtil#writableInternalByteArray(byte[], DefensiveCopyStrategy)}, and a client copies
+ * before modifying. Off-heap regions are shared as read-only views, which enforce the same.
  * @author Branden Smith; Liaison Technologies, Inc.
  */
 public enum DefensiveCopyStrategy {
-    NEVER, GET, SET, ALWAYS;
+    NEVER, GET, SET, ALWAYS, SLICE, COPY_ON_WRITE;
     
     public static final DefensiveCopyStrategy DEFAULT = ALWAYS;
     
-    public static final EnumSet<DefensiveCopyStrategy> COPY_ON_GET = EnumSet.of(GET, ALWAYS);
-    public static final EnumSet<DefensiveCopyStrategy> COPY_ON_SET = EnumSet.of(SET, ALWAYS);
+    public static final EnumSet<DefensiveCopyStrategy> COPY_ON_GET = EnumSet.of(GET, ALWAYS, SLICE);
+    public static final EnumSet<DefensiveCopyStrategy> COPY_ON_SET = EnumSet.of(SET, ALWAYS, SLICE);
+    public static final EnumSet<DefensiveCopyStrategy> COPY_ON_SLICE_GET = EnumSet.of(GET, ALWAYS);
 }
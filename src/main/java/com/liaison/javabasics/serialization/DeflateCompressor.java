@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link Compressor} producing raw DEFLATE blocks (without the zlib header and checksum, as the
+ * enclosing frame records the lengths), for the best compression ratio at moderate speed.
+ * <br><br>
+ * Each {@link Deflater} and {@link Inflater} holds native state which is costly to initialize and
+ * is only released when it is ended (or finalized), so instances are pooled and reused: up to
+ * <code>poolSize</code> idle instances of each are retained between calls, and any beyond that
+ * are ended upon release. Instances are thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class DeflateCompressor implements Compressor {
+
+    public static final int ID = 1;
+    public static final int DEFAULT_POOL_SIZE = 16;
+
+    /**
+     * Codec using the default compression level, registered in {@link CompressorRegistry#DEFAULT}.
+     */
+    public static final DeflateCompressor DEFAULT =
+        new DeflateCompressor(Deflater.DEFAULT_COMPRESSION, DEFAULT_POOL_SIZE);
+
+    /**
+     * A match of at most 258 bytes costs at least 2 bits (one each for its length and distance
+     * codes), so no block decompresses to more than this many times its compressed length.
+     */
+    private static final int MAX_EXPANSION = 1032;
+
+    private final int level;
+    private final BlockingQueue<Deflater> deflaters;
+    private final BlockingQueue<Inflater> inflaters;
+
+    /**
+     * @return an idle deflater from the pool, or a new one if none is idle
+     */
+    private Deflater borrowDeflater() {
+        final Deflater deflater;
+        deflater = deflaters.poll();
+        return (deflater == null)?new Deflater(level, true):deflater;
+    }
+
+    /**
+     * @return an idle inflater from the pool, or a new one if none is idle
+     */
+    private Inflater borrowInflater() {
+        final Inflater inflater;
+        inflater = inflaters.poll();
+        return (inflater == null)?new Inflater(true):inflater;
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    /**
+     * @return the compression level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public int maxCompressedLength(final int length) throws IllegalArgumentException {
+        final long bound;
+        if (length < 0) {
+            throw new IllegalArgumentException("Length may not be negative: " + length);
+        }
+        // zlib's deflateBound(), less the 6 bytes of zlib header and trailer
+        bound = (long) length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 7;
+        if (bound > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot compress " + length + " bytes in one block");
+        }
+        return (int) bound;
+    }
+
+    @Override
+    public long maxDecompressedLength(final int compressedLength) {
+        return (long) MAX_EXPANSION * Math.max(compressedLength, 0);
+    }
+
+    @Override
+    public int compress(final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset) throws IndexOutOfBoundsException {
+        final Deflater deflater;
+        int written;
+        int count;
+
+        BytesUtil.checkRegion(src.length, srcOffset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, maxCompressedLength(length));
+        deflater = borrowDeflater();
+        try {
+            deflater.setInput(src, srcOffset, length);
+            deflater.finish();
+            written = 0;
+            while (!deflater.finished()) {
+                count = deflater.deflate(dest, destOffset + written, dest.length - destOffset - written);
+                written += count;
+            }
+            return written;
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    @Override
+    public void decompress(final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset, final int originalLength) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final Inflater inflater;
+        int produced;
+        int count;
+
+        BytesUtil.checkRegion(src.length, srcOffset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, originalLength);
+        inflater = borrowInflater();
+        try {
+            inflater.setInput(src, srcOffset, length);
+            produced = 0;
+            while (produced < originalLength) {
+                count = inflater.inflate(dest, destOffset + produced, originalLength - produced);
+                if ((count == 0)
+                    && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("DEFLATE block ended after " + produced
+                                                       + " of " + originalLength + " bytes");
+                }
+                produced += count;
+            }
+        } catch (DataFormatException exc) {
+            throw new IllegalArgumentException("Corrupt DEFLATE block", exc);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[level=" + level + ", idleDeflaters=" + deflaters.size()
+               + ", idleInflaters=" + inflaters.size() + "]";
+    }
+
+    /**
+     * Create a codec.
+     * @param level compression level, from {@link Deflater#NO_COMPRESSION} to
+     * {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param poolSize maximum number of idle deflaters (and, separately, inflaters) to retain
+     * @throws IllegalArgumentException if the level is invalid, or the pool size is not positive
+     */
+    public DeflateCompressor(final int level, final int poolSize) throws IllegalArgumentException {
+        if (((level < Deflater.NO_COMPRESSION) || (level > Deflater.BEST_COMPRESSION))
+            && (level != Deflater.DEFAULT_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        this.level = level;
+        this.deflaters = new ArrayBlockingQueue<>(poolSize);
+        this.inflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * Create a codec with the default pool size.
+     * @param level compression level
+     * @throws IllegalArgumentException if the level is invalid
+     */
+    public DeflateCompressor(final int level) throws IllegalArgumentException {
+        this(level, DEFAULT_POOL_SIZE);
+    }
+}
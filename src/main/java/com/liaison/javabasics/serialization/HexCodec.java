@@ -0,0 +1,495 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+
+/**
+ * Table-driven hexadecimal (base 16) codec which reads and writes caller-supplied arrays and
+ * buffers, with the same shape of API as {@link Base64Codec}: every operation accepts a region of
+ * its input, encoding may append directly to a {@link StringBuilder}, decoding reads any
+ * {@link CharSequence} in place, and large payloads may be streamed with
+ * {@link #wrap(OutputStream)} and {@link #wrap(InputStream)}.
+ * <br><br>
+ * {@link #LOWER} and {@link #UPPER} differ only in the case of the digits they write; both decode
+ * either case. Instances are immutable and thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class HexCodec {
+
+    public static final HexCodec LOWER;
+    public static final HexCodec UPPER;
+
+    /**
+     * Value of each hex digit byte (or char below 256), or -1 if it is not a hex digit.
+     */
+    private static final byte[] VALUES;
+
+    /**
+     * The two digits encoding each byte value: entry <code>2n</code> is the high digit of byte
+     * <code>n</code>, and entry <code>2n + 1</code> the low digit.
+     */
+    private final byte[] digitPairs;
+    private final boolean upperCase;
+
+    private static byte[] digitPairs(final String digits) {
+        final byte[] pairs;
+        pairs = new byte[512];
+        for (int value = 0; value < 256; value++) {
+            pairs[value << 1] = (byte) digits.charAt(value >>> 4);
+            pairs[(value << 1) + 1] = (byte) digits.charAt(value & 0x0F);
+        }
+        return pairs;
+    }
+
+    /**
+     * @return whether this codec writes upper-case digits
+     */
+    public boolean isUpperCase() {
+        return upperCase;
+    }
+
+    /**
+     * @param length number of bytes to encode
+     * @return the number of characters of the encoding of that many bytes
+     * @throws IllegalArgumentException if the length is negative, or the encoding would exceed
+     * {@link BytesUtil#BYTE_CONCAT_MAX_LENGTH}
+     */
+    public int encodedLength(final int length) throws IllegalArgumentException {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length may not be negative: " + length);
+        }
+        if (length * 2L > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Hex encoding of " + length
+                                               + " bytes exceeds the capacity of an array");
+        }
+        return length * 2;
+    }
+
+    /**
+     * Encode bytes, without bounds checks.
+     * @return the index in the destination immediately following the characters written
+     */
+    int encodeUnchecked(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset) {
+        int at;
+        int pair;
+
+        at = destOffset;
+        for (int index = offset; index < offset + length; index++) {
+            pair = (src[index] & 0xFF) << 1;
+            dest[at] = digitPairs[pair];
+            dest[at + 1] = digitPairs[pair + 1];
+            at += 2;
+        }
+        return at;
+    }
+
+    /**
+     * Encode a region of an array into an existing array. The encoding is ASCII, so each character
+     * occupies one byte.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the characters written
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public int encode(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, encodedLength(length));
+        return encodeUnchecked(src, offset, length, dest, destOffset);
+    }
+
+    /**
+     * Encode a region of an array into a new array of ASCII characters.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the source is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public byte[] encode(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] encoded;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        encoded = new byte[encodedLength(length)];
+        encodeUnchecked(src, offset, length, encoded, 0);
+        return encoded;
+    }
+
+    /**
+     * Encode a region of an array into an array acquired from the given pool, rather than a new
+     * one. The encoding occupies the first {@link ByteWriter#position()} bytes of the writer's
+     * {@link ByteWriter#array()}; call {@link ByteWriter#release()} to return the array to the
+     * pool once done.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @param pool the pool from which to acquire the output array
+     * @return a pooled writer holding the encoding
+     * @throws IllegalArgumentException if the source or pool is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public ByteWriter encode(final byte[] src, final int offset, final int length, final BufferPool pool) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final ByteWriter out;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(pool, this, "pool", BufferPool.class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        out = BytesUtil.pooledOutput(pool, encodedLength(length));
+        encodeUnchecked(src, offset, length, out.array(), 0);
+        return out;
+    }
+
+    /**
+     * Encode a region of an array directly into a string, with no intermediate copy beyond the one
+     * the string itself requires.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the source is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    @SuppressWarnings("deprecation")
+    public String encodeToString(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] encoded;
+        encoded = encode(src, offset, length);
+        // the encoding is ASCII, so the "hibyte" constructor copies it without decoding
+        return new String(encoded, 0, 0, encoded.length);
+    }
+
+    /**
+     * @param src the bytes to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the source is null
+     */
+    public String encodeToString(final byte[] src) throws IllegalArgumentException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        return encodeToString(src, 0, src.length);
+    }
+
+    /**
+     * Encode a region of an array, appending the characters directly to a builder.
+     * @param src the array containing the bytes to encode
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @param dest the builder to which to append
+     * @return the builder
+     * @throws IllegalArgumentException if the source or builder is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public StringBuilder encode(final byte[] src, final int offset, final int length, final StringBuilder dest) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int pair;
+
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(dest, this, "dest", StringBuilder.class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        dest.ensureCapacity(dest.length() + encodedLength(length));
+        for (int index = offset; index < offset + length; index++) {
+            pair = (src[index] & 0xFF) << 1;
+            dest.append((char) digitPairs[pair]).append((char) digitPairs[pair + 1]);
+        }
+        return dest;
+    }
+
+    /**
+     * Encode the remaining content of one buffer into another, advancing the position of the
+     * source to its limit and that of the destination past the characters written.
+     * @param src the buffer containing the bytes to encode
+     * @param dest the buffer into which to write
+     * @return the number of characters written
+     * @throws IllegalArgumentException if either buffer is null
+     * @throws BufferOverflowException if the encoding does not fit in the destination, in which
+     * case neither buffer is modified
+     * @throws ReadOnlyBufferException if the destination is read-only
+     */
+    public int encode(final ByteBuffer src, final ByteBuffer dest) throws IllegalArgumentException, BufferOverflowException, ReadOnlyBufferException {
+        final int encodedLength;
+        int pair;
+
+        Util.ensureNotNull(src, this, "src", ByteBuffer.class);
+        Util.ensureNotNull(dest, this, "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        encodedLength = encodedLength(src.remaining());
+        if (encodedLength > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dest.hasArray()) {
+            encodeUnchecked(src.array(), src.arrayOffset() + src.position(), src.remaining(),
+                            dest.array(), dest.arrayOffset() + dest.position());
+            src.position(src.limit());
+            dest.position(dest.position() + encodedLength);
+            return encodedLength;
+        }
+        while (src.hasRemaining()) {
+            pair = (src.get() & 0xFF) << 1;
+            dest.put(digitPairs[pair]).put(digitPairs[pair + 1]);
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Wrap a stream so that bytes written to the returned stream are hex-encoded as they are
+     * written to the given one. Closing the returned stream also closes the given one.
+     * @param out the stream to which to write the encoding
+     * @return the encoding stream
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public OutputStream wrap(final OutputStream out) throws IllegalArgumentException {
+        Util.ensureNotNull(out, this, "out", OutputStream.class);
+        return new HexOutputStream(out, this);
+    }
+
+    /**
+     * @param length number of hex digits
+     * @return the number of bytes they decode to
+     * @throws IllegalArgumentException if the number of digits is odd
+     */
+    private static int decodedLength(final int length) throws IllegalArgumentException {
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException("Hex input must contain an even number of digits: "
+                                               + length);
+        }
+        return length >>> 1;
+    }
+
+    private static IllegalArgumentException invalidDigit(final int index, final int character) {
+        return new IllegalArgumentException("Invalid hex digit 0x" + Integer.toHexString(character)
+                                            + " at index " + index);
+    }
+
+    /**
+     * Decode pairs of digits held one per byte, without bounds checks.
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if any of the bytes is not a hex digit
+     */
+    static int decodeUnchecked(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset) throws IllegalArgumentException {
+        int at;
+        int high;
+        int low;
+
+        at = destOffset;
+        for (int index = offset; index < offset + length; index += 2) {
+            high = VALUES[src[index] & 0xFF];
+            low = VALUES[src[index + 1] & 0xFF];
+            if ((high | low) < 0) {
+                throw (high < 0)?invalidDigit(index, src[index] & 0xFF)
+                                :invalidDigit(index + 1, src[index + 1] & 0xFF);
+            }
+            dest[at++] = (byte) ((high << 4) | low);
+        }
+        return at;
+    }
+
+    private static int value(final CharSequence src, final int index) throws IllegalArgumentException {
+        final char next;
+        final int value;
+        next = src.charAt(index);
+        value = (next < 256)?VALUES[next]:-1;
+        if (value < 0) {
+            throw invalidDigit(index, next);
+        }
+        return value;
+    }
+
+    /**
+     * Decode a range of a character sequence into an existing array, without copying the
+     * characters.
+     * @param src hex digits
+     * @param start index of the first digit
+     * @param end index following the last digit
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if the sequence or destination is null, or the digits are
+     * not valid hex (including an odd number of digits)
+     * @throws IndexOutOfBoundsException if the range or destination region is out of bounds
+     */
+    public int decode(final CharSequence src, final int start, final int end, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int at;
+
+        Util.ensureNotNull(src, this, "src", CharSequence.class);
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(src.length(), start, end - start);
+        BytesUtil.checkRegion(dest.length, destOffset, decodedLength(end - start));
+        at = destOffset;
+        for (int index = start; index < end; index += 2) {
+            dest[at++] = (byte) ((value(src, index) << 4) | value(src, index + 1));
+        }
+        return at;
+    }
+
+    /**
+     * @param src hex digits
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if the sequence or destination is null, or the digits are
+     * not valid hex
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public int decode(final CharSequence src, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", CharSequence.class);
+        return decode(src, 0, src.length(), dest, destOffset);
+    }
+
+    /**
+     * @param src hex digits
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the sequence is null, or is not valid hex
+     */
+    public byte[] decode(final CharSequence src) throws IllegalArgumentException {
+        final byte[] decoded;
+        Util.ensureNotNull(src, this, "src", CharSequence.class);
+        decoded = new byte[decodedLength(src.length())];
+        decode(src, 0, src.length(), decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Decode a region of an array of ASCII hex digits into an existing array. The regions may be
+     * the same (decoding in place).
+     * @param src the array containing the digits
+     * @param offset index of the first digit
+     * @param length number of digits
+     * @param dest the array into which to write
+     * @param destOffset index in the destination at which to write
+     * @return the index in the destination immediately following the bytes written
+     * @throws IllegalArgumentException if either array is null, or the digits are not valid hex
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public int decode(final byte[] src, final int offset, final int length, final byte[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, decodedLength(length));
+        return decodeUnchecked(src, offset, length, dest, destOffset);
+    }
+
+    /**
+     * @param src the array containing the digits
+     * @param offset index of the first digit
+     * @param length number of digits
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the array is null, or the digits are not valid hex
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public byte[] decode(final byte[] src, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final byte[] decoded;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        decoded = new byte[decodedLength(length)];
+        decodeUnchecked(src, offset, length, decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * Decode the remaining content of one buffer into another, advancing the position of the
+     * source to its limit and that of the destination past the bytes written.
+     * @param src the buffer containing ASCII hex digits
+     * @param dest the buffer into which to write
+     * @return the number of bytes written
+     * @throws IllegalArgumentException if either buffer is null, or the digits are not valid hex;
+     * some of the content may already have been written to the destination
+     * @throws BufferOverflowException if the decoding does not fit in the destination, in which
+     * case neither buffer is modified
+     * @throws ReadOnlyBufferException if the destination is read-only
+     */
+    public int decode(final ByteBuffer src, final ByteBuffer dest) throws IllegalArgumentException, BufferOverflowException, ReadOnlyBufferException {
+        final int decodedLength;
+        int high;
+        int low;
+
+        Util.ensureNotNull(src, this, "src", ByteBuffer.class);
+        Util.ensureNotNull(dest, this, "dest", ByteBuffer.class);
+        if (dest.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        decodedLength = decodedLength(src.remaining());
+        if (decodedLength > dest.remaining()) {
+            throw new BufferOverflowException();
+        }
+        if (src.hasArray() && dest.hasArray()) {
+            decodeUnchecked(src.array(), src.arrayOffset() + src.position(), src.remaining(),
+                            dest.array(), dest.arrayOffset() + dest.position());
+            src.position(src.limit());
+            dest.position(dest.position() + decodedLength);
+            return decodedLength;
+        }
+        while (src.hasRemaining()) {
+            high = VALUES[src.get(src.position()) & 0xFF];
+            low = VALUES[src.get(src.position() + 1) & 0xFF];
+            if ((high | low) < 0) {
+                throw new IllegalArgumentException("Invalid hex digit at buffer position "
+                                                   + src.position());
+            }
+            src.position(src.position() + 2);
+            dest.put((byte) ((high << 4) | low));
+        }
+        return decodedLength;
+    }
+
+    /**
+     * Wrap a stream of hex digits, so that reading from the returned stream yields the decoded
+     * bytes. Closing the returned stream also closes the given one.
+     * @param in the stream from which to read the digits
+     * @return the decoding stream, which throws {@link IllegalArgumentException} upon reading
+     * anything other than an even number of hex digits
+     * @throws IllegalArgumentException if the stream is null
+     */
+    public InputStream wrap(final InputStream in) throws IllegalArgumentException {
+        Util.ensureNotNull(in, this, "in", InputStream.class);
+        return new HexInputStream(in);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[upperCase=" + upperCase + ']';
+    }
+
+    private HexCodec(final String digits, final boolean upperCase) {
+        this.digitPairs = digitPairs(digits);
+        this.upperCase = upperCase;
+    }
+
+    static {
+        VALUES = new byte[256];
+        Arrays.fill(VALUES, (byte) -1);
+        for (int value = 0; value < 10; value++) {
+            VALUES['0' + value] = (byte) value;
+        }
+        for (int value = 0; value < 6; value++) {
+            VALUES['a' + value] = (byte) (10 + value);
+            VALUES['A' + value] = (byte) (10 + value);
+        }
+        LOWER = new HexCodec("0123456789abcdef", false);
+        UPPER = new HexCodec("0123456789ABCDEF", true);
+    }
+}
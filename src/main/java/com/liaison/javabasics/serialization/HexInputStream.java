@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream which reads hex digits from the underlying stream, and returns the bytes they encode;
+ * backs {@link HexCodec#wrap(InputStream)}. Digits are read in chunks into a single reused buffer,
+ * and a digit left over at the end of a read is carried into the next.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class HexInputStream extends InputStream {
+
+    private static final int CHUNK_BYTES = 4096;
+
+    private final InputStream in;
+    private final byte[] digits;
+    private final byte[] single;
+    /**
+     * The digit left over from the previous read, if any, or -1.
+     */
+    private int pending;
+    private boolean closed;
+
+    @Override
+    public int read() throws IOException {
+        return (read(single, 0, 1) < 0)?-1:(single[0] & 0xFF);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the underlying stream contains anything other than an
+     * even number of hex digits
+     */
+    @Override
+    public int read(final byte[] dest, final int offset, final int length) throws IOException, IllegalArgumentException {
+        final int wanted;
+        int count;
+        int start;
+
+        if (closed) {
+            throw new IOException(getClass().getSimpleName() + " already closed");
+        }
+        BytesUtil.checkRegion(dest.length, offset, length);
+        if (length == 0) {
+            return 0;
+        }
+        wanted = Math.min(length, CHUNK_BYTES) * 2;
+        do {
+            start = 0;
+            if (pending >= 0) {
+                digits[0] = (byte) pending;
+                pending = -1;
+                start = 1;
+            }
+            count = in.read(digits, start, wanted - start);
+            if (count < 0) {
+                if (start > 0) {
+                    throw new IllegalArgumentException("Hex stream ended with an odd number of digits");
+                }
+                return -1;
+            }
+            count += start;
+            if ((count & 1) != 0) {
+                pending = digits[--count] & 0xFF;
+            }
+        } while (count == 0);
+        HexCodec.decodeUnchecked(digits, 0, count, dest, offset);
+        return count / 2;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            in.close();
+        }
+    }
+
+    /**
+     * @param in the stream from which to read digits
+     */
+    HexInputStream(final InputStream in) {
+        this.in = in;
+        this.digits = new byte[CHUNK_BYTES * 2];
+        this.single = new byte[1];
+        this.pending = -1;
+    }
+}
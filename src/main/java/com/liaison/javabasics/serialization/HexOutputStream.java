@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream which hex-encodes what is written to it, and writes the digits to the underlying stream;
+ * backs {@link HexCodec#wrap(OutputStream)}. Large writes are encoded in chunks through a single
+ * reused buffer.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class HexOutputStream extends OutputStream {
+
+    private static final int CHUNK_BYTES = 4096;
+
+    private final OutputStream out;
+    private final HexCodec codec;
+    private final byte[] digits;
+    private boolean closed;
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(getClass().getSimpleName() + " already closed");
+        }
+    }
+
+    @Override
+    public void write(final int value) throws IOException {
+        ensureOpen();
+        digits[0] = (byte) value;
+        codec.encodeUnchecked(digits, 0, 1, digits, 0);
+        out.write(digits, 0, 2);
+    }
+
+    @Override
+    public void write(final byte[] src, final int offset, final int length) throws IOException {
+        int written;
+        int step;
+
+        ensureOpen();
+        BytesUtil.checkRegion(src.length, offset, length);
+        written = 0;
+        while (written < length) {
+            step = Math.min(length - written, CHUNK_BYTES);
+            codec.encodeUnchecked(src, offset + written, step, digits, 0);
+            out.write(digits, 0, step * 2);
+            written += step;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /**
+     * @param out the stream to which to write digits
+     * @param codec the codec with which to encode
+     */
+    HexOutputStream(final OutputStream out, final HexCodec codec) {
+        this.out = out;
+        this.codec = codec;
+        this.digits = new byte[CHUNK_BYTES * 2];
+    }
+}
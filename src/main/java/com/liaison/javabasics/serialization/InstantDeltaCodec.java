@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.time.Instant;
+
+/**
+ * Delta-of-delta codec for sequences of instants, such as the timestamps of a batch of time-series
+ * samples. Each instant is converted to a count of units (e.g. milliseconds) since the epoch;
+ * the first count is written in full, the second as its difference from the first, and each
+ * subsequent count as the change in that difference. All three are written as zigzag-encoded
+ * variable-length longs (see {@link BytesUtil#putVarLong(byte[], int, long)}), so a regularly
+ * spaced sequence costs about one byte per instant, and jitter of a few units costs little more.
+ * The sequence need not be monotone, but the more regular it is, the smaller the encoding.
+ * <br><br>
+ * The encoding begins with the number of instants, as a variable-length int, so that it is
+ * self-delimiting. Instants are truncated (toward the past) to the codec's unit; use
+ * {@link #NANOS} to preserve full precision, within the range of about &plusmn;292 years of the
+ * epoch which a long count of nanoseconds can represent.
+ * <br><br>
+ * Instances are immutable and thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class InstantDeltaCodec {
+
+    public static final InstantDeltaCodec SECONDS = new InstantDeltaCodec(1L);
+    public static final InstantDeltaCodec MILLIS = new InstantDeltaCodec(InstantEncoding.MILLIS_PER_SECOND);
+    public static final InstantDeltaCodec MICROS = new InstantDeltaCodec(InstantEncoding.MICROS_PER_SECOND);
+    public static final InstantDeltaCodec NANOS = new InstantDeltaCodec(InstantEncoding.NANOS_PER_SECOND);
+
+    private final long unitsPerSecond;
+
+    /**
+     * @param count number of instants
+     * @return the maximum number of bytes {@link #encode(Instant[], int, int, byte[], int)} may
+     * write for that many instants
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public int maxEncodedLength(final int count) throws IllegalArgumentException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count may not be negative: " + count);
+        }
+        return Math.addExact(Constants.VARINT_MAX_BYTES,
+                             Math.multiplyExact(count, Constants.VARLONG_MAX_BYTES));
+    }
+
+    /**
+     * Convert an instant to a count of this codec's units since the epoch, truncating toward the
+     * past.
+     * @param time the instant
+     * @return the count of units
+     * @throws IllegalArgumentException if the instant is null, or the count does not fit in a long
+     */
+    public long toUnits(final Instant time) throws IllegalArgumentException {
+        Util.ensureNotNull(time, this, "time", Instant.class);
+        return InstantEncoding.toEpochUnits(time, unitsPerSecond);
+    }
+
+    /**
+     * @param units a count of this codec's units since the epoch
+     * @return the corresponding instant
+     */
+    public Instant fromUnits(final long units) {
+        return InstantEncoding.fromEpochUnits(units, unitsPerSecond);
+    }
+
+    private void encode(final Instant[] values, final int valuesOffset, final int count, final ByteWriter writer) throws IllegalArgumentException, IndexOutOfBoundsException {
+        long previous;
+        long previousDelta;
+        long current;
+        long delta;
+
+        writer.writeVarInt(count);
+        previous = 0;
+        previousDelta = 0;
+        for (int index = valuesOffset; index < valuesOffset + count; index++) {
+            current = toUnits(values[index]);
+            // differences wrap around on overflow; decoding wraps the same way, so is still exact
+            delta = current - previous;
+            writer.writeZigZagLong(delta - previousDelta);
+            previous = current;
+            previousDelta = (index == valuesOffset)?0:delta;
+        }
+    }
+
+    /**
+     * Encode a run of instants directly into an existing array.
+     * @param values the instants to encode
+     * @param valuesOffset index of the first instant to encode
+     * @param count number of instants to encode
+     * @param dest the array into which to write; {@link #maxEncodedLength(int)} bytes always
+     * suffice
+     * @param offset index in the destination at which to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if either array, or any of the instants, is null, or an
+     * instant is outside the range of this codec
+     * @throws IndexOutOfBoundsException if the values region is out of bounds, or the destination
+     * is too small
+     */
+    public int encode(final Instant[] values, final int valuesOffset, final int count, final byte[] dest, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final ByteWriter writer;
+        Util.ensureNotNull(values, this, "values", Instant[].class);
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(values.length, valuesOffset, count);
+        BytesUtil.checkRegion(dest.length, offset, 0);
+        writer = new ByteWriter(dest, offset, dest.length - offset);
+        encode(values, valuesOffset, count, writer);
+        return offset + writer.position();
+    }
+
+    /**
+     * Encode a run of instants into a new array of exactly the encoded length.
+     * @param values the instants to encode
+     * @param valuesOffset index of the first instant to encode
+     * @param count number of instants to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the array, or any of the instants, is null, or an
+     * instant is outside the range of this codec
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public byte[] encode(final Instant[] values, final int valuesOffset, final int count) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final ByteWriter writer;
+        Util.ensureNotNull(values, this, "values", Instant[].class);
+        BytesUtil.checkRegion(values.length, valuesOffset, count);
+        // regular sequences need about one byte per instant; the writer grows if that is short
+        writer = new ByteWriter(Constants.VARINT_MAX_BYTES + (Constants.VARLONG_MAX_BYTES * 2) + count);
+        encode(values, valuesOffset, count, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param values the instants to encode
+     * @return the encoding
+     * @throws IllegalArgumentException if the array, or any of the instants, is null, or an
+     * instant is outside the range of this codec
+     */
+    public byte[] encode(final Instant[] values) throws IllegalArgumentException {
+        Util.ensureNotNull(values, this, "values", Instant[].class);
+        return encode(values, 0, values.length);
+    }
+
+    /**
+     * @param src the array containing an encoding
+     * @param offset index of the first byte of the encoding
+     * @return the number of instants in the encoding
+     * @throws IllegalArgumentException if the source is null, or the count is malformed
+     * @throws IndexOutOfBoundsException if the offset is out of bounds, or the count is truncated
+     */
+    public int decodedCount(final byte[] src, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int count;
+        count = BytesUtil.toVarInt(src, offset);
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid instant count: " + count);
+        }
+        return count;
+    }
+
+    private void decode(final ByteReader reader, final Instant[] dest, final int destOffset, final int count) throws IllegalArgumentException, IndexOutOfBoundsException {
+        long current;
+        long delta;
+
+        current = 0;
+        delta = 0;
+        for (int index = destOffset; index < destOffset + count; index++) {
+            delta += reader.readZigZagLong();
+            current += delta;
+            dest[index] = fromUnits(current);
+            if (index == destOffset) {
+                // the first value is written in full, and is not a difference
+                delta = 0;
+            }
+        }
+    }
+
+    /**
+     * Decode the instants encoded at the given offset into an existing array.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @param dest the array into which to decode; must have room for
+     * {@link #decodedCount(byte[], int)} instants at the destination offset
+     * @param destOffset index in the destination of the first decoded instant
+     * @return the offset in the source immediately following the encoding
+     * @throws IllegalArgumentException if either array is null, or the encoding is malformed
+     * @throws IndexOutOfBoundsException if the encoding is truncated, or the destination is too
+     * small
+     */
+    public int decode(final byte[] src, final int offset, final Instant[] dest, final int destOffset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final ByteReader reader;
+        final int count;
+
+        Util.ensureNotNull(dest, this, "dest", Instant[].class);
+        count = decodedCount(src, offset);
+        BytesUtil.checkRegion(dest.length, destOffset, count);
+        reader = new ByteReader(src, offset, src.length - offset);
+        reader.readVarInt();
+        decode(reader, dest, destOffset, count);
+        return offset + reader.position();
+    }
+
+    /**
+     * Decode the instants encoded at the given offset into a new array.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @return the decoded instants
+     * @throws IllegalArgumentException if the source is null, or the encoding is malformed
+     * @throws IndexOutOfBoundsException if the encoding is truncated
+     */
+    public Instant[] decode(final byte[] src, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final Instant[] decoded;
+        final int count;
+
+        count = decodedCount(src, offset);
+        // each instant occupies at least one byte, so a count beyond the remaining bytes is corrupt
+        if (count > src.length - offset) {
+            throw new IllegalArgumentException("Instant count " + count + " exceeds the "
+                                               + (src.length - offset) + " bytes of the encoding");
+        }
+        decoded = new Instant[count];
+        decode(src, offset, decoded, 0);
+        return decoded;
+    }
+
+    /**
+     * @param src the encoding
+     * @return the decoded instants
+     * @throws IllegalArgumentException if the source is null, or the encoding is malformed
+     * @throws IndexOutOfBoundsException if the encoding is truncated
+     */
+    public Instant[] decode(final byte[] src) throws IllegalArgumentException, IndexOutOfBoundsException {
+        return decode(src, 0);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[unitsPerSecond=" + unitsPerSecond + ']';
+    }
+
+    private InstantDeltaCodec(final long unitsPerSecond) {
+        this.unitsPerSecond = unitsPerSecond;
+    }
+}
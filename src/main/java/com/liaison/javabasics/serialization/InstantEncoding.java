@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.time.Instant;
+
+/**
+ * Fixed-length binary encodings of {@link Instant}, trading range and precision against size and
+ * sort behavior:
+ * <ul>
+ *     <li>{@link #STANDARD}: the {@link Constants#INSTANT_BYTES}-byte form of
+ *         {@link BytesUtil#toBytes(Instant)}; full range and precision, but negative (pre-epoch)
+ *         instants sort after positive ones when compared as unsigned bytes</li>
+ *     <li>{@link #SORTABLE} / {@link #SORTABLE_DESCENDING}: the
+ *         {@link Constants#INSTANT_BYTES}-byte forms of
+ *         {@link OrderedBytes#putInstant(byte[], int, Instant, SortOrder)}; full range and
+ *         precision, and unsigned byte order matches chronological order (or its reverse, e.g. for
+ *         newest-first row keys) for all instants</li>
+ *     <li>{@link #EPOCH_MICROS} / {@link #EPOCH_NANOS}: 8-byte big-endian signed count of
+ *         microseconds or nanoseconds since the epoch (the same bytes as
+ *         {@link BytesUtil#toBytes(long)} of the count); compact and widely interoperable, but
+ *         limited in range (about &plusmn;292,000 years and &plusmn;292 years, respectively), and
+ *         sub-unit precision is truncated (toward the past)</li>
+ * </ul>
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public enum InstantEncoding {
+    STANDARD(Constants.INSTANT_BYTES) {
+        @Override
+        void write(final byte[] dest, final int offset, final Instant time) {
+            ByteArrayAccess.putLong(dest, offset, time.getEpochSecond());
+            ByteArrayAccess.putInt(dest, offset + Long.BYTES, time.getNano());
+        }
+
+        @Override
+        Instant read(final byte[] src, final int offset) {
+            return Instant.ofEpochSecond(ByteArrayAccess.getLong(src, offset),
+                                         ByteArrayAccess.getInt(src, offset + Long.BYTES));
+        }
+    },
+    SORTABLE(Constants.INSTANT_BYTES) {
+        @Override
+        void write(final byte[] dest, final int offset, final Instant time) {
+            OrderedBytes.putInstant(dest, offset, time, SortOrder.ASCENDING);
+        }
+
+        @Override
+        Instant read(final byte[] src, final int offset) {
+            return OrderedBytes.getInstant(src, offset, SortOrder.ASCENDING);
+        }
+    },
+    SORTABLE_DESCENDING(Constants.INSTANT_BYTES) {
+        @Override
+        void write(final byte[] dest, final int offset, final Instant time) {
+            OrderedBytes.putInstant(dest, offset, time, SortOrder.DESCENDING);
+        }
+
+        @Override
+        Instant read(final byte[] src, final int offset) {
+            return OrderedBytes.getInstant(src, offset, SortOrder.DESCENDING);
+        }
+    },
+    EPOCH_MICROS(Long.BYTES) {
+        @Override
+        void write(final byte[] dest, final int offset, final Instant time) {
+            ByteArrayAccess.putLong(dest, offset, toEpochUnits(time, MICROS_PER_SECOND));
+        }
+
+        @Override
+        Instant read(final byte[] src, final int offset) {
+            return fromEpochUnits(ByteArrayAccess.getLong(src, offset), MICROS_PER_SECOND);
+        }
+    },
+    EPOCH_NANOS(Long.BYTES) {
+        @Override
+        void write(final byte[] dest, final int offset, final Instant time) {
+            ByteArrayAccess.putLong(dest, offset, toEpochUnits(time, NANOS_PER_SECOND));
+        }
+
+        @Override
+        Instant read(final byte[] src, final int offset) {
+            return fromEpochUnits(ByteArrayAccess.getLong(src, offset), NANOS_PER_SECOND);
+        }
+    };
+
+    static final long NANOS_PER_SECOND = 1_000_000_000L;
+    static final long MICROS_PER_SECOND = 1_000_000L;
+    static final long MILLIS_PER_SECOND = 1_000L;
+
+    private final int length;
+
+    /**
+     * Convert an instant to a count of units since the epoch, truncating toward the past.
+     * @param time the instant
+     * @param unitsPerSecond number of units per second; a divisor of 10^9
+     * @return the count of units
+     * @throws IllegalArgumentException if the count does not fit in a long
+     */
+    static long toEpochUnits(final Instant time, final long unitsPerSecond) throws IllegalArgumentException {
+        final long seconds;
+        final long units;
+        seconds = time.getEpochSecond();
+        units = time.getNano() / (NANOS_PER_SECOND / unitsPerSecond);
+        try {
+            if (seconds < 0) {
+                // borrow a second first, so that the earliest representable count does not overflow
+                return Math.addExact(Math.multiplyExact(seconds + 1, unitsPerSecond), units - unitsPerSecond);
+            }
+            return Math.addExact(Math.multiplyExact(seconds, unitsPerSecond), units);
+        } catch (ArithmeticException exc) {
+            throw new IllegalArgumentException("Instant " + time + " is outside the range of "
+                                               + unitsPerSecond + " units per second since the "
+                                               + "epoch representable in a long", exc);
+        }
+    }
+
+    /**
+     * Inverse of {@link #toEpochUnits(Instant, long)}.
+     */
+    static Instant fromEpochUnits(final long units, final long unitsPerSecond) {
+        return Instant.ofEpochSecond(Math.floorDiv(units, unitsPerSecond),
+                                     Math.floorMod(units, unitsPerSecond) * (NANOS_PER_SECOND / unitsPerSecond));
+    }
+
+    /**
+     * Encode an instant, without bounds or null checks.
+     */
+    abstract void write(byte[] dest, int offset, Instant time);
+
+    /**
+     * Decode an instant, without bounds or null checks.
+     */
+    abstract Instant read(byte[] src, int offset);
+
+    /**
+     * @return the number of bytes occupied by each encoded instant
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Write the encoding of an instant directly into an existing array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param time the instant to write
+     * @return the offset immediately following the bytes written
+     * @throws IllegalArgumentException if the destination or instant is null, or the instant is
+     * outside the range of this encoding
+     * @throws IndexOutOfBoundsException if fewer than {@link #length()} bytes are available at the
+     * offset
+     */
+    public int put(final byte[] dest, final int offset, final Instant time) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        Util.ensureNotNull(time, this, "time", Instant.class);
+        BytesUtil.checkRegion(dest.length, offset, length);
+        write(dest, offset, time);
+        return offset + length;
+    }
+
+    /**
+     * Decode the instant encoded at the given offset.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @return the decoded instant
+     * @throws IllegalArgumentException if the source is null
+     * @throws IndexOutOfBoundsException if fewer than {@link #length()} bytes are available at the
+     * offset
+     * @throws java.time.DateTimeException if the encoded instant is outside the supported range
+     */
+    public Instant get(final byte[] src, final int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, offset, length);
+        return read(src, offset);
+    }
+
+    /**
+     * @param time the instant to encode
+     * @return a new array containing the encoding, or null if the instant is null
+     * @throws IllegalArgumentException if the instant is outside the range of this encoding
+     */
+    public byte[] toBytes(final Instant time) throws IllegalArgumentException {
+        final byte[] bytes;
+        if (time == null) {
+            return null;
+        }
+        bytes = new byte[length];
+        write(bytes, 0, time);
+        return bytes;
+    }
+
+    private InstantEncoding(final int length) {
+        this.length = length;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Uninstantiable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Package-internal kernels behind {@link BytesUtil#zipBytes(byte[], byte[])} and
+ * {@link BytesUtil#unzipBytes(byte[], int)}, which interleave (and de-interleave) runs of byte
+ * pairs a word at a time, without branches: four bytes of each input are read as ints, spread
+ * apart so that each byte is followed by an empty byte, and merged into one 8-byte word, which is
+ * written in a single store. De-interleaving reverses the process with the inverse masks. Runs of
+ * at least {@link BytesUtil#ZIP_PARALLEL_THRESHOLD} pairs are split across the common
+ * {@link ForkJoinPool}.
+ * <br><br>
+ * No bounds checking is performed; callers are expected to have validated every region, and to
+ * ensure that the destination does not overlap either source.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class Interleaver extends Uninstantiable {
+
+    /**
+     * Number of pairs handled by each leaf task of a parallel run.
+     */
+    private static final int PARALLEL_LEAF_PAIRS = 1 << 18;
+
+    private static final long SPREAD_16 = 0x0000FFFF0000FFFFL;
+    private static final long SPREAD_8 = 0x00FF00FF00FF00FFL;
+    private static final long LOW_32 = 0x00000000FFFFFFFFL;
+
+    /**
+     * Interleaves or de-interleaves a range of pairs, splitting it in half until each half is no
+     * larger than {@link #PARALLEL_LEAF_PAIRS}.
+     */
+    private static final class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean zip;
+        private final byte[] first;
+        private final int firstOffset;
+        private final byte[] second;
+        private final int secondOffset;
+        private final byte[] zipped;
+        private final int zippedOffset;
+        private final int pairs;
+
+        @Override
+        protected void compute() {
+            final int half;
+            if (pairs <= PARALLEL_LEAF_PAIRS) {
+                if (zip) {
+                    zipPairs(first, firstOffset, second, secondOffset, zipped, zippedOffset, pairs);
+                } else {
+                    unzipPairs(zipped, zippedOffset, first, firstOffset, second, secondOffset, pairs);
+                }
+                return;
+            }
+            // keep the split on a word boundary, so that only the last leaf has a partial word
+            half = (pairs >>> 1) & ~3;
+            invokeAll(new PairTask(zip, first, firstOffset, second, secondOffset, zipped, zippedOffset, half),
+                      new PairTask(zip, first, firstOffset + half, second, secondOffset + half,
+                                   zipped, zippedOffset + (half << 1), pairs - half));
+        }
+
+        private PairTask(final boolean zip, final byte[] first, final int firstOffset, final byte[] second, final int secondOffset, final byte[] zipped, final int zippedOffset, final int pairs) {
+            this.zip = zip;
+            this.first = first;
+            this.firstOffset = firstOffset;
+            this.second = second;
+            this.secondOffset = secondOffset;
+            this.zipped = zipped;
+            this.zippedOffset = zippedOffset;
+            this.pairs = pairs;
+        }
+    }
+
+    /**
+     * @param value four bytes, <code>b0 b1 b2 b3</code> (most significant first)
+     * @return the bytes spread into the odd (less significant) byte of each 16-bit lane:
+     * <code>00 b0 00 b1 00 b2 00 b3</code>
+     */
+    private static long spread(final int value) {
+        long spread;
+        spread = value & LOW_32;
+        spread = (spread | (spread << 16)) & SPREAD_16;
+        return (spread | (spread << 8)) & SPREAD_8;
+    }
+
+    /**
+     * Inverse of {@link #spread(int)}, ignoring the even (more significant) byte of each lane.
+     */
+    private static int compact(final long value) {
+        long compact;
+        compact = value & SPREAD_8;
+        compact = (compact | (compact >>> 8)) & SPREAD_16;
+        return (int) (compact | (compact >>> 16));
+    }
+
+    private static void zipPairs(final byte[] first, final int firstOffset, final byte[] second, final int secondOffset, final byte[] dest, final int destOffset, final int pairs) {
+        int pair;
+        pair = 0;
+        while (pair + Integer.BYTES <= pairs) {
+            ByteArrayAccess.putLong(dest,
+                                    destOffset + (pair << 1),
+                                    (spread(ByteArrayAccess.getInt(first, firstOffset + pair)) << 8)
+                                    | spread(ByteArrayAccess.getInt(second, secondOffset + pair)));
+            pair += Integer.BYTES;
+        }
+        while (pair < pairs) {
+            dest[destOffset + (pair << 1)] = first[firstOffset + pair];
+            dest[destOffset + (pair << 1) + 1] = second[secondOffset + pair];
+            pair++;
+        }
+    }
+
+    private static void unzipPairs(final byte[] src, final int offset, final byte[] first, final int firstOffset, final byte[] second, final int secondOffset, final int pairs) {
+        long word;
+        int pair;
+
+        pair = 0;
+        while (pair + Integer.BYTES <= pairs) {
+            word = ByteArrayAccess.getLong(src, offset + (pair << 1));
+            ByteArrayAccess.putInt(first, firstOffset + pair, compact(word >>> 8));
+            ByteArrayAccess.putInt(second, secondOffset + pair, compact(word));
+            pair += Integer.BYTES;
+        }
+        while (pair < pairs) {
+            first[firstOffset + pair] = src[offset + (pair << 1)];
+            second[secondOffset + pair] = src[offset + (pair << 1) + 1];
+            pair++;
+        }
+    }
+
+    /**
+     * Alternate the bytes of two regions, beginning with the first, for as long as both have bytes
+     * remaining; then append the remainder of the longer region.
+     * @return the index in the destination immediately following the bytes written
+     */
+    static int zip(final byte[] first, final int firstOffset, final int firstLength, final byte[] second, final int secondOffset, final int secondLength, final byte[] dest, final int destOffset) {
+        final int pairs;
+        pairs = Math.min(firstLength, secondLength);
+        if (pairs >= BytesUtil.ZIP_PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool()
+                        .invoke(new PairTask(true, first, firstOffset, second, secondOffset, dest, destOffset, pairs));
+        } else {
+            zipPairs(first, firstOffset, second, secondOffset, dest, destOffset, pairs);
+        }
+        if (firstLength > pairs) {
+            System.arraycopy(first, firstOffset + pairs, dest, destOffset + (pairs << 1), firstLength - pairs);
+        } else if (secondLength > pairs) {
+            System.arraycopy(second, secondOffset + pairs, dest, destOffset + (pairs << 1), secondLength - pairs);
+        }
+        return destOffset + firstLength + secondLength;
+    }
+
+    /**
+     * Inverse of {@link #zip(byte[], int, int, byte[], int, int, byte[], int)}.
+     */
+    static void unzip(final byte[] src, final int offset, final byte[] first, final int firstOffset, final int firstLength, final byte[] second, final int secondOffset, final int secondLength) {
+        final int pairs;
+        pairs = Math.min(firstLength, secondLength);
+        if (pairs >= BytesUtil.ZIP_PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool()
+                        .invoke(new PairTask(false, first, firstOffset, second, secondOffset, src, offset, pairs));
+        } else {
+            unzipPairs(src, offset, first, firstOffset, second, secondOffset, pairs);
+        }
+        if (firstLength > pairs) {
+            System.arraycopy(src, offset + (pairs << 1), first, firstOffset + pairs, firstLength - pairs);
+        } else if (secondLength > pairs) {
+            System.arraycopy(src, offset + (pairs << 1), second, secondOffset + pairs, secondLength - pairs);
+        }
+    }
+
+    private Interleaver() { }
+}
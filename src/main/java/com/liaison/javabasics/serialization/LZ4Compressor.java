@@ -0,0 +1,331 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java {@link Compressor} producing blocks in the LZ4 block format, trading compression ratio
+ * for speed: compression is a single greedy pass over the input, matching 4-byte sequences through
+ * a small hash table, and decompression is little more than a sequence of array copies. Suited to
+ * compressing values on latency-sensitive paths, where {@link DeflateCompressor} would be too
+ * slow.
+ * <br><br>
+ * The hash table is held per thread, so compression allocates nothing beyond its output. Every
+ * read during decompression is bounds-checked, so corrupt input results in
+ * {@link IllegalArgumentException} rather than reading or writing outside the given regions.
+ * The single instance is thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class LZ4Compressor implements Compressor {
+
+    public static final int ID = 2;
+
+    /**
+     * Codec instance, registered in {@link CompressorRegistry#DEFAULT}.
+     */
+    public static final LZ4Compressor INSTANCE = new LZ4Compressor();
+
+    private static final int MIN_MATCH = 4;
+    /**
+     * The last match must begin at least this many bytes before the end of the input.
+     */
+    private static final int MF_LIMIT = 12;
+    /**
+     * The last this-many bytes of the input are always emitted as literals.
+     */
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = 0xFFFF;
+    private static final int HASH_LOG = 12;
+    /**
+     * Once this many consecutive positions fail to match, the search begins to skip ahead,
+     * increasingly quickly, through incompressible input.
+     */
+    private static final int SKIP_TRIGGER = 6;
+    private static final int RUN_MASK = 0x0F;
+    private static final int SHORT_COPY = 16;
+    /**
+     * No byte of a block produces more output than a match-length extension byte, which
+     * lengthens a match by up to this many bytes.
+     */
+    private static final int MAX_EXPANSION = 255;
+
+    private static final ThreadLocal<int[]> HASH_TABLE =
+        ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public int maxCompressedLength(final int length) throws IllegalArgumentException {
+        final long bound;
+        if (length < 0) {
+            throw new IllegalArgumentException("Length may not be negative: " + length);
+        }
+        bound = (long) length + (length / 255) + 16;
+        if (bound > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot compress " + length + " bytes in one block");
+        }
+        return (int) bound;
+    }
+
+    private static int hash(final int sequence) {
+        return (sequence * -1640531535) >>> (Integer.SIZE - HASH_LOG);
+    }
+
+    /**
+     * Write a length which did not fit in its 4-bit field of a token, as a run of 255s terminated
+     * by a smaller byte.
+     * @param dest destination array
+     * @param offset index at which to write
+     * @param remainder the length, less the 15 represented in the token
+     * @return the index immediately following the bytes written
+     */
+    private static int putRunLength(final byte[] dest, final int offset, final int remainder) {
+        int at;
+        int left;
+
+        at = offset;
+        left = remainder;
+        while (left >= 0xFF) {
+            dest[at++] = (byte) 0xFF;
+            left -= 0xFF;
+        }
+        dest[at++] = (byte) left;
+        return at;
+    }
+
+    /**
+     * Write a sequence: a token, a run of literals, and (unless this is the final sequence) a
+     * match.
+     * @param src source array
+     * @param literalStart index in the source of the first literal
+     * @param literalLength number of literals
+     * @param dest destination array
+     * @param offset index in the destination at which to write
+     * @param distance distance back to the match; ignored for the final sequence
+     * @param matchLength length of the match, or zero for the final sequence
+     * @return the index immediately following the bytes written
+     */
+    private static int putSequence(final byte[] src, final int literalStart, final int literalLength, final byte[] dest, final int offset, final int distance, final int matchLength) {
+        final int tokenIndex;
+        final int matchCode;
+        int at;
+
+        tokenIndex = offset;
+        at = offset + 1;
+        if (literalLength >= RUN_MASK) {
+            dest[tokenIndex] = (byte) (RUN_MASK << 4);
+            at = putRunLength(dest, at, literalLength - RUN_MASK);
+        } else {
+            dest[tokenIndex] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(src, literalStart, dest, at, literalLength);
+        at += literalLength;
+        if (matchLength > 0) {
+            dest[at++] = (byte) distance;
+            dest[at++] = (byte) (distance >>> 8);
+            matchCode = matchLength - MIN_MATCH;
+            if (matchCode >= RUN_MASK) {
+                dest[tokenIndex] |= RUN_MASK;
+                at = putRunLength(dest, at, matchCode - RUN_MASK);
+            } else {
+                dest[tokenIndex] |= matchCode;
+            }
+        }
+        return at;
+    }
+
+    @Override
+    public long maxDecompressedLength(final int compressedLength) {
+        return (long) MAX_EXPANSION * Math.max(compressedLength, 0);
+    }
+
+    @Override
+    public int compress(final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset) throws IndexOutOfBoundsException {
+        final int[] table;
+        final int srcEnd;
+        final int matchSearchLimit;
+        final int matchExtendLimit;
+        int at;
+        int anchor;
+        int index;
+        int candidate;
+        int sequence;
+        int slot;
+        int matchLength;
+        int misses;
+
+        BytesUtil.checkRegion(src.length, srcOffset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, maxCompressedLength(length));
+        srcEnd = srcOffset + length;
+        at = destOffset;
+        anchor = srcOffset;
+        if (length > MF_LIMIT) {
+            table = HASH_TABLE.get();
+            Arrays.fill(table, -1);
+            matchSearchLimit = srcEnd - MF_LIMIT;
+            matchExtendLimit = srcEnd - LAST_LITERALS;
+            index = srcOffset;
+            misses = 0;
+            while (index < matchSearchLimit) {
+                sequence = ByteArrayAccess.getInt(src, index);
+                slot = hash(sequence);
+                candidate = table[slot];
+                table[slot] = index;
+                if ((candidate < 0)
+                    || (index - candidate > MAX_DISTANCE)
+                    || (ByteArrayAccess.getInt(src, candidate) != sequence)) {
+                    index += 1 + (misses++ >>> SKIP_TRIGGER);
+                    continue;
+                }
+                misses = 0;
+                // extend the match backwards over literals not yet emitted
+                while ((index > anchor) && (candidate > srcOffset) && (src[index - 1] == src[candidate - 1])) {
+                    index--;
+                    candidate--;
+                }
+                matchLength = MIN_MATCH;
+                while ((index + matchLength < matchExtendLimit)
+                       && (src[index + matchLength] == src[candidate + matchLength])) {
+                    matchLength++;
+                }
+                at = putSequence(src, anchor, index - anchor, dest, at, index - candidate, matchLength);
+                index += matchLength;
+                anchor = index;
+                if (index < matchSearchLimit) {
+                    table[hash(ByteArrayAccess.getInt(src, index - 2))] = index - 2;
+                }
+            }
+        }
+        return putSequence(src, anchor, srcEnd - anchor, dest, at, 0, 0) - destOffset;
+    }
+
+    /**
+     * Copy between non-overlapping regions; most literal runs and matches are only a few bytes
+     * long, for which a simple loop is cheaper than {@link System#arraycopy}.
+     * @param src source array
+     * @param srcOffset index of the first byte to copy
+     * @param dest destination array
+     * @param destOffset index at which to begin writing
+     * @param length number of bytes to copy
+     */
+    private static void copy(final byte[] src, final int srcOffset, final byte[] dest, final int destOffset, final int length) {
+        if (length < SHORT_COPY) {
+            for (int index = 0; index < length; index++) {
+                dest[destOffset + index] = src[srcOffset + index];
+            }
+        } else {
+            System.arraycopy(src, srcOffset, dest, destOffset, length);
+        }
+    }
+
+    /**
+     * @param detail description of the corruption
+     * @return exception reporting a corrupt block
+     */
+    private static IllegalArgumentException corrupt(final String detail) {
+        return new IllegalArgumentException("Corrupt LZ4 block: " + detail);
+    }
+
+    @Override
+    public void decompress(final byte[] src, final int srcOffset, final int length, final byte[] dest, final int destOffset, final int originalLength) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int srcEnd;
+        final int destEnd;
+        int in;
+        int out;
+        int token;
+        int literalLength;
+        int matchLength;
+        int distance;
+        int next;
+
+        BytesUtil.checkRegion(src.length, srcOffset, length);
+        BytesUtil.checkRegion(dest.length, destOffset, originalLength);
+        srcEnd = srcOffset + length;
+        destEnd = destOffset + originalLength;
+        in = srcOffset;
+        out = destOffset;
+        while (true) {
+            if (in >= srcEnd) {
+                throw corrupt("truncated sequence");
+            }
+            token = src[in++] & 0xFF;
+            literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                do {
+                    if (in >= srcEnd) {
+                        throw corrupt("truncated literal length");
+                    }
+                    next = src[in++] & 0xFF;
+                    literalLength += next;
+                } while ((next == 0xFF) && (literalLength > 0));
+            }
+            if ((literalLength < 0) || (literalLength > srcEnd - in) || (literalLength > destEnd - out)) {
+                throw corrupt("literal run overruns block");
+            }
+            copy(src, in, dest, out, literalLength);
+            in += literalLength;
+            out += literalLength;
+            if (in == srcEnd) {
+                break;
+            }
+            if (srcEnd - in < 2) {
+                throw corrupt("truncated match offset");
+            }
+            distance = (src[in] & 0xFF) | ((src[in + 1] & 0xFF) << 8);
+            in += 2;
+            if ((distance == 0) || (distance > out - destOffset)) {
+                throw corrupt("match offset " + distance + " out of range");
+            }
+            matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                do {
+                    if (in >= srcEnd) {
+                        throw corrupt("truncated match length");
+                    }
+                    next = src[in++] & 0xFF;
+                    matchLength += next;
+                } while ((next == 0xFF) && (matchLength > 0));
+            }
+            matchLength += MIN_MATCH;
+            if ((matchLength < MIN_MATCH) || (matchLength > destEnd - out)) {
+                throw corrupt("match overruns block");
+            }
+            if (distance >= matchLength) {
+                copy(dest, out - distance, dest, out, matchLength);
+            } else {
+                // overlapping match: each byte may depend on one just written
+                for (int count = 0; count < matchLength; count++) {
+                    dest[out + count] = dest[out - distance + count];
+                }
+            }
+            out += matchLength;
+        }
+        if (out != destEnd) {
+            throw corrupt("decompressed to " + (out - destOffset) + " of " + originalLength + " bytes");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    private LZ4Compressor() {}
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Memory-mapped view of a file, addressed by <code>long</code> offset, so that the file's content
+ * is read (and, if mapped read-write, written) in place in the page cache rather than being copied
+ * onto the heap. Primitives and {@link Instant}s are read and written in the same big-endian
+ * encodings as {@link BytesUtil}, and regions of the file may be read and written in place
+ * through a {@link ByteReader} or {@link ByteWriter}, or passed as a {@link ByteBuffer} view to a
+ * callback (to which the <code>ByteBuffer</code> decoders of {@link BytesUtil} apply).
+ * <br><br>
+ * As a single mapping cannot exceed 2 GB, the file is mapped in segments of
+ * {@link #SEGMENT_SIZE} bytes; each segment extends {@link #SEGMENT_OVERLAP} bytes into the next,
+ * so that any primitive, and any view of up to <code>SEGMENT_OVERLAP</code> bytes, lies entirely
+ * within one segment. Bulk copies of any length may cross segments.
+ * <br><br>
+ * {@link #close()} unmaps the file immediately (rather than whenever the garbage collector gets
+ * around to it); afterwards, every access, including through a reader or writer obtained
+ * earlier, throws {@link IllegalStateException}. No raw view of the mapping outlives a call, as
+ * using one after the file has been unmapped would crash the JVM. The check is not atomic with
+ * the access, so the file must not be closed while any other thread may still be accessing it.
+ * Concurrent reads are safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class MappedBytes implements AutoCloseable {
+
+    public static final long SEGMENT_SIZE = 1L << 30;
+    public static final int SEGMENT_OVERLAP = 1 << 16;
+
+    private final long length;
+    private final boolean writable;
+    private final MappedByteBuffer[] segments;
+    private volatile boolean open;
+
+    /**
+     * Map the entirety of an existing file.
+     * @param path the file to map
+     * @param writable true to map the file read-write; false to map it read-only
+     * @return the mapping
+     * @throws IllegalArgumentException if the path is null
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedBytes open(final Path path, final boolean writable) throws IllegalArgumentException, IOException {
+        Util.ensureNotNull(path, MappedBytes.class, "path", Path.class);
+        try (
+            final FileChannel channel =
+                writable?
+                    FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE):
+                    FileChannel.open(path, StandardOpenOption.READ)
+        ) {
+            return new MappedBytes(channel, channel.size(), writable);
+        }
+    }
+
+    /**
+     * Map the first <code>length</code> bytes of a file read-write, creating the file if it does
+     * not exist, and extending it if it is shorter.
+     * @param path the file to map
+     * @param length number of bytes to map
+     * @return the mapping
+     * @throws IllegalArgumentException if the path is null, or the length is negative
+     * @throws IOException if the file cannot be created, opened, or mapped
+     */
+    public static MappedBytes create(final Path path, final long length) throws IllegalArgumentException, IOException {
+        Util.ensureNotNull(path, MappedBytes.class, "path", Path.class);
+        if (length < 0) {
+            throw new IllegalArgumentException("Mapped length may not be negative: " + length);
+        }
+        try (
+            final FileChannel channel =
+                FileChannel.open(path,
+                                 StandardOpenOption.CREATE,
+                                 StandardOpenOption.READ,
+                                 StandardOpenOption.WRITE)
+        ) {
+            return new MappedBytes(channel, length, true);
+        }
+    }
+
+    /**
+     * Locate the segment containing a region, after checking that the mapping is open and that
+     * the region lies within it.
+     * @param offset offset of the region within the file
+     * @param count length of the region
+     * @return the segment in which the region begins
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within the mapping
+     */
+    private MappedByteBuffer segment(final long offset, final int count) throws IllegalStateException, IndexOutOfBoundsException {
+        ensureOpen();
+        if ((offset < 0) || (count < 0) || (offset > length - count)) {
+            throw new IndexOutOfBoundsException("Region [offset=" + offset + ", length=" + count
+                                                + "] does not lie within " + length + " bytes");
+        }
+        return segments[segmentIndex(offset)];
+    }
+
+    /**
+     * @param offset offset within the file
+     * @return index of the segment containing the offset; an offset at the very end of the file
+     * belongs to the last segment
+     */
+    private int segmentIndex(final long offset) {
+        return (int) Math.min(offset / SEGMENT_SIZE, segments.length - 1);
+    }
+
+    /**
+     * @param offset offset within the file
+     * @return the corresponding index within the segment containing the offset
+     */
+    private int local(final long offset) {
+        return (int) (offset - segmentIndex(offset) * SEGMENT_SIZE);
+    }
+
+    /**
+     * @return number of bytes mapped
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return true if the file is mapped read-write
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * @return true if the mapping has not yet been closed
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    public byte get(final long offset) throws IllegalStateException, IndexOutOfBoundsException {
+        return segment(offset, Byte.BYTES).get(local(offset));
+    }
+
+    public MappedBytes put(final long offset, final byte value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        segment(offset, Byte.BYTES).put(local(offset), value);
+        return this;
+    }
+
+    public short getShort(final long offset) throws IllegalStateException, IndexOutOfBoundsException {
+        return segment(offset, Short.BYTES).getShort(local(offset));
+    }
+
+    public MappedBytes putShort(final long offset, final short value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        segment(offset, Short.BYTES).putShort(local(offset), value);
+        return this;
+    }
+
+    public int getInt(final long offset) throws IllegalStateException, IndexOutOfBoundsException {
+        return segment(offset, Integer.BYTES).getInt(local(offset));
+    }
+
+    public MappedBytes putInt(final long offset, final int value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        segment(offset, Integer.BYTES).putInt(local(offset), value);
+        return this;
+    }
+
+    public long getLong(final long offset) throws IllegalStateException, IndexOutOfBoundsException {
+        return segment(offset, Long.BYTES).getLong(local(offset));
+    }
+
+    public MappedBytes putLong(final long offset, final long value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        segment(offset, Long.BYTES).putLong(local(offset), value);
+        return this;
+    }
+
+    /**
+     * Read an {@link Instant} in the encoding of {@link BytesUtil#toBytes(Instant)}.
+     * @param offset offset of the encoded value within the file
+     * @return the value
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the encoded value does not lie within the mapping
+     */
+    public Instant getInstant(final long offset) throws IllegalStateException, IndexOutOfBoundsException {
+        final MappedByteBuffer segment;
+        final int index;
+
+        segment = segment(offset, Constants.INSTANT_BYTES);
+        index = local(offset);
+        return Instant.ofEpochSecond(segment.getLong(index), segment.getInt(index + Long.BYTES));
+    }
+
+    /**
+     * Write an {@link Instant} in the encoding of {@link BytesUtil#toBytes(Instant)}.
+     * @param offset offset within the file at which to write
+     * @param value the value (non-null)
+     * @return this mapping
+     * @throws IllegalArgumentException if the value is null
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the encoded value does not fit within the mapping
+     * @throws ReadOnlyBufferException if the file is mapped read-only
+     */
+    public MappedBytes putInstant(final long offset, final Instant value) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        final MappedByteBuffer segment;
+        final int index;
+
+        Util.ensureNotNull(value, this, "value", Instant.class);
+        segment = segment(offset, Constants.INSTANT_BYTES);
+        index = local(offset);
+        segment.putLong(index, value.getEpochSecond());
+        segment.putInt(index + Long.BYTES, value.getNano());
+        return this;
+    }
+
+    /**
+     * Copy bytes from the file onto the heap; the region may cross segments.
+     * @param offset offset within the file of the first byte to copy
+     * @param dest destination array
+     * @param destOffset index in the destination at which to begin copying
+     * @param count number of bytes to copy
+     * @return this mapping
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public MappedBytes get(final long offset, final byte[] dest, final int destOffset, final int count) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException {
+        ByteBuffer view;
+        int copied;
+        int step;
+
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, count);
+        segment(offset, count);
+        copied = 0;
+        while (copied < count) {
+            view = segment(offset + copied, 0).duplicate();
+            view.position(local(offset + copied));
+            step = (int) Math.min(count - copied, SEGMENT_SIZE - local(offset + copied));
+            view.get(dest, destOffset + copied, step);
+            copied += step;
+        }
+        return this;
+    }
+
+    /**
+     * Copy bytes from the heap into the file; the region may cross segments.
+     * @param offset offset within the file at which to begin writing
+     * @param src source array
+     * @param srcOffset index in the source of the first byte to copy
+     * @param count number of bytes to copy
+     * @return this mapping
+     * @throws IllegalArgumentException if the source is null
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     * @throws ReadOnlyBufferException if the file is mapped read-only
+     */
+    public MappedBytes put(final long offset, final byte[] src, final int srcOffset, final int count) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        ByteBuffer view;
+        int copied;
+        int step;
+
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, srcOffset, count);
+        segment(offset, count);
+        copied = 0;
+        while (copied < count) {
+            view = segment(offset + copied, 0).duplicate();
+            view.position(local(offset + copied));
+            step = (int) Math.min(count - copied, SEGMENT_SIZE - local(offset + copied));
+            view.put(src, srcOffset + copied, step);
+            copied += step;
+        }
+        return this;
+    }
+
+    /**
+     * @throws IllegalStateException if the mapping has been closed
+     */
+    private void ensureOpen() throws IllegalStateException {
+        if (!open) {
+            throw new IllegalStateException(getClass().getSimpleName() + " already closed");
+        }
+    }
+
+    /**
+     * Return a view of a region of the file, without copying it; the view is read-only if the file
+     * is mapped read-only. The region must lie within a single segment, which is always the case
+     * for regions of up to {@link #SEGMENT_OVERLAP} bytes.
+     * @param offset offset of the region within the file
+     * @param count length of the region
+     * @return a big-endian buffer over the region, with position zero and limit
+     * <code>count</code>
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within the mapping
+     * @throws IllegalArgumentException if the region crosses from one segment into the next
+     * beyond the overlap between them
+     */
+    private ByteBuffer view(final long offset, final int count) throws IllegalStateException, IndexOutOfBoundsException, IllegalArgumentException {
+        final MappedByteBuffer segment;
+        final ByteBuffer view;
+        final int index;
+
+        segment = segment(offset, count);
+        index = local(offset);
+        if (count > segment.capacity() - index) {
+            throw new IllegalArgumentException("Region [offset=" + offset + ", length=" + count
+                                               + "] crosses a mapped segment boundary");
+        }
+        view = segment.duplicate();
+        view.position(index);
+        view.limit(index + count);
+        return view.slice();
+    }
+
+    /**
+     * Pass a read-only view of a region of the file, without copying it, to the given action; e.g.
+     * to apply the <code>ByteBuffer</code> decoders of {@link BytesUtil}. The view is only valid
+     * for the duration of the call, and must not be retained, as using it after the mapping has
+     * been closed would crash the JVM. The region must lie within a single segment, which is
+     * always the case for regions of up to {@link #SEGMENT_OVERLAP} bytes.
+     * @param offset offset of the region within the file
+     * @param count length of the region
+     * @param action the action to which to pass a big-endian buffer over the region, with
+     * position zero and limit <code>count</code>
+     * @param <R> the type of the action's result
+     * @return the action's result
+     * @throws IllegalArgumentException if the action is null, or the region crosses from one
+     * segment into the next beyond the overlap between them (copy it with
+     * {@link #get(long, byte[], int, int)} instead)
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within the mapping
+     */
+    public <R> R withByteBuffer(final long offset, final int count, final Function<? super ByteBuffer, ? extends R> action) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException {
+        Util.ensureNotNull(action, this, "action", Function.class);
+        return action.apply(view(offset, count).asReadOnlyBuffer());
+    }
+
+    /**
+     * Return a reader over a region of the file, reading it in place. Like the mapping itself, the
+     * reader throws {@link IllegalStateException} on every read once the mapping has been closed.
+     * @param offset offset of the region within the file
+     * @param count length of the region
+     * @return a reader over the region
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within the mapping
+     * @throws IllegalArgumentException if the region crosses a segment boundary; see
+     * {@link #withByteBuffer(long, int, Function)}
+     */
+    public ByteReader reader(final long offset, final int count) throws IllegalStateException, IndexOutOfBoundsException, IllegalArgumentException {
+        return new ByteReader(view(offset, count), this::ensureOpen);
+    }
+
+    /**
+     * Return a writer over a region of a read-write mapping, writing it in place. Like the mapping
+     * itself, the writer throws {@link IllegalStateException} on every write once the mapping has
+     * been closed.
+     * @param offset offset of the region within the file
+     * @param count length of the region
+     * @return a writer over the region
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within the mapping
+     * @throws IllegalArgumentException if the region crosses a segment boundary; see
+     * {@link #withByteBuffer(long, int, Function)}
+     * @throws ReadOnlyBufferException if the file is mapped read-only
+     */
+    public ByteWriter writer(final long offset, final int count) throws IllegalStateException, IndexOutOfBoundsException, IllegalArgumentException, ReadOnlyBufferException {
+        final ByteBuffer view;
+        view = view(offset, count);
+        if (!writable) {
+            throw new ReadOnlyBufferException();
+        }
+        return new ByteWriter(view, this::ensureOpen);
+    }
+
+    /**
+     * Copy a region of the file onto the heap, as a slice; the region may cross segments.
+     * @param offset offset of the region within the file
+     * @param count length of the region
+     * @return a slice over a copy of the region
+     * @throws IllegalStateException if the mapping has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within the mapping
+     */
+    public ByteSlice toByteSlice(final long offset, final int count) throws IllegalStateException, IndexOutOfBoundsException {
+        final byte[] copied;
+        copied = new byte[count];
+        get(offset, copied, 0, count);
+        return ByteSlice.wrap(copied);
+    }
+
+    /**
+     * Flush changes made to a read-write mapping to the storage device.
+     * @return this mapping
+     * @throws IllegalStateException if the mapping has been closed
+     */
+    public MappedBytes force() throws IllegalStateException {
+        segment(0, 0);
+        if (writable) {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Unmap the file. Closing a mapping more than once has no further effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (open) {
+            open = false;
+            for (MappedByteBuffer segment : segments) {
+                OffHeapArena.free(segment);
+            }
+        }
+    }
+
+    private MappedBytes(final FileChannel channel, final long length, final boolean writable) throws IOException {
+        final FileChannel.MapMode mode;
+        final int segmentCount;
+        long start;
+
+        this.length = length;
+        this.writable = writable;
+        mode = writable?FileChannel.MapMode.READ_WRITE:FileChannel.MapMode.READ_ONLY;
+        segmentCount = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.segments = new MappedByteBuffer[Math.max(segmentCount, 1)];
+        for (int index = 0; index < segments.length; index++) {
+            start = index * SEGMENT_SIZE;
+            segments[index] =
+                channel.map(mode, start, Math.min(length - start, SEGMENT_SIZE + SEGMENT_OVERLAP));
+        }
+        this.open = true;
+    }
+}
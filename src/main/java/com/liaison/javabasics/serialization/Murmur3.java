@@ -0,0 +1,414 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The 128-bit MurmurHash3 non-cryptographic hash function (x64 variant), for when 64 bits leave
+ * too great a chance of collision, e.g. deduplicating very large numbers of keys by hash alone.
+ * Values are identical to those of the reference implementation (and of Guava's
+ * <code>Hashing.murmur3_128(seed)</code>, for non-negative seeds).
+ * <br><br>
+ * The 128-bit result is returned as two longs, written into a caller-supplied array (the first
+ * long being the first eight bytes of the hash, in little-endian order), so that hashing allocates
+ * nothing. The static methods hash a region of a <code>byte[]</code> or {@link ByteBuffer} in one
+ * call; an instance hashes a sequence of bytes supplied incrementally, producing the same value as
+ * hashing their concatenation. Instances may be {@link #reset()} and reused, and are not
+ * thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class Murmur3 {
+
+    public static final int DEFAULT_SEED = 0;
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+    private static final int BLOCK = 16;
+
+    private final int seed;
+    private final long[] state;
+    private final byte[] pending;
+    private int pendingCount;
+    private long totalLength;
+
+    private static long mixK1(final long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(final long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(final long value) {
+        long mixed;
+        mixed = value;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xFF51AFD7ED558CCDL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xC4CEB9FE1A85EC53L;
+        return mixed ^ (mixed >>> 33);
+    }
+
+    /**
+     * @param state hash state, to be seeded
+     * @param seed the seed
+     */
+    private static void init(final long[] state, final int seed) {
+        state[0] = seed & 0xFFFFFFFFL;
+        state[1] = seed & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Mix one complete block into the hash state.
+     * @param state hash state
+     * @param k1 first (little-endian) long of the block
+     * @param k2 second (little-endian) long of the block
+     */
+    private static void mix(final long[] state, final long k1, final long k2) {
+        long h1;
+        long h2;
+
+        h1 = state[0];
+        h2 = state[1];
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27) + h2;
+        h1 = (h1 * 5) + 0x52DCE729;
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        h2 = (h2 * 5) + 0x38495AB5;
+        state[0] = h1;
+        state[1] = h2;
+    }
+
+    /**
+     * Mix the final, partial block (if any) into the hash state, and finalize it.
+     * @param state hash state
+     * @param k1 first (little-endian, zero-padded) long of the partial block
+     * @param k2 second (little-endian, zero-padded) long of the partial block
+     * @param tailLength length of the partial block
+     * @param length total length of the hashed bytes
+     */
+    private static void finish(final long[] state, final long k1, final long k2, final int tailLength, final long length) {
+        long h1;
+        long h2;
+
+        h1 = state[0];
+        h2 = state[1];
+        if (tailLength > Long.BYTES) {
+            h2 ^= mixK2(k2);
+        }
+        if (tailLength > 0) {
+            h1 ^= mixK1(k1);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        state[0] = h1;
+        state[1] = h2;
+    }
+
+    /**
+     * @param bytes array containing the bytes
+     * @param offset index of the first byte
+     * @param count number of bytes, from zero to eight
+     * @return the bytes as a little-endian long, zero-padded
+     */
+    private static long partialLong(final byte[] bytes, final int offset, final int count) {
+        long value;
+        value = 0;
+        for (int index = count - 1; index >= 0; index--) {
+            value = (value << 8) | (bytes[offset + index] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static long partialLong(final ByteBuffer buffer, final int offset, final int count) {
+        long value;
+        value = 0;
+        for (int index = count - 1; index >= 0; index--) {
+            value = (value << 8) | (buffer.get(offset + index) & 0xFFL);
+        }
+        return value;
+    }
+
+    private static long getLongLE(final ByteBuffer buffer, final int index) {
+        final long value;
+        value = buffer.getLong(index);
+        return (buffer.order() == ByteOrder.LITTLE_ENDIAN)?value:Long.reverseBytes(value);
+    }
+
+    /**
+     * @param dest array to receive a 128-bit hash
+     * @param closureName name of the calling method, for error messages
+     * @throws IllegalArgumentException if the array is null or shorter than two longs
+     */
+    private static void checkDest(final long[] dest, final String closureName) throws IllegalArgumentException {
+        Util.ensureNotNull(dest, closureName, "dest", long[].class);
+        if (dest.length < 2) {
+            throw new IllegalArgumentException("Destination for 128-bit hash must hold 2 longs, not "
+                                               + dest.length);
+        }
+    }
+
+    /**
+     * Hash a region of a byte array.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @param seed seed, which selects one of a family of independent hash functions
+     * @param dest array into whose first two elements the hash is written
+     * @return <code>dest</code>
+     * @throws IllegalArgumentException if either array is null, or the destination is shorter than
+     * two longs
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static long[] hash128(final byte[] bytes, final int offset, final int length, final int seed, final long[] dest) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int end;
+        final int tailLength;
+        int index;
+
+        Util.ensureNotNull(bytes, Murmur3.class, "bytes", byte[].class);
+        checkDest(dest, "Murmur3#hash128");
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        init(dest, seed);
+        index = offset;
+        end = offset + length;
+        while (index + BLOCK <= end) {
+            mix(dest,
+                ByteArrayAccess.getLongLE(bytes, index),
+                ByteArrayAccess.getLongLE(bytes, index + Long.BYTES));
+            index += BLOCK;
+        }
+        tailLength = end - index;
+        finish(dest,
+               partialLong(bytes, index, Math.min(tailLength, Long.BYTES)),
+               partialLong(bytes, index + Long.BYTES, Math.max(tailLength - Long.BYTES, 0)),
+               tailLength,
+               length);
+        return dest;
+    }
+
+    /**
+     * Hash the remaining content (position through limit) of a buffer, without modifying its
+     * position. Heap and direct buffers hash identically, whatever their byte order.
+     * @param buffer the buffer
+     * @param seed seed, which selects one of a family of independent hash functions
+     * @param dest array into whose first two elements the hash is written
+     * @return <code>dest</code>
+     * @throws IllegalArgumentException if the buffer or array is null, or the destination is
+     * shorter than two longs
+     */
+    public static long[] hash128(final ByteBuffer buffer, final int seed, final long[] dest) throws IllegalArgumentException {
+        final int end;
+        final int tailLength;
+        int index;
+
+        Util.ensureNotNull(buffer, Murmur3.class, "buffer", ByteBuffer.class);
+        if (buffer.hasArray()) {
+            return hash128(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), seed, dest);
+        }
+        checkDest(dest, "Murmur3#hash128");
+        init(dest, seed);
+        index = buffer.position();
+        end = buffer.limit();
+        while (index + BLOCK <= end) {
+            mix(dest, getLongLE(buffer, index), getLongLE(buffer, index + Long.BYTES));
+            index += BLOCK;
+        }
+        tailLength = end - index;
+        finish(dest,
+               partialLong(buffer, index, Math.min(tailLength, Long.BYTES)),
+               partialLong(buffer, index + Long.BYTES, Math.max(tailLength - Long.BYTES, 0)),
+               tailLength,
+               end - buffer.position());
+        return dest;
+    }
+
+    /**
+     * Hash a region of a byte array, returning the first 64 bits of its 128-bit hash.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @param seed seed, which selects one of a family of independent hash functions
+     * @return the first (little-endian) 64 bits of the hash
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static long hash64(final byte[] bytes, final int offset, final int length, final int seed) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int end;
+        final int tailLength;
+        final long[] state;
+        int index;
+
+        Util.ensureNotNull(bytes, Murmur3.class, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        // a two-element array which does not escape is scalar-replaced by the JIT
+        state = new long[2];
+        init(state, seed);
+        index = offset;
+        end = offset + length;
+        while (index + BLOCK <= end) {
+            mix(state,
+                ByteArrayAccess.getLongLE(bytes, index),
+                ByteArrayAccess.getLongLE(bytes, index + Long.BYTES));
+            index += BLOCK;
+        }
+        tailLength = end - index;
+        finish(state,
+               partialLong(bytes, index, Math.min(tailLength, Long.BYTES)),
+               partialLong(bytes, index + Long.BYTES, Math.max(tailLength - Long.BYTES, 0)),
+               tailLength,
+               length);
+        return state[0];
+    }
+
+    /**
+     * Append a region of a byte array to the sequence being hashed.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return this hasher
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public Murmur3 update(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int end;
+        int index;
+        int step;
+
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        totalLength += length;
+        index = offset;
+        end = offset + length;
+        if (pendingCount > 0) {
+            step = Math.min(BLOCK - pendingCount, length);
+            System.arraycopy(bytes, index, pending, pendingCount, step);
+            pendingCount += step;
+            index += step;
+            if (pendingCount < BLOCK) {
+                return this;
+            }
+            mix(state, ByteArrayAccess.getLongLE(pending, 0), ByteArrayAccess.getLongLE(pending, Long.BYTES));
+            pendingCount = 0;
+        }
+        while (index + BLOCK <= end) {
+            mix(state,
+                ByteArrayAccess.getLongLE(bytes, index),
+                ByteArrayAccess.getLongLE(bytes, index + Long.BYTES));
+            index += BLOCK;
+        }
+        System.arraycopy(bytes, index, pending, 0, end - index);
+        pendingCount = end - index;
+        return this;
+    }
+
+    /**
+     * @param bytes array to append to the sequence being hashed
+     * @return this hasher
+     * @throws IllegalArgumentException if the array is null
+     */
+    public Murmur3 update(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Append the remaining content of a buffer to the sequence being hashed, advancing the
+     * buffer's position to its limit.
+     * @param buffer the buffer
+     * @return this hasher
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public Murmur3 update(final ByteBuffer buffer) throws IllegalArgumentException {
+        int step;
+
+        Util.ensureNotNull(buffer, this, "buffer", ByteBuffer.class);
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return this;
+        }
+        while (buffer.hasRemaining()) {
+            // stage direct content through the pending block
+            step = Math.min(BLOCK - pendingCount, buffer.remaining());
+            buffer.get(pending, pendingCount, step);
+            pendingCount += step;
+            totalLength += step;
+            if (pendingCount == BLOCK) {
+                mix(state, ByteArrayAccess.getLongLE(pending, 0), ByteArrayAccess.getLongLE(pending, Long.BYTES));
+                pendingCount = 0;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Write the 128-bit hash of the bytes appended so far; further bytes may still be appended.
+     * @param dest array into whose first two elements the hash is written
+     * @return <code>dest</code>
+     * @throws IllegalArgumentException if the array is null or shorter than two longs
+     */
+    public long[] getValue(final long[] dest) throws IllegalArgumentException {
+        checkDest(dest, "Murmur3#getValue");
+        dest[0] = state[0];
+        dest[1] = state[1];
+        finish(dest,
+               partialLong(pending, 0, Math.min(pendingCount, Long.BYTES)),
+               partialLong(pending, Long.BYTES, Math.max(pendingCount - Long.BYTES, 0)),
+               pendingCount,
+               totalLength);
+        return dest;
+    }
+
+    /**
+     * Discard the bytes appended so far, so that this hasher may be reused.
+     * @return this hasher
+     */
+    public Murmur3 reset() {
+        init(state, seed);
+        pendingCount = 0;
+        totalLength = 0;
+        return this;
+    }
+
+    /**
+     * Create a streaming hasher.
+     * @param seed seed, which selects one of a family of independent hash functions
+     */
+    public Murmur3(final int seed) {
+        this.seed = seed;
+        this.state = new long[2];
+        this.pending = new byte[BLOCK];
+        reset();
+    }
+
+    /**
+     * Create a streaming hasher with {@link #DEFAULT_SEED}.
+     */
+    public Murmur3() {
+        this(DEFAULT_SEED);
+    }
+}
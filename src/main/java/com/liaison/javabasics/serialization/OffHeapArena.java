@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Region of off-heap memory from which {@link OffHeapBytes} are allocated, and by which they are
+ * freed in bulk. Memory is reserved from the operating system in direct {@link ByteBuffer} chunks,
+ * and allocations are carved from the current chunk by bumping an offset, so that allocating is
+ * cheap, and the content of a long-lived cache occupies no space in the Java heap (and so adds
+ * nothing to the cost of garbage collection).
+ * <br><br>
+ * Individual allocations are never freed; {@link #close()} frees every chunk at once, immediately
+ * (rather than whenever the garbage collector gets around to it), after which all
+ * {@link OffHeapBytes} allocated from the arena are unusable. The arena must not be closed while
+ * any other thread may still be accessing its allocations.
+ * <br><br>
+ * Allocation is thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class OffHeapArena implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Frees the memory of a direct buffer immediately, where the JVM permits; null if it does not,
+     * in which case the memory is freed when the buffer is garbage-collected.
+     */
+    private static final MethodHandle FREE;
+
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks;
+    private ByteBuffer current;
+    private long reservedBytes;
+    private long allocatedBytes;
+    private volatile boolean open;
+
+    /**
+     * Obtain a handle which frees a direct buffer: <code>Unsafe.invokeCleaner(ByteBuffer)</code> on
+     * Java 9 and later, and <code>DirectBuffer.cleaner().clean()</code> on Java 8.
+     * @return the handle, taking a single {@link ByteBuffer} parameter, or null if neither
+     * mechanism is accessible
+     */
+    private static MethodHandle freeHandle() {
+        final Class<?> unsafeType;
+        final Field theUnsafe;
+        final Method cleanerMethod;
+        final Method cleanMethod;
+        final ByteBuffer probe;
+        final Object cleaner;
+
+        try {
+            unsafeType = Class.forName("sun.misc.Unsafe");
+            theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                                .unreflect(unsafeType.getMethod("invokeCleaner", ByteBuffer.class))
+                                .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            // not Java 9+; fall through to the Java 8 mechanism
+        }
+        try {
+            probe = ByteBuffer.allocateDirect(1);
+            cleanerMethod = probe.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            cleaner = cleanerMethod.invoke(probe);
+            cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            return MethodHandles.filterReturnValue(
+                MethodHandles.lookup().unreflect(cleanerMethod),
+                MethodHandles.lookup().unreflect(cleanMethod))
+                .asType(MethodType.methodType(void.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            return null;
+        }
+    }
+
+    /**
+     * Free the memory of the given direct buffer now (or unmap it, if it is a
+     * {@link java.nio.MappedByteBuffer}), if possible. The buffer must be one allocated or mapped
+     * directly, rather than a slice or duplicate, and neither it nor any view of it may be used
+     * afterwards.
+     * @param chunk the buffer to free
+     */
+    static void free(final ByteBuffer chunk) {
+        if (FREE != null) {
+            try {
+                FREE.invokeExact(chunk);
+            } catch (Throwable thrown) {
+                // leave the chunk for the garbage collector
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if this arena has been closed
+     */
+    void ensureOpen() throws IllegalStateException {
+        if (!open) {
+            throw new IllegalStateException(getClass().getSimpleName() + " already closed");
+        }
+    }
+
+    /**
+     * Allocate a region of off-heap memory. The content of the region is initially zero.
+     * @param length number of bytes to allocate
+     * @return the allocated region
+     * @throws IllegalArgumentException if the length is negative
+     * @throws IllegalStateException if this arena has been closed
+     */
+    public synchronized OffHeapBytes allocate(final int length) throws IllegalArgumentException, IllegalStateException {
+        final ByteBuffer region;
+        final ByteBuffer dedicated;
+
+        if (length < 0) {
+            throw new IllegalArgumentException("Allocation length may not be negative: " + length);
+        }
+        ensureOpen();
+        if (length > chunkSize) {
+            // too large to share a chunk; give it a chunk of its own
+            dedicated = ByteBuffer.allocateDirect(length);
+            chunks.add(dedicated);
+            reservedBytes += length;
+            allocatedBytes += length;
+            return new OffHeapBytes(this, dedicated.order(ByteOrder.BIG_ENDIAN));
+        }
+        if ((current == null) || (current.remaining() < length)) {
+            current = ByteBuffer.allocateDirect(chunkSize);
+            chunks.add(current);
+            reservedBytes += chunkSize;
+        }
+        region = current.duplicate();
+        region.limit(current.position() + length);
+        current.position(current.position() + length);
+        allocatedBytes += length;
+        return new OffHeapBytes(this, region.slice().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * Allocate a region of off-heap memory holding a copy of the given array.
+     * @param bytes the array to copy
+     * @return the allocated region
+     * @throws IllegalArgumentException if the array is null
+     * @throws IllegalStateException if this arena has been closed
+     */
+    public OffHeapBytes copyOf(final byte[] bytes) throws IllegalArgumentException, IllegalStateException {
+        final OffHeapBytes copied;
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        copied = allocate(bytes.length);
+        copied.put(0, bytes, 0, bytes.length);
+        return copied;
+    }
+
+    /**
+     * @return true if this arena has not yet been closed
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return total off-heap memory reserved from the operating system by this arena, in bytes
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * @return total length of the regions allocated from this arena, in bytes
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Free all of the memory reserved by this arena. Closing an arena more than once has no
+     * further effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (open) {
+            open = false;
+            for (ByteBuffer chunk : chunks) {
+                free(chunk);
+            }
+            chunks.clear();
+            current = null;
+            reservedBytes = 0;
+        }
+    }
+
+    /**
+     * Create an arena.
+     * @param chunkSize size of the chunks reserved from the operating system; allocations larger
+     * than this receive chunks of their own
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public OffHeapArena(final int chunkSize) throws IllegalArgumentException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayList<>();
+        this.open = true;
+    }
+
+    /**
+     * Create an arena with the default chunk size.
+     */
+    public OffHeapArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    static {
+        FREE = freeHandle();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.time.Instant;
+
+/**
+ * Fixed-length region of off-heap memory, allocated from (and freed along with) an
+ * {@link OffHeapArena}; the off-heap counterpart of a framework object's internal
+ * <code>byte[]</code>. Primitives and {@link Instant}s are read and written at absolute offsets
+ * directly in off-heap memory, in the same big-endian encodings as {@link BytesUtil}, and content
+ * is only copied onto the heap when explicitly requested (e.g. {@link #toByteArray()}).
+ * <br><br>
+ * A region may be read-only (see {@link #asReadOnly()}), in which case every write throws
+ * {@link ReadOnlyBufferException}. Every access, including through a {@link #reader()} or
+ * {@link #writer()}, throws {@link IllegalStateException} once the arena has been closed; the raw
+ * off-heap buffer is never handed out, as using it after the memory is freed would crash the JVM.
+ * The check is not atomic with the access, so the caller must not close the arena while another
+ * thread may still be accessing its regions. Instances hold no cursor, so concurrent reads are
+ * safe; concurrent writes to overlapping offsets must be coordinated by the caller.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class OffHeapBytes {
+
+    private final OffHeapArena arena;
+    private final ByteBuffer buffer;
+
+    /**
+     * Return the backing buffer, after checking that the given region lies within it.
+     * @param index offset of the region
+     * @param count length of the region
+     * @return the backing buffer
+     * @throws IllegalStateException if the arena has been closed
+     * @throws IndexOutOfBoundsException if the region does not lie within this one
+     */
+    private ByteBuffer access(final int index, final int count) throws IllegalStateException, IndexOutOfBoundsException {
+        arena.ensureOpen();
+        BytesUtil.checkRegion(buffer.capacity(), index, count);
+        return buffer;
+    }
+
+    public int length() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return true if writes to this region are disallowed
+     */
+    public boolean isReadOnly() {
+        return buffer.isReadOnly();
+    }
+
+    /**
+     * @return the arena from which this region was allocated
+     */
+    public OffHeapArena getArena() {
+        return arena;
+    }
+
+    public byte get(final int index) throws IllegalStateException, IndexOutOfBoundsException {
+        return access(index, Byte.BYTES).get(index);
+    }
+
+    public OffHeapBytes put(final int index, final byte value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        access(index, Byte.BYTES).put(index, value);
+        return this;
+    }
+
+    public short getShort(final int index) throws IllegalStateException, IndexOutOfBoundsException {
+        return access(index, Short.BYTES).getShort(index);
+    }
+
+    public OffHeapBytes putShort(final int index, final short value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        access(index, Short.BYTES).putShort(index, value);
+        return this;
+    }
+
+    public int getInt(final int index) throws IllegalStateException, IndexOutOfBoundsException {
+        return access(index, Integer.BYTES).getInt(index);
+    }
+
+    public OffHeapBytes putInt(final int index, final int value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        access(index, Integer.BYTES).putInt(index, value);
+        return this;
+    }
+
+    public long getLong(final int index) throws IllegalStateException, IndexOutOfBoundsException {
+        return access(index, Long.BYTES).getLong(index);
+    }
+
+    public OffHeapBytes putLong(final int index, final long value) throws IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        access(index, Long.BYTES).putLong(index, value);
+        return this;
+    }
+
+    /**
+     * Read an {@link Instant} in the encoding of {@link BytesUtil#toBytes(Instant)}.
+     * @param index offset of the encoded value
+     * @return the value
+     * @throws IllegalStateException if the arena has been closed
+     * @throws IndexOutOfBoundsException if the encoded value does not lie within this region
+     */
+    public Instant getInstant(final int index) throws IllegalStateException, IndexOutOfBoundsException {
+        final ByteBuffer buf;
+        buf = access(index, Constants.INSTANT_BYTES);
+        return Instant.ofEpochSecond(buf.getLong(index), buf.getInt(index + Long.BYTES));
+    }
+
+    /**
+     * Write an {@link Instant} in the encoding of {@link BytesUtil#toBytes(Instant)}.
+     * @param index offset at which to write
+     * @param value the value (non-null)
+     * @return this region
+     * @throws IllegalArgumentException if the value is null
+     * @throws IllegalStateException if the arena has been closed
+     * @throws IndexOutOfBoundsException if the encoded value does not fit within this region
+     * @throws ReadOnlyBufferException if this region is read-only
+     */
+    public OffHeapBytes putInstant(final int index, final Instant value) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        final ByteBuffer buf;
+        Util.ensureNotNull(value, this, "value", Instant.class);
+        buf = access(index, Constants.INSTANT_BYTES);
+        buf.putLong(index, value.getEpochSecond());
+        buf.putInt(index + Long.BYTES, value.getNano());
+        return this;
+    }
+
+    /**
+     * Copy bytes from this region onto the heap.
+     * @param index offset in this region of the first byte to copy
+     * @param dest destination array
+     * @param destOffset index in the destination at which to begin copying
+     * @param length number of bytes to copy
+     * @return this region
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IllegalStateException if the arena has been closed
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public OffHeapBytes get(final int index, final byte[] dest, final int destOffset, final int length) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException {
+        final ByteBuffer view;
+        Util.ensureNotNull(dest, this, "dest", byte[].class);
+        BytesUtil.checkRegion(dest.length, destOffset, length);
+        view = access(index, length).duplicate();
+        view.position(index);
+        view.get(dest, destOffset, length);
+        return this;
+    }
+
+    /**
+     * Copy bytes from the heap into this region.
+     * @param index offset in this region at which to begin writing
+     * @param src source array
+     * @param srcOffset index in the source of the first byte to copy
+     * @param length number of bytes to copy
+     * @return this region
+     * @throws IllegalArgumentException if the source is null
+     * @throws IllegalStateException if the arena has been closed
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     * @throws ReadOnlyBufferException if this region is read-only
+     */
+    public OffHeapBytes put(final int index, final byte[] src, final int srcOffset, final int length) throws IllegalArgumentException, IllegalStateException, IndexOutOfBoundsException, ReadOnlyBufferException {
+        final ByteBuffer view;
+        Util.ensureNotNull(src, this, "src", byte[].class);
+        BytesUtil.checkRegion(src.length, srcOffset, length);
+        view = access(index, length).duplicate();
+        view.position(index);
+        view.put(src, srcOffset, length);
+        return this;
+    }
+
+    /**
+     * @return a new heap array containing a copy of this region
+     * @throws IllegalStateException if the arena has been closed
+     */
+    public byte[] toByteArray() throws IllegalStateException {
+        final byte[] copied;
+        copied = new byte[length()];
+        get(0, copied, 0, copied.length);
+        return copied;
+    }
+
+    /**
+     * Copy this region into a new region allocated from the given arena, without passing through
+     * the heap. The copy is writable, even if this region is not.
+     * @param destArena the arena from which to allocate the copy
+     * @return the copy
+     * @throws IllegalArgumentException if the arena is null
+     * @throws IllegalStateException if either arena has been closed
+     */
+    public OffHeapBytes copyInto(final OffHeapArena destArena) throws IllegalArgumentException, IllegalStateException {
+        final OffHeapBytes copied;
+        Util.ensureNotNull(destArena, this, "destArena", OffHeapArena.class);
+        arena.ensureOpen();
+        copied = destArena.allocate(length());
+        copied.buffer.duplicate().put(buffer.duplicate());
+        return copied;
+    }
+
+    /**
+     * @return a read-only view of this region, sharing its memory
+     * @throws IllegalStateException if the arena has been closed
+     */
+    public OffHeapBytes asReadOnly() throws IllegalStateException {
+        arena.ensureOpen();
+        return buffer.isReadOnly()?this:new OffHeapBytes(arena, buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * @return a new reader over this region, which (like this region) throws
+     * {@link IllegalStateException} on every read once the arena has been closed
+     * @throws IllegalStateException if the arena has been closed
+     */
+    public ByteReader reader() throws IllegalStateException {
+        return new ByteReader(buffer, arena::ensureOpen);
+    }
+
+    /**
+     * @return a new writer over this region, which (like this region) throws
+     * {@link IllegalStateException} on every write once the arena has been closed
+     * @throws IllegalStateException if the arena has been closed
+     * @throws IllegalArgumentException if this region is read-only
+     */
+    public ByteWriter writer() throws IllegalStateException, IllegalArgumentException {
+        return new ByteWriter(buffer, arena::ensureOpen);
+    }
+
+    /**
+     * @return the arena from which this region was allocated
+     */
+    OffHeapArena arena() {
+        return arena;
+    }
+
+    /**
+     * @param arena the arena owning the memory
+     * @param buffer big-endian direct buffer spanning exactly the region, with position zero
+     */
+    OffHeapBytes(final OffHeapArena arena, final ByteBuffer buffer) {
+        this.arena = arena;
+        this.buffer = buffer;
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Uninstantiable;
+import com.liaison.javabasics.commons.Util;
+
+import java.time.Instant;
+
+/**
+ * Order-preserving ("memcmp-sortable") encodings, suitable for composing HBase row keys: for any
+ * two values of the same type, comparing their encodings as unsigned bytes, lexicographically,
+ * yields the same result as comparing the values themselves in their natural order (or the reverse
+ * order, for {@link SortOrder#DESCENDING}). This allows range predicates over key fields to be
+ * expressed as start/stop rows of a scan.
+ * <ul>
+ *     <li><b>Integers</b> (short, int, long) are written big-endian at their natural width, with
+ *         the sign bit flipped, so that negative values sort before positive values.</li>
+ *     <li><b>Floating-point</b> values are written at their natural width; the sign bit of
+ *         non-negative values is flipped, and all bits of negative values are flipped. The order
+ *         is that of {@link Double#compare(double, double)}, i.e. <code>-0.0</code> sorts before
+ *         <code>0.0</code>, and NaN sorts last.</li>
+ *     <li><b>Instants</b> occupy {@link Constants#INSTANT_BYTES} bytes: an order-preserving epoch
+ *         second followed by the (always non-negative) nanosecond adjustment, so that pre-epoch
+ *         instants sort correctly.</li>
+ *     <li><b>Byte arrays and strings</b> (the latter as UTF-8) are variable-length: each
+ *         <code>0x00</code> byte of the content is escaped as <code>0x00 0xFF</code>, and the
+ *         content is terminated by <code>0x00 0x00</code>. The encoding is therefore
+ *         self-delimiting, and a shorter value sorts before any longer value of which it is a
+ *         prefix, so such fields may safely be followed by other fields in a composite key.</li>
+ *     <li><b>Nullable fields</b> are preceded by a one-byte marker written by
+ *         {@link #putNullMarker(byte[], int, boolean, SortOrder)}; a null is represented by the
+ *         marker alone, and sorts before every non-null value in ascending order.</li>
+ * </ul>
+ * The {@link SortOrder#DESCENDING} form of every encoding is the bitwise complement of the
+ * ascending form. A null {@link SortOrder} is treated as {@link SortOrder#DEFAULT}.
+ * <br><br>
+ * The <code>put</code> methods write into a caller-supplied array and return the offset following
+ * the encoded value; the <code>get</code> methods decode the value at a given offset.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class OrderedBytes extends Uninstantiable {
+
+    /**
+     * Ascending marker byte which indicates that a nullable field is null.
+     */
+    public static final byte NULL_MARKER = 0x00;
+    /**
+     * Ascending marker byte which indicates that a nullable field is present, and that its encoded
+     * value follows.
+     */
+    public static final byte PRESENT_MARKER = 0x01;
+
+    private static final int ESCAPE = 0x00;
+    private static final int ESCAPED_ZERO = 0xFF;
+    private static final int TERMINATOR = 0x00;
+    private static final int VARIABLE_LENGTH_OVERHEAD = 2;
+
+    private static int mask(final SortOrder order) {
+        return (order == null)?SortOrder.DEFAULT.mask():order.mask();
+    }
+
+    private static long longMask(final SortOrder order) {
+        return (mask(order) == 0)?0L:-1L;
+    }
+
+    private static void checkAccess(final byte[] bytes, final String methodName, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(bytes, methodName, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+    }
+
+    /**
+     * Write the marker which precedes a nullable field. If the field is null, nothing further is
+     * written for it; otherwise its encoded value must follow.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param isNull whether the field is null
+     * @param order sort order of the field
+     * @return the offset immediately following the marker
+     * @throws IllegalArgumentException if the destination is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putNullMarker(final byte[] dest, final int offset, final boolean isNull, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(dest, "OrderedBytes#putNullMarker", offset, Byte.BYTES);
+        dest[offset] = (byte) ((isNull?NULL_MARKER:PRESENT_MARKER) ^ mask(order));
+        return offset + Byte.BYTES;
+    }
+
+    /**
+     * Read the marker which precedes a nullable field.
+     * @param src the array from which to read
+     * @param offset index of the marker
+     * @param order sort order of the field
+     * @return true if the field is null (in which case no value follows the marker)
+     * @throws IllegalArgumentException if the source is null, or the byte at the offset is not a
+     * valid marker
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public static boolean isNull(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int marker;
+        checkAccess(src, "OrderedBytes#isNull", offset, Byte.BYTES);
+        marker = (src[offset] ^ mask(order)) & 0xFF;
+        if (marker == NULL_MARKER) {
+            return true;
+        }
+        if (marker == PRESENT_MARKER) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid null marker at offset " + offset + ": " + marker);
+    }
+
+    public static int putLong(final byte[] dest, final int offset, final long value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(dest, "OrderedBytes#putLong", offset, Long.BYTES);
+        ByteArrayAccess.putLong(dest, offset, value ^ Long.MIN_VALUE ^ longMask(order));
+        return offset + Long.BYTES;
+    }
+
+    public static long getLong(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(src, "OrderedBytes#getLong", offset, Long.BYTES);
+        return ByteArrayAccess.getLong(src, offset) ^ longMask(order) ^ Long.MIN_VALUE;
+    }
+
+    public static int putInt(final byte[] dest, final int offset, final int value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(dest, "OrderedBytes#putInt", offset, Integer.BYTES);
+        ByteArrayAccess.putInt(dest, offset, value ^ Integer.MIN_VALUE ^ (int) longMask(order));
+        return offset + Integer.BYTES;
+    }
+
+    public static int getInt(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(src, "OrderedBytes#getInt", offset, Integer.BYTES);
+        return ByteArrayAccess.getInt(src, offset) ^ (int) longMask(order) ^ Integer.MIN_VALUE;
+    }
+
+    public static int putShort(final byte[] dest, final int offset, final short value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(dest, "OrderedBytes#putShort", offset, Short.BYTES);
+        ByteArrayAccess.putShort(dest, offset, (short) (value ^ Short.MIN_VALUE ^ (int) longMask(order)));
+        return offset + Short.BYTES;
+    }
+
+    public static short getShort(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(src, "OrderedBytes#getShort", offset, Short.BYTES);
+        return (short) (ByteArrayAccess.getShort(src, offset) ^ (int) longMask(order) ^ Short.MIN_VALUE);
+    }
+
+    public static int putDouble(final byte[] dest, final int offset, final double value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final long bits;
+        checkAccess(dest, "OrderedBytes#putDouble", offset, Long.BYTES);
+        bits = Double.doubleToLongBits(value);
+        ByteArrayAccess.putLong(dest, offset, bits ^ ((bits >> 63) | Long.MIN_VALUE) ^ longMask(order));
+        return offset + Long.BYTES;
+    }
+
+    public static double getDouble(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final long encoded;
+        checkAccess(src, "OrderedBytes#getDouble", offset, Long.BYTES);
+        encoded = ByteArrayAccess.getLong(src, offset) ^ longMask(order);
+        return Double.longBitsToDouble(encoded ^ (((~encoded) >> 63) | Long.MIN_VALUE));
+    }
+
+    public static int putFloat(final byte[] dest, final int offset, final float value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int bits;
+        checkAccess(dest, "OrderedBytes#putFloat", offset, Integer.BYTES);
+        bits = Float.floatToIntBits(value);
+        ByteArrayAccess.putInt(dest, offset, bits ^ ((bits >> 31) | Integer.MIN_VALUE) ^ (int) longMask(order));
+        return offset + Integer.BYTES;
+    }
+
+    public static float getFloat(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int encoded;
+        checkAccess(src, "OrderedBytes#getFloat", offset, Integer.BYTES);
+        encoded = ByteArrayAccess.getInt(src, offset) ^ (int) longMask(order);
+        return Float.intBitsToFloat(encoded ^ (((~encoded) >> 31) | Integer.MIN_VALUE));
+    }
+
+    public static int putInstant(final byte[] dest, final int offset, final Instant time, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(time, "OrderedBytes#putInstant", "time", Instant.class);
+        checkAccess(dest, "OrderedBytes#putInstant", offset, Constants.INSTANT_BYTES);
+        putLong(dest, offset, time.getEpochSecond(), order);
+        ByteArrayAccess.putInt(dest, offset + Long.BYTES, time.getNano() ^ (int) longMask(order));
+        return offset + Constants.INSTANT_BYTES;
+    }
+
+    public static Instant getInstant(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(src, "OrderedBytes#getInstant", offset, Constants.INSTANT_BYTES);
+        return Instant.ofEpochSecond(getLong(src, offset, order),
+                                     ByteArrayAccess.getInt(src, offset + Long.BYTES)
+                                     ^ (int) longMask(order));
+    }
+
+    /**
+     * Compute the number of bytes occupied by the order-preserving encoding of the given region
+     * of a byte array, including escapes and the terminator.
+     * @param value the array containing the content
+     * @param offset index of the first byte of content
+     * @param length number of bytes of content
+     * @return the encoded length
+     * @throws IllegalArgumentException if the value is null
+     * @throws IndexOutOfBoundsException if the region is out of bounds
+     */
+    public static int encodedLength(final byte[] value, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        int encodedLength;
+        checkAccess(value, "OrderedBytes#encodedLength", offset, length);
+        encodedLength = length + VARIABLE_LENGTH_OVERHEAD;
+        for (int index = offset; index < offset + length; index++) {
+            if (value[index] == ESCAPE) {
+                encodedLength++;
+            }
+        }
+        return encodedLength;
+    }
+
+    public static int encodedLength(final byte[] value) throws IllegalArgumentException {
+        Util.ensureNotNull(value, "OrderedBytes#encodedLength", "value", byte[].class);
+        return encodedLength(value, 0, value.length);
+    }
+
+    /**
+     * Write the self-delimiting, order-preserving encoding of the given region of a byte array.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the array containing the content
+     * @param valueOffset index of the first byte of content
+     * @param valueLength number of bytes of content
+     * @param order sort order of the field
+     * @return the offset immediately following the encoded value
+     * @throws IllegalArgumentException if either array is null
+     * @throws IndexOutOfBoundsException if either region is out of bounds
+     */
+    public static int putBytes(final byte[] dest, final int offset, final byte[] value, final int valueOffset, final int valueLength, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int mask;
+        int index;
+
+        checkAccess(dest, "OrderedBytes#putBytes", offset, encodedLength(value, valueOffset, valueLength));
+        mask = mask(order);
+        index = offset;
+        for (int valueIndex = valueOffset; valueIndex < valueOffset + valueLength; valueIndex++) {
+            if (value[valueIndex] == ESCAPE) {
+                dest[index++] = (byte) (ESCAPE ^ mask);
+                dest[index++] = (byte) (ESCAPED_ZERO ^ mask);
+            } else {
+                dest[index++] = (byte) (value[valueIndex] ^ mask);
+            }
+        }
+        dest[index++] = (byte) (ESCAPE ^ mask);
+        dest[index++] = (byte) (TERMINATOR ^ mask);
+        return index;
+    }
+
+    public static int putBytes(final byte[] dest, final int offset, final byte[] value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        Util.ensureNotNull(value, "OrderedBytes#putBytes", "value", byte[].class);
+        return putBytes(dest, offset, value, 0, value.length, order);
+    }
+
+    /**
+     * Scan a variable-length (byte array or string) encoding, verifying that it is well-formed.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @param mask the mask for the field's sort order
+     * @return the number of bytes of decoded content, in the low 32 bits, and the offset following
+     * the terminator, in the high 32 bits
+     * @throws IllegalArgumentException if the encoding is malformed or unterminated
+     */
+    private static long scanVariableLength(final byte[] src, final int offset, final int mask) throws IllegalArgumentException {
+        int index;
+        int decodedLength;
+        int next;
+
+        index = offset;
+        decodedLength = 0;
+        while (index < src.length) {
+            if (((src[index] ^ mask) & 0xFF) != ESCAPE) {
+                decodedLength++;
+                index++;
+                continue;
+            }
+            if (index + 1 >= src.length) {
+                break;
+            }
+            next = (src[index + 1] ^ mask) & 0xFF;
+            index += 2;
+            if (next == TERMINATOR) {
+                return (((long) index) << 32) | decodedLength;
+            }
+            if (next != ESCAPED_ZERO) {
+                throw new IllegalArgumentException("Invalid escape sequence at offset " + (index - 2));
+            }
+            decodedLength++;
+        }
+        throw new IllegalArgumentException("Unterminated variable-length field at offset " + offset);
+    }
+
+    /**
+     * Find the end of the variable-length (byte array or string) encoding which begins at the given
+     * offset, without decoding it; e.g. to skip over a field in a composite key.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @param order sort order of the field
+     * @return the offset immediately following the encoded value
+     * @throws IllegalArgumentException if the source is null, or the encoding is malformed
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public static int skipVariableLength(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        checkAccess(src, "OrderedBytes#skipVariableLength", offset, 0);
+        return (int) (scanVariableLength(src, offset, mask(order)) >>> 32);
+    }
+
+    /**
+     * Decode the byte array encoded at the given offset by
+     * {@link #putBytes(byte[], int, byte[], SortOrder)}.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @param order sort order of the field
+     * @return the decoded content
+     * @throws IllegalArgumentException if the source is null, or the encoding is malformed
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public static byte[] getBytes(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int mask;
+        final byte[] decoded;
+        int index;
+
+        checkAccess(src, "OrderedBytes#getBytes", offset, 0);
+        mask = mask(order);
+        decoded = new byte[(int) scanVariableLength(src, offset, mask)];
+        index = offset;
+        for (int decodedIndex = 0; decodedIndex < decoded.length; decodedIndex++) {
+            decoded[decodedIndex] = (byte) (src[index] ^ mask);
+            // an escaped zero occupies two bytes
+            index += (decoded[decodedIndex] == ESCAPE)?2:1;
+        }
+        return decoded;
+    }
+
+    /**
+     * @param value a string
+     * @return the number of bytes {@link #putString(byte[], int, String, SortOrder)} will write for
+     * it; computed without encoding the string
+     * @throws IllegalArgumentException if the string is null
+     */
+    public static int encodedLength(final String value) throws IllegalArgumentException {
+        int encodedLength;
+        Util.ensureNotNull(value, "OrderedBytes#encodedLength", "value", String.class);
+        encodedLength = Utf8.length(value) + VARIABLE_LENGTH_OVERHEAD;
+        // U+0000 is the only character whose UTF-8 encoding contains a zero byte
+        for (int index = 0; index < value.length(); index++) {
+            if (value.charAt(index) == ESCAPE) {
+                encodedLength++;
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Write the self-delimiting, order-preserving encoding of the given string, as UTF-8. The
+     * resulting order is that of the unsigned UTF-8 bytes, which is the order of the Unicode code
+     * points of the string.
+     * @param dest the array into which to write
+     * @param offset index in the array at which to write
+     * @param value the string to write
+     * @param order sort order of the field
+     * @return the offset immediately following the encoded value
+     * @throws IllegalArgumentException if the destination or string is null
+     * @throws IndexOutOfBoundsException if the destination is too small
+     */
+    public static int putString(final byte[] dest, final int offset, final String value, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int encodedLength;
+        final int mask;
+        final int end;
+        int from;
+        int index;
+
+        Util.ensureNotNull(value, "OrderedBytes#putString", "value", String.class);
+        encodedLength = encodedLength(value);
+        checkAccess(dest, "OrderedBytes#putString", offset, encodedLength);
+        mask = mask(order);
+        end = offset + encodedLength - VARIABLE_LENGTH_OVERHEAD;
+        // encode in place, then escape zero bytes (and apply the mask) working back from the end,
+        // so that no byte is overwritten before it has been moved
+        from = Utf8.encode(value, dest, offset);
+        index = end;
+        while (from > offset) {
+            from--;
+            if (dest[from] == ESCAPE) {
+                dest[--index] = (byte) (ESCAPED_ZERO ^ mask);
+                dest[--index] = (byte) (ESCAPE ^ mask);
+            } else {
+                dest[--index] = (byte) (dest[from] ^ mask);
+            }
+        }
+        dest[end] = (byte) (ESCAPE ^ mask);
+        dest[end + 1] = (byte) (TERMINATOR ^ mask);
+        return end + VARIABLE_LENGTH_OVERHEAD;
+    }
+
+    /**
+     * Decode the string encoded at the given offset by
+     * {@link #putString(byte[], int, String, SortOrder)}. An ascending encoding containing no
+     * escaped zeros is decoded in place, without first copying out its content.
+     * @param src the array containing the encoding
+     * @param offset index of the first byte of the encoding
+     * @param order sort order of the field
+     * @return the decoded string
+     * @throws IllegalArgumentException if the source is null, or the encoding is malformed
+     * @throws IndexOutOfBoundsException if the offset is out of bounds
+     */
+    public static String getString(final byte[] src, final int offset, final SortOrder order) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final long scanned;
+        final int decodedLength;
+
+        checkAccess(src, "OrderedBytes#getString", offset, 0);
+        if (mask(order) == 0) {
+            scanned = scanVariableLength(src, offset, 0);
+            decodedLength = (int) scanned;
+            if ((int) (scanned >>> 32) - offset - VARIABLE_LENGTH_OVERHEAD == decodedLength) {
+                return Utf8.decode(src, offset, decodedLength);
+            }
+        }
+        return BytesUtil.toString(getBytes(src, offset, order));
+    }
+
+    private OrderedBytes() { }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+/**
+ * Compact binary codec for values of a single type, registered with a {@link SerializerRegistry}
+ * so that {@link BytesUtil#serialize(java.io.Serializable)} and
+ * {@link BytesUtil#deserialize(byte[], Class)} use it in place of Java serialization for that
+ * type, without any change to their call sites.
+ * <br><br>
+ * Implementations write and read only the fields of the value; the framing which identifies the
+ * codec (by {@link #getTypeId()}) and delimits the payload is handled by {@link BytesUtil}.
+ * Implementations must be thread-safe (typically by being stateless).
+ * @param <T> type of the values handled by this serializer
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public interface Serializer<T> {
+
+    /**
+     * @return the exact (runtime) class of the values handled by this serializer
+     */
+    Class<T> getType();
+
+    /**
+     * Return the non-negative identifier written into every payload produced by this serializer,
+     * and used to select it again upon deserialization. The identifier must be unique within a
+     * registry, and must remain stable for as long as payloads written with it are to be read.
+     * @return the type identifier
+     */
+    int getTypeId();
+
+    /**
+     * Write the given value.
+     * @param value the value to write (non-null)
+     * @param out the writer to which to write
+     */
+    void serialize(T value, ByteWriter out);
+
+    /**
+     * Read a value written by {@link #serialize(Object, ByteWriter)}.
+     * @param in the reader from which to read, limited to exactly the bytes written by
+     * {@link #serialize(Object, ByteWriter)}
+     * @return the value read
+     */
+    T deserialize(ByteReader in);
+}
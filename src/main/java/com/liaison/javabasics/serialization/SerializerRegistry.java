@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe registry of {@link Serializer}s, keyed both by the exact class of the values they
+ * handle, and by their type identifiers. Types with no registered serializer fall back to Java
+ * serialization. {@link #DEFAULT} is the registry consulted by the BytesUtil serialization methods
+ * which do not take a registry parameter.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class SerializerRegistry {
+
+    /**
+     * Process-wide registry used by {@link BytesUtil#serialize(java.io.Serializable)} and
+     * {@link BytesUtil#deserialize(byte[], Class)}.
+     */
+    public static final SerializerRegistry DEFAULT = new SerializerRegistry();
+
+    private final ConcurrentMap<Class<?>, Serializer<?>> byType;
+    private final ConcurrentMap<Integer, Serializer<?>> byTypeId;
+
+    /**
+     * Register a serializer for its type and type identifier.
+     * @param serializer the serializer to register
+     * @param <T> type of the values handled by the serializer
+     * @return this registry
+     * @throws IllegalArgumentException if the serializer is null, reports a null type, or reports
+     * a negative type identifier
+     * @throws IllegalStateException if a serializer is already registered for the same type or
+     * type identifier
+     */
+    public synchronized <T> SerializerRegistry register(final Serializer<T> serializer) throws IllegalArgumentException, IllegalStateException {
+        final Class<T> type;
+        final int typeId;
+
+        Util.ensureNotNull(serializer, this, "serializer", Serializer.class);
+        type = serializer.getType();
+        typeId = serializer.getTypeId();
+        Util.ensureNotNull(type, this, "serializer type", Class.class);
+        if (typeId < 0) {
+            throw new IllegalArgumentException("Serializer type id may not be negative: " + typeId);
+        }
+        Util.validateExactlyOnce("type " + type.getName(), Serializer.class, byType.get(type));
+        Util.validateExactlyOnce("type id " + typeId, Serializer.class, byTypeId.get(Integer.valueOf(typeId)));
+        byType.put(type, serializer);
+        byTypeId.put(Integer.valueOf(typeId), serializer);
+        return this;
+    }
+
+    /**
+     * Remove the serializer registered for the given type, if any. Payloads already written with
+     * it will no longer be readable through this registry.
+     * @param type the type whose serializer is to be removed
+     * @return the removed serializer, or null if none was registered
+     */
+    public synchronized Serializer<?> unregister(final Class<?> type) {
+        final Serializer<?> removed;
+        removed = byType.remove(type);
+        if (removed != null) {
+            byTypeId.remove(Integer.valueOf(removed.getTypeId()));
+        }
+        return removed;
+    }
+
+    /**
+     * @param type exact class of a value to be serialized
+     * @param <T> type of the value
+     * @return the serializer registered for the class, or null if none is registered
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Serializer<T> forType(final Class<T> type) {
+        return (type == null)?null:(Serializer<T>) byType.get(type);
+    }
+
+    /**
+     * @param typeId type identifier read from a serialized payload
+     * @return the serializer registered with the identifier, or null if none is registered
+     */
+    public Serializer<?> forTypeId(final int typeId) {
+        return byTypeId.get(Integer.valueOf(typeId));
+    }
+
+    public SerializerRegistry() {
+        this.byType = new ConcurrentHashMap<>();
+        this.byTypeId = new ConcurrentHashMap<>();
+    }
+}
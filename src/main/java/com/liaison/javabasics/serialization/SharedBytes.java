@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle on a reference-counted byte array with copy-on-write semantics, supporting
+ * {@link DefensiveCopyStrategy#COPY_ON_WRITE}. Any number of handles may share one backing array
+ * (see {@link #share()}); reading through a handle never copies, and the array is only copied
+ * when a handle asks to modify it (see {@link #mutable()}) while other handles still share it.
+ * Data which is read many times and rarely (or never) modified is therefore never copied.
+ * <br><br>
+ * Every handle, including the one returned by {@link #share()}, must eventually be
+ * {@link #release() released}; a handle may not be used after it has been released. A single
+ * handle is not thread-safe, but distinct handles sharing an array may be used from different
+ * threads, as the reference count is maintained atomically.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class SharedBytes {
+
+    /**
+     * Backing array together with the number of handles sharing it.
+     */
+    private static final class Storage {
+        private final byte[] array;
+        private final AtomicInteger refs;
+        /**
+         * Set once a read-only view of the array has been handed out, after which the array is
+         * never modified in place.
+         */
+        private volatile boolean sliced;
+
+        private Storage(final byte[] array) {
+            this.array = array;
+            this.refs = new AtomicInteger(1);
+        }
+    }
+
+    private Storage storage;
+
+    /**
+     * Create a handle which takes ownership of the given array, without copying it; the caller
+     * must not use the array directly afterwards.
+     * @param bytes the array
+     * @return the handle, or null if the array is null
+     */
+    public static SharedBytes of(final byte[] bytes) {
+        return (bytes == null)?null:new SharedBytes(new Storage(bytes));
+    }
+
+    /**
+     * Create a handle on a private copy of the given array.
+     * @param bytes the array
+     * @return the handle, or null if the array is null
+     */
+    public static SharedBytes copyOf(final byte[] bytes) {
+        return (bytes == null)?null:new SharedBytes(new Storage(BytesUtil.copy(bytes)));
+    }
+
+    /**
+     * @return the storage referenced by this handle
+     * @throws IllegalStateException if this handle has been released
+     */
+    private Storage storage() throws IllegalStateException {
+        if (storage == null) {
+            throw new IllegalStateException(getClass().getSimpleName() + " already released");
+        }
+        return storage;
+    }
+
+    /**
+     * Create a new handle sharing this handle's backing array, without copying it.
+     * @return the new handle
+     * @throws IllegalStateException if this handle has been released
+     */
+    public SharedBytes share() throws IllegalStateException {
+        final Storage current;
+        current = storage();
+        current.refs.incrementAndGet();
+        return new SharedBytes(current);
+    }
+
+    /**
+     * Return the backing array for modification. If other handles share the array, or a view of
+     * it has been handed out by {@link #asSlice()}, it is first copied, and this handle detached
+     * onto the copy, so that modifications are not visible through the other handles or views;
+     * otherwise, the array is returned as-is.
+     * @return the array, exclusively owned by this handle
+     * @throws IllegalStateException if this handle has been released
+     */
+    public byte[] mutable() throws IllegalStateException {
+        final Storage current;
+        current = storage();
+        if ((current.refs.get() > 1) || current.sliced) {
+            storage = new Storage(Arrays.copyOf(current.array, current.array.length));
+            current.refs.decrementAndGet();
+        }
+        return storage.array;
+    }
+
+    /**
+     * Return a read-only view of the content, without copying. The view is a snapshot: it never
+     * changes, as any later {@link #mutable()} call, through this handle or any other, copies the
+     * array before it can be modified.
+     * @return a slice over the backing array
+     * @throws IllegalStateException if this handle has been released
+     */
+    public ByteSlice asSlice() throws IllegalStateException {
+        final Storage current;
+        current = storage();
+        current.sliced = true;
+        return ByteSlice.wrap(current.array);
+    }
+
+    /**
+     * @return a new array containing a copy of the content
+     * @throws IllegalStateException if this handle has been released
+     */
+    public byte[] toByteArray() throws IllegalStateException {
+        return BytesUtil.copy(storage().array);
+    }
+
+    /**
+     * @return number of bytes in the backing array
+     * @throws IllegalStateException if this handle has been released
+     */
+    public int length() throws IllegalStateException {
+        return storage().array.length;
+    }
+
+    /**
+     * @param index index within the array
+     * @return the byte at the index
+     * @throws IllegalStateException if this handle has been released
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public byte get(final int index) throws IllegalStateException, IndexOutOfBoundsException {
+        return storage().array[index];
+    }
+
+    /**
+     * @return true if other handles currently share this handle's backing array
+     * @throws IllegalStateException if this handle has been released
+     */
+    public boolean isShared() throws IllegalStateException {
+        return storage().refs.get() > 1;
+    }
+
+    /**
+     * @return number of handles currently sharing this handle's backing array
+     * @throws IllegalStateException if this handle has been released
+     */
+    public int refCount() throws IllegalStateException {
+        return storage().refs.get();
+    }
+
+    /**
+     * Release this handle; releasing a handle more than once has no further effect.
+     */
+    public void release() {
+        if (storage != null) {
+            storage.refs.decrementAndGet();
+            storage = null;
+        }
+    }
+
+    /**
+     * @param other another handle
+     * @return true if both handles currently share the same backing array
+     * @throws IllegalArgumentException if the other handle is null
+     * @throws IllegalStateException if either handle has been released
+     */
+    public boolean sharesWith(final SharedBytes other) throws IllegalArgumentException, IllegalStateException {
+        Util.ensureNotNull(other, this, "other", SharedBytes.class);
+        return storage() == other.storage();
+    }
+
+    private SharedBytes(final Storage storage) {
+        this.storage = storage;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+/**
+ * Direction in which order-preserving encodings (see {@link OrderedBytes}) sort, when compared as
+ * unsigned bytes. A DESCENDING encoding is the bitwise complement of the corresponding ASCENDING
+ * encoding.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public enum SortOrder {
+    ASCENDING, DESCENDING;
+
+    public static final SortOrder DEFAULT = ASCENDING;
+
+    /**
+     * @return the mask with which every encoded byte is XORed: <code>0x00</code> for ASCENDING,
+     * <code>0xFF</code> for DESCENDING
+     */
+    int mask() {
+        return (this == DESCENDING)?0xFF:0x00;
+    }
+}
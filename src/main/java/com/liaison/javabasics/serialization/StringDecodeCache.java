@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of decoded strings, keyed by their encoded (UTF-8) content, for workloads which
+ * decode the same small set of values (column qualifiers, enum-like field values, etc.) over and
+ * over. A hit returns the canonical {@link String} instance previously decoded for the same bytes,
+ * so repeated decodes allocate nothing, and the live set holds one copy of each value rather than
+ * one per decode. Lookups hash and compare the region of the caller's array directly; no
+ * intermediate array or string is created unless the lookup misses.
+ * <br><br>
+ * The cache is a fixed-size, two-way set-associative table: each key hashes to a set of two
+ * entries, a miss inserts its entry at the front of the set, and the entry at the back of a full
+ * set is evicted. Memory use is therefore bounded by the capacity (rounded up to a power of two)
+ * and the maximum cached length; longer values bypass the cache entirely, and are decoded as by
+ * {@link BytesUtil#toString(byte[], int, int)}.
+ * <br><br>
+ * Instances are thread-safe, and take no locks: entries are immutable, and are published by
+ * compare-and-set. Two threads which miss on the same key at the same moment may each decode it,
+ * but only one of the results is cached, and the other thread adopts it when it can.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class StringDecodeCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    /**
+     * Default length, in bytes, of the longest encoded value which is cached.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static final int MIN_CAPACITY = 2;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int WAYS = 2;
+
+    private static final class Entry {
+        private final int hash;
+        private final byte[] bytes;
+        private final String value;
+
+        private boolean matches(final int hash, final byte[] src, final int offset, final int length) {
+            return (this.hash == hash)
+                   && (bytes.length == length)
+                   && (ByteArrayAccess.mismatch(bytes, 0, src, offset, length) < 0);
+        }
+
+        private Entry(final int hash, final byte[] bytes, final String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+    }
+
+    private final int maxLength;
+    private final int setMask;
+    private final AtomicReferenceArray<Entry> table;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder bypasses;
+
+    private static int hash(final byte[] bytes, final int offset, final int length) {
+        final long hash;
+        hash = XXHash64.hash(bytes, offset, length, XXHash64.DEFAULT_SEED);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Decode a region of UTF-8 ({@link Constants#CHARSET_DEFAULT}), returning the cached instance
+     * if the same content has been decoded before.
+     * @param bytes array containing the encoded string
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return the decoded string
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public String decode(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int hash;
+        final int first;
+        final Entry front;
+        final Entry back;
+        final Entry created;
+        final Entry current;
+
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        if (length > maxLength) {
+            bypasses.increment();
+            return Utf8.decode(bytes, offset, length);
+        }
+        hash = hash(bytes, offset, length);
+        first = (hash & setMask) * WAYS;
+        front = table.get(first);
+        if ((front != null) && front.matches(hash, bytes, offset, length)) {
+            hits.increment();
+            return front.value;
+        }
+        back = table.get(first + 1);
+        if ((back != null) && back.matches(hash, bytes, offset, length)) {
+            hits.increment();
+            return back.value;
+        }
+        misses.increment();
+        created = new Entry(hash,
+                            Arrays.copyOfRange(bytes, offset, offset + length),
+                            Utf8.decode(bytes, offset, length));
+        if (table.compareAndSet(first, front, created)) {
+            // demote the previous front entry, evicting the back entry if there was one
+            if (front != null) {
+                if (back != null) {
+                    evictions.increment();
+                }
+                table.set(first + 1, front);
+            }
+            return created.value;
+        }
+        // another thread replaced the front entry first; adopt its value if it is the same key
+        current = table.get(first);
+        if ((current != null) && current.matches(hash, bytes, offset, length)) {
+            return current.value;
+        }
+        return created.value;
+    }
+
+    /**
+     * Decode an entire array of UTF-8 ({@link Constants#CHARSET_DEFAULT}), returning the cached
+     * instance if the same content has been decoded before.
+     * @param bytes the encoded string
+     * @return the decoded string
+     * @throws IllegalArgumentException if the array is null
+     */
+    public String decode(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Discard all cached entries. Statistics are not reset.
+     */
+    public void clear() {
+        for (int index = 0; index < table.length(); index++) {
+            table.set(index, null);
+        }
+    }
+
+    /**
+     * @return maximum number of entries held
+     */
+    public int getCapacity() {
+        return table.length();
+    }
+
+    /**
+     * @return length, in bytes, of the longest encoded value which is cached
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return number of entries currently held; computed by scanning the table
+     */
+    public int size() {
+        int size;
+        size = 0;
+        for (int index = 0; index < table.length(); index++) {
+            if (table.get(index) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of decodes served by a cached instance
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of cacheable decodes which were not found in the cache
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of decodes which bypassed the cache because the value exceeded the maximum
+     * cached length
+     */
+    public long getBypassCount() {
+        return bypasses.sum();
+    }
+
+    /**
+     * @return fraction of cacheable decodes served by a cached instance; 0 if there have been none
+     */
+    public double getHitRate() {
+        final long hitCount;
+        final long total;
+        hitCount = getHitCount();
+        total = hitCount + getMissCount();
+        return (total == 0)?0.0:((double) hitCount / total);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder strGen;
+        strGen = new StringBuilder();
+        strGen.append(getClass().getSimpleName())
+              .append("[capacity=").append(getCapacity())
+              .append(", maxLength=").append(maxLength)
+              .append(", hits=").append(getHitCount())
+              .append(", misses=").append(getMissCount())
+              .append(", evictions=").append(getEvictionCount())
+              .append(", bypasses=").append(getBypassCount())
+              .append(']');
+        return strGen.toString();
+    }
+
+    /**
+     * Create a cache.
+     * @param capacity maximum number of entries; rounded up to a power of two, between 2 and 2^30
+     * @param maxLength length, in bytes, of the longest encoded value to cache
+     * @throws IllegalArgumentException if the capacity is not positive or exceeds 2^30, or the
+     * maximum length is negative
+     */
+    public StringDecodeCache(final int capacity, final int maxLength) throws IllegalArgumentException {
+        final int tableSize;
+
+        if ((capacity <= 0) || (capacity > MAX_CAPACITY)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY
+                                               + ": " + capacity);
+        }
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Maximum length may not be negative: " + maxLength);
+        }
+        tableSize = Math.max(MIN_CAPACITY, Integer.highestOneBit(capacity - 1) << 1);
+        this.maxLength = maxLength;
+        this.setMask = (tableSize / WAYS) - 1;
+        this.table = new AtomicReferenceArray<>(tableSize);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.bypasses = new LongAdder();
+    }
+
+    /**
+     * Create a cache with the default capacity and maximum cached length.
+     */
+    public StringDecodeCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+}
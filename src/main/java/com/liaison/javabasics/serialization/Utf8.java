@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Uninstantiable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Package-internal UTF-8 encoding and decoding directly between {@link CharSequence}s and
+ * existing arrays or buffers, without the intermediate arrays of {@link String#getBytes(Charset)}
+ * and without the overhead of a {@link CharsetEncoder}. Output is byte-for-byte identical to
+ * <code>String.getBytes(StandardCharsets.UTF_8)</code>, including the replacement of unpaired
+ * surrogates with <code>'?'</code>. Most strings handled by this library are pure ASCII, so both
+ * directions take a fast path for ASCII content.
+ * <br><br>
+ * The encoding methods perform no bounds checking; callers are expected to size the destination
+ * with {@link #length(CharSequence)} first. Also holds the per-thread {@link CharsetEncoder}s used
+ * for charsets other than UTF-8.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+final class Utf8 extends Uninstantiable {
+
+    private static final long ASCII_MASK = 0x8080808080808080L;
+    private static final byte UNMAPPABLE = (byte) '?';
+
+    private static final ThreadLocal<Map<Charset, CharsetEncoder>> ENCODERS =
+        ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * @param value the characters to measure
+     * @return the exact length of the UTF-8 encoding of the characters
+     * @throws IllegalArgumentException if the encoding is longer than the capacity of an array
+     */
+    static int length(final CharSequence value) throws IllegalArgumentException {
+        final int count;
+        long length;
+        int index;
+        char next;
+
+        count = value.length();
+        index = 0;
+        while ((index < count) && (value.charAt(index) < 0x80)) {
+            index++;
+        }
+        length = count;
+        while (index < count) {
+            next = value.charAt(index++);
+            if (next < 0x80) {
+                continue;
+            }
+            if (next < 0x800) {
+                length += 1;
+            } else if (!Character.isSurrogate(next)) {
+                length += 2;
+            } else if (Character.isHighSurrogate(next)
+                       && (index < count)
+                       && Character.isLowSurrogate(value.charAt(index))) {
+                // the pair of chars becomes 4 bytes
+                length += 2;
+                index++;
+            }
+            // an unpaired surrogate becomes a single '?'
+        }
+        if (length > BytesUtil.BYTE_CONCAT_MAX_LENGTH) {
+            throw new IllegalArgumentException("UTF-8 encoding of " + count
+                                               + " chars exceeds the capacity of a byte[]");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Encode characters as UTF-8 into an array.
+     * @param value the characters to encode
+     * @param dest destination array, with at least {@link #length(CharSequence)} bytes available
+     * at <code>offset</code>
+     * @param offset index in the destination at which to begin writing
+     * @return the index immediately following the encoded characters
+     */
+    static int encode(final CharSequence value, final byte[] dest, final int offset) {
+        final int count;
+        int at;
+        int index;
+        int codePoint;
+        char next;
+
+        count = value.length();
+        at = offset;
+        index = 0;
+        while ((index < count) && ((next = value.charAt(index)) < 0x80)) {
+            dest[at++] = (byte) next;
+            index++;
+        }
+        while (index < count) {
+            next = value.charAt(index++);
+            if (next < 0x80) {
+                dest[at++] = (byte) next;
+            } else if (next < 0x800) {
+                dest[at++] = (byte) (0xC0 | (next >>> 6));
+                dest[at++] = (byte) (0x80 | (next & 0x3F));
+            } else if (!Character.isSurrogate(next)) {
+                dest[at++] = (byte) (0xE0 | (next >>> 12));
+                dest[at++] = (byte) (0x80 | ((next >>> 6) & 0x3F));
+                dest[at++] = (byte) (0x80 | (next & 0x3F));
+            } else if (Character.isHighSurrogate(next)
+                       && (index < count)
+                       && Character.isLowSurrogate(value.charAt(index))) {
+                codePoint = Character.toCodePoint(next, value.charAt(index++));
+                dest[at++] = (byte) (0xF0 | (codePoint >>> 18));
+                dest[at++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+                dest[at++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+                dest[at++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                dest[at++] = UNMAPPABLE;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Encode characters as UTF-8 into a buffer, at an absolute index, without modifying the
+     * buffer's position.
+     * @param value the characters to encode
+     * @param dest destination buffer, with at least {@link #length(CharSequence)} bytes available
+     * at <code>index</code>
+     * @param index index in the destination at which to begin writing
+     * @return the index immediately following the encoded characters
+     */
+    static int encode(final CharSequence value, final ByteBuffer dest, final int index) {
+        final int count;
+        int at;
+        int codePoint;
+        char next;
+
+        if (dest.hasArray()) {
+            return encode(value, dest.array(), dest.arrayOffset() + index) - dest.arrayOffset();
+        }
+        count = value.length();
+        at = index;
+        for (int charIndex = 0; charIndex < count; charIndex++) {
+            next = value.charAt(charIndex);
+            if (next < 0x80) {
+                dest.put(at++, (byte) next);
+            } else if (next < 0x800) {
+                dest.put(at++, (byte) (0xC0 | (next >>> 6)));
+                dest.put(at++, (byte) (0x80 | (next & 0x3F)));
+            } else if (!Character.isSurrogate(next)) {
+                dest.put(at++, (byte) (0xE0 | (next >>> 12)));
+                dest.put(at++, (byte) (0x80 | ((next >>> 6) & 0x3F)));
+                dest.put(at++, (byte) (0x80 | (next & 0x3F)));
+            } else if (Character.isHighSurrogate(next)
+                       && (charIndex + 1 < count)
+                       && Character.isLowSurrogate(value.charAt(charIndex + 1))) {
+                codePoint = Character.toCodePoint(next, value.charAt(++charIndex));
+                dest.put(at++, (byte) (0xF0 | (codePoint >>> 18)));
+                dest.put(at++, (byte) (0x80 | ((codePoint >>> 12) & 0x3F)));
+                dest.put(at++, (byte) (0x80 | ((codePoint >>> 6) & 0x3F)));
+                dest.put(at++, (byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                dest.put(at++, UNMAPPABLE);
+            }
+        }
+        return at;
+    }
+
+    /**
+     * @param bytes the array
+     * @param offset index of the first byte of a region
+     * @param length length of the region
+     * @return true if every byte in the region is ASCII (i.e. has its high bit clear)
+     */
+    static boolean isAscii(final byte[] bytes, final int offset, final int length) {
+        final int end;
+        int index;
+
+        index = offset;
+        end = offset + length;
+        while (index + Long.BYTES <= end) {
+            if ((ByteArrayAccess.getLong(bytes, index) & ASCII_MASK) != 0) {
+                return false;
+            }
+            index += Long.BYTES;
+        }
+        while (index < end) {
+            if (bytes[index] < 0) {
+                return false;
+            }
+            index++;
+        }
+        return true;
+    }
+
+    /**
+     * Decode a region of UTF-8. Pure-ASCII content is copied straight into the string, bypassing
+     * the charset decoder.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return the decoded string
+     */
+    @SuppressWarnings("deprecation")
+    static String decode(final byte[] bytes, final int offset, final int length) {
+        if (isAscii(bytes, offset, length)) {
+            // the "hibyte" constructor widens each byte to a char (or, on Java 9+, copies the
+            // bytes into a compact Latin-1 string) with no decoding at all
+            return new String(bytes, 0, offset, length);
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param charset a charset
+     * @return this thread's encoder for the charset, reset, and configured (like
+     * {@link String#getBytes(Charset)}) to replace malformed and unmappable input
+     */
+    static CharsetEncoder encoder(final Charset charset) {
+        final Map<Charset, CharsetEncoder> encoders;
+        CharsetEncoder encoder;
+
+        encoders = ENCODERS.get();
+        encoder = encoders.get(charset);
+        if (encoder == null) {
+            encoder = charset.newEncoder()
+                             .onMalformedInput(CodingErrorAction.REPLACE)
+                             .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encoders.put(charset, encoder);
+        }
+        return encoder.reset();
+    }
+
+    private Utf8() { }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright © 2016 Liaison Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.liaison.javabasics.serialization;
+
+import com.liaison.javabasics.commons.Util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The xxHash64 non-cryptographic hash function: fast, well-distributed 64-bit hashes of byte
+ * sequences, suitable for partitioning, sharding, and deduplication by key (but not for security,
+ * as collisions may be constructed deliberately). Values are identical to those of the reference
+ * implementation, so may be shared with other systems.
+ * <br><br>
+ * The static methods hash a region of a <code>byte[]</code> or {@link ByteBuffer} in one call,
+ * without allocating. An instance hashes a sequence of bytes supplied incrementally (e.g. the
+ * fields of a composite key, or the chunks of a stream), producing the same value as hashing their
+ * concatenation; instances may be {@link #reset()} and reused, and are not thread-safe.
+ * @author Branden Smith; Liaison Technologies, Inc.
+ */
+public final class XXHash64 {
+
+    public static final long DEFAULT_SEED = 0L;
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private final long seed;
+    private final byte[] pending;
+    private int pendingCount;
+    private long totalLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    private static long round(final long acc, final long input) {
+        return Long.rotateLeft(acc + (input * PRIME2), 31) * PRIME1;
+    }
+
+    private static long merge(final long acc, final long value) {
+        return ((acc ^ round(0, value)) * PRIME1) + PRIME4;
+    }
+
+    private static long converge(final long v1, final long v2, final long v3, final long v4) {
+        long hash;
+        hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+               + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        hash = merge(hash, v1);
+        hash = merge(hash, v2);
+        hash = merge(hash, v3);
+        return merge(hash, v4);
+    }
+
+    private static long avalanche(final long hash) {
+        long mixed;
+        mixed = hash;
+        mixed ^= mixed >>> 33;
+        mixed *= PRIME2;
+        mixed ^= mixed >>> 29;
+        mixed *= PRIME3;
+        return mixed ^ (mixed >>> 32);
+    }
+
+    /**
+     * Mix in the final (fewer than {@value #STRIPE}) bytes, and finalize.
+     * @param hash hash state after all complete stripes, and the total length, have been mixed in
+     * @param bytes array containing the final bytes
+     * @param offset index of the first final byte
+     * @param length number of final bytes
+     * @return the finished hash
+     */
+    private static long finish(final long hash, final byte[] bytes, final int offset, final int length) {
+        final int end;
+        long mixed;
+        int index;
+
+        mixed = hash;
+        index = offset;
+        end = offset + length;
+        while (index + Long.BYTES <= end) {
+            mixed ^= round(0, ByteArrayAccess.getLongLE(bytes, index));
+            mixed = (Long.rotateLeft(mixed, 27) * PRIME1) + PRIME4;
+            index += Long.BYTES;
+        }
+        if (index + Integer.BYTES <= end) {
+            mixed ^= (ByteArrayAccess.getIntLE(bytes, index) & 0xFFFFFFFFL) * PRIME1;
+            mixed = (Long.rotateLeft(mixed, 23) * PRIME2) + PRIME3;
+            index += Integer.BYTES;
+        }
+        while (index < end) {
+            mixed ^= (bytes[index] & 0xFFL) * PRIME5;
+            mixed = Long.rotateLeft(mixed, 11) * PRIME1;
+            index++;
+        }
+        return avalanche(mixed);
+    }
+
+    /**
+     * Read a little-endian long from a buffer, whatever the buffer's own byte order.
+     * @param buffer the buffer
+     * @param index absolute index of the first byte
+     * @return the value
+     */
+    private static long getLongLE(final ByteBuffer buffer, final int index) {
+        final long value;
+        value = buffer.getLong(index);
+        return (buffer.order() == ByteOrder.LITTLE_ENDIAN)?value:Long.reverseBytes(value);
+    }
+
+    private static int getIntLE(final ByteBuffer buffer, final int index) {
+        final int value;
+        value = buffer.getInt(index);
+        return (buffer.order() == ByteOrder.LITTLE_ENDIAN)?value:Integer.reverseBytes(value);
+    }
+
+    /**
+     * Hash a region of a byte array.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @param seed seed, which selects one of a family of independent hash functions
+     * @return the hash
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public static long hash(final byte[] bytes, final int offset, final int length, final long seed) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int end;
+        long acc1;
+        long acc2;
+        long acc3;
+        long acc4;
+        long hash;
+        int index;
+
+        Util.ensureNotNull(bytes, XXHash64.class, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        index = offset;
+        end = offset + length;
+        if (length >= STRIPE) {
+            acc1 = seed + PRIME1 + PRIME2;
+            acc2 = seed + PRIME2;
+            acc3 = seed;
+            acc4 = seed - PRIME1;
+            do {
+                acc1 = round(acc1, ByteArrayAccess.getLongLE(bytes, index));
+                acc2 = round(acc2, ByteArrayAccess.getLongLE(bytes, index + 8));
+                acc3 = round(acc3, ByteArrayAccess.getLongLE(bytes, index + 16));
+                acc4 = round(acc4, ByteArrayAccess.getLongLE(bytes, index + 24));
+                index += STRIPE;
+            } while (index + STRIPE <= end);
+            hash = converge(acc1, acc2, acc3, acc4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        return finish(hash + length, bytes, index, end - index);
+    }
+
+    /**
+     * @param bytes the array to hash
+     * @return the hash of the entire array, with {@link #DEFAULT_SEED}
+     * @throws IllegalArgumentException if the array is null
+     */
+    public static long hash(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, XXHash64.class, "bytes", byte[].class);
+        return hash(bytes, 0, bytes.length, DEFAULT_SEED);
+    }
+
+    /**
+     * Hash the remaining content (position through limit) of a buffer, without modifying its
+     * position. Heap and direct buffers hash identically, whatever their byte order.
+     * @param buffer the buffer
+     * @param seed seed, which selects one of a family of independent hash functions
+     * @return the hash
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public static long hash(final ByteBuffer buffer, final long seed) throws IllegalArgumentException {
+        final int end;
+        final int length;
+        long acc1;
+        long acc2;
+        long acc3;
+        long acc4;
+        long hash;
+        int index;
+
+        Util.ensureNotNull(buffer, XXHash64.class, "buffer", ByteBuffer.class);
+        if (buffer.hasArray()) {
+            return hash(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), seed);
+        }
+        index = buffer.position();
+        end = buffer.limit();
+        length = end - index;
+        if (length >= STRIPE) {
+            acc1 = seed + PRIME1 + PRIME2;
+            acc2 = seed + PRIME2;
+            acc3 = seed;
+            acc4 = seed - PRIME1;
+            do {
+                acc1 = round(acc1, getLongLE(buffer, index));
+                acc2 = round(acc2, getLongLE(buffer, index + 8));
+                acc3 = round(acc3, getLongLE(buffer, index + 16));
+                acc4 = round(acc4, getLongLE(buffer, index + 24));
+                index += STRIPE;
+            } while (index + STRIPE <= end);
+            hash = converge(acc1, acc2, acc3, acc4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += length;
+        while (index + Long.BYTES <= end) {
+            hash ^= round(0, getLongLE(buffer, index));
+            hash = (Long.rotateLeft(hash, 27) * PRIME1) + PRIME4;
+            index += Long.BYTES;
+        }
+        if (index + Integer.BYTES <= end) {
+            hash ^= (getIntLE(buffer, index) & 0xFFFFFFFFL) * PRIME1;
+            hash = (Long.rotateLeft(hash, 23) * PRIME2) + PRIME3;
+            index += Integer.BYTES;
+        }
+        while (index < end) {
+            hash ^= (buffer.get(index) & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            index++;
+        }
+        return avalanche(hash);
+    }
+
+    /**
+     * @param buffer the buffer to hash
+     * @return the hash of the remaining content of the buffer, with {@link #DEFAULT_SEED}
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public static long hash(final ByteBuffer buffer) throws IllegalArgumentException {
+        return hash(buffer, DEFAULT_SEED);
+    }
+
+    /**
+     * Mix in one complete stripe.
+     * @param bytes array containing the stripe
+     * @param offset index of the first byte of the stripe
+     */
+    private void consume(final byte[] bytes, final int offset) {
+        v1 = round(v1, ByteArrayAccess.getLongLE(bytes, offset));
+        v2 = round(v2, ByteArrayAccess.getLongLE(bytes, offset + 8));
+        v3 = round(v3, ByteArrayAccess.getLongLE(bytes, offset + 16));
+        v4 = round(v4, ByteArrayAccess.getLongLE(bytes, offset + 24));
+    }
+
+    /**
+     * Append a region of a byte array to the sequence being hashed.
+     * @param bytes the array
+     * @param offset index of the first byte of the region
+     * @param length length of the region
+     * @return this hasher
+     * @throws IllegalArgumentException if the array is null
+     * @throws IndexOutOfBoundsException if the region does not lie within the array
+     */
+    public XXHash64 update(final byte[] bytes, final int offset, final int length) throws IllegalArgumentException, IndexOutOfBoundsException {
+        final int end;
+        int index;
+        int step;
+
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        BytesUtil.checkRegion(bytes.length, offset, length);
+        totalLength += length;
+        index = offset;
+        end = offset + length;
+        if (pendingCount > 0) {
+            step = Math.min(STRIPE - pendingCount, length);
+            System.arraycopy(bytes, index, pending, pendingCount, step);
+            pendingCount += step;
+            index += step;
+            if (pendingCount < STRIPE) {
+                return this;
+            }
+            consume(pending, 0);
+            pendingCount = 0;
+        }
+        while (index + STRIPE <= end) {
+            consume(bytes, index);
+            index += STRIPE;
+        }
+        System.arraycopy(bytes, index, pending, 0, end - index);
+        pendingCount = end - index;
+        return this;
+    }
+
+    /**
+     * @param bytes array to append to the sequence being hashed
+     * @return this hasher
+     * @throws IllegalArgumentException if the array is null
+     */
+    public XXHash64 update(final byte[] bytes) throws IllegalArgumentException {
+        Util.ensureNotNull(bytes, this, "bytes", byte[].class);
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Append the remaining content of a buffer to the sequence being hashed, advancing the
+     * buffer's position to its limit.
+     * @param buffer the buffer
+     * @return this hasher
+     * @throws IllegalArgumentException if the buffer is null
+     */
+    public XXHash64 update(final ByteBuffer buffer) throws IllegalArgumentException {
+        int step;
+
+        Util.ensureNotNull(buffer, this, "buffer", ByteBuffer.class);
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return this;
+        }
+        while (buffer.hasRemaining()) {
+            // stage direct content through the pending stripe
+            step = Math.min(STRIPE - pendingCount, buffer.remaining());
+            buffer.get(pending, pendingCount, step);
+            pendingCount += step;
+            totalLength += step;
+            if (pendingCount == STRIPE) {
+                consume(pending, 0);
+                pendingCount = 0;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @param value byte to append to the sequence being hashed
+     * @return this hasher
+     */
+    public XXHash64 update(final byte value) {
+        pending[pendingCount++] = value;
+        totalLength++;
+        if (pendingCount == STRIPE) {
+            consume(pending, 0);
+            pendingCount = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Return the hash of the bytes appended so far; further bytes may still be appended.
+     * @return the hash
+     */
+    public long getValue() {
+        final long hash;
+        hash = (totalLength >= STRIPE)?converge(v1, v2, v3, v4):(seed + PRIME5);
+        return finish(hash + totalLength, pending, 0, pendingCount);
+    }
+
+    /**
+     * Discard the bytes appended so far, so that this hasher may be reused.
+     * @return this hasher
+     */
+    public XXHash64 reset() {
+        pendingCount = 0;
+        totalLength = 0;
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        return this;
+    }
+
+    /**
+     * Create a streaming hasher.
+     * @param seed seed, which selects one of a family of independent hash functions
+     */
+    public XXHash64(final long seed) {
+        this.seed = seed;
+        this.pending = new byte[STRIPE];
+        reset();
+    }
+
+    /**
+     * Create a streaming hasher with {@link #DEFAULT_SEED}.
+     */
+    public XXHash64() {
+        this(DEFAULT_SEED);
+    }
+}